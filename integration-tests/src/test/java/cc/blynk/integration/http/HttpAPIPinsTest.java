@@ -380,6 +380,50 @@ public class HttpAPIPinsTest extends SingleServerInstancePerTest {
         }
     }
 
+    @Test
+    public void testBatchPut() throws Exception {
+        HttpPut request = new HttpPut(httpsServerUrl + "4ae3851817194e2596cf1b7103603ef8/batch/update");
+        request.setEntity(new StringEntity("[{\"pin\":\"a14\", \"value\":[\"101\"]}, "
+                + "{\"token\":\"4ae3851817194e2596cf1b7103603ef8\", \"pin\":\"v10\", \"value\":[\"1\", \"2\"]}]",
+                ContentType.APPLICATION_JSON));
+
+        try (CloseableHttpResponse response = httpclient.execute(request)) {
+            assertEquals(200, response.getStatusLine().getStatusCode());
+        }
+
+        HttpGet getRequest = new HttpGet(httpsServerUrl + "4ae3851817194e2596cf1b7103603ef8/get/a14");
+
+        try (CloseableHttpResponse response = httpclient.execute(getRequest)) {
+            assertEquals(200, response.getStatusLine().getStatusCode());
+            List<String> values = TestUtil.consumeJsonPinValues(response);
+            assertEquals(1, values.size());
+            assertEquals("101", values.get(0));
+        }
+
+        getRequest = new HttpGet(httpsServerUrl + "4ae3851817194e2596cf1b7103603ef8/get/v10");
+
+        try (CloseableHttpResponse response = httpclient.execute(getRequest)) {
+            assertEquals(200, response.getStatusLine().getStatusCode());
+            List<String> values = TestUtil.consumeJsonPinValues(response);
+            assertEquals(2, values.size());
+            assertEquals("1", values.get(0));
+            assertEquals("2", values.get(1));
+        }
+    }
+
+    @Test
+    public void testBatchPutWithWrongTokenIsNotApplied() throws Exception {
+        HttpPut request = new HttpPut(httpsServerUrl + "4ae3851817194e2596cf1b7103603ef8/batch/update");
+        request.setEntity(new StringEntity("[{\"pin\":\"a14\", \"value\":[\"102\"]}, "
+                + "{\"token\":\"dsadasddasdasdasdasdasdas\", \"pin\":\"v10\", \"value\":[\"1\"]}]",
+                ContentType.APPLICATION_JSON));
+
+        try (CloseableHttpResponse response = httpclient.execute(request)) {
+            assertEquals(400, response.getStatusLine().getStatusCode());
+            assertEquals("Invalid token.", TestUtil.consumeText(response));
+        }
+    }
+
     @Test
     public void testPutWithExistingPinWrongBody() throws Exception {
         HttpPut request = new HttpPut(httpsServerUrl + "4ae3851817194e2596cf1b7103603ef8/update/a14");
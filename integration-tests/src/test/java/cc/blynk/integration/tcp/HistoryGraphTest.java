@@ -815,7 +815,7 @@ public class HistoryGraphTest extends SingleServerInstancePerTest {
         assertEquals(0, holder.reportingDiskDao.averageAggregator.getMinute().size());
         assertEquals(0, holder.reportingDiskDao.averageAggregator.getHourly().size());
         assertEquals(0, holder.reportingDiskDao.averageAggregator.getDaily().size());
-        assertEquals(0, holder.reportingDiskDao.rawDataProcessor.rawStorage.size());
+        assertEquals(0, holder.reportingDiskDao.rawDataProcessor.size());
 
         clientPair.hardwareClient.send("hardware vw 89 111");
         verify(clientPair.appClient.responseMock, timeout(500)).channelRead(any(), eq(new HardwareMessage(1, b("1-0 vw 89 111"))));
@@ -823,7 +823,7 @@ public class HistoryGraphTest extends SingleServerInstancePerTest {
         assertEquals(0, holder.reportingDiskDao.averageAggregator.getMinute().size());
         assertEquals(0, holder.reportingDiskDao.averageAggregator.getHourly().size());
         assertEquals(0, holder.reportingDiskDao.averageAggregator.getDaily().size());
-        assertEquals(0, holder.reportingDiskDao.rawDataProcessor.rawStorage.size());
+        assertEquals(0, holder.reportingDiskDao.rawDataProcessor.size());
     }
 
     @Test
@@ -846,7 +846,7 @@ public class HistoryGraphTest extends SingleServerInstancePerTest {
         assertEquals(0, holder.reportingDiskDao.averageAggregator.getHourly().size());
         assertEquals(0, holder.reportingDiskDao.averageAggregator.getDaily().size());
         assertEquals(0, holder.reportingDiskDao.rawDataCacheForGraphProcessor.rawStorage.size());
-        assertEquals(0, holder.reportingDiskDao.rawDataProcessor.rawStorage.size());
+        assertEquals(0, holder.reportingDiskDao.rawDataProcessor.size());
 
         clientPair.hardwareClient.send("hardware vw 88 111");
         verify(clientPair.appClient.responseMock, timeout(500)).channelRead(any(), eq(new HardwareMessage(1, b("1-0 vw 88 111"))));
@@ -855,7 +855,7 @@ public class HistoryGraphTest extends SingleServerInstancePerTest {
         assertEquals(1, holder.reportingDiskDao.averageAggregator.getHourly().size());
         assertEquals(1, holder.reportingDiskDao.averageAggregator.getDaily().size());
         assertEquals(1, holder.reportingDiskDao.rawDataCacheForGraphProcessor.rawStorage.size());
-        assertEquals(0, holder.reportingDiskDao.rawDataProcessor.rawStorage.size());
+        assertEquals(0, holder.reportingDiskDao.rawDataProcessor.size());
     }
 
     @Test
@@ -882,7 +882,7 @@ public class HistoryGraphTest extends SingleServerInstancePerTest {
         assertEquals(0, holder.reportingDiskDao.averageAggregator.getHourly().size());
         assertEquals(0, holder.reportingDiskDao.averageAggregator.getDaily().size());
         assertEquals(0, holder.reportingDiskDao.rawDataCacheForGraphProcessor.rawStorage.size());
-        assertEquals(0, holder.reportingDiskDao.rawDataProcessor.rawStorage.size());
+        assertEquals(0, holder.reportingDiskDao.rawDataProcessor.size());
 
         clientPair.hardwareClient.send("hardware vw 88 111");
         verify(clientPair.appClient.responseMock, timeout(500)).channelRead(any(), eq(new HardwareMessage(1, b("1-0 vw 88 111"))));
@@ -891,7 +891,7 @@ public class HistoryGraphTest extends SingleServerInstancePerTest {
         assertEquals(1, holder.reportingDiskDao.averageAggregator.getHourly().size());
         assertEquals(1, holder.reportingDiskDao.averageAggregator.getDaily().size());
         assertEquals(0, holder.reportingDiskDao.rawDataCacheForGraphProcessor.rawStorage.size());
-        assertEquals(0, holder.reportingDiskDao.rawDataProcessor.rawStorage.size());
+        assertEquals(0, holder.reportingDiskDao.rawDataProcessor.size());
     }
 
     @Test
@@ -933,7 +933,7 @@ public class HistoryGraphTest extends SingleServerInstancePerTest {
         assertEquals(0, holder.reportingDiskDao.averageAggregator.getHourly().size());
         assertEquals(0, holder.reportingDiskDao.averageAggregator.getDaily().size());
         assertEquals(0, holder.reportingDiskDao.rawDataCacheForGraphProcessor.rawStorage.size());
-        assertEquals(0, holder.reportingDiskDao.rawDataProcessor.rawStorage.size());
+        assertEquals(0, holder.reportingDiskDao.rawDataProcessor.size());
 
         clientPair.hardwareClient.send("hardware vw 88 111");
         verify(clientPair.appClient.responseMock, timeout(500)).channelRead(any(), eq(new HardwareMessage(1, b("1-0 vw 88 111"))));
@@ -942,7 +942,7 @@ public class HistoryGraphTest extends SingleServerInstancePerTest {
         assertEquals(1, holder.reportingDiskDao.averageAggregator.getHourly().size());
         assertEquals(1, holder.reportingDiskDao.averageAggregator.getDaily().size());
         assertEquals(1, holder.reportingDiskDao.rawDataCacheForGraphProcessor.rawStorage.size());
-        assertEquals(0, holder.reportingDiskDao.rawDataProcessor.rawStorage.size());
+        assertEquals(0, holder.reportingDiskDao.rawDataProcessor.size());
     }
 
     @Test
@@ -989,7 +989,7 @@ public class HistoryGraphTest extends SingleServerInstancePerTest {
         assertEquals(0, holder.reportingDiskDao.averageAggregator.getHourly().size());
         assertEquals(0, holder.reportingDiskDao.averageAggregator.getDaily().size());
         assertEquals(0, holder.reportingDiskDao.rawDataCacheForGraphProcessor.rawStorage.size());
-        assertEquals(0, holder.reportingDiskDao.rawDataProcessor.rawStorage.size());
+        assertEquals(0, holder.reportingDiskDao.rawDataProcessor.size());
 
         clientPair.hardwareClient.send("hardware vw 88 111");
         verify(clientPair.appClient.responseMock, timeout(500)).channelRead(any(), eq(new HardwareMessage(1, b("1-0 vw 88 111"))));
@@ -1001,7 +1001,7 @@ public class HistoryGraphTest extends SingleServerInstancePerTest {
         assertEquals(2, holder.reportingDiskDao.averageAggregator.getHourly().size());
         assertEquals(2, holder.reportingDiskDao.averageAggregator.getDaily().size());
         assertEquals(2, holder.reportingDiskDao.rawDataCacheForGraphProcessor.rawStorage.size());
-        assertEquals(0, holder.reportingDiskDao.rawDataProcessor.rawStorage.size());
+        assertEquals(0, holder.reportingDiskDao.rawDataProcessor.size());
     }
 
     @Test
@@ -1045,7 +1045,7 @@ public class HistoryGraphTest extends SingleServerInstancePerTest {
         assertEquals(0, holder.reportingDiskDao.averageAggregator.getHourly().size());
         assertEquals(0, holder.reportingDiskDao.averageAggregator.getDaily().size());
         assertEquals(0, holder.reportingDiskDao.rawDataCacheForGraphProcessor.rawStorage.size());
-        assertEquals(0, holder.reportingDiskDao.rawDataProcessor.rawStorage.size());
+        assertEquals(0, holder.reportingDiskDao.rawDataProcessor.size());
 
         clientPair.hardwareClient.send("hardware vw 88 111");
         verify(clientPair.appClient.responseMock, timeout(500)).channelRead(any(), eq(new HardwareMessage(1, b("1-0 vw 88 111"))));
@@ -1054,7 +1054,7 @@ public class HistoryGraphTest extends SingleServerInstancePerTest {
         assertEquals(1, holder.reportingDiskDao.averageAggregator.getHourly().size());
         assertEquals(1, holder.reportingDiskDao.averageAggregator.getDaily().size());
         assertEquals(1, holder.reportingDiskDao.rawDataCacheForGraphProcessor.rawStorage.size());
-        assertEquals(0, holder.reportingDiskDao.rawDataProcessor.rawStorage.size());
+        assertEquals(0, holder.reportingDiskDao.rawDataProcessor.size());
     }
 
     @Test
@@ -1078,7 +1078,7 @@ public class HistoryGraphTest extends SingleServerInstancePerTest {
         assertEquals(0, holder.reportingDiskDao.averageAggregator.getHourly().size());
         assertEquals(0, holder.reportingDiskDao.averageAggregator.getDaily().size());
         assertEquals(0, holder.reportingDiskDao.rawDataCacheForGraphProcessor.rawStorage.size());
-        assertEquals(0, holder.reportingDiskDao.rawDataProcessor.rawStorage.size());
+        assertEquals(0, holder.reportingDiskDao.rawDataProcessor.size());
 
         clientPair.hardwareClient.send("hardware vw 88 111");
         verify(clientPair.appClient.responseMock, timeout(500)).channelRead(any(), eq(new HardwareMessage(1, b("1-0 vw 88 111"))));
@@ -1087,7 +1087,7 @@ public class HistoryGraphTest extends SingleServerInstancePerTest {
         assertEquals(1, holder.reportingDiskDao.averageAggregator.getHourly().size());
         assertEquals(1, holder.reportingDiskDao.averageAggregator.getDaily().size());
         assertEquals(0, holder.reportingDiskDao.rawDataCacheForGraphProcessor.rawStorage.size());
-        assertEquals(0, holder.reportingDiskDao.rawDataProcessor.rawStorage.size());
+        assertEquals(0, holder.reportingDiskDao.rawDataProcessor.size());
     }
 
     @Test
@@ -1112,7 +1112,7 @@ public class HistoryGraphTest extends SingleServerInstancePerTest {
         assertEquals(0, holder.reportingDiskDao.averageAggregator.getHourly().size());
         assertEquals(0, holder.reportingDiskDao.averageAggregator.getDaily().size());
         assertEquals(0, holder.reportingDiskDao.rawDataCacheForGraphProcessor.rawStorage.size());
-        assertEquals(0, holder.reportingDiskDao.rawDataProcessor.rawStorage.size());
+        assertEquals(0, holder.reportingDiskDao.rawDataProcessor.size());
 
         clientPair.hardwareClient.send("hardware vw 88 111");
         verify(clientPair.appClient.responseMock, timeout(500)).channelRead(any(), eq(new HardwareMessage(1, b("1-0 vw 88 111"))));
@@ -1121,7 +1121,7 @@ public class HistoryGraphTest extends SingleServerInstancePerTest {
         assertEquals(1, holder.reportingDiskDao.averageAggregator.getHourly().size());
         assertEquals(1, holder.reportingDiskDao.averageAggregator.getDaily().size());
         assertEquals(0, holder.reportingDiskDao.rawDataCacheForGraphProcessor.rawStorage.size());
-        assertEquals(0, holder.reportingDiskDao.rawDataProcessor.rawStorage.size());
+        assertEquals(0, holder.reportingDiskDao.rawDataProcessor.size());
     }
 
     @Test
@@ -1147,7 +1147,7 @@ public class HistoryGraphTest extends SingleServerInstancePerTest {
         assertEquals(0, holder.reportingDiskDao.averageAggregator.getHourly().size());
         assertEquals(0, holder.reportingDiskDao.averageAggregator.getDaily().size());
         assertEquals(0, holder.reportingDiskDao.rawDataCacheForGraphProcessor.rawStorage.size());
-        assertEquals(0, holder.reportingDiskDao.rawDataProcessor.rawStorage.size());
+        assertEquals(0, holder.reportingDiskDao.rawDataProcessor.size());
 
         clientPair.hardwareClient.send("hardware vw 89 111");
         verify(clientPair.appClient.responseMock, timeout(500)).channelRead(any(), eq(new HardwareMessage(1, b("1-0 vw 89 111"))));
@@ -1156,7 +1156,7 @@ public class HistoryGraphTest extends SingleServerInstancePerTest {
         assertEquals(1, holder.reportingDiskDao.averageAggregator.getHourly().size());
         assertEquals(1, holder.reportingDiskDao.averageAggregator.getDaily().size());
         assertEquals(0, holder.reportingDiskDao.rawDataCacheForGraphProcessor.rawStorage.size());
-        assertEquals(0, holder.reportingDiskDao.rawDataProcessor.rawStorage.size());
+        assertEquals(0, holder.reportingDiskDao.rawDataProcessor.size());
     }
 
     @Test
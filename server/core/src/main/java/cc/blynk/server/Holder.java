@@ -1,6 +1,7 @@
 package cc.blynk.server;
 
 import cc.blynk.server.core.BlockingIOProcessor;
+import cc.blynk.server.core.dao.ColdUsers;
 import cc.blynk.server.core.dao.FileManager;
 import cc.blynk.server.core.dao.ReportingDiskDao;
 import cc.blynk.server.core.dao.SessionDao;
@@ -11,6 +12,10 @@ import cc.blynk.server.core.dao.ota.OTAManager;
 import cc.blynk.server.core.model.auth.User;
 import cc.blynk.server.core.model.widgets.ui.reporting.ReportScheduler;
 import cc.blynk.server.core.processors.EventorProcessor;
+import cc.blynk.server.core.reporting.GraphDataCache;
+import cc.blynk.server.core.reporting.ReportingFileChannelPool;
+import cc.blynk.server.core.reporting.ReportingFileMappingCache;
+import cc.blynk.server.core.reporting.raw.RawDataProcessor;
 import cc.blynk.server.core.stats.GlobalStats;
 import cc.blynk.server.db.DBManager;
 import cc.blynk.server.db.ReportingDBManager;
@@ -53,6 +58,8 @@ public class Holder {
 
     public final TokenManager tokenManager;
 
+    public final ColdUsers coldUsers;
+
     public final ReportingDiskDao reportingDiskDao;
 
     public final DBManager dbManager;
@@ -95,10 +102,7 @@ public class Holder {
 
         this.fileManager = new FileManager(serverProperties.getDataFolder(), serverProperties.host);
         this.sessionDao = new SessionDao();
-        this.blockingIOProcessor = new BlockingIOProcessor(
-                serverProperties.getIntProperty("blocking.processor.thread.pool.limit", 6),
-                serverProperties.getIntProperty("notifications.queue.limit", 2000)
-        );
+        this.blockingIOProcessor = new BlockingIOProcessor(serverProperties);
 
         boolean enableDB = serverProperties.isDBEnabled();
         this.dbManager = new DBManager(blockingIOProcessor, enableDB);
@@ -114,13 +118,24 @@ public class Holder {
                 throw new RuntimeException(e);
             }
         } else {
-            this.userDao = new UserDao(fileManager.deserializeUsers(), serverProperties.region, serverProperties.host);
+            this.userDao = new UserDao(fileManager.deserializeUsers(serverProperties.isUsersSnapshotEnabled()),
+                    serverProperties.region, serverProperties.host);
         }
 
         this.tokenManager = new TokenManager(this.userDao.users, dbManager, serverProperties.host);
+        this.coldUsers = new ColdUsers(fileManager, userDao, tokenManager, sessionDao,
+                serverProperties.getProfileEvictionInactivityPeriod());
         this.stats = new GlobalStats();
         this.reportingDiskDao = new ReportingDiskDao(serverProperties.getReportingFolder(),
-                serverProperties.isRawDBEnabled() && reportingDBManager.isDBEnabled());
+                serverProperties.isRawDBEnabled() && reportingDBManager.isDBEnabled(),
+                serverProperties.getIntProperty("reporting.max.open.files",
+                        ReportingFileChannelPool.DEFAULT_POOL_SIZE),
+                serverProperties.getIntProperty("reporting.max.mapped.files",
+                        ReportingFileMappingCache.DEFAULT_CACHE_SIZE),
+                serverProperties.getIntProperty("raw.data.buffer.size",
+                        RawDataProcessor.DEFAULT_CAPACITY),
+                serverProperties.getIntProperty("graph.cache.max.size.mb",
+                        GraphDataCache.DEFAULT_MAX_SIZE_MB) * 1024L * 1024L);
 
         this.transportTypeHolder = new TransportTypeHolder(serverProperties);
 
@@ -141,8 +156,9 @@ public class Holder {
 
         this.eventorProcessor = new EventorProcessor(
                 gcmWrapper, mailWrapper, twitterWrapper, blockingIOProcessor, stats);
-        this.timerWorker = new TimerWorker(userDao, sessionDao, gcmWrapper);
-        this.readingWidgetsWorker = new ReadingWidgetsWorker(sessionDao, userDao, props.getAllowWithoutActiveApp());
+        this.timerWorker = new TimerWorker(userDao, sessionDao, gcmWrapper, transportTypeHolder.workerGroup,
+                blockingIOProcessor, stats);
+        this.readingWidgetsWorker = new ReadingWidgetsWorker(sessionDao, props.getAllowWithoutActiveApp());
         this.limits = new Limits(props);
         this.textHolder = new TextHolder(gcmProperties);
 
@@ -176,6 +192,8 @@ public class Holder {
         this.reportingDBManager = new ReportingDBManager(dbFileName, blockingIOProcessor, enableDB);
 
         this.tokenManager = new TokenManager(this.userDao.users, dbManager, serverProperties.host);
+        this.coldUsers = new ColdUsers(fileManager, userDao, tokenManager, sessionDao,
+                serverProperties.getProfileEvictionInactivityPeriod());
         this.stats = new GlobalStats();
         this.reportingDiskDao = new ReportingDiskDao(serverProperties.getReportingFolder(),
                 serverProperties.isRawDBEnabled() && reportingDBManager.isDBEnabled());
@@ -199,8 +217,9 @@ public class Holder {
                 .build()
         );
 
-        this.timerWorker = new TimerWorker(userDao, sessionDao, gcmWrapper);
-        this.readingWidgetsWorker = new ReadingWidgetsWorker(sessionDao, userDao, props.getAllowWithoutActiveApp());
+        this.timerWorker = new TimerWorker(userDao, sessionDao, gcmWrapper, transportTypeHolder.workerGroup,
+                blockingIOProcessor, stats);
+        this.readingWidgetsWorker = new ReadingWidgetsWorker(sessionDao, props.getAllowWithoutActiveApp());
         this.limits = new Limits(props);
         this.textHolder = new TextHolder(new GCMProperties(Collections.emptyMap()));
 
@@ -236,6 +255,8 @@ public class Holder {
         reportScheduler.shutdown();
         System.out.println("Stopping DBManager...");
         dbManager.close();
+        //raw records left in the ring buffer are written on the reporting DB close
+        reportingDBManager.insertReportingRaw(reportingDiskDao.rawDataProcessor);
         reportingDBManager.close();
         tokensPool.close();
     }
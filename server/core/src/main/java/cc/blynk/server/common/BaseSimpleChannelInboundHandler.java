@@ -3,6 +3,8 @@ package cc.blynk.server.common;
 import cc.blynk.server.core.protocol.exceptions.BaseServerException;
 import cc.blynk.server.core.protocol.model.messages.MessageBase;
 import cc.blynk.server.core.session.StateHolderBase;
+import cc.blynk.server.core.stats.GlobalStats;
+import cc.blynk.server.core.stats.metrics.LatencyStats;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.util.ReferenceCountUtil;
@@ -23,9 +25,11 @@ public abstract class BaseSimpleChannelInboundHandler<I> extends ChannelInboundH
     protected static final Logger log = LogManager.getLogger(BaseSimpleChannelInboundHandler.class);
 
     private final Class<I> type;
+    private final LatencyStats latencies;
 
-    protected BaseSimpleChannelInboundHandler(Class<I> type) {
+    protected BaseSimpleChannelInboundHandler(Class<I> type, GlobalStats stats) {
         this.type = type;
+        this.latencies = stats.latencies;
     }
 
     private static int getMsgId(Object o) {
@@ -39,6 +43,7 @@ public abstract class BaseSimpleChannelInboundHandler<I> extends ChannelInboundH
     @SuppressWarnings("unchecked")
     public void channelRead(ChannelHandlerContext ctx, Object msg) {
         if (type.isInstance(msg)) {
+            long start = System.nanoTime();
             try {
                 messageReceived(ctx, (I) msg);
             } catch (NumberFormatException nfe) {
@@ -49,6 +54,9 @@ public abstract class BaseSimpleChannelInboundHandler<I> extends ChannelInboundH
             } catch (Exception e) {
                 handleGeneralException(ctx, e);
             } finally {
+                if (msg instanceof MessageBase) {
+                    latencies.recordCommand(((MessageBase) msg).command, System.nanoTime() - start);
+                }
                 ReferenceCountUtil.release(msg);
             }
         }
@@ -1,6 +1,7 @@
 package cc.blynk.server.core;
 
 import cc.blynk.utils.BlynkTPFactory;
+import cc.blynk.utils.properties.BaseProperties;
 
 import java.io.Closeable;
 import java.util.concurrent.ArrayBlockingQueue;
@@ -20,44 +21,69 @@ import java.util.concurrent.TimeUnit;
 public class BlockingIOProcessor implements Closeable {
 
     private static final int MINIMUM_ALLOWED_POOL_SIZE = 3;
+    private static final int DEFAULT_QUEUE_SIZE = 250;
+    private static final int DEFAULT_SPILL_QUEUE_SIZE = 10_000;
 
     //pool for messaging
-    public final ThreadPoolExecutor messagingExecutor;
+    public final BlockingPool messagingExecutor;
 
     //DB pool is needed as in case DB goes down messaging still should work
-    public final ThreadPoolExecutor dbExecutor;
+    public final BlockingPool dbExecutor;
 
-    public final ThreadPoolExecutor dbGetServerExecutor;
+    public final BlockingPool dbGetServerExecutor;
 
     //separate pool for history graph data
-    public final ThreadPoolExecutor historyExecutor;
+    public final BlockingPool historyExecutor;
+
+    //takes tasks of the pools with the spill or caller runs overflow strategy
+    private final ThreadPoolExecutor spillExecutor;
 
     public BlockingIOProcessor(int poolSize, int maxQueueSize) {
+        this(poolSize, maxQueueSize, DEFAULT_QUEUE_SIZE, DEFAULT_SPILL_QUEUE_SIZE,
+                OverflowStrategy.ABORT, OverflowStrategy.ABORT, OverflowStrategy.ABORT, OverflowStrategy.ABORT);
+    }
+
+    public BlockingIOProcessor(BaseProperties props) {
+        this(props.getIntProperty("blocking.processor.thread.pool.limit", 6),
+             props.getIntProperty("notifications.queue.limit", 2000),
+             props.getIntProperty("blocking.processor.queue.limit", DEFAULT_QUEUE_SIZE),
+             props.getIntProperty("blocking.processor.spill.queue.limit", DEFAULT_SPILL_QUEUE_SIZE),
+             overflow(props, "messaging"),
+             overflow(props, "db"),
+             overflow(props, "getserver"),
+             overflow(props, "history"));
+    }
+
+    public BlockingIOProcessor(int poolSize, int maxQueueSize, int queueSize, int spillQueueSize,
+                               OverflowStrategy messagingOverflow, OverflowStrategy dbOverflow,
+                               OverflowStrategy getServerOverflow, OverflowStrategy historyOverflow) {
         //pool size can't be less than 3.
         poolSize = Math.max(MINIMUM_ALLOWED_POOL_SIZE, poolSize);
-        this.messagingExecutor = new ThreadPoolExecutor(
-                poolSize / 4, poolSize / 3,
+
+        this.spillExecutor = new ThreadPoolExecutor(1, 1,
                 2L, TimeUnit.MINUTES,
-                new ArrayBlockingQueue<>(maxQueueSize),
-                BlynkTPFactory.build("Messaging")
-        );
-
-        this.dbExecutor = new ThreadPoolExecutor(
-                poolSize / 3,
-                poolSize / 2, 2L,
-                TimeUnit.MINUTES,
-                new ArrayBlockingQueue<>(250),
-                BlynkTPFactory.build("db"));
+                new ArrayBlockingQueue<>(spillQueueSize),
+                BlynkTPFactory.build("spill"));
+        this.spillExecutor.allowCoreThreadTimeOut(true);
+
+        this.messagingExecutor = new BlockingPool("Messaging",
+                poolSize / 4, poolSize / 3, maxQueueSize, messagingOverflow, spillExecutor);
+
+        this.dbExecutor = new BlockingPool("db",
+                poolSize / 3, poolSize / 2, queueSize, dbOverflow, spillExecutor);
         //local server doesn't use DB usually, so this thread may be not necessary
         this.dbExecutor.allowCoreThreadTimeOut(true);
 
-        this.dbGetServerExecutor = new ThreadPoolExecutor(poolSize / 3, poolSize / 3, 2L,
-                TimeUnit.MINUTES, new ArrayBlockingQueue<>(250),
-                BlynkTPFactory.build("getServer"));
+        this.dbGetServerExecutor = new BlockingPool("getServer",
+                poolSize / 3, poolSize / 3, queueSize, getServerOverflow, spillExecutor);
+
+        this.historyExecutor = new BlockingPool("history",
+                poolSize / 4, poolSize / 2, queueSize, historyOverflow, spillExecutor);
+    }
 
-        this.historyExecutor = new ThreadPoolExecutor(poolSize / 4, poolSize / 2, 2L,
-                TimeUnit.MINUTES, new ArrayBlockingQueue<>(250),
-                BlynkTPFactory.build("history"));
+    private static OverflowStrategy overflow(BaseProperties props, String pool) {
+        return OverflowStrategy.parse(
+                props.getProperty("blocking.processor." + pool + ".overflow"), OverflowStrategy.ABORT);
     }
 
     public void execute(Runnable task) {
@@ -76,11 +102,20 @@ public class BlockingIOProcessor implements Closeable {
         dbGetServerExecutor.execute(task);
     }
 
+    public BlockingPool[] getPools() {
+        return new BlockingPool[] {messagingExecutor, dbExecutor, dbGetServerExecutor, historyExecutor};
+    }
+
+    public int getSpillQueueSize() {
+        return spillExecutor.getQueue().size();
+    }
+
     @Override
     public void close() {
         dbExecutor.shutdown();
         messagingExecutor.shutdown();
         historyExecutor.shutdown();
         dbGetServerExecutor.shutdown();
+        spillExecutor.shutdown();
     }
 }
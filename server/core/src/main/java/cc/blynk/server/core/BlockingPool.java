@@ -0,0 +1,122 @@
+package cc.blynk.server.core;
+
+import cc.blynk.server.core.stats.metrics.TaskLatency;
+import cc.blynk.utils.BlynkTPFactory;
+import io.netty.util.concurrent.FastThreadLocalThread;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread pool of the {@link BlockingIOProcessor}. Measures queue wait and execution time
+ * of every task and counts tasks that were rejected or dropped due to the full queue.
+ * What happens with the task when queue is full is defined by {@link OverflowStrategy}.
+ *
+ * The Blynk Project.
+ * Created by Dmitriy Dumanskiy.
+ * Created on 18.10.26.
+ */
+public class BlockingPool extends ThreadPoolExecutor {
+
+    private static final Logger log = LogManager.getLogger(BlockingPool.class);
+
+    public final String name;
+    public final TaskLatency latency;
+    public final OverflowStrategy overflowStrategy;
+
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder spilled = new LongAdder();
+
+    public BlockingPool(String name, int corePoolSize, int maxPoolSize, int queueSize,
+                        OverflowStrategy overflowStrategy, ThreadPoolExecutor spillPool) {
+        super(corePoolSize, maxPoolSize, 2L, TimeUnit.MINUTES,
+                new ArrayBlockingQueue<>(queueSize), BlynkTPFactory.build(name));
+        this.name = name;
+        this.latency = new TaskLatency(name);
+        this.overflowStrategy = overflowStrategy;
+        setRejectedExecutionHandler(new OverflowHandler(spillPool));
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        super.execute(latency.wrap(task));
+    }
+
+    //tasks that were not executed at all, due to rejection or dropped from the queue
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    public long getSpilledCount() {
+        return spilled.sum();
+    }
+
+    private static boolean isEventLoop() {
+        return Thread.currentThread() instanceof FastThreadLocalThread;
+    }
+
+    private final class OverflowHandler implements RejectedExecutionHandler {
+
+        private final ThreadPoolExecutor spillPool;
+
+        OverflowHandler(ThreadPoolExecutor spillPool) {
+            this.spillPool = spillPool;
+        }
+
+        @Override
+        public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+            if (executor.isShutdown()) {
+                reject(task);
+            }
+            switch (overflowStrategy) {
+                case CALLER_RUNS :
+                    if (isEventLoop()) {
+                        spill(task);
+                    } else {
+                        task.run();
+                    }
+                    break;
+                case DROP_OLDEST :
+                    Runnable oldest = executor.getQueue().poll();
+                    if (oldest != null) {
+                        rejected.increment();
+                        log.debug("{} pool queue is full. Dropping oldest task.", name);
+                    }
+                    if (!executor.getQueue().offer(task)) {
+                        reject(task);
+                    }
+                    break;
+                case SPILL :
+                    spill(task);
+                    break;
+                default :
+                    reject(task);
+            }
+        }
+
+        private void spill(Runnable task) {
+            if (spillPool == null || spillPool.isShutdown()) {
+                reject(task);
+            }
+            try {
+                spillPool.execute(task);
+                spilled.increment();
+            } catch (RejectedExecutionException ree) {
+                rejected.increment();
+                throw ree;
+            }
+        }
+
+        private void reject(Runnable task) {
+            rejected.increment();
+            throw new RejectedExecutionException(name + " pool queue is full. Task " + task + " rejected.");
+        }
+    }
+
+}
@@ -0,0 +1,32 @@
+package cc.blynk.server.core;
+
+/**
+ * What blocking pool does with the task when its queue is full.
+ *
+ * The Blynk Project.
+ * Created by Dmitriy Dumanskiy.
+ * Created on 18.10.26.
+ */
+public enum OverflowStrategy {
+
+    //task is rejected with RejectedExecutionException
+    ABORT,
+    //task is executed by the caller thread, if caller is netty event loop task is spilled
+    CALLER_RUNS,
+    //oldest task in the queue is dropped to make room for the new one
+    DROP_OLDEST,
+    //task is moved to the separate spill pool
+    SPILL;
+
+    public static OverflowStrategy parse(String value, OverflowStrategy defaultStrategy) {
+        if (value == null || value.isEmpty()) {
+            return defaultStrategy;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return defaultStrategy;
+        }
+    }
+
+}
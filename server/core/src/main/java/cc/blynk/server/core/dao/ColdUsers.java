@@ -0,0 +1,266 @@
+package cc.blynk.server.core.dao;
+
+import cc.blynk.server.core.model.DashBoard;
+import cc.blynk.server.core.model.auth.Session;
+import cc.blynk.server.core.model.auth.User;
+import cc.blynk.server.core.model.device.Device;
+import cc.blynk.server.core.model.widgets.ui.reporting.ReportingWidget;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Users that weren't active for a long time (cold users) are evicted from memory.
+ * Only small index entry is kept for such users : user key and tokens of the user.
+ * Cold user is loaded back from disk on the first access via UserDao or TokenManager,
+ * so on login, http api call or timer fire.
+ *
+ * Users with reports, faces and super admin are never evicted, as they are iterated
+ * directly within UserDao.users.
+ *
+ * The Blynk Project.
+ * Created by Dmitriy Dumanskiy.
+ * Created on 18.10.26.
+ */
+public class ColdUsers {
+
+    private static final Logger log = LogManager.getLogger(ColdUsers.class);
+
+    private final FileManager fileManager;
+    private final UserDao userDao;
+    private final TokenManager tokenManager;
+    private final SessionDao sessionDao;
+    private final long inactivityPeriod;
+
+    private final ConcurrentMap<UserKey, ColdUser> users = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, UserKey> tokens = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, UserKey> sharedTokens = new ConcurrentHashMap<>();
+
+    public ColdUsers(FileManager fileManager, UserDao userDao, TokenManager tokenManager,
+                     SessionDao sessionDao, long inactivityPeriod) {
+        this.fileManager = fileManager;
+        this.userDao = userDao;
+        this.tokenManager = tokenManager;
+        this.sessionDao = sessionDao;
+        this.inactivityPeriod = inactivityPeriod;
+        userDao.coldUsers = this;
+        tokenManager.coldUsers = this;
+    }
+
+    public int size() {
+        return users.size();
+    }
+
+    boolean contains(UserKey userKey) {
+        return users.containsKey(userKey);
+    }
+
+    boolean containsToken(String token) {
+        return tokens.containsKey(token);
+    }
+
+    Set<UserKey> keys() {
+        return users.keySet();
+    }
+
+    /**
+     * Returns user with key and last modification time only, without reading profile from disk.
+     */
+    User summary(UserKey userKey) {
+        ColdUser coldUser = users.get(userKey);
+        if (coldUser == null) {
+            return null;
+        }
+        User user = new User();
+        user.email = userKey.email;
+        user.appName = userKey.appName;
+        user.lastModifiedTs = coldUser.lastModifiedTs;
+        return user;
+    }
+
+    /**
+     * Reads profile of the cold user from disk without loading user back to memory.
+     */
+    User read(UserKey userKey) {
+        return users.containsKey(userKey) ? fileManager.readUser(userKey.email, userKey.appName) : null;
+    }
+
+    User loadByToken(String token) {
+        UserKey userKey = tokens.get(token);
+        return userKey == null ? null : load(userKey);
+    }
+
+    User loadBySharedToken(String token) {
+        UserKey userKey = sharedTokens.get(token);
+        return userKey == null ? null : load(userKey);
+    }
+
+    User load(UserKey userKey) {
+        ColdUser coldUser = users.get(userKey);
+        if (coldUser == null) {
+            return null;
+        }
+
+        synchronized (coldUser) {
+            if (users.get(userKey) != coldUser) {
+                //was loaded by another thread
+                return userDao.users.get(userKey);
+            }
+
+            User user = fileManager.readUser(userKey.email, userKey.appName);
+            if (user == null) {
+                return null;
+            }
+            user.loadedAt = System.currentTimeMillis();
+
+            //user is added first, so concurrent lookups find it either in memory or in the index
+            userDao.users.put(userKey, user);
+            tokenManager.addUserTokens(user);
+            for (String token : coldUser.tokens) {
+                tokens.remove(token, userKey);
+            }
+            for (String token : coldUser.sharedTokens) {
+                sharedTokens.remove(token, userKey);
+            }
+            users.remove(userKey);
+
+            log.debug("Loaded cold user {}-{}.", userKey.email, userKey.appName);
+            return user;
+        }
+    }
+
+    void remove(UserKey userKey) {
+        ColdUser coldUser = users.remove(userKey);
+        if (coldUser != null) {
+            for (String token : coldUser.tokens) {
+                tokens.remove(token, userKey);
+            }
+            for (String token : coldUser.sharedTokens) {
+                sharedTokens.remove(token, userKey);
+            }
+        }
+    }
+
+    /**
+     * Evicts from memory all users that weren't active for the inactivity period.
+     *
+     * @return number of evicted users.
+     */
+    public int evictInactive() {
+        long now = System.currentTimeMillis();
+        int evicted = 0;
+        for (User user : userDao.users.values()) {
+            if (isInactive(user, now)) {
+                try {
+                    if (evict(user)) {
+                        evicted++;
+                    }
+                } catch (Exception e) {
+                    log.error("Error evicting user {}-{}. {}", user.email, user.appName, e.getMessage());
+                }
+            }
+        }
+        return evicted;
+    }
+
+    private boolean evict(User user) throws Exception {
+        UserKey userKey = new UserKey(user);
+        //profile is saved first, so nothing is lost in case of error
+        fileManager.overrideUserFile(user);
+
+        List<String> userTokens = new ArrayList<>();
+        List<String> userSharedTokens = new ArrayList<>();
+        for (DashBoard dash : user.profile.dashBoards) {
+            for (Device device : dash.devices) {
+                if (device.token != null) {
+                    userTokens.add(device.token);
+                }
+            }
+            if (dash.sharedToken != null) {
+                userSharedTokens.add(dash.sharedToken);
+            }
+        }
+        ColdUser coldUser = new ColdUser(userTokens.toArray(new String[0]),
+                userSharedTokens.toArray(new String[0]), user.lastModifiedTs);
+
+        //load() of this user waits till eviction is finished or reverted
+        synchronized (coldUser) {
+            //index is filled first, so concurrent lookups find user either in memory or in the index
+            users.put(userKey, coldUser);
+            for (String token : coldUser.tokens) {
+                tokens.put(token, userKey);
+            }
+            for (String token : coldUser.sharedTokens) {
+                sharedTokens.put(token, userKey);
+            }
+            tokenManager.removeUserTokens(user);
+            if (!userDao.users.remove(userKey, user)) {
+                //user was replaced or deleted in the meantime
+                remove(userKey);
+                User current = userDao.users.get(userKey);
+                if (current != null) {
+                    tokenManager.addUserTokens(current);
+                }
+                return false;
+            }
+
+            //user may be taken from memory by login or http api right before the removal
+            if (!isInactive(user, System.currentTimeMillis())) {
+                userDao.users.put(userKey, user);
+                tokenManager.addUserTokens(user);
+                remove(userKey);
+                log.debug("Eviction of user {}-{} reverted, user is active.", userKey.email, userKey.appName);
+                return false;
+            }
+        }
+
+        //pin update that came in the middle of the eviction
+        if (user.profile.journal.hasPendingUpdates()) {
+            fileManager.saveUserJournal(user);
+        }
+        return true;
+    }
+
+    private boolean isInactive(User user, long now) {
+        if (user.isSuperAdmin
+                || now - user.loadedAt < inactivityPeriod
+                || now - user.lastLoggedAt < inactivityPeriod
+                || now - user.lastModifiedTs < inactivityPeriod
+                || user.profile.journal.hasPendingUpdates()) {
+            return false;
+        }
+
+        for (DashBoard dash : user.profile.dashBoards) {
+            if (now - Math.max(dash.updatedAt, dash.valuesUpdatedAt) < inactivityPeriod
+                    || dash.isChild()) {
+                return false;
+            }
+            ReportingWidget reportingWidget = dash.getReportingWidget();
+            if (reportingWidget != null && reportingWidget.reports.length > 0) {
+                return false;
+            }
+        }
+
+        Session session = sessionDao.get(new UserKey(user));
+        return session == null || (!session.isAppConnected() && !session.isHardwareConnected());
+    }
+
+    private static final class ColdUser {
+
+        private final String[] tokens;
+        private final String[] sharedTokens;
+        private final long lastModifiedTs;
+
+        private ColdUser(String[] tokens, String[] sharedTokens, long lastModifiedTs) {
+            this.tokens = tokens;
+            this.sharedTokens = sharedTokens;
+            this.lastModifiedTs = lastModifiedTs;
+        }
+    }
+
+}
@@ -1,6 +1,7 @@
 package cc.blynk.server.core.dao;
 
 import cc.blynk.server.core.model.DashBoard;
+import cc.blynk.server.core.model.ProfileJournal;
 import cc.blynk.server.core.model.auth.User;
 import cc.blynk.server.core.model.serialization.JsonParser;
 import cc.blynk.server.core.model.storage.key.DashPinPropertyStorageKey;
@@ -12,6 +13,8 @@ import cc.blynk.utils.FileUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
@@ -20,13 +23,17 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.PathMatcher;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
 import java.text.SimpleDateFormat;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -45,6 +52,11 @@ public class FileManager {
 
     private static final Logger log = LogManager.getLogger(FileManager.class);
     private static final String USER_FILE_EXTENSION = ".user";
+    private static final String JOURNAL_FILE_EXTENSION = ".journal";
+    private static final String TEMP_FILE_EXTENSION = ".tmp";
+    private static final String USERS_SNAPSHOT_FILE_NAME = "users.snapshot";
+    //journal is compacted into the profile snapshot when it becomes bigger than profile and this size
+    private static final long MIN_JOURNAL_COMPACTION_SIZE = 64 * 1024;
 
     /**
      * Folder where all user profiles are stored locally.
@@ -105,6 +117,10 @@ public class FileManager {
         return Paths.get(dataDir.toString(), email + "." + appName + USER_FILE_EXTENSION);
     }
 
+    public Path generateJournalFileName(String email, String appName) {
+        return Paths.get(dataDir.toString(), email + "." + appName + USER_FILE_EXTENSION + JOURNAL_FILE_EXTENSION);
+    }
+
     public Path generateBackupFileName(String email, String appName) {
         return Paths.get(backupDataDir.toString(), email + "." + appName + ".user."
                 + new SimpleDateFormat("yyyy-MM-dd").format(new Date()));
@@ -117,6 +133,8 @@ public class FileManager {
     public boolean delete(String email, String appName) {
         Path file = generateFileName(email, appName);
         try {
+            //journal is useless without profile snapshot
+            Files.deleteIfExists(generateJournalFileName(email, appName));
             FileUtils.move(file, this.deletedDataDir);
         } catch (IOException e) {
             log.debug("Failed to move file. {}", e.getMessage());
@@ -128,11 +146,88 @@ public class FileManager {
     public void overrideUserFile(User user) throws IOException {
         Path path = generateFileName(user.email, user.appName);
 
-        JsonParser.writeUser(path.toFile(), user);
+        //updates made during the write are journaled again, so they are not lost
+        user.profile.journal.drain();
+        try {
+            //profile is written to the temp file first, so server stop during the write
+            //doesn't leave broken profile
+            Path tempPath = Paths.get(path.toString() + TEMP_FILE_EXTENSION);
+            JsonParser.writeUser(tempPath.toFile(), user);
+            Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Files.deleteIfExists(generateJournalFileName(user.email, user.appName));
+        } catch (IOException e) {
+            user.profile.journal.requireSnapshot();
+            throw e;
+        }
 
         removeOldFile(user.email);
     }
 
+    /**
+     * Appends pending pin value and property updates of the user to the user journal.
+     * Whole profile is written instead when journal can't be used
+     * or when journal becomes bigger than the profile itself.
+     */
+    public void saveUserJournal(User user) throws IOException {
+        byte[] updates = user.profile.journal.drain();
+        Path journalPath = generateJournalFileName(user.email, user.appName);
+        if (updates == null || isCompactionRequired(user, journalPath, updates.length)) {
+            overrideUserFile(user);
+            return;
+        }
+
+        try {
+            Files.write(journalPath, updates, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            user.profile.journal.requireSnapshot();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads single user profile from disk.
+     *
+     * @return user or null in case profile can't be read.
+     */
+    public User readUser(String email, String appName) {
+        Path path = generateFileName(email, appName);
+        return parseUser(path).findFirst().orElse(null);
+    }
+
+    private boolean isCompactionRequired(User user, Path journalPath, int updatesSize) throws IOException {
+        Path path = generateFileName(user.email, user.appName);
+        if (Files.notExists(path)) {
+            return true;
+        }
+        long journalSize = Files.exists(journalPath) ? Files.size(journalPath) : 0;
+        return journalSize + updatesSize > Math.max(Files.size(path), MIN_JOURNAL_COMPACTION_SIZE);
+    }
+
+    private void replayJournal(User user, Path path) {
+        Path journalPath = generateJournalFileName(user.email, user.appName);
+        try {
+            if (Files.notExists(journalPath)) {
+                return;
+            }
+            //journal is removed right after the profile snapshot is written, so older journal
+            //means server was stopped in between and all journaled updates are in the snapshot already
+            if (Files.getLastModifiedTime(journalPath).compareTo(Files.getLastModifiedTime(path)) < 0) {
+                log.info("Removing outdated journal '{}'.", journalPath);
+                Files.delete(journalPath);
+                return;
+            }
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(journalPath)))) {
+                if (!ProfileJournal.replay(user.profile, in)) {
+                    log.warn("Journal '{}' is broken. Replayed till the first broken update.", journalPath);
+                    user.profile.journal.requireSnapshot();
+                }
+            }
+        } catch (Exception e) {
+            log.error("Error replaying journal '{}'. Error : {}", journalPath, e.getMessage());
+            user.profile.journal.requireSnapshot();
+        }
+    }
+
     private void removeOldFile(String email) {
         //this oldFileName is migration code. should be removed in future versions
         Path oldFileName = generateOldFileName(email);
@@ -143,46 +238,113 @@ public class FileManager {
         }
     }
 
+    public Path getUsersSnapshotPath() {
+        return Paths.get(dataDir.toString(), USERS_SNAPSHOT_FILE_NAME);
+    }
+
+    /**
+     * Writes all users to the single binary snapshot, that is used for the fast server startup.
+     */
+    public void writeUsersSnapshot(Collection<User> users) throws IOException {
+        long start = System.currentTimeMillis();
+        UsersSnapshot.write(getUsersSnapshotPath(), users);
+        log.info("Users snapshot with {} users written in {} ms.", users.size(), System.currentTimeMillis() - start);
+    }
+
+    public ConcurrentMap<UserKey, User> deserializeUsers() {
+        return deserializeUsers(false);
+    }
+
     /**
      * Loads all user profiles one by one from disk using dataDir as starting point.
+     * When readSnapshot is enabled, users that weren't changed since the last binary snapshot
+     * are taken from the snapshot, json files are parsed only for the rest of the users.
      *
      * @return mapping between username and it's profile.
      */
-    public ConcurrentMap<UserKey, User> deserializeUsers() {
+    public ConcurrentMap<UserKey, User> deserializeUsers(boolean readSnapshot) {
         log.debug("Starting reading user DB.");
+        long start = System.currentTimeMillis();
 
         PathMatcher pathMatcher = FileSystems.getDefault().getPathMatcher("glob:**" + USER_FILE_EXTENSION);
-        ConcurrentMap<UserKey, User> temp;
-        try {
-            temp = Files.walk(dataDir, 1).parallel()
+        List<Path> userFiles;
+        try (Stream<Path> files = Files.walk(dataDir, 1)) {
+            userFiles = files
                     .filter(path -> Files.isRegularFile(path) && pathMatcher.matches(path))
-                    .flatMap(path -> {
-                        try {
-                            User user = JsonParser.parseUserFromFile(path);
-                            makeProfileChanges(user);
-
-                            return Stream.of(user);
-                        } catch (IOException ioe) {
-                            String errorMessage = ioe.getMessage();
-                            log.error("Error parsing file '{}'. Error : {}", path, errorMessage);
-                            if (errorMessage != null
-                                    && (errorMessage.contains("end-of-input")
-                                    || errorMessage.contains("Illegal character"))) {
-                                return restoreFromBackup(path.getFileName());
-                            }
-                        }
-                        return Stream.empty();
-                    })
-                    .collect(Collectors.toConcurrentMap(UserKey::new, identity()));
+                    .collect(Collectors.toList());
         } catch (Exception e) {
             log.error("Error reading user profiles from disk. {}", e.getMessage());
             throw new RuntimeException(e);
         }
-
-        log.debug("Reading user DB finished.");
+        long listed = System.currentTimeMillis();
+
+        Map<Path, User> snapshotUsers = Collections.emptyMap();
+        long snapshotTs = 0;
+        if (readSnapshot) {
+            UsersSnapshot snapshot = UsersSnapshot.read(getUsersSnapshotPath());
+            if (snapshot != null) {
+                snapshotUsers = new HashMap<>(snapshot.users.length);
+                for (User user : snapshot.users) {
+                    if (user != null) {
+                        snapshotUsers.put(generateFileName(user.email, user.appName), user);
+                    }
+                }
+                //file modification time may have 1 second precision
+                snapshotTs = snapshot.createdAt / 1000 * 1000;
+            }
+        }
+        long snapshotRead = System.currentTimeMillis();
+
+        Map<Path, User> fromSnapshot = snapshotUsers;
+        long snapshotCreatedAt = snapshotTs;
+        LongAdder parsed = new LongAdder();
+        ConcurrentMap<UserKey, User> temp = userFiles.parallelStream()
+                .flatMap(path -> {
+                    User user = fromSnapshot.get(path);
+                    if (user != null && isNotModifiedSince(path, snapshotCreatedAt)) {
+                        makeProfileChanges(user);
+                        replayJournal(user, path);
+                        return Stream.of(user);
+                    }
+                    parsed.increment();
+                    return parseUser(path);
+                })
+                .collect(Collectors.toConcurrentMap(UserKey::new, identity()));
+
+        long end = System.currentTimeMillis();
+        log.info("Reading user DB finished. {} users, {} parsed from json. Listing files : {} ms, "
+                        + "reading snapshot : {} ms, restoring users : {} ms, total : {} ms.",
+                temp.size(), parsed.sum(), listed - start, snapshotRead - listed, end - snapshotRead, end - start);
         return temp;
     }
 
+    private static boolean isNotModifiedSince(Path path, long ts) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis() < ts;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private Stream<User> parseUser(Path path) {
+        try {
+            User user = JsonParser.parseUserFromFile(path);
+            makeProfileChanges(user);
+            replayJournal(user, path);
+
+            return Stream.of(user);
+        } catch (IOException ioe) {
+            String errorMessage = ioe.getMessage();
+            log.error("Error parsing file '{}'. Error : {}", path, errorMessage);
+            if (errorMessage != null
+                    && (errorMessage.contains("end-of-input")
+                    || errorMessage.contains("Illegal character"))) {
+                return restoreFromBackup(path.getFileName());
+            }
+        }
+        return Stream.empty();
+    }
+
     private Stream<User> restoreFromBackup(Path restoreFileNamePath) {
         log.info("Trying to recover from backup...");
         String filename = restoreFileNamePath.toString();
@@ -232,7 +394,9 @@ public class FileManager {
                         dashPinStorageKey = new DashPinStorageKey(dashId, key);
                     }
                     PinStorageValue value = pinsStorageEntry.getValue();
-                    user.profile.pinsStorage.put(dashPinStorageKey, value);
+                    if (value != null) {
+                        user.profile.pinsStorage.put(dashPinStorageKey, value);
+                    }
                 }
                 dash.pinsStorage = Collections.emptyMap();
             }
@@ -0,0 +1,58 @@
+package cc.blynk.server.core.dao;
+
+import cc.blynk.server.core.model.enums.PinType;
+import cc.blynk.server.core.model.widgets.outputs.graph.GraphGranularityType;
+import cc.blynk.server.core.reporting.ReportingFileMappingCache;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+/**
+ * Reads the same time window from the history files of the many devices and pins
+ * of one dashboard. Every file is seeked to the window start, so only points
+ * within the window are read. Used by reports, that go over all devices and pins of the report.
+ *
+ * The Blynk Project.
+ * Created by Dmitriy Dumanskiy.
+ * Created on 18.10.26.
+ */
+public final class HistoryCursor {
+
+    private static final Logger log = LogManager.getLogger(HistoryCursor.class);
+
+    private final ReportingFileMappingCache mappingCache;
+    private final Path userReportingFolder;
+    private final int dashId;
+    private final GraphGranularityType type;
+    private final long from;
+    private final long to;
+    private final int maxCount;
+
+    HistoryCursor(ReportingFileMappingCache mappingCache, Path userReportingFolder, int dashId,
+                  GraphGranularityType type, long from, long to, int maxCount) {
+        this.mappingCache = mappingCache;
+        this.userReportingFolder = userReportingFolder;
+        this.dashId = dashId;
+        this.type = type;
+        this.from = from;
+        this.to = to;
+        this.maxCount = maxCount;
+    }
+
+    /**
+     * @return - read-only buffer with points of the window or null if there is no data.
+     */
+    public ByteBuffer read(int deviceId, PinType pinType, short pin) {
+        Path userDataFile = userReportingFolder.resolve(
+                ReportingDiskDao.generateFilename(dashId, deviceId, pinType, pin, type));
+        try {
+            return mappingCache.readRange(userDataFile, from, to, maxCount);
+        } catch (Exception e) {
+            log.error("Error reading {}.", userDataFile, e);
+        }
+        return null;
+    }
+
+}
@@ -25,18 +25,33 @@ class RegularTokenManager {
         ///in average user has 2 devices
         this.cache = new ConcurrentHashMap<>(users.size() == 0 ? 16 : users.size() * 2);
         for (User user : users) {
-            if (user.profile != null) {
-                for (DashBoard dashBoard : user.profile.dashBoards) {
-                    for (Device device : dashBoard.devices) {
-                        if (device.token != null) {
-                            cache.put(device.token, new TokenValue(user, dashBoard, device));
-                        }
+            add(user);
+        }
+    }
+
+    void add(User user) {
+        if (user.profile != null) {
+            for (DashBoard dashBoard : user.profile.dashBoards) {
+                for (Device device : dashBoard.devices) {
+                    if (device.token != null) {
+                        cache.put(device.token, new TokenValue(user, dashBoard, device));
                     }
                 }
             }
         }
     }
 
+    //removes tokens only in case they still point to this user object
+    void remove(User user) {
+        for (DashBoard dashBoard : user.profile.dashBoards) {
+            for (Device device : dashBoard.devices) {
+                if (device.token != null) {
+                    cache.computeIfPresent(device.token, (token, value) -> value.user == user ? null : value);
+                }
+            }
+        }
+    }
+
     String assignToken(User user, DashBoard dash, Device device, String newToken, boolean isTemporary) {
         // Clean old token from cache if exists.
         String oldToken = deleteDeviceToken(device.token);
@@ -9,12 +9,18 @@ import cc.blynk.server.core.model.widgets.outputs.graph.AggregationFunctionType;
 import cc.blynk.server.core.model.widgets.outputs.graph.GraphGranularityType;
 import cc.blynk.server.core.model.widgets.outputs.graph.Superchart;
 import cc.blynk.server.core.protocol.exceptions.NoDataException;
+import cc.blynk.server.core.reporting.GraphDataCache;
+import cc.blynk.server.core.reporting.GraphDownsampler;
 import cc.blynk.server.core.reporting.GraphPinRequest;
+import cc.blynk.server.core.reporting.ReportingEntriesMerger;
+import cc.blynk.server.core.reporting.ReportingFileChannelPool;
+import cc.blynk.server.core.reporting.ReportingFileMappingCache;
 import cc.blynk.server.core.reporting.average.AverageAggregatorProcessor;
 import cc.blynk.server.core.reporting.raw.BaseReportingKey;
 import cc.blynk.server.core.reporting.raw.GraphValue;
 import cc.blynk.server.core.reporting.raw.RawDataCacheForGraphProcessor;
 import cc.blynk.server.core.reporting.raw.RawDataProcessor;
+import cc.blynk.utils.ByteUtils;
 import cc.blynk.utils.FileUtils;
 import cc.blynk.utils.NumberUtil;
 import org.apache.logging.log4j.LogManager;
@@ -32,7 +38,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.function.Function;
+import java.util.function.Predicate;
 
+import static cc.blynk.server.core.model.widgets.outputs.graph.GraphGranularityType.MINUTE;
 import static cc.blynk.server.internal.EmptyArraysUtil.EMPTY_BYTES;
 import static cc.blynk.utils.FileUtils.CSV_DIR;
 import static cc.blynk.utils.FileUtils.SIZE_OF_REPORT_ENTRY;
@@ -51,6 +59,9 @@ public class ReportingDiskDao implements Closeable {
     public final RawDataCacheForGraphProcessor rawDataCacheForGraphProcessor;
     public final RawDataProcessor rawDataProcessor;
     public final CSVGenerator csvGenerator;
+    public final ReportingFileChannelPool channelPool;
+    public final ReportingFileMappingCache mappingCache;
+    public final GraphDataCache graphDataCache;
 
     public final String dataFolder;
 
@@ -67,15 +78,39 @@ public class ReportingDiskDao implements Closeable {
         this.enableRawDbDataStore = isEnabled;
         this.rawDataProcessor = new RawDataProcessor(enableRawDbDataStore);
         this.csvGenerator = new CSVGenerator(this);
+        this.channelPool = new ReportingFileChannelPool(ReportingFileChannelPool.DEFAULT_POOL_SIZE);
+        this.mappingCache = new ReportingFileMappingCache(ReportingFileMappingCache.DEFAULT_CACHE_SIZE);
+        this.graphDataCache = new GraphDataCache(0);
     }
 
     public ReportingDiskDao(String reportingFolder, boolean isEnabled) {
+        this(reportingFolder, isEnabled,
+                ReportingFileChannelPool.DEFAULT_POOL_SIZE, ReportingFileMappingCache.DEFAULT_CACHE_SIZE);
+    }
+
+    public ReportingDiskDao(String reportingFolder, boolean isEnabled,
+                            int maxOpenFileChannels, int maxMappedFiles) {
+        this(reportingFolder, isEnabled, maxOpenFileChannels, maxMappedFiles, RawDataProcessor.DEFAULT_CAPACITY);
+    }
+
+    public ReportingDiskDao(String reportingFolder, boolean isEnabled,
+                            int maxOpenFileChannels, int maxMappedFiles, int rawDataBufferSize) {
+        this(reportingFolder, isEnabled, maxOpenFileChannels, maxMappedFiles, rawDataBufferSize,
+                GraphDataCache.DEFAULT_MAX_SIZE_MB * 1024L * 1024L);
+    }
+
+    public ReportingDiskDao(String reportingFolder, boolean isEnabled,
+                            int maxOpenFileChannels, int maxMappedFiles, int rawDataBufferSize,
+                            long graphCacheMaxBytes) {
         this.averageAggregator = new AverageAggregatorProcessor(reportingFolder);
         this.rawDataCacheForGraphProcessor = new RawDataCacheForGraphProcessor();
         this.dataFolder = reportingFolder;
         this.enableRawDbDataStore = isEnabled;
-        this.rawDataProcessor = new RawDataProcessor(enableRawDbDataStore);
+        this.rawDataProcessor = new RawDataProcessor(enableRawDbDataStore ? rawDataBufferSize : 0);
         this.csvGenerator = new CSVGenerator(this);
+        this.channelPool = new ReportingFileChannelPool(maxOpenFileChannels);
+        this.mappingCache = new ReportingFileMappingCache(maxMappedFiles);
+        this.graphDataCache = new GraphDataCache(graphCacheMaxBytes);
         createCSVFolder();
     }
 
@@ -95,17 +130,52 @@ public class ReportingDiskDao implements Closeable {
                 FileUtils.getUserStorageDir(user.email, user.appName),
                 generateFilename(dashId, deviceId, pinType, pin, type)
         );
-        if (Files.exists(userDataFile)) {
-            try {
-                return FileUtils.read(userDataFile, count, skipCount);
-            } catch (Exception ioe) {
-                log.error(ioe);
-            }
+        try {
+            return mappingCache.read(userDataFile, count, skipCount);
+        } catch (Exception ioe) {
+            log.error(ioe);
         }
 
         return null;
     }
 
+    /**
+     * Cursor over the [from, to) window of the history files of the given dashboard.
+     * At most maxCount newest points are returned for every pin.
+     */
+    public HistoryCursor historyCursor(User user, int dashId, GraphGranularityType type,
+                                       long from, long to, int maxCount) {
+        return new HistoryCursor(mappingCache, getUserReportingFolderPath(user), dashId, type, from, to, maxCount);
+    }
+
+    /**
+     * Atomically moves new file over the history file and drops all cached resources of the file.
+     */
+    public void replace(Path reportingFile, Path newFile) throws IOException {
+        try {
+            channelPool.replace(reportingFile, newFile);
+        } finally {
+            invalidateReaders(reportingFile);
+        }
+    }
+
+    private void deleteFile(Path reportingFile) {
+        try {
+            channelPool.delete(reportingFile);
+        } catch (Exception e) {
+            log.debug("Error removing {}.", reportingFile, e);
+        } finally {
+            invalidateReaders(reportingFile);
+        }
+    }
+
+    //done after file is removed or replaced, so graph read that started before that
+    //has older cache version and its response of the old file is not cached
+    private void invalidateReaders(Path reportingFile) {
+        mappingCache.invalidate(reportingFile);
+        graphDataCache.invalidate(reportingFile);
+    }
+
     private static boolean hasData(byte[][] data) {
         for (byte[] pinData : data) {
             if (pinData.length > 0) {
@@ -115,19 +185,30 @@ public class ReportingDiskDao implements Closeable {
         return false;
     }
 
-    private ByteBuffer getDataForTag(User user, GraphPinRequest graphPinRequest) {
-        TreeMap<Long, GraphFunction> data = new TreeMap<>();
-        for (int deviceId : graphPinRequest.deviceIds) {
-            ByteBuffer localByteBuf = getByteBufferFromDisk(user,
-                    graphPinRequest.dashId, deviceId,
+    private byte[] getDataForTag(User user, GraphPinRequest graphPinRequest) {
+        int[] deviceIds = graphPinRequest.deviceIds;
+        ByteBuffer[] devicesData = new ByteBuffer[deviceIds.length];
+        boolean isSorted = true;
+        for (int i = 0; i < deviceIds.length; i++) {
+            devicesData[i] = getByteBufferFromDisk(user,
+                    graphPinRequest.dashId, deviceIds[i],
                     graphPinRequest.pinType, graphPinRequest.pin,
                     graphPinRequest.count, graphPinRequest.type,
                     graphPinRequest.skipCount
             );
-            addBufferToResult(data, graphPinRequest.functionType, localByteBuf);
+            isSorted = isSorted && ReportingEntriesMerger.isSorted(devicesData[i]);
+        }
+
+        if (isSorted) {
+            return ReportingEntriesMerger.merge(devicesData, graphPinRequest.functionType.produce());
         }
 
-        return toByteBuf(data);
+        //data pushed with custom timestamps may break the order within the file, so we can't merge it
+        TreeMap<Long, GraphFunction> data = new TreeMap<>();
+        for (ByteBuffer deviceData : devicesData) {
+            addBufferToResult(data, graphPinRequest.functionType, deviceData);
+        }
+        return toByteBuf(data).array();
     }
 
     private static void addBufferToResult(TreeMap<Long, GraphFunction> data,
@@ -156,17 +237,17 @@ public class ReportingDiskDao implements Closeable {
         return result;
     }
 
-    private ByteBuffer getByteBufferFromDisk(User user, GraphPinRequest graphPinRequest) {
+    private byte[] getDataFromDisk(User user, GraphPinRequest graphPinRequest) {
         try {
             if (graphPinRequest.isTag) {
                 return getDataForTag(user, graphPinRequest);
             } else {
-                return getByteBufferFromDisk(user,
+                return toBytes(getByteBufferFromDisk(user,
                         graphPinRequest.dashId, graphPinRequest.deviceId,
                         graphPinRequest.pinType, graphPinRequest.pin,
                         graphPinRequest.count, graphPinRequest.type,
                         graphPinRequest.skipCount
-                );
+                ));
             }
         } catch (Exception e) {
             log.error("Error getting data from disk.", e);
@@ -174,6 +255,15 @@ public class ReportingDiskDao implements Closeable {
         }
     }
 
+    private static byte[] toBytes(ByteBuffer byteBuffer) {
+        if (byteBuffer == null) {
+            return null;
+        }
+        byte[] data = new byte[byteBuffer.remaining()];
+        byteBuffer.get(data);
+        return data;
+    }
+
     private Path getUserReportingFolderPath(User user) {
         return Paths.get(dataFolder, FileUtils.getUserStorageDir(user.email, user.appName));
     }
@@ -185,6 +275,7 @@ public class ReportingDiskDao implements Closeable {
     public int delete(User user, Function<Path, Boolean> filter) {
         log.debug("Removing all reporting data for {}", user.email);
         Path reportingFolderPath = getUserReportingFolderPath(user);
+        releaseSeries(user, fileName -> filter.apply(reportingFolderPath.resolve(fileName)));
 
         int removedFilesCounter = 0;
         try {
@@ -193,7 +284,7 @@ public class ReportingDiskDao implements Closeable {
                     for (Path reportingFile : reportingFolder) {
                         if (filter.apply(reportingFile)) {
                             log.trace("Removing {}", reportingFile);
-                            FileUtils.deleteQuietly(reportingFile);
+                            deleteFile(reportingFile);
                             removedFilesCounter++;
                         }
                     }
@@ -205,6 +296,13 @@ public class ReportingDiskDao implements Closeable {
         return removedFilesCounter;
     }
 
+    //pending aggregated values of the removed series are dropped, so they don't
+    //create the history file again. series is matched by the name of its minute file
+    private void releaseSeries(User user, Predicate<String> fileNameFilter) {
+        averageAggregator.release(key -> key.isSameUser(user.email, user.appName)
+                && fileNameFilter.test(generateFilename(key.dashId, key.deviceId, key.pinType, key.pin, MINUTE)));
+    }
+
     private static boolean containsPrefix(List<String> prefixes, String filename) {
         for (String prefix : prefixes) {
             if (filename.startsWith(prefix)) {
@@ -226,11 +324,11 @@ public class ReportingDiskDao implements Closeable {
         return "history_" + dashId + DEVICE_SEPARATOR + deviceId + "_";
     }
 
-    private static void delete(String userReportingDir, int dashId, int deviceId, PinType pinType, short pin,
-                               GraphGranularityType reportGranularity) {
+    private void delete(String userReportingDir, int dashId, int deviceId, PinType pinType, short pin,
+                        GraphGranularityType reportGranularity) {
         Path userDataFile = Paths.get(userReportingDir,
                 generateFilename(dashId, deviceId, pinType, pin, reportGranularity));
-        FileUtils.deleteQuietly(userDataFile);
+        deleteFile(userDataFile);
     }
 
     public static String generateFilename(int dashId, int deviceId,
@@ -247,11 +345,12 @@ public class ReportingDiskDao implements Closeable {
         for (String pin : pins) {
             prefixes.add(generateFilenamePrefix(dashId, deviceId, pin));
         }
+        releaseSeries(user, fileName -> containsPrefix(prefixes, fileName));
         try (DirectoryStream<Path> userReportingFolder = Files.newDirectoryStream(userReportingPath, "*")) {
             for (Path reportingFile : userReportingFolder) {
                 String userFileName = reportingFile.getFileName().toString();
                 if (containsPrefix(prefixes, userFileName)) {
-                    FileUtils.deleteQuietly(reportingFile);
+                    deleteFile(reportingFile);
                     count++;
                 }
             }
@@ -262,14 +361,15 @@ public class ReportingDiskDao implements Closeable {
     public int delete(User user, int dashId, int deviceId) throws IOException {
         log.debug("Removing all pin data for dashId {}, deviceId {}.", dashId, deviceId);
         Path userReportingPath = getUserReportingFolderPath(user);
+        String fileNamePrefix = generateFilenamePrefix(dashId, deviceId);
+        releaseSeries(user, fileName -> fileName.startsWith(fileNamePrefix));
 
         int count = 0;
         if (Files.exists(userReportingPath)) {
-            String fileNamePrefix = generateFilenamePrefix(dashId, deviceId);
             try (DirectoryStream<Path> userReportingFolder = Files.newDirectoryStream(userReportingPath, "*")) {
                 for (Path reportingFile : userReportingFolder) {
                     if (reportingFile.getFileName().toString().startsWith(fileNamePrefix)) {
-                        FileUtils.deleteQuietly(reportingFile);
+                        deleteFile(reportingFile);
                         count++;
                     }
                 }
@@ -280,6 +380,7 @@ public class ReportingDiskDao implements Closeable {
 
     public void delete(User user, int dashId, int deviceId, PinType pinType, short pin) {
         log.debug("Removing {}{} pin data for dashId {}, deviceId {}.", pinType.pintTypeChar, pin, dashId, deviceId);
+        averageAggregator.release(user.email, user.appName, dashId, deviceId, pinType, pin);
         String userReportingDir = getUserReportingFolderPath(user).toString();
 
         for (GraphGranularityType reportGranularity : GraphGranularityType.getValues()) {
@@ -300,9 +401,8 @@ public class ReportingDiskDao implements Closeable {
     private void process(User user, DashBoard dash, int deviceId, short pin, PinType pinType,
                          String value, long ts, double doubleVal) {
         if (enableRawDbDataStore) {
-            rawDataProcessor.collect(
-                    new BaseReportingKey(user.email, user.appName, dash.id, deviceId, pinType, pin),
-                    ts, value, doubleVal);
+            BaseReportingKey key = new BaseReportingKey(user.email, user.appName, dash.id, deviceId, pinType, pin);
+            rawDataProcessor.collect(key, ts, value, doubleVal);
         }
 
         //not a number, nothing to aggregate
@@ -313,8 +413,9 @@ public class ReportingDiskDao implements Closeable {
         //store history data only for the pins assigned to the superchart
         Widget widgetWithLogPins = user.profile.getWidgetWithLoggedPin(dash, deviceId, pin, pinType);
         if (widgetWithLogPins != null) {
-            BaseReportingKey key = new BaseReportingKey(user.email, user.appName, dash.id, deviceId, pinType, pin);
-            averageAggregator.collect(key, ts, doubleVal);
+            //interned key of the series, so no allocation per value
+            BaseReportingKey key = averageAggregator.collect(user.email, user.appName,
+                    dash.id, deviceId, pinType, pin, ts, doubleVal);
             if (widgetWithLogPins instanceof Superchart) {
                 if (((Superchart) widgetWithLogPins).hasLivePeriodsSelected()) {
                     rawDataCacheForGraphProcessor.collect(key, new GraphValue(doubleVal, ts));
@@ -330,11 +431,18 @@ public class ReportingDiskDao implements Closeable {
             GraphPinRequest graphPinRequest = requestedPins[i];
             log.debug("Getting data for graph pin : {}.", graphPinRequest);
             if (graphPinRequest.isValid()) {
-                ByteBuffer byteBuffer = graphPinRequest.isLiveData()
-                        //live graph data is not on disk but in memory
-                        ? rawDataCacheForGraphProcessor.getLiveGraphData(user, graphPinRequest)
-                        : getByteBufferFromDisk(user, graphPinRequest);
-                values[i] = byteBuffer == null ? EMPTY_BYTES : byteBuffer.array();
+                byte[] data;
+                if (graphPinRequest.isLiveData()) {
+                    //live graph data is not on disk but in memory
+                    ByteBuffer byteBuffer = rawDataCacheForGraphProcessor.getLiveGraphData(user, graphPinRequest);
+                    data = byteBuffer == null ? null : byteBuffer.array();
+                } else {
+                    data = getDataFromDisk(user, graphPinRequest);
+                }
+                if (data != null) {
+                    data = GraphDownsampler.downsample(data, graphPinRequest.maxPoints, graphPinRequest.functionType);
+                }
+                values[i] = data == null ? EMPTY_BYTES : data;
             } else {
                 values[i] = EMPTY_BYTES;
             }
@@ -347,9 +455,66 @@ public class ReportingDiskDao implements Closeable {
         return values;
     }
 
+    /**
+     * Compressed graph response for the requested pins. Responses built from the history files
+     * are cached until any of the files is appended by the reporting worker.
+     */
+    public byte[] getCompressedReportingData(User user, GraphPinRequest[] requestedPins)
+            throws NoDataException, IOException {
+        String key = isCacheable(requestedPins)
+                ? GraphDataCache.key(user.email, user.appName, requestedPins)
+                : null;
+        if (key != null) {
+            byte[] cached = graphDataCache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        long version = graphDataCache.version();
+        byte[][] data = getReportingData(user, requestedPins);
+        byte[] compressed = ByteUtils.compress(requestedPins[0].dashId, data);
+        if (key != null) {
+            graphDataCache.put(key, getHistoryFiles(user, requestedPins), compressed, version);
+        }
+        return compressed;
+    }
+
+    private boolean isCacheable(GraphPinRequest[] requestedPins) {
+        if (!graphDataCache.isEnabled()) {
+            return false;
+        }
+        for (GraphPinRequest graphPinRequest : requestedPins) {
+            //live data is in memory and changes with every hardware message
+            if (graphPinRequest.isLiveData()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Path[] getHistoryFiles(User user, GraphPinRequest[] requestedPins) {
+        Path userReportingFolder = getUserReportingFolderPath(user);
+        List<Path> files = new ArrayList<>(requestedPins.length);
+        for (GraphPinRequest graphPinRequest : requestedPins) {
+            if (graphPinRequest.isTag) {
+                for (int deviceId : graphPinRequest.deviceIds) {
+                    files.add(userReportingFolder.resolve(generateFilename(graphPinRequest.dashId, deviceId,
+                            graphPinRequest.pinType, graphPinRequest.pin, graphPinRequest.type)));
+                }
+            } else if (graphPinRequest.isValid()) {
+                files.add(userReportingFolder.resolve(generateFilename(graphPinRequest.dashId,
+                        graphPinRequest.deviceId, graphPinRequest.pinType, graphPinRequest.pin,
+                        graphPinRequest.type)));
+            }
+        }
+        return files.toArray(new Path[0]);
+    }
+
     @Override
     public void close() {
         System.out.println("Stopping aggregator...");
         this.averageAggregator.close();
+        this.channelPool.close();
     }
 }
@@ -2,6 +2,7 @@ package cc.blynk.server.core.dao;
 
 import cc.blynk.server.core.model.auth.Session;
 import cc.blynk.server.core.model.auth.User;
+import cc.blynk.server.core.stats.SessionStats;
 import io.netty.channel.Channel;
 import io.netty.channel.EventLoop;
 import io.netty.channel.group.DefaultChannelGroup;
@@ -32,6 +33,8 @@ public class SessionDao {
 
     public final ConcurrentHashMap<UserKey, Session> userSession = new ConcurrentHashMap<>();
 
+    public final SessionStats sessionStats = new SessionStats();
+
     public Session get(UserKey userKey) {
         return userSession.get(userKey);
     }
@@ -41,10 +44,11 @@ public class SessionDao {
         Session group = userSession.get(key);
         //only one side came
         if (group == null) {
-            Session value = new Session(initialEventLoop);
+            Session value = new Session(initialEventLoop, sessionStats);
             group = userSession.putIfAbsent(key, value);
             if (group == null) {
                 log.trace("Creating unique session for user: {}", key);
+                sessionStats.sessionCreated(key);
                 return value;
             }
         }
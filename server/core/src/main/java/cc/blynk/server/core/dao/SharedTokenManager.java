@@ -24,10 +24,23 @@ public class SharedTokenManager {
     SharedTokenManager(Collection<User> users) {
         this.cache = new ConcurrentHashMap<>();
         for (User user : users) {
-            for (DashBoard dashBoard : user.profile.dashBoards) {
-                if (dashBoard.sharedToken != null) {
-                    cache.put(dashBoard.sharedToken, new SharedTokenValue(user, dashBoard.id));
-                }
+            add(user);
+        }
+    }
+
+    void add(User user) {
+        for (DashBoard dashBoard : user.profile.dashBoards) {
+            if (dashBoard.sharedToken != null) {
+                cache.put(dashBoard.sharedToken, new SharedTokenValue(user, dashBoard.id));
+            }
+        }
+    }
+
+    //removes tokens only in case they still point to this user object
+    void remove(User user) {
+        for (DashBoard dashBoard : user.profile.dashBoards) {
+            if (dashBoard.sharedToken != null) {
+                cache.computeIfPresent(dashBoard.sharedToken, (token, value) -> value.user == user ? null : value);
             }
         }
     }
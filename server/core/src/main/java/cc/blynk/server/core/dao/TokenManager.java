@@ -20,6 +20,8 @@ public class TokenManager {
     private final SharedTokenManager sharedTokenManager;
     private final DBManager dbManager;
     private final String host;
+    //users evicted from memory, set by ColdUsers on construction
+    volatile ColdUsers coldUsers;
 
     public TokenManager(ConcurrentMap<UserKey, User> users, DBManager dbManager, String host) {
         Collection<User> allUsers = users.values();
@@ -45,11 +47,44 @@ public class TokenManager {
     }
 
     public TokenValue getTokenValueByToken(String token) {
-        return regularTokenManager.getUserByToken(token);
+        TokenValue tokenValue = regularTokenManager.getUserByToken(token);
+        if (tokenValue == null) {
+            ColdUsers coldUsers = this.coldUsers;
+            if (coldUsers != null && coldUsers.loadByToken(token) != null) {
+                return regularTokenManager.getUserByToken(token);
+            }
+        }
+        return tokenValue;
+    }
+
+    /**
+     * Lookup of the token of the evicted user loads the user from disk,
+     * so callers on the event loops should check it and do the lookup on the blocking pool instead.
+     */
+    public boolean isEvictedUserToken(String token) {
+        ColdUsers coldUsers = this.coldUsers;
+        return coldUsers != null && coldUsers.containsToken(token);
     }
 
     public SharedTokenValue getUserBySharedToken(String token) {
-        return sharedTokenManager.getUserByToken(token);
+        SharedTokenValue tokenValue = sharedTokenManager.getUserByToken(token);
+        if (tokenValue == null) {
+            ColdUsers coldUsers = this.coldUsers;
+            if (coldUsers != null && coldUsers.loadBySharedToken(token) != null) {
+                return sharedTokenManager.getUserByToken(token);
+            }
+        }
+        return tokenValue;
+    }
+
+    void addUserTokens(User user) {
+        regularTokenManager.add(user);
+        sharedTokenManager.add(user);
+    }
+
+    void removeUserTokens(User user) {
+        regularTokenManager.remove(user);
+        sharedTokenManager.remove(user);
     }
 
     public void assignToken(User user, DashBoard dash, Device device, String newToken, boolean isTemporary) {
@@ -8,6 +8,7 @@ import cc.blynk.server.core.model.enums.ProvisionType;
 import cc.blynk.server.core.model.serialization.JsonParser;
 import cc.blynk.server.core.model.widgets.Widget;
 import cc.blynk.server.core.model.widgets.others.webhook.WebHook;
+import cc.blynk.server.core.stats.UserActivityStats;
 import cc.blynk.server.workers.timer.TimerWorker;
 import cc.blynk.utils.AppNameUtil;
 import cc.blynk.utils.TokenGeneratorUtil;
@@ -17,10 +18,11 @@ import org.apache.logging.log4j.Logger;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentMap;
-import java.util.stream.Collectors;
 
 /**
  * Helper class for holding info regarding registered users and profiles.
@@ -34,8 +36,11 @@ public class UserDao {
     private static final Logger log = LogManager.getLogger(UserDao.class);
 
     public final ConcurrentMap<UserKey, User> users;
+    public final UserActivityStats activityStats = new UserActivityStats();
     private final String region;
     private final String host;
+    //users evicted from memory, set by ColdUsers on construction
+    volatile ColdUsers coldUsers;
 
     public UserDao(ConcurrentMap<UserKey, User> users, String region, String host) {
         //reading DB to RAM.
@@ -46,7 +51,7 @@ public class UserDao {
     }
 
     public boolean isUserExists(String name, String appName) {
-        return users.get(new UserKey(name, appName)) != null;
+        return contains(name, appName);
     }
 
     public boolean isSuperAdminExists() {
@@ -64,11 +69,64 @@ public class UserDao {
     }
 
     public User getByName(String name, String appName) {
-        return users.get(new UserKey(name, appName));
+        return get(new UserKey(name, appName));
+    }
+
+    /**
+     * Returns user from memory or loads it from disk in case user was evicted.
+     */
+    public User get(UserKey userKey) {
+        User user = users.get(userKey);
+        if (user == null) {
+            ColdUsers coldUsers = this.coldUsers;
+            if (coldUsers != null) {
+                return coldUsers.load(userKey);
+            }
+        }
+        return user;
+    }
+
+    /**
+     * Returns user only if it is in memory, evicted user is not loaded from disk.
+     */
+    public User getIfLoaded(UserKey userKey) {
+        return users.get(userKey);
+    }
+
+    /**
+     * Evicted user is loaded from disk on the first {@link #get(UserKey)}, so callers on the event loops
+     * should check it and do the lookup on the blocking pool instead.
+     */
+    public boolean isEvicted(UserKey userKey) {
+        ColdUsers coldUsers = this.coldUsers;
+        return coldUsers != null && coldUsers.contains(userKey);
+    }
+
+    /**
+     * Returns user from memory or reads evicted user from disk without loading it back to memory.
+     */
+    public User peek(UserKey userKey) {
+        User user = users.get(userKey);
+        if (user == null) {
+            ColdUsers coldUsers = this.coldUsers;
+            if (coldUsers != null) {
+                user = coldUsers.read(userKey);
+                //user may be loaded by another thread in the meantime
+                return user == null ? users.get(userKey) : user;
+            }
+        }
+        return user;
     }
 
     public boolean contains(String name, String appName) {
-        return users.containsKey(new UserKey(name, appName));
+        UserKey userKey = new UserKey(name, appName);
+        ColdUsers coldUsers = this.coldUsers;
+        return users.containsKey(userKey) || (coldUsers != null && coldUsers.contains(userKey));
+    }
+
+    public int size() {
+        ColdUsers coldUsers = this.coldUsers;
+        return users.size() + (coldUsers == null ? 0 : coldUsers.size());
     }
 
     //for tests only
@@ -76,16 +134,47 @@ public class UserDao {
         return users;
     }
 
-    public List<User> searchByUsername(String name, String appName) {
-        if (name == null) {
-            return new ArrayList<>(users.values());
+    /**
+     * Returns keys of all users, including users evicted from memory.
+     */
+    public Set<UserKey> getUserKeys() {
+        Set<UserKey> userKeys = new HashSet<>(users.keySet());
+        ColdUsers coldUsers = this.coldUsers;
+        if (coldUsers != null) {
+            userKeys.addAll(coldUsers.keys());
         }
+        return userKeys;
+    }
 
-        return users.values().stream().filter(user -> user.email.contains(name)
-                && (appName == null || user.appName.equals(appName))).collect(Collectors.toList());
+    /**
+     * Searches users by part of email. Evicted users are not loaded back to memory, but returned
+     * as summary with email, app name and last modification time only.
+     * Use {@link #peek(UserKey)} to read full profile of the returned user.
+     */
+    public List<User> searchByUsername(String name, String appName) {
+        List<User> result = new ArrayList<>();
+        ColdUsers coldUsers = this.coldUsers;
+        for (UserKey userKey : getUserKeys()) {
+            if ((name == null || userKey.email.contains(name))
+                    && (appName == null || userKey.appName.equals(appName))) {
+                User user = users.get(userKey);
+                if (user == null && coldUsers != null) {
+                    user = coldUsers.summary(userKey);
+                }
+                if (user != null) {
+                    result.add(user);
+                }
+            }
+        }
+        return result;
     }
 
     public User delete(UserKey userKey) {
+        ColdUsers coldUsers = this.coldUsers;
+        if (coldUsers != null) {
+            coldUsers.remove(userKey);
+        }
+        activityStats.remove(userKey);
         return users.remove(userKey);
     }
 
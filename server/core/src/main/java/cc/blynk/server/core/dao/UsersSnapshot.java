@@ -0,0 +1,145 @@
+package cc.blynk.server.core.dao;
+
+import cc.blynk.server.core.model.auth.User;
+import cc.blynk.server.core.model.serialization.JsonParser;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.stream.IntStream;
+
+/**
+ * Binary snapshot of all user profiles in one file. Used only to speed up the server startup,
+ * json user files are still the main storage of the profiles.
+ *
+ * Format : header (magic, version, creation time, number of users) followed by
+ * the length prefixed users, each encoded with the binary json (smile).
+ * Snapshot is memory mapped on startup and users are decoded in parallel.
+ *
+ * The Blynk Project.
+ * Created by Dmitriy Dumanskiy.
+ * Created on 18.10.26.
+ */
+public final class UsersSnapshot {
+
+    private static final Logger log = LogManager.getLogger(UsersSnapshot.class);
+
+    private static final int MAGIC = 0x424C594E;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 4;
+    private static final String TEMP_FILE_EXTENSION = ".tmp";
+
+    /**
+     * Time when snapshot was started. All changes made before it are within the snapshot.
+     */
+    public final long createdAt;
+
+    /**
+     * Users from the snapshot. Null elements are users that failed to decode.
+     */
+    public final User[] users;
+
+    private UsersSnapshot(long createdAt, User[] users) {
+        this.createdAt = createdAt;
+        this.users = users;
+    }
+
+    public static void write(Path path, Collection<User> users) throws IOException {
+        long createdAt = System.currentTimeMillis();
+        Path tempPath = Paths.get(path.toString() + TEMP_FILE_EXTENSION);
+        int count = 0;
+        try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             DataOutputStream out = new DataOutputStream(
+                     new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(createdAt);
+            //number of users is not known yet, users map may change during the write
+            out.writeInt(0);
+            for (User user : users) {
+                byte[] data;
+                try {
+                    data = JsonParser.toBinary(user);
+                } catch (Exception e) {
+                    log.error("Error encoding user {} for snapshot. {}", user.email, e.getMessage());
+                    continue;
+                }
+                out.writeInt(data.length);
+                out.write(data);
+                count++;
+            }
+            out.flush();
+            channel.write(ByteBuffer.allocate(4).putInt(0, count), HEADER_SIZE - 4);
+            channel.force(false);
+        }
+        Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return snapshot or null in case snapshot doesn't exist or broken.
+     */
+    public static UsersSnapshot read(Path path) {
+        if (Files.notExists(path)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+                log.warn("Users snapshot '{}' has unsupported size {}.", path, size);
+                return null;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                log.warn("Users snapshot '{}' has unsupported format.", path);
+                return null;
+            }
+            long createdAt = buffer.getLong();
+            int count = buffer.getInt();
+
+            //first pass only collects record offsets, so records could be decoded in parallel
+            int[] offsets = new int[count];
+            int[] lengths = new int[count];
+            for (int i = 0; i < count; i++) {
+                int length = buffer.getInt();
+                if (length < 0 || length > buffer.remaining()) {
+                    log.warn("Users snapshot '{}' is broken.", path);
+                    return null;
+                }
+                offsets[i] = buffer.position();
+                lengths[i] = length;
+                buffer.position(offsets[i] + length);
+            }
+
+            User[] users = new User[count];
+            IntStream.range(0, count).parallel().forEach(i -> {
+                ByteBuffer record = buffer.duplicate();
+                record.position(offsets[i]);
+                byte[] data = new byte[lengths[i]];
+                record.get(data);
+                try {
+                    users[i] = JsonParser.parseUserFromBinary(data);
+                } catch (Exception e) {
+                    log.error("Error decoding user from snapshot. {}", e.getMessage());
+                }
+            });
+            return new UsersSnapshot(createdAt, users);
+        } catch (Exception e) {
+            log.error("Error reading users snapshot '{}'. {}", path, e.getMessage());
+        }
+        return null;
+    }
+
+}
@@ -26,4 +26,9 @@ public class AverageGraphFunction implements GraphFunction {
         return sum / count;
     }
 
+    @Override
+    public void reset() {
+        this.count = 0;
+        this.sum = 0;
+    }
 }
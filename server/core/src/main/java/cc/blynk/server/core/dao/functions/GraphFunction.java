@@ -11,4 +11,9 @@ public interface GraphFunction {
 
     double getResult();
 
+    /**
+     * Brings function to the initial state, so the same instance could be reused for the next point.
+     */
+    void reset();
+
 }
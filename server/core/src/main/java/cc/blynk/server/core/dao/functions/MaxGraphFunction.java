@@ -18,4 +18,9 @@ public class MaxGraphFunction implements GraphFunction {
     public double getResult() {
         return value;
     }
+
+    @Override
+    public void reset() {
+        this.value = Double.MIN_VALUE;
+    }
 }
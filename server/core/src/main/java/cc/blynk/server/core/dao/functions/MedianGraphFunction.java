@@ -31,4 +31,8 @@ public class MedianGraphFunction implements GraphFunction {
         return array.get(middle);
     }
 
+    @Override
+    public void reset() {
+        array.clear();
+    }
 }
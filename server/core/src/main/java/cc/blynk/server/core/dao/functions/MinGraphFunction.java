@@ -19,4 +19,8 @@ public class MinGraphFunction implements GraphFunction {
         return value;
     }
 
+    @Override
+    public void reset() {
+        this.value = Double.MAX_VALUE;
+    }
 }
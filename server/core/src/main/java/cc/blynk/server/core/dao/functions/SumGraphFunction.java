@@ -23,4 +23,8 @@ public class SumGraphFunction implements GraphFunction {
         return sum;
     }
 
+    @Override
+    public void reset() {
+        this.sum = 0;
+    }
 }
@@ -67,6 +67,10 @@ public class DashBoard {
 
     public volatile long updatedAt;
 
+    //time of the last pin value or pin property update. Such updates are journaled,
+    //so they don't change updatedAt and don't require rewrite of the whole profile
+    public transient volatile long valuesUpdatedAt;
+
     public volatile Widget[] widgets = EMPTY_WIDGETS;
 
     public volatile Device[] devices = EMPTY_DEVICES;
@@ -100,9 +104,14 @@ public class DashBoard {
     @Deprecated
     public Map<PinStorageKey, PinStorageValue> pinsStorage = Collections.emptyMap();
 
+    private transient volatile LoggedPinsIndex loggedPinsIndex;
+    private transient volatile WidgetsByPinIndex widgetsByPinIndex;
+    private transient volatile ReadingWidgetsIndex readingWidgetsIndex;
+    private transient volatile int structureVersion;
+
     public boolean updateWidgets(int deviceId, short pin, PinType type, String value) {
         boolean hasWidget = false;
-        for (Widget widget : widgets) {
+        for (Widget widget : getWidgetsByPin(deviceId, pin, type)) {
             if (widget.updateIfSame(deviceId, pin, type, value)) {
                 hasWidget = true;
             }
@@ -192,6 +201,55 @@ public class DashBoard {
         return null;
     }
 
+    /**
+     * Returns superchart or reporting widget that stores history for the pin.
+     * Called on every hardware message, so lookup goes via index that is rebuilt
+     * only when dashboard structure is changed.
+     */
+    public Widget getWidgetWithLoggedPin(int deviceId, short pin, PinType pinType) {
+        int version = this.structureVersion;
+        LoggedPinsIndex index = this.loggedPinsIndex;
+        if (index == null || !index.isBuiltFor(this, version)) {
+            index = new LoggedPinsIndex(this, version);
+            this.loggedPinsIndex = index;
+        }
+        return index.get(deviceId, pin, pinType);
+    }
+
+    private Widget[] getWidgetsByPin(int deviceId, short pin, PinType pinType) {
+        int version = this.structureVersion;
+        WidgetsByPinIndex index = this.widgetsByPinIndex;
+        if (index == null || !index.isBuiltFor(this, version)) {
+            index = new WidgetsByPinIndex(this, version);
+            this.widgetsByPinIndex = index;
+        }
+        return index.get(deviceId, pin, pinType);
+    }
+
+    /**
+     * Returns widgets with reading interval. Called by reading worker for every
+     * connected hardware, so widgets list is rebuilt only when dashboard structure is changed.
+     */
+    public ReadingWidgetsIndex getReadingWidgets() {
+        int version = this.structureVersion;
+        ReadingWidgetsIndex index = this.readingWidgetsIndex;
+        if (index == null || !index.isBuiltFor(this, version)) {
+            index = new ReadingWidgetsIndex(this, version);
+            this.readingWidgetsIndex = index;
+        }
+        return index;
+    }
+
+    /**
+     * Replacement of the widgets or tags arrays is detected automatically.
+     * This method should be called after in-place changes of the nested structure :
+     * tile templates and their widgets, tags and device selectors content.
+     * Logged pins, widgets by pin and reading widgets indexes are rebuilt on next lookup.
+     */
+    public void invalidatePinIndexes() {
+        this.structureVersion++;
+    }
+
     public WebHook findWebhookByPin(int deviceId, short pin, PinType pinType) {
         for (Widget widget : widgets) {
             if (widget instanceof WebHook) {
@@ -306,6 +364,10 @@ public class DashBoard {
     }
 
 
+    public boolean isChild() {
+        return parentId != IS_PARENT_DASH;
+    }
+
     public int energySum() {
         //means this is app preview project so do no manipulation with energy
         if (parentId != IS_PARENT_DASH) {
@@ -333,6 +395,7 @@ public class DashBoard {
                 ((DeviceCleaner) widget).deleteDevice(deviceId);
             }
         }
+        invalidatePinIndexes();
     }
 
     public void addTimers(TimerWorker timerWorker, UserKey userKey) {
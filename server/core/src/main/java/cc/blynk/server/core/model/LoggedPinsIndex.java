@@ -0,0 +1,164 @@
+package cc.blynk.server.core.model;
+
+import cc.blynk.server.core.model.device.Tag;
+import cc.blynk.server.core.model.enums.PinType;
+import cc.blynk.server.core.model.widgets.Target;
+import cc.blynk.server.core.model.widgets.Widget;
+import cc.blynk.server.core.model.widgets.outputs.graph.GraphDataStream;
+import cc.blynk.server.core.model.widgets.outputs.graph.Superchart;
+import cc.blynk.server.core.model.widgets.ui.DeviceSelector;
+import cc.blynk.server.core.model.widgets.ui.reporting.ReportingWidget;
+import cc.blynk.server.core.model.widgets.ui.reporting.source.ReportDataStream;
+import cc.blynk.server.core.model.widgets.ui.reporting.source.ReportSource;
+import cc.blynk.server.core.model.widgets.ui.tiles.DeviceTiles;
+import cc.blynk.server.core.model.widgets.ui.tiles.TileTemplate;
+import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.collection.LongObjectHashMap;
+
+/**
+ * Immutable lookup from (deviceId, pinType, pin) to the widget that logs this pin
+ * (superchart or reporting widget). Device selectors, tags and device tiles
+ * are resolved to the device ids during build, so lookup is O(1).
+ *
+ * Index is built for the exact widgets and tags arrays of the dashboard and
+ * structure version. Dashboard rebuilds it as soon as any of them is changed.
+ * In case few widgets log the same pin, the first one in widgets order wins.
+ *
+ * The Blynk Project.
+ * Created by Dmitriy Dumanskiy.
+ * Created on 18.10.26.
+ */
+final class LoggedPinsIndex {
+
+    private final Widget[] widgets;
+    private final Tag[] tags;
+    private final int structureVersion;
+
+    //deviceId + pinType + pin -> widget
+    private final LongObjectHashMap<Widget> devicePins = new LongObjectHashMap<>();
+    //pinType + pin -> widget, for the widgets that log the pin of any device
+    private final IntObjectHashMap<Widget> anyDevicePins = new IntObjectHashMap<>();
+
+    LoggedPinsIndex(DashBoard dash, int structureVersion) {
+        this.structureVersion = structureVersion;
+        this.widgets = dash.widgets;
+        this.tags = dash.tags;
+
+        for (Widget widget : widgets) {
+            if (widget instanceof Superchart) {
+                addGraph(dash, (Superchart) widget, null);
+            } else if (widget instanceof DeviceTiles) {
+                for (TileTemplate tileTemplate : ((DeviceTiles) widget).templates) {
+                    for (Widget tilesWidget : tileTemplate.widgets) {
+                        if (tilesWidget instanceof Superchart) {
+                            addGraph(dash, (Superchart) tilesWidget, tileTemplate.deviceIds);
+                        }
+                    }
+                }
+            } else if (widget instanceof ReportingWidget) {
+                addReportingWidget((ReportingWidget) widget);
+            }
+        }
+    }
+
+    private static int pinKey(PinType pinType, short pin) {
+        return pinType.ordinal() << Short.SIZE | (pin & 0xFFFF);
+    }
+
+    static long devicePinKey(int deviceId, PinType pinType, short pin) {
+        return (long) deviceId << Integer.SIZE | pinKey(pinType, pin);
+    }
+
+    boolean isBuiltFor(DashBoard dash, int structureVersion) {
+        return this.structureVersion == structureVersion && this.widgets == dash.widgets && this.tags == dash.tags;
+    }
+
+    Widget get(int deviceId, short pin, PinType pinType) {
+        Widget widget = devicePins.get(devicePinKey(deviceId, pinType, pin));
+        if (widget != null) {
+            return widget;
+        }
+        return anyDevicePins.get(pinKey(pinType, pin));
+    }
+
+    private void addGraph(DashBoard dash, Superchart graph, int[] tileDeviceIds) {
+        for (GraphDataStream graphDataStream : graph.dataStreams) {
+            if (graphDataStream == null || graphDataStream.dataStream == null) {
+                continue;
+            }
+            DataStream dataStream = graphDataStream.dataStream;
+            int graphTargetId = graphDataStream.targetId;
+
+            //this is the case when datastream assigned directly to the device
+            addDataStream(graph, graphTargetId, dataStream);
+
+            //this is the case when graph is within deviceTiles
+            if (tileDeviceIds != null) {
+                for (int deviceId : tileDeviceIds) {
+                    addDataStream(graph, deviceId, dataStream);
+                }
+            }
+
+            //this is the case when graph is within device selector or tags.
+            //device target contains only itself, so it is covered above
+            Target target = null;
+            if (graphTargetId >= DeviceSelector.DEVICE_SELECTOR_STARTING_ID) {
+                target = dash.getDeviceSelector(graphTargetId);
+            } else if (graphTargetId >= Tag.START_TAG_ID) {
+                target = getTagById(graphTargetId);
+            }
+            int[] targetDeviceIds = target == null ? null : target.getAssignedDeviceIds();
+            if (targetDeviceIds != null) {
+                for (int deviceId : targetDeviceIds) {
+                    addDataStream(graph, deviceId, dataStream);
+                }
+            }
+        }
+    }
+
+    private Tag getTagById(int id) {
+        for (Tag tag : tags) {
+            if (tag.id == id) {
+                return tag;
+            }
+        }
+        return null;
+    }
+
+    private void addDataStream(Widget widget, int deviceId, DataStream dataStream) {
+        add(widget, deviceId, dataStream.pinType, dataStream.pin);
+        //see DataStream.isSame()
+        if (dataStream.pwmMode) {
+            add(widget, deviceId, PinType.ANALOG, dataStream.pin);
+        }
+    }
+
+    private void add(Widget widget, int deviceId, PinType pinType, short pin) {
+        if (pinType == null) {
+            return;
+        }
+        //widget that logs pin of any device is earlier in order, so it has priority
+        if (anyDevicePins.containsKey(pinKey(pinType, pin))) {
+            return;
+        }
+        long key = devicePinKey(deviceId, pinType, pin);
+        if (!devicePins.containsKey(key)) {
+            devicePins.put(key, widget);
+        }
+    }
+
+    private void addReportingWidget(ReportingWidget reportingWidget) {
+        for (ReportSource reportSource : reportingWidget.reportSources) {
+            for (ReportDataStream reportDataStream : reportSource.reportDataStreams) {
+                if (reportDataStream.pinType == null) {
+                    continue;
+                }
+                int key = pinKey(reportDataStream.pinType, reportDataStream.pin);
+                if (!anyDevicePins.containsKey(key)) {
+                    anyDevicePins.put(key, reportingWidget);
+                }
+            }
+        }
+    }
+
+}
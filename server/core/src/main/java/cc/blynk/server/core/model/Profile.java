@@ -18,23 +18,22 @@ import cc.blynk.server.core.model.widgets.MultiPinWidget;
 import cc.blynk.server.core.model.widgets.OnePinWidget;
 import cc.blynk.server.core.model.widgets.Target;
 import cc.blynk.server.core.model.widgets.Widget;
-import cc.blynk.server.core.model.widgets.outputs.graph.GraphDataStream;
-import cc.blynk.server.core.model.widgets.outputs.graph.Superchart;
 import cc.blynk.server.core.model.widgets.ui.DeviceSelector;
-import cc.blynk.server.core.model.widgets.ui.reporting.ReportingWidget;
 import cc.blynk.server.core.model.widgets.ui.tiles.DeviceTiles;
 import cc.blynk.server.core.model.widgets.ui.tiles.Tile;
 import cc.blynk.server.core.model.widgets.ui.tiles.TileTemplate;
 import cc.blynk.server.core.protocol.exceptions.IllegalCommandException;
 import cc.blynk.utils.ArrayUtil;
 import cc.blynk.utils.StringUtils;
+import com.fasterxml.jackson.annotation.JsonSetter;
 import com.fasterxml.jackson.annotation.JsonView;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import io.netty.channel.Channel;
 
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import static cc.blynk.server.core.model.widgets.MobileSyncWidget.ANY_TARGET;
 import static cc.blynk.server.internal.EmptyArraysUtil.EMPTY_APPS;
@@ -53,9 +52,21 @@ public class Profile {
     public volatile App[] apps = EMPTY_APPS;
 
     @JsonView(View.Private.class)
+    public final ConcurrentMap<DashPinStorageKey, PinStorageValue> pinsStorage = new ConcurrentHashMap<>();
+
+    public final transient ProfileJournal journal = new ProfileJournal();
+
+    //concurrent map doesn't accept nulls, so broken storage entries are skipped
+    @JsonSetter("pinsStorage")
     @JsonDeserialize(keyUsing = DashPinStorageKeyDeserializer.class,
                      contentUsing = PinStorageValueDeserializer.class)
-    public final Map<DashPinStorageKey, PinStorageValue> pinsStorage = new HashMap<>();
+    private void setPinsStorage(Map<DashPinStorageKey, PinStorageValue> pinsStorage) {
+        for (Map.Entry<DashPinStorageKey, PinStorageValue> entry : pinsStorage.entrySet()) {
+            if (entry.getKey() != null && entry.getValue() != null) {
+                this.pinsStorage.put(entry.getKey(), entry.getValue());
+            }
+        }
+    }
 
     //todo this method is very wrong, need to something with it.
     private static final DashBoard EMPTY_DASH = new DashBoard();
@@ -159,6 +170,7 @@ public class Profile {
         for (Tag tag : dash.tags) {
             tag.deleteDevice(deviceId);
         }
+        dash.invalidatePinIndexes();
     }
 
     public void cleanPinStorage(DashBoard dash, Widget widget, boolean removeTemplates) {
@@ -299,12 +311,34 @@ public class Profile {
     }
 
     public void update(DashBoard dash, int deviceId, short pin, PinType pinType, String value, long now) {
+        applyUpdate(dash, deviceId, pin, pinType, value, now);
+        journal.appendValue(now, dash.id, deviceId, pinType, pin, value);
+    }
+
+    void applyUpdate(DashBoard dash, int deviceId, short pin, PinType pinType, String value, long now) {
         if (!dash.updateWidgets(deviceId, pin, pinType, value)) {
             //special case. #237 if no widget - storing without widget.
             putPinStorageValue(dash, deviceId, pinType, pin, value);
         }
 
-        dash.updatedAt = now;
+        dash.valuesUpdatedAt = now;
+    }
+
+    public void updateProperty(DashBoard dash, int deviceId, short pin,
+                               WidgetProperty property, String value, long now) {
+        applyPropertyUpdate(dash, deviceId, pin, property, value, now);
+        journal.appendProperty(now, dash.id, deviceId, pin, property, value);
+    }
+
+    void applyPropertyUpdate(DashBoard dash, int deviceId, short pin,
+                             WidgetProperty property, String value, long now) {
+        Widget widget = dash.updateProperty(deviceId, pin, property, value);
+        //this is possible case for device selector
+        if (widget == null) {
+            putPinPropertyStorageValue(dash, deviceId, PinType.VIRTUAL, pin, property, value);
+        }
+
+        dash.valuesUpdatedAt = now;
     }
 
     public void putPinPropertyStorageValue(DashBoard dash, int deviceId, PinType type, short pin,
@@ -319,77 +353,17 @@ public class Profile {
     private void putPinStorageValue(DashBoard dash, DashPinStorageKey key, String value) {
         PinStorageValue pinStorageValue = pinsStorage.get(key);
         if (pinStorageValue == null) {
-            pinStorageValue = dash.initStorageValueForStorageKey(key);
-            pinsStorage.put(key, pinStorageValue);
+            PinStorageValue newPinStorageValue = dash.initStorageValueForStorageKey(key);
+            pinStorageValue = pinsStorage.putIfAbsent(key, newPinStorageValue);
+            if (pinStorageValue == null) {
+                pinStorageValue = newPinStorageValue;
+            }
         }
         pinStorageValue.update(value);
     }
 
     public Widget getWidgetWithLoggedPin(DashBoard dash, int deviceId, short pin, PinType pinType) {
-        for (Widget widget : dash.widgets) {
-            if (widget instanceof Superchart) {
-                Superchart graph = (Superchart) widget;
-                if (isWithinGraph(dash, graph, pin, pinType, deviceId)) {
-                    return graph;
-                }
-            }
-            if (widget instanceof DeviceTiles) {
-                DeviceTiles deviceTiles = (DeviceTiles) widget;
-                for (TileTemplate tileTemplate : deviceTiles.templates) {
-                    for (Widget tilesWidget : tileTemplate.widgets) {
-                        if (tilesWidget instanceof Superchart) {
-                            Superchart graph = (Superchart) tilesWidget;
-                            if (isWithinGraph(dash, graph, pin, pinType, deviceId, tileTemplate.deviceIds)) {
-                                return graph;
-                            }
-                        }
-                    }
-                }
-            }
-            if (widget instanceof ReportingWidget) {
-                ReportingWidget reportingWidget = (ReportingWidget) widget;
-                if (reportingWidget.hasPin(pin, pinType)) {
-                    return reportingWidget;
-                }
-            }
-        }
-        return null;
-    }
-
-    private boolean isWithinGraph(DashBoard dash, Superchart graph,
-                                         short pin, PinType pinType, int deviceId, int... deviceIds) {
-        for (GraphDataStream graphDataStream : graph.dataStreams) {
-            if (graphDataStream != null && graphDataStream.dataStream != null
-                    && graphDataStream.dataStream.isSame(pin, pinType)) {
-
-                int graphTargetId = graphDataStream.targetId;
-
-                //this is the case when datastream assigned directly to the device
-                if (deviceId == graphTargetId) {
-                    return true;
-                }
-
-                //this is the case when graph is within deviceTiles
-                if (deviceIds != null && ArrayUtil.contains(deviceIds, deviceId)) {
-                    return true;
-                }
-
-                //this is the case when graph is within device selector or tags
-                Target target;
-                if (graphTargetId < Tag.START_TAG_ID) {
-                    target = getDeviceById(dash, graphTargetId);
-                } else if (graphTargetId < DeviceSelector.DEVICE_SELECTOR_STARTING_ID) {
-                    target = getTagById(dash, graphTargetId);
-                } else {
-                    //means widget assigned to device selector widget.
-                    target = dash.getDeviceSelector(graphTargetId);
-                }
-                if (target != null && target.contains(deviceId)) {
-                    return true;
-                }
-            }
-        }
-        return false;
+        return dash.getWidgetWithLoggedPin(deviceId, pin, pinType);
     }
 
     public int getDashIndexOrThrow(int dashId) {
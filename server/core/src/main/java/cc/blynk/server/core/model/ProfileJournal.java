@@ -0,0 +1,159 @@
+package cc.blynk.server.core.model;
+
+import cc.blynk.server.core.model.enums.PinType;
+import cc.blynk.server.core.model.enums.WidgetProperty;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+
+/**
+ * Journal of the pin value and pin property updates of the user profile.
+ * Such updates are the most frequent profile changes, so instead of rewriting the whole
+ * profile, profile saver appends them to the journal file of the user. On startup journal
+ * file is replayed on top of the last profile snapshot.
+ *
+ * Updates are encoded in memory as they happen and drained by the profile saver.
+ * When pending updates can't be journaled (too many updates or too big value),
+ * they are dropped and the whole profile has to be saved instead.
+ *
+ * The Blynk Project.
+ * Created by Dmitriy Dumanskiy.
+ * Created on 18.10.26.
+ */
+public final class ProfileJournal {
+
+    private static final byte PIN_VALUE = 0;
+    private static final byte PIN_PROPERTY = 1;
+
+    //java modified utf-8 is limited with 65535 bytes, single char takes up to 3 bytes
+    private static final int MAX_VALUE_LENGTH = 65535 / 3;
+    private static final int MAX_PENDING_SIZE = 1024 * 1024;
+
+    private ByteArrayOutputStream pending;
+    private boolean snapshotRequired;
+
+    synchronized void appendValue(long ts, int dashId, int deviceId, PinType pinType, short pin, String value) {
+        DataOutputStream out = start(value);
+        if (out != null) {
+            try {
+                out.writeByte(PIN_VALUE);
+                writeHeader(out, ts, dashId, deviceId, pinType, pin);
+                out.writeUTF(value);
+            } catch (IOException e) {
+                //not possible for in-memory stream
+                requireSnapshot();
+            }
+        }
+    }
+
+    synchronized void appendProperty(long ts, int dashId, int deviceId, short pin,
+                                     WidgetProperty property, String value) {
+        DataOutputStream out = start(value);
+        if (out != null) {
+            try {
+                out.writeByte(PIN_PROPERTY);
+                writeHeader(out, ts, dashId, deviceId, PinType.VIRTUAL, pin);
+                out.writeUTF(property.label);
+                out.writeUTF(value);
+            } catch (IOException e) {
+                //not possible for in-memory stream
+                requireSnapshot();
+            }
+        }
+    }
+
+    private DataOutputStream start(String value) {
+        if (snapshotRequired) {
+            return null;
+        }
+        if (value.length() > MAX_VALUE_LENGTH || (pending != null && pending.size() > MAX_PENDING_SIZE)) {
+            requireSnapshot();
+            return null;
+        }
+        if (pending == null) {
+            pending = new ByteArrayOutputStream(256);
+        }
+        return new DataOutputStream(pending);
+    }
+
+    private static void writeHeader(DataOutputStream out, long ts, int dashId, int deviceId,
+                                    PinType pinType, short pin) throws IOException {
+        out.writeLong(ts);
+        out.writeInt(dashId);
+        out.writeInt(deviceId);
+        out.writeByte(pinType.pintTypeChar);
+        out.writeShort(pin);
+    }
+
+    /**
+     * Marks journal as not usable till the next profile snapshot. Pending updates are dropped.
+     */
+    public synchronized void requireSnapshot() {
+        this.snapshotRequired = true;
+        this.pending = null;
+    }
+
+    public synchronized boolean hasPendingUpdates() {
+        return snapshotRequired || pending != null;
+    }
+
+    /**
+     * Removes pending updates from the journal.
+     *
+     * @return encoded pending updates or null in case the whole profile has to be saved.
+     */
+    public synchronized byte[] drain() {
+        byte[] updates = snapshotRequired ? null : (pending == null ? new byte[0] : pending.toByteArray());
+        this.pending = null;
+        this.snapshotRequired = false;
+        return updates;
+    }
+
+    /**
+     * Applies journaled updates to the profile. Replay stops on the truncated update,
+     * for example, when server was killed during the journal write.
+     *
+     * @return false in case journal is broken and the whole profile has to be saved.
+     */
+    public static boolean replay(Profile profile, DataInput in) throws IOException {
+        while (true) {
+            byte type;
+            try {
+                type = in.readByte();
+            } catch (EOFException e) {
+                return true;
+            }
+            try {
+                long ts = in.readLong();
+                int dashId = in.readInt();
+                int deviceId = in.readInt();
+                PinType pinType = PinType.getPinType((char) in.readByte());
+                short pin = in.readShort();
+                DashBoard dash = profile.getDashById(dashId);
+                switch (type) {
+                    case PIN_VALUE :
+                        String value = in.readUTF();
+                        if (dash != null) {
+                            profile.applyUpdate(dash, deviceId, pin, pinType, value, ts);
+                        }
+                        break;
+                    case PIN_PROPERTY :
+                        WidgetProperty property = WidgetProperty.getProperty(in.readUTF());
+                        String propertyValue = in.readUTF();
+                        if (dash != null && property != null) {
+                            profile.applyPropertyUpdate(dash, deviceId, pin, property, propertyValue, ts);
+                        }
+                        break;
+                    default :
+                        return false;
+                }
+            } catch (EOFException e) {
+                return false;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,60 @@
+package cc.blynk.server.core.model;
+
+import cc.blynk.server.core.model.widgets.FrequencyWidget;
+import cc.blynk.server.core.model.widgets.Widget;
+import cc.blynk.server.core.model.widgets.ui.tiles.DeviceTiles;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Immutable list of the dashboard widgets that periodically send reading commands to hardware.
+ * Reading worker checks only these widgets instead of all widgets of the dashboard.
+ *
+ * Device tiles content is changed on every device/template change, so all device tiles
+ * widgets are kept and their reading widgets are resolved on every tick.
+ *
+ * The Blynk Project.
+ * Created by Dmitriy Dumanskiy.
+ * Created on 18.10.26.
+ */
+public final class ReadingWidgetsIndex {
+
+    private static final FrequencyWidget[] EMPTY_FREQUENCY_WIDGETS = {};
+    private static final DeviceTiles[] EMPTY_DEVICE_TILES_WIDGETS = {};
+
+    private final Widget[] dashWidgets;
+    private final int structureVersion;
+
+    public final FrequencyWidget[] widgets;
+    public final DeviceTiles[] deviceTiles;
+
+    ReadingWidgetsIndex(DashBoard dash, int structureVersion) {
+        this.structureVersion = structureVersion;
+        this.dashWidgets = dash.widgets;
+
+        List<FrequencyWidget> frequencyWidgets = new ArrayList<>();
+        List<DeviceTiles> deviceTilesWidgets = new ArrayList<>();
+        for (Widget widget : dashWidgets) {
+            if (widget instanceof FrequencyWidget) {
+                FrequencyWidget frequencyWidget = (FrequencyWidget) widget;
+                if (frequencyWidget.hasReadingInterval()) {
+                    frequencyWidgets.add(frequencyWidget);
+                }
+            } else if (widget instanceof DeviceTiles) {
+                deviceTilesWidgets.add((DeviceTiles) widget);
+            }
+        }
+        this.widgets = frequencyWidgets.toArray(EMPTY_FREQUENCY_WIDGETS);
+        this.deviceTiles = deviceTilesWidgets.toArray(EMPTY_DEVICE_TILES_WIDGETS);
+    }
+
+    boolean isBuiltFor(DashBoard dash, int structureVersion) {
+        return this.structureVersion == structureVersion && this.dashWidgets == dash.widgets;
+    }
+
+    public boolean isEmpty() {
+        return widgets.length == 0 && deviceTiles.length == 0;
+    }
+
+}
@@ -0,0 +1,108 @@
+package cc.blynk.server.core.model;
+
+import cc.blynk.server.core.model.enums.PinType;
+import cc.blynk.server.core.model.widgets.MultiPinWidget;
+import cc.blynk.server.core.model.widgets.OnePinWidget;
+import cc.blynk.server.core.model.widgets.Widget;
+import cc.blynk.server.core.model.widgets.ui.tiles.DeviceTiles;
+import io.netty.util.collection.LongObjectHashMap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static cc.blynk.server.internal.EmptyArraysUtil.EMPTY_WIDGETS;
+
+/**
+ * Immutable lookup from (deviceId, pinType, pin) to the widgets of the dashboard
+ * that could be updated with the hardware value for that pin.
+ * Index returns candidates only, widget still decides via updateIfSame().
+ *
+ * Device tiles content is changed on every device/template change, so tiles
+ * widgets are not indexed and are returned as candidates for every pin.
+ *
+ * The Blynk Project.
+ * Created by Dmitriy Dumanskiy.
+ * Created on 18.10.26.
+ */
+final class WidgetsByPinIndex {
+
+    private final Widget[] widgets;
+    private final int structureVersion;
+
+    private final LongObjectHashMap<Widget[]> widgetsByPin = new LongObjectHashMap<>();
+    private final Widget[] anyPinWidgets;
+
+    WidgetsByPinIndex(DashBoard dash, int structureVersion) {
+        this.structureVersion = structureVersion;
+        this.widgets = dash.widgets;
+
+        LongObjectHashMap<List<Widget>> candidates = new LongObjectHashMap<>();
+        List<Widget> anyPin = new ArrayList<>();
+        for (Widget widget : widgets) {
+            if (widget instanceof OnePinWidget) {
+                OnePinWidget onePinWidget = (OnePinWidget) widget;
+                addOnePinWidget(candidates, onePinWidget);
+            } else if (widget instanceof MultiPinWidget) {
+                MultiPinWidget multiPinWidget = (MultiPinWidget) widget;
+                if (multiPinWidget.dataStreams != null) {
+                    for (DataStream dataStream : multiPinWidget.dataStreams) {
+                        if (dataStream != null) {
+                            add(candidates, multiPinWidget.deviceId, dataStream.pinType, dataStream.pin, widget);
+                            //see DataStream.isSame()
+                            if (dataStream.pwmMode) {
+                                add(candidates, multiPinWidget.deviceId, PinType.ANALOG, dataStream.pin, widget);
+                            }
+                        }
+                    }
+                }
+            } else if (widget instanceof DeviceTiles) {
+                anyPin.add(widget);
+            }
+        }
+
+        this.anyPinWidgets = anyPin.toArray(EMPTY_WIDGETS);
+        for (Map.Entry<Long, List<Widget>> entry : candidates.entrySet()) {
+            List<Widget> pinWidgets = entry.getValue();
+            pinWidgets.addAll(anyPin);
+            widgetsByPin.put(entry.getKey(), pinWidgets.toArray(EMPTY_WIDGETS));
+        }
+    }
+
+    //see OnePinWidget.isSame()
+    private static void addOnePinWidget(LongObjectHashMap<List<Widget>> candidates, OnePinWidget widget) {
+        add(candidates, widget.deviceId, widget.pinType, widget.pin, widget);
+        if (widget.pwmMode) {
+            add(candidates, widget.deviceId, PinType.ANALOG, widget.pin, widget);
+        }
+        if (widget.pinType == PinType.ANALOG) {
+            add(candidates, widget.deviceId, PinType.DIGITAL, widget.pin, widget);
+        }
+    }
+
+    private static void add(LongObjectHashMap<List<Widget>> candidates,
+                            int deviceId, PinType pinType, short pin, Widget widget) {
+        if (pinType == null) {
+            return;
+        }
+        long key = LoggedPinsIndex.devicePinKey(deviceId, pinType, pin);
+        List<Widget> pinWidgets = candidates.get(key);
+        if (pinWidgets == null) {
+            pinWidgets = new ArrayList<>(1);
+            candidates.put(key, pinWidgets);
+        }
+        if (!pinWidgets.contains(widget)) {
+            pinWidgets.add(widget);
+        }
+    }
+
+    boolean isBuiltFor(DashBoard dash, int structureVersion) {
+        return this.structureVersion == structureVersion && this.widgets == dash.widgets;
+    }
+
+    Widget[] get(int deviceId, short pin, PinType pinType) {
+        Widget[] pinWidgets = widgetsByPin.get(LoggedPinsIndex.devicePinKey(deviceId, pinType, pin));
+        return pinWidgets == null ? anyPinWidgets : pinWidgets;
+    }
+
+}
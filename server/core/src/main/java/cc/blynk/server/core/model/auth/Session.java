@@ -3,9 +3,9 @@ package cc.blynk.server.core.model.auth;
 import cc.blynk.server.common.BaseSimpleChannelInboundHandler;
 import cc.blynk.server.core.protocol.handlers.decoders.MessageDecoder;
 import cc.blynk.server.core.protocol.handlers.decoders.MobileMessageDecoder;
-import cc.blynk.server.core.protocol.model.messages.StringMessage;
+import cc.blynk.server.core.protocol.handlers.encoders.BroadcastMessage;
 import cc.blynk.server.core.session.HardwareStateHolder;
-import cc.blynk.utils.ArrayUtil;
+import cc.blynk.server.core.stats.SessionStats;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
@@ -13,15 +13,14 @@ import io.netty.channel.EventLoop;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.util.HashSet;
+import java.util.Collection;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 import static cc.blynk.server.internal.CommonByteBufUtil.deviceOffline;
 import static cc.blynk.server.internal.CommonByteBufUtil.makeUTF8StringMessage;
+import static cc.blynk.server.internal.EmptyArraysUtil.EMPTY_CHANNELS;
 import static cc.blynk.server.internal.StateHolderUtil.getHardState;
-import static cc.blynk.server.internal.StateHolderUtil.isSameDash;
-import static cc.blynk.server.internal.StateHolderUtil.isSameDashAndDeviceId;
 import static cc.blynk.utils.StringUtils.prependDashIdAndDeviceId;
 
 /**
@@ -36,14 +35,34 @@ public class Session {
     private static final Logger log = LogManager.getLogger(Session.class);
 
     public final EventLoop initialEventLoop;
+    private final SessionStats sessionStats;
     public final Set<Channel> appChannels = ConcurrentHashMap.newKeySet();
     public final Set<Channel> hardwareChannels = ConcurrentHashMap.newKeySet();
 
-    private final ChannelFutureListener appRemover = future -> appChannels.remove(future.channel());
-    private final ChannelFutureListener hardRemover = future -> hardwareChannels.remove(future.channel());
+    //channels grouped by dash and device, rebuilt on every channel add/remove
+    private volatile SessionChannelsIndex channelsIndex = SessionChannelsIndex.EMPTY;
+    //channels number within the current index, used to update online counters
+    private int indexedApps;
+    private int indexedHards;
+
+    private final ChannelFutureListener appRemover = future -> {
+        if (appChannels.remove(future.channel())) {
+            reindex();
+        }
+    };
+    private final ChannelFutureListener hardRemover = future -> {
+        if (hardwareChannels.remove(future.channel())) {
+            reindex();
+        }
+    };
 
     public Session(EventLoop initialEventLoop) {
+        this(initialEventLoop, new SessionStats());
+    }
+
+    public Session(EventLoop initialEventLoop, SessionStats sessionStats) {
         this.initialEventLoop = initialEventLoop;
+        this.sessionStats = sessionStats;
     }
 
     public boolean isSameEventLoop(ChannelHandlerContext ctx) {
@@ -77,92 +96,121 @@ public class Session {
 
     public void addAppChannel(Channel appChannel) {
         if (appChannels.add(appChannel)) {
+            reindex();
             appChannel.closeFuture().addListener(appRemover);
         }
     }
 
     public void addHardChannel(Channel hardChannel) {
         if (hardwareChannels.add(hardChannel)) {
+            reindex();
             hardChannel.closeFuture().addListener(hardRemover);
         }
     }
 
-    private Set<Channel> filter(int bodySize, int activeDashId, int[] deviceIds) {
-        Set<Channel> targetChannels = new HashSet<>();
-        for (Channel channel : hardwareChannels) {
-            HardwareStateHolder hardwareState = getHardState(channel);
-            if (hardwareState != null && hardwareState.dash.id == activeDashId
-                    && (deviceIds.length == 0 || ArrayUtil.contains(deviceIds, hardwareState.device.id))) {
-                if (hardwareState.device.fitsBufferSize(bodySize)) {
-                    targetChannels.add(channel);
-                } else {
-                    log.trace("Message is to large. Size {}.", bodySize);
-                }
-            }
-        }
-        return targetChannels;
-    }
-
-    private Set<Channel> filter(int bodySize, int activeDashId, int deviceId) {
-        Set<Channel> targetChannels = new HashSet<>();
-        for (Channel channel : hardwareChannels) {
-            HardwareStateHolder hardwareState = getHardState(channel);
-            if (hardwareState != null && hardwareState.isSameDashAndDeviceId(activeDashId, deviceId)) {
-                if (hardwareState.device.fitsBufferSize(bodySize)) {
-                    targetChannels.add(channel);
-                } else {
-                    log.trace("Message is to large. Size {}.", bodySize);
-                }
-            }
-        }
-        return targetChannels;
+    private synchronized void reindex() {
+        Channel[] apps = appChannels.toArray(EMPTY_CHANNELS);
+        Channel[] hards = hardwareChannels.toArray(EMPTY_CHANNELS);
+        this.channelsIndex = new SessionChannelsIndex(apps, hards);
+        sessionStats.channelsChanged(indexedApps, indexedHards, apps.length, hards.length);
+        this.indexedApps = apps.length;
+        this.indexedHards = hards.length;
     }
 
     public boolean sendMessageToHardware(int activeDashId, short cmd, int msgId, String body, int deviceId) {
         return hardwareChannels.size() == 0
-                || sendMessageToHardware(filter(body.length(), activeDashId, deviceId), cmd, msgId, body);
+                || sendMessageToHardware(channelsIndex.getHardChannels(activeDashId, deviceId), cmd, msgId, body);
     }
 
     public boolean sendMessageToHardware(int activeDashId, short cmd, int msgId, String body, int... deviceIds) {
-        return hardwareChannels.size() == 0
-                || sendMessageToHardware(filter(body.length(), activeDashId, deviceIds), cmd, msgId, body);
+        if (hardwareChannels.size() == 0) {
+            return true;
+        }
+        SessionChannelsIndex index = this.channelsIndex;
+        if (deviceIds.length == 0) {
+            return sendMessageToHardware(index.getHardChannels(activeDashId), cmd, msgId, body);
+        }
+
+        BroadcastMessage msg = new BroadcastMessage(makeUTF8StringMessage(cmd, msgId, body));
+        try {
+            boolean noActiveHardware = true;
+            for (int i = 0; i < deviceIds.length; i++) {
+                Channel[] targetChannels = index.getHardChannels(activeDashId, deviceIds[i]);
+                if (targetChannels.length > 0 && !isListedBefore(deviceIds, i)
+                        && sendToHardware(targetChannels, msg, body.length())) {
+                    noActiveHardware = false;
+                }
+            }
+            return noActiveHardware;
+        } finally {
+            msg.release();
+        }
     }
 
-    public boolean sendMessageToHardware(short cmd, int msgId, String body) {
-        return sendMessageToHardware(hardwareChannels, cmd, msgId, body);
+    //same device may be listed few times, it should receive message only once
+    private static boolean isListedBefore(int[] deviceIds, int index) {
+        for (int i = 0; i < index; i++) {
+            if (deviceIds[i] == deviceIds[index]) {
+                return true;
+            }
+        }
+        return false;
     }
 
-    private boolean sendMessageToHardware(Set<Channel> targetChannels, short cmd, int msgId, String body) {
-        int channelsNum = targetChannels.size();
-        if (channelsNum == 0) {
+    public boolean sendMessageToHardware(short cmd, int msgId, String body) {
+        if (hardwareChannels.size() == 0) {
             return true; // -> no active hardware
         }
 
-        send(targetChannels, cmd, msgId, body);
+        BroadcastMessage msg = new BroadcastMessage(makeUTF8StringMessage(cmd, msgId, body));
+        try {
+            for (Channel channel : hardwareChannels) {
+                msg.writeAndFlush(channel);
+            }
+        } finally {
+            msg.release();
+        }
 
         return false; // -> there is active hardware
     }
 
+    private static boolean sendMessageToHardware(Channel[] targetChannels, short cmd, int msgId, String body) {
+        if (targetChannels.length == 0) {
+            return true;
+        }
+        BroadcastMessage msg = new BroadcastMessage(makeUTF8StringMessage(cmd, msgId, body));
+        try {
+            return !sendToHardware(targetChannels, msg, body.length());
+        } finally {
+            msg.release();
+        }
+    }
+
+    //returns true in case at least one target accepts message of that size
+    private static boolean sendToHardware(Channel[] targetChannels, BroadcastMessage msg, int bodySize) {
+        boolean hasActiveHardware = false;
+        for (Channel channel : targetChannels) {
+            HardwareStateHolder hardwareState = getHardState(channel);
+            if (hardwareState != null && hardwareState.device.fitsBufferSize(bodySize)) {
+                hasActiveHardware = true;
+                msg.writeAndFlush(channel);
+            } else {
+                log.trace("Message is to large. Size {}.", bodySize);
+            }
+        }
+        return hasActiveHardware;
+    }
+
     public boolean isHardwareConnected() {
         return hardwareChannels.size() > 0;
     }
 
     public boolean isHardwareConnected(int dashId, int deviceId) {
-        for (Channel channel : hardwareChannels) {
-            if (isSameDashAndDeviceId(channel, dashId, deviceId)) {
-                return true;
-            }
-        }
-        return false;
+        return channelsIndex.getHardChannels(dashId, deviceId).length > 0;
     }
 
     public boolean isHardwareConnected(int dashId) {
-        for (Channel channel : hardwareChannels) {
-            if (isSameDash(channel, dashId)) {
-                return true;
-            }
-        }
-        return false;
+        return channelsIndex.getHardChannels(dashId).length > 0;
     }
 
     public void sendOfflineMessageToApps(int dashId, int deviceId) {
@@ -170,8 +218,14 @@ public class Session {
         if (targetsNum > 0) {
             log.trace("Sending device offline message.");
 
-            StringMessage deviceOfflineMessage = deviceOffline(dashId, deviceId);
-            sendMessageToMultipleReceivers(appChannels, deviceOfflineMessage);
+            BroadcastMessage deviceOfflineMessage = new BroadcastMessage(deviceOffline(dashId, deviceId));
+            try {
+                for (Channel channel : appChannels) {
+                    deviceOfflineMessage.writeAndFlush(channel);
+                }
+            } finally {
+                deviceOfflineMessage.release();
+            }
         }
     }
 
@@ -183,48 +237,64 @@ public class Session {
     }
 
     public void sendToApps(short cmd, int msgId, int dashId, String finalBody) {
-        Set<Channel> targetChannels = filterByDash(dashId);
-
-        int targetsNum = targetChannels.size();
-        if (targetsNum > 0) {
-            send(targetChannels, cmd, msgId, finalBody);
-        }
-    }
-
-    private Set<Channel> filterByDash(int dashId) {
-        Set<Channel> targetChannels = new HashSet<>();
-        for (Channel channel : appChannels) {
-            if (isSameDash(channel, dashId)) {
-                targetChannels.add(channel);
+        Channel[] targetChannels = channelsIndex.getAppChannels(dashId);
+        if (targetChannels.length > 0) {
+            BroadcastMessage msg = new BroadcastMessage(makeUTF8StringMessage(cmd, msgId, finalBody));
+            try {
+                for (Channel channel : targetChannels) {
+                    msg.writeAndFlush(channel);
+                }
+            } finally {
+                msg.release();
             }
         }
-        return targetChannels;
     }
 
-    private static void sendMessageToMultipleReceivers(Set<Channel> targets, StringMessage msg) {
-        for (Channel channel : targets) {
-            if (channel.isWritable()) {
-                channel.writeAndFlush(msg, channel.voidPromise());
+    /**
+     * Sends all messages to the apps of the dashboard in one pass.
+     * Every app channel receives all the messages with the single flush.
+     * When outbound buffer of the channel is full, already written messages are flushed first,
+     * rest of the messages is dropped only when the channel is still not writable after the flush.
+     */
+    public void sendToApps(short cmd, int msgId, int dashId, Collection<String> finalBodies) {
+        Channel[] targetChannels = channelsIndex.getAppChannels(dashId);
+        if (targetChannels.length > 0 && finalBodies.size() > 0) {
+            BroadcastMessage[] msgs = new BroadcastMessage[finalBodies.size()];
+            int i = 0;
+            for (String finalBody : finalBodies) {
+                msgs[i++] = new BroadcastMessage(makeUTF8StringMessage(cmd, msgId, finalBody));
+            }
+            try {
+                for (Channel channel : targetChannels) {
+                    for (BroadcastMessage msg : msgs) {
+                        if (!channel.isWritable()) {
+                            channel.flush();
+                            if (!channel.isWritable()) {
+                                break;
+                            }
+                        }
+                        msg.write(channel);
+                    }
+                    channel.flush();
+                }
+            } finally {
+                for (BroadcastMessage msg : msgs) {
+                    msg.release();
+                }
             }
         }
     }
 
-    private static void send(Set<Channel> targets, short cmd, int msgId, String body) {
-        StringMessage msg = makeUTF8StringMessage(cmd, msgId, body);
-        sendMessageToMultipleReceivers(targets, msg);
-    }
-
     public void sendToSharedApps(Channel sendingChannel, String sharedToken, short cmd, int msgId, String body) {
-        Set<Channel> targetChannels = new HashSet<>();
-        for (Channel channel : appChannels) {
-            if (channel != sendingChannel && needSync(channel, sharedToken)) {
-                targetChannels.add(channel);
+        BroadcastMessage msg = new BroadcastMessage(makeUTF8StringMessage(cmd, msgId, body));
+        try {
+            for (Channel channel : appChannels) {
+                if (channel != sendingChannel && needSync(channel, sharedToken)) {
+                    msg.writeAndFlush(channel);
+                }
             }
-        }
-
-        int channelsNum = targetChannels.size();
-        if (channelsNum > 0) {
-            send(targetChannels, cmd, msgId, body);
+        } finally {
+            msg.release();
         }
     }
 
@@ -241,18 +311,14 @@ public class Session {
     }
 
     public void closeHardwareChannelByDeviceId(int dashId, int deviceId) {
-        for (Channel channel : hardwareChannels) {
-            if (isSameDashAndDeviceId(channel, dashId, deviceId)) {
-                channel.close();
-            }
+        for (Channel channel : channelsIndex.getHardChannels(dashId, deviceId)) {
+            channel.close();
         }
     }
 
     public void closeHardwareChannelByDashId(int dashId) {
-        for (Channel channel : hardwareChannels) {
-            if (isSameDash(channel, dashId)) {
-                channel.close();
-            }
+        for (Channel channel : channelsIndex.getHardChannels(dashId)) {
+            channel.close();
         }
     }
 
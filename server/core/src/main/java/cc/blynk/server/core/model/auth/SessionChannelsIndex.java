@@ -0,0 +1,104 @@
+package cc.blynk.server.core.model.auth;
+
+import cc.blynk.server.core.session.HardwareStateHolder;
+import cc.blynk.server.core.session.StateHolderBase;
+import io.netty.channel.Channel;
+import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.collection.LongObjectHashMap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static cc.blynk.server.internal.EmptyArraysUtil.EMPTY_CHANNELS;
+import static cc.blynk.server.internal.StateHolderUtil.getHardState;
+import static cc.blynk.server.internal.StateHolderUtil.getState;
+
+/**
+ * Immutable snapshot of the session channels grouped by dashboard and device.
+ * Allows to select target channels for the message without filtering all
+ * channels of the session and without any allocations.
+ *
+ * Connection state is assigned on login before channel is added to the session
+ * and never changes, so snapshot is rebuilt only when channel is added or removed.
+ *
+ * The Blynk Project.
+ * Created by Dmitriy Dumanskiy.
+ * Created on 18.10.26.
+ */
+final class SessionChannelsIndex {
+
+    static final SessionChannelsIndex EMPTY = new SessionChannelsIndex(EMPTY_CHANNELS, EMPTY_CHANNELS);
+
+    //dashId + deviceId -> hardware channels
+    private final LongObjectHashMap<Channel[]> hardByDevice = new LongObjectHashMap<>();
+    //dashId -> hardware channels
+    private final IntObjectHashMap<Channel[]> hardByDash = new IntObjectHashMap<>();
+    //dashId -> app channels of that dashboard, including apps that see all dashboards
+    private final IntObjectHashMap<Channel[]> appsByDash = new IntObjectHashMap<>();
+    //apps that see all dashboards
+    private final Channel[] anyDashApps;
+
+    SessionChannelsIndex(Channel[] appChannels, Channel[] hardwareChannels) {
+        LongObjectHashMap<List<Channel>> hardByDeviceList = new LongObjectHashMap<>();
+        IntObjectHashMap<List<Channel>> hardByDashList = new IntObjectHashMap<>();
+        for (Channel channel : hardwareChannels) {
+            HardwareStateHolder state = getHardState(channel);
+            if (state != null) {
+                add(hardByDeviceList, deviceKey(state.dash.id, state.device.id), channel);
+                add(hardByDashList, state.dash.id, channel);
+            }
+        }
+        copy(hardByDeviceList, hardByDevice);
+        copy(hardByDashList, hardByDash);
+
+        List<Channel> anyDash = new ArrayList<>();
+        IntObjectHashMap<List<Channel>> appsByDashList = new IntObjectHashMap<>();
+        for (Channel channel : appChannels) {
+            StateHolderBase state = getState(channel);
+            if (state != null) {
+                int dashId = state.getDashId();
+                if (dashId == StateHolderBase.ANY_DASH) {
+                    anyDash.add(channel);
+                } else {
+                    add(appsByDashList, dashId, channel);
+                }
+            }
+        }
+        this.anyDashApps = anyDash.toArray(EMPTY_CHANNELS);
+        for (List<Channel> dashApps : appsByDashList.values()) {
+            dashApps.addAll(anyDash);
+        }
+        copy(appsByDashList, appsByDash);
+    }
+
+    private static long deviceKey(int dashId, int deviceId) {
+        return (long) dashId << Integer.SIZE | (deviceId & 0xFFFFFFFFL);
+    }
+
+    private static <K> void add(Map<K, List<Channel>> map, K key, Channel channel) {
+        map.computeIfAbsent(key, k -> new ArrayList<>(1)).add(channel);
+    }
+
+    private static <K> void copy(Map<K, List<Channel>> from, Map<K, Channel[]> to) {
+        for (Map.Entry<K, List<Channel>> entry : from.entrySet()) {
+            to.put(entry.getKey(), entry.getValue().toArray(EMPTY_CHANNELS));
+        }
+    }
+
+    Channel[] getHardChannels(int dashId, int deviceId) {
+        Channel[] channels = hardByDevice.get(deviceKey(dashId, deviceId));
+        return channels == null ? EMPTY_CHANNELS : channels;
+    }
+
+    Channel[] getHardChannels(int dashId) {
+        Channel[] channels = hardByDash.get(dashId);
+        return channels == null ? EMPTY_CHANNELS : channels;
+    }
+
+    Channel[] getAppChannels(int dashId) {
+        Channel[] channels = appsByDash.get(dashId);
+        return channels == null ? anyDashApps : channels;
+    }
+
+}
@@ -40,6 +40,9 @@ public class User {
 
     public volatile int energy;
 
+    //time when profile was loaded back to memory, see ColdUsers
+    public transient volatile long loadedAt;
+
     public transient int emailMessages;
     private transient long emailSentTs;
 
@@ -127,6 +130,16 @@ public class User {
         return (lastStart <= lastModifiedTs) || isDashUpdated(lastStart);
     }
 
+    //pin values updates are journaled and don't change lastModifiedTs and dash updatedAt
+    public boolean isValuesUpdated(long lastStart) {
+        for (DashBoard dashBoard : profile.dashBoards) {
+            if (lastStart <= dashBoard.valuesUpdatedAt) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public void resetPass(String hash) {
         this.pass = hash;
         this.lastModifiedTs = System.currentTimeMillis();
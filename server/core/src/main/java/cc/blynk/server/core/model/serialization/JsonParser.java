@@ -21,9 +21,11 @@ import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
@@ -34,6 +36,7 @@ import java.nio.file.Path;
 import java.util.Collection;
 import java.util.StringJoiner;
 import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
 
 import static cc.blynk.utils.StringUtils.BODY_SEPARATOR_STRING;
 
@@ -53,6 +56,11 @@ public final class JsonParser {
     public static final ObjectMapper MAPPER = init();
 
     private static final ObjectReader userReader = MAPPER.readerFor(User.class);
+
+    //binary (smile) representation of the user, used for the fast startup snapshot
+    private static final ObjectMapper BINARY_MAPPER = init(new ObjectMapper(new SmileFactory()));
+    private static final ObjectReader binaryUserReader = BINARY_MAPPER.readerFor(User.class);
+    private static final ObjectWriter binaryUserWriter = BINARY_MAPPER.writerFor(User.class);
     private static final ObjectReader profileReader = MAPPER.readerFor(Profile.class);
     private static final ObjectReader dashboardReader = MAPPER.readerFor(DashBoard.class);
     private static final ObjectReader dashboardSettingsReader = MAPPER.readerFor(DashboardSettings.class);
@@ -86,7 +94,11 @@ public final class JsonParser {
     private static final ObjectWriter statWriter = init().writerWithDefaultPrettyPrinter().forType(Stat.class);
 
     public static ObjectMapper init() {
-        return new ObjectMapper()
+        return init(new ObjectMapper());
+    }
+
+    private static ObjectMapper init(ObjectMapper mapper) {
+        return mapper
                 .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
                 .setSerializationInclusion(JsonInclude.Include.NON_NULL)
                 .setSerializationInclusion(JsonInclude.Include.NON_EMPTY)
@@ -207,6 +219,14 @@ public final class JsonParser {
         return userReader.readValue(userFile);
     }
 
+    public static byte[] toBinary(User user) throws IOException {
+        return binaryUserWriter.writeValueAsBytes(user);
+    }
+
+    public static User parseUserFromBinary(byte[] data) throws IOException {
+        return binaryUserReader.readValue(data);
+    }
+
     public static User parseUserFromString(String userString) throws IOException {
         return userReader.readValue(userString);
     }
@@ -215,6 +235,12 @@ public final class JsonParser {
         return profileReader.readValue(profileString);
     }
 
+    public static Profile parseProfileFromCompressed(byte[] data) throws IOException {
+        try (InputStream in = new InflaterInputStream(new ByteArrayInputStream(data))) {
+            return profileReader.readValue(in);
+        }
+    }
+
     public static FacebookTokenResponse parseFacebookTokenResponse(String response) throws IOException {
         return facebookTokenReader.readValue(response);
     }
@@ -17,6 +17,9 @@ public interface FrequencyWidget {
 
     boolean isTicked(long now);
 
+    //time of the next reading command, Long.MAX_VALUE for widgets without reading interval
+    long getNextTickTs();
+
     boolean hasReadingInterval();
 
 }
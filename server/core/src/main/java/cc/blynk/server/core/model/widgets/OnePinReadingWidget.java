@@ -32,6 +32,11 @@ public abstract class OnePinReadingWidget extends OnePinWidget implements Freque
         return frequency > 0;
     }
 
+    @Override
+    public long getNextTickTs() {
+        return hasReadingInterval() ? lastRequestTS + frequency : Long.MAX_VALUE;
+    }
+
     @Override
     public int getDeviceId() {
         return deviceId;
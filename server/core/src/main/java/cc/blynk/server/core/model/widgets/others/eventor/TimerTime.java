@@ -3,16 +3,13 @@ package cc.blynk.server.core.model.widgets.others.eventor;
 import cc.blynk.server.core.model.widgets.others.rtc.StringToZoneId;
 import cc.blynk.server.core.model.widgets.others.rtc.ZoneIdToString;
 import cc.blynk.server.internal.EmptyArraysUtil;
-import cc.blynk.utils.ArrayUtil;
 import cc.blynk.utils.DateTimeUtils;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 
-import java.time.LocalDate;
 import java.time.ZoneId;
-import java.time.ZonedDateTime;
 import java.util.Arrays;
 
 /**
@@ -49,12 +46,6 @@ public class TimerTime {
         this(0, ALL_DAYS, time, DateTimeUtils.UTC);
     }
 
-    public boolean isTickTime(ZonedDateTime currentDateTime) {
-        LocalDate userDate = currentDateTime.withZoneSameInstant(tzName).toLocalDate();
-        int dayOfWeek = userDate.getDayOfWeek().getValue();
-        return ArrayUtil.contains(days, dayOfWeek);
-    }
-
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -109,6 +109,11 @@ public class LCD extends MultiPinWidget implements FrequencyWidget {
         return frequency > 0;
     }
 
+    @Override
+    public long getNextTickTs() {
+        return hasReadingInterval() ? lastRequestTS + frequency : Long.MAX_VALUE;
+    }
+
     @Override
     public void writeReadingCommand(Channel channel) {
         if (dataStreams == null) {
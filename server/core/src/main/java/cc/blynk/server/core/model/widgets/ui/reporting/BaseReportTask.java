@@ -1,5 +1,6 @@
 package cc.blynk.server.core.model.widgets.ui.reporting;
 
+import cc.blynk.server.core.dao.HistoryCursor;
 import cc.blynk.server.core.dao.ReportingDiskDao;
 import cc.blynk.server.core.model.DashBoard;
 import cc.blynk.server.core.model.Profile;
@@ -136,20 +137,23 @@ public abstract class BaseReportTask implements Runnable {
 
     private boolean generateReport(Path output, Profile profile,
                                    DashBoard dash, int fetchCount, long startFrom) throws Exception {
+        //only points since startFrom are read from disk
+        HistoryCursor cursor = reportingDiskDao.historyCursor(key.user, key.dashId,
+                report.granularityType, startFrom, Long.MAX_VALUE, fetchCount);
         switch (report.reportOutput) {
             case MERGED_CSV:
-                return merged(output, profile, dash, fetchCount, startFrom);
+                return merged(output, profile, dash, cursor, startFrom);
             case CSV_FILE_PER_DEVICE:
-                return filePerDevice(output, profile, dash, fetchCount, startFrom);
+                return filePerDevice(output, profile, dash, cursor, startFrom);
             case CSV_FILE_PER_DEVICE_PER_PIN:
             case EXCEL_TAB_PER_DEVICE:
             default:
-                return filePerDevicePerPin(output, profile, dash, fetchCount, startFrom);
+                return filePerDevicePerPin(output, profile, dash, cursor, startFrom);
         }
     }
 
     private boolean merged(Path output, Profile profile, DashBoard dash,
-                           int fetchCount, long startFrom) throws Exception {
+                           HistoryCursor cursor, long startFrom) throws Exception {
         boolean atLeastOne = false;
         try (ZipOutputStream zipStream = new ZipOutputStream(Files.newOutputStream(output));
              BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(zipStream, REPORT_ENCODING), size)) {
@@ -162,9 +166,8 @@ public abstract class BaseReportTask implements Runnable {
                         String deviceName = profile.getCSVDeviceName(dash, deviceId);
                         for (ReportDataStream reportDataStream : reportSource.reportDataStreams) {
                             if (reportDataStream.isValid()) {
-                                ByteBuffer onePinData = reportingDiskDao.getByteBufferFromDisk(key.user,
-                                        key.dashId, deviceId, reportDataStream.pinType,
-                                        reportDataStream.pin, fetchCount, report.granularityType, 0);
+                                ByteBuffer onePinData = cursor.read(deviceId,
+                                        reportDataStream.pinType, reportDataStream.pin);
 
                                 if (onePinData != null) {
                                     String pin = reportDataStream.formatAndEscapePin();
@@ -182,7 +185,7 @@ public abstract class BaseReportTask implements Runnable {
     }
 
     private boolean filePerDevice(Path output, Profile profile,
-                                  DashBoard dash, int fetchCount, long startFrom) throws Exception {
+                                  DashBoard dash, HistoryCursor cursor, long startFrom) throws Exception {
         boolean atLeastOne = false;
         try (ZipOutputStream zipStream = new ZipOutputStream(Files.newOutputStream(output));
              BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(zipStream, REPORT_ENCODING), size)) {
@@ -195,9 +198,8 @@ public abstract class BaseReportTask implements Runnable {
                         zipStream.putNextEntry(zipEntry);
                         for (ReportDataStream reportDataStream : reportSource.reportDataStreams) {
                             if (reportDataStream.isValid()) {
-                                ByteBuffer onePinData = reportingDiskDao.getByteBufferFromDisk(key.user,
-                                        key.dashId, deviceId, reportDataStream.pinType,
-                                        reportDataStream.pin, fetchCount, report.granularityType, 0);
+                                ByteBuffer onePinData = cursor.read(deviceId,
+                                        reportDataStream.pinType, reportDataStream.pin);
 
                                 if (onePinData != null) {
                                     String pin = reportDataStream.formatAndEscapePin();
@@ -215,7 +217,7 @@ public abstract class BaseReportTask implements Runnable {
     }
 
     private boolean filePerDevicePerPin(Path output, Profile profile,
-                                        DashBoard dash, int fetchCount, long startFrom) throws Exception {
+                                        DashBoard dash, HistoryCursor cursor, long startFrom) throws Exception {
         boolean atLeastOne = false;
         try (ZipOutputStream zipStream = new ZipOutputStream(Files.newOutputStream(output))) {
             for (ReportSource reportSource : report.reportSources) {
@@ -224,9 +226,8 @@ public abstract class BaseReportTask implements Runnable {
                         String deviceName = profile.getDeviceName(dash, deviceId);
                         for (ReportDataStream reportDataStream : reportSource.reportDataStreams) {
                             if (reportDataStream.isValid()) {
-                                ByteBuffer onePinData = reportingDiskDao.getByteBufferFromDisk(key.user,
-                                        key.dashId, deviceId, reportDataStream.pinType,
-                                        reportDataStream.pin, fetchCount, report.granularityType, 0);
+                                ByteBuffer onePinData = cursor.read(deviceId,
+                                        reportDataStream.pinType, reportDataStream.pin);
 
                                 if (onePinData != null) {
                                     String onePinDataCsv = FileUtils.writeBufToCsvFilterAndFormat(onePinData,
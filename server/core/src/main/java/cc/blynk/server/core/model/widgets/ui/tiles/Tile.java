@@ -64,11 +64,15 @@ public class Tile {
     }
 
     public boolean isTicked(long now) {
-        //todo 1000 is hardcoded for now
-        if (now >= lastRequestTS + 1000) {
+        if (now >= getNextTickTs()) {
             this.lastRequestTS = now;
             return true;
         }
         return false;
     }
+
+    public long getNextTickTs() {
+        //todo 1000 is hardcoded for now
+        return lastRequestTS + 1000;
+    }
 }
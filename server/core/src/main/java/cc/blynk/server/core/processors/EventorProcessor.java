@@ -6,7 +6,6 @@ import cc.blynk.server.core.model.Profile;
 import cc.blynk.server.core.model.auth.Session;
 import cc.blynk.server.core.model.auth.User;
 import cc.blynk.server.core.model.enums.PinType;
-import cc.blynk.server.core.model.widgets.Widget;
 import cc.blynk.server.core.model.widgets.notifications.Mail;
 import cc.blynk.server.core.model.widgets.notifications.Notification;
 import cc.blynk.server.core.model.widgets.notifications.Twitter;
@@ -202,12 +201,6 @@ public class EventorProcessor {
         String body = action.makeHardwareBody();
         session.sendToApps(SET_WIDGET_PROPERTY, 888, dash.id, deviceId, body);
 
-        Widget widget = dash.updateProperty(deviceId, action.dataStream.pin, action.property, action.value);
-        //this is possible case for device selector
-        if (widget == null) {
-            profile.putPinPropertyStorageValue(dash, deviceId,
-                    PinType.VIRTUAL, action.dataStream.pin, action.property, action.value);
-        }
-        dash.updatedAt = now;
+        profile.updateProperty(dash, deviceId, action.dataStream.pin, action.property, action.value, now);
     }
 }
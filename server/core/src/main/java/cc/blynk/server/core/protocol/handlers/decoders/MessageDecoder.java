@@ -4,6 +4,7 @@ import cc.blynk.server.Limits;
 import cc.blynk.server.core.protocol.enums.Command;
 import cc.blynk.server.core.protocol.model.messages.MessageBase;
 import cc.blynk.server.core.protocol.model.messages.ResponseMessage;
+import cc.blynk.server.core.protocol.model.messages.hardware.PinWriteMessage;
 import cc.blynk.server.core.stats.GlobalStats;
 import cc.blynk.server.core.stats.metrics.InstanceLoadMeter;
 import cc.blynk.server.internal.QuotaLimitChecker;
@@ -31,10 +32,17 @@ public class MessageDecoder extends ByteToMessageDecoder {
 
     private final GlobalStats stats;
     private final QuotaLimitChecker limitChecker;
+    //when true hardware pin writes are parsed directly from the buffer
+    private final boolean decodePinWrites;
 
     public MessageDecoder(GlobalStats stats, Limits limits) {
+        this(stats, limits, false);
+    }
+
+    public MessageDecoder(GlobalStats stats, Limits limits, boolean decodePinWrites) {
         this.stats = stats;
         this.limitChecker = new QuotaLimitChecker(limits.userQuotaLimit);
+        this.decodePinWrites = decodePinWrites;
     }
 
     @Override
@@ -62,7 +70,14 @@ public class MessageDecoder extends ByteToMessageDecoder {
                 return;
             }
 
-            message = produce(messageId, command, (String) in.readCharSequence(codeOrLength, CharsetUtil.UTF_8));
+            message = null;
+            if (decodePinWrites && command == Command.HARDWARE) {
+                message = PinWriteMessage.decode(messageId, in, codeOrLength);
+            }
+            if (message == null) {
+                message = produce(messageId, command,
+                        (String) in.readCharSequence(codeOrLength, CharsetUtil.UTF_8));
+            }
         }
 
         log.trace("Incoming {}", message);
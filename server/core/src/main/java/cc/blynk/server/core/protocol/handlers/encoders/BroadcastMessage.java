@@ -0,0 +1,122 @@
+package cc.blynk.server.core.protocol.handlers.encoders;
+
+import cc.blynk.server.core.protocol.model.messages.StringMessage;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelPipeline;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+
+/**
+ * Message that is written to many channels, like hardware update that goes to all apps of the user.
+ * Message body is encoded once and the frame is built once per transport type (hardware, mobile and
+ * web socket protocols) in the pooled direct buffer. Every target channel receives retained duplicate
+ * of the frame, so there is no encoding and allocation per target channel.
+ *
+ * Hardware web sockets use the hardware frame, it is wrapped by the WSWrapperEncoder.
+ * Channels without known encoder (like mqtt) receive the message itself.
+ *
+ * Frames are owned by this object and have to be released after message was written to all targets.
+ * Not thread safe.
+ *
+ * The Blynk Project.
+ * Created by Dmitriy Dumanskiy.
+ * Created on 18.10.26.
+ */
+public final class BroadcastMessage {
+
+    //command + message id + body length
+    private static final int MAX_HEADER_SIZE = 7;
+
+    private final StringMessage message;
+    private byte[] body;
+    private ByteBuf hardwareFrame;
+    private ByteBuf mobileFrame;
+    private ByteBuf webSocketFrame;
+
+    public BroadcastMessage(StringMessage message) {
+        this.message = message;
+    }
+
+    public void writeAndFlush(Channel channel) {
+        write(channel, true);
+    }
+
+    /**
+     * Writes message without flush, so few messages may be sent to the channel with the single flush.
+     */
+    public void write(Channel channel) {
+        write(channel, false);
+    }
+
+    private void write(Channel channel, boolean flush) {
+        if (!channel.isWritable()) {
+            return;
+        }
+
+        ChannelPipeline pipeline = channel.pipeline();
+        MessageEncoder messageEncoder = pipeline.get(MessageEncoder.class);
+        if (messageEncoder != null) {
+            if (hardwareFrame == null) {
+                hardwareFrame = allocate();
+                MessageEncoder.encode(hardwareFrame, message.command, message.id, body);
+            }
+            messageEncoder.mark(message.command);
+            write(channel, hardwareFrame.retainedDuplicate(), flush);
+            return;
+        }
+
+        MobileMessageEncoder mobileMessageEncoder = pipeline.get(MobileMessageEncoder.class);
+        if (mobileMessageEncoder != null) {
+            if (mobileFrame == null) {
+                mobileFrame = allocate();
+                MobileMessageEncoder.encode(mobileFrame, message.command, message.id, body);
+            }
+            mobileMessageEncoder.mark(message.command);
+            write(channel, mobileFrame.retainedDuplicate(), flush);
+            return;
+        }
+
+        if (pipeline.get(WSMessageEncoder.class) != null) {
+            if (webSocketFrame == null) {
+                webSocketFrame = allocate();
+                WSMessageEncoder.encode(webSocketFrame, message.command, message.id, body);
+            }
+            write(channel, new BinaryWebSocketFrame(webSocketFrame.retainedDuplicate()), flush);
+            return;
+        }
+
+        write(channel, message, flush);
+    }
+
+    private static void write(Channel channel, Object msg, boolean flush) {
+        if (flush) {
+            channel.writeAndFlush(msg, channel.voidPromise());
+        } else {
+            channel.write(msg, channel.voidPromise());
+        }
+    }
+
+    private ByteBuf allocate() {
+        if (body == null) {
+            body = message.getBytes();
+        }
+        return ByteBufAllocator.DEFAULT.directBuffer(MAX_HEADER_SIZE + body.length);
+    }
+
+    public void release() {
+        release(hardwareFrame);
+        release(mobileFrame);
+        release(webSocketFrame);
+        hardwareFrame = null;
+        mobileFrame = null;
+        webSocketFrame = null;
+    }
+
+    private static void release(ByteBuf frame) {
+        if (frame != null) {
+            frame.release();
+        }
+    }
+
+}
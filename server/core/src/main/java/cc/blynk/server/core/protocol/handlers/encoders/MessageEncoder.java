@@ -24,19 +24,26 @@ public class MessageEncoder extends MessageToByteEncoder<MessageBase> {
 
     @Override
     protected void encode(ChannelHandlerContext ctx, MessageBase message, ByteBuf out) {
-        out.writeByte(message.command);
-        out.writeShort(message.id);
-
         if (message instanceof ResponseMessage) {
+            out.writeByte(message.command);
+            out.writeShort(message.id);
             out.writeShort(((ResponseMessage) message).code);
         } else {
             stats.mark(message.command);
+            encode(out, message.command, message.id, message.getBytes());
+        }
+    }
 
-            byte[] body = message.getBytes();
-            out.writeShort(body.length);
-            if (body.length > 0) {
-                out.writeBytes(body);
-            }
+    static void encode(ByteBuf out, short command, int id, byte[] body) {
+        out.writeByte(command);
+        out.writeShort(id);
+        out.writeShort(body.length);
+        if (body.length > 0) {
+            out.writeBytes(body);
         }
     }
+
+    void mark(short command) {
+        stats.mark(command);
+    }
 }
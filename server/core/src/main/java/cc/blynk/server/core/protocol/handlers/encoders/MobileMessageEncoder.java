@@ -26,19 +26,26 @@ public class MobileMessageEncoder extends MessageToByteEncoder<MessageBase> {
 
     @Override
     protected void encode(ChannelHandlerContext ctx, MessageBase message, ByteBuf out) {
-        out.writeByte(message.command);
-        out.writeShort(message.id);
-
         if (message instanceof ResponseMessage) {
+            out.writeByte(message.command);
+            out.writeShort(message.id);
             out.writeInt(((ResponseMessage) message).code);
         } else {
             stats.mark(message.command);
+            encode(out, message.command, message.id, message.getBytes());
+        }
+    }
 
-            byte[] body = message.getBytes();
-            out.writeInt(body.length);
-            if (body.length > 0) {
-                out.writeBytes(body);
-            }
+    static void encode(ByteBuf out, short command, int id, byte[] body) {
+        out.writeByte(command);
+        out.writeShort(id);
+        out.writeInt(body.length);
+        if (body.length > 0) {
+            out.writeBytes(body);
         }
     }
+
+    void mark(short command) {
+        stats.mark(command);
+    }
 }
@@ -30,20 +30,24 @@ public class WSMessageEncoder extends ChannelOutboundHandlerAdapter {
         if (msg instanceof MessageBase) {
             MessageBase message = (MessageBase) msg;
             ByteBuf out = ByteBufAllocator.DEFAULT.buffer();
-            out.writeByte(message.command);
-            out.writeShort(message.id);
-
             if (message instanceof ResponseMessage) {
+                out.writeByte(message.command);
+                out.writeShort(message.id);
                 out.writeInt(((ResponseMessage) message).code);
             } else {
-                byte[] body = message.getBytes();
-                if (body.length > 0) {
-                    out.writeBytes(body);
-                }
+                encode(out, message.command, message.id, message.getBytes());
             }
             super.write(ctx, new BinaryWebSocketFrame(out), promise);
         } else {
             super.write(ctx, msg, promise);
         }
     }
+
+    static void encode(ByteBuf out, short command, int id, byte[] body) {
+        out.writeByte(command);
+        out.writeShort(id);
+        if (body.length > 0) {
+            out.writeBytes(body);
+        }
+    }
 }
@@ -0,0 +1,116 @@
+package cc.blynk.server.core.protocol.model.messages.hardware;
+
+import cc.blynk.server.core.model.enums.PinType;
+import cc.blynk.server.core.protocol.model.messages.MessageBase;
+import io.netty.buffer.ByteBuf;
+
+import java.nio.charset.StandardCharsets;
+
+import static cc.blynk.server.core.protocol.enums.Command.HARDWARE;
+import static cc.blynk.utils.StringUtils.BODY_SEPARATOR;
+
+/**
+ * Hardware pin write command ("vw 1 100", "dw 2 1", "aw 3 255") that is already parsed.
+ * Decoder produces it straight from the network buffer, so the only string created
+ * for the write is the value. Whole body is built only when it is needed, for example
+ * when it should be forwarded to the apps.
+ *
+ * The Blynk Project.
+ * Created by Dmitriy Dumanskiy.
+ * Created on 18.10.26.
+ */
+public final class PinWriteMessage extends MessageBase {
+
+    //"vw\01\01"
+    private static final int MIN_LENGTH = 6;
+    private static final int MAX_PIN_DIGITS = 3;
+    private static final int MAX_PIN = 255;
+
+    public final PinType pinType;
+    public final short pin;
+    public final String value;
+    private String body;
+
+    public PinWriteMessage(int messageId, PinType pinType, short pin, String value, String body) {
+        super(messageId, HARDWARE);
+        this.pinType = pinType;
+        this.pin = pin;
+        this.value = value;
+        this.body = body;
+    }
+
+    /**
+     * Parses pin write command of the given length from the buffer.
+     * Returns null and leaves buffer untouched in case body is not a well-formed
+     * lower case write command, such bodies are processed as the regular string messages.
+     */
+    public static PinWriteMessage decode(int messageId, ByteBuf in, int length) {
+        if (length < MIN_LENGTH) {
+            return null;
+        }
+
+        int start = in.readerIndex();
+        int end = start + length;
+        PinType pinType = getPinType(in.getByte(start));
+        if (pinType == null || in.getByte(start + 1) != 'w' || in.getByte(start + 2) != BODY_SEPARATOR) {
+            return null;
+        }
+
+        int pin = 0;
+        int digits = 0;
+        int i = start + 3;
+        for (; i < end; i++) {
+            byte b = in.getByte(i);
+            if (b == BODY_SEPARATOR) {
+                break;
+            }
+            //leading zeros are not allowed, so body could be restored as is
+            if (b < '0' || b > '9' || digits == MAX_PIN_DIGITS || (digits == 1 && pin == 0)) {
+                return null;
+            }
+            pin = pin * 10 + (b - '0');
+            digits++;
+        }
+
+        //value should not be empty
+        if (digits == 0 || pin > MAX_PIN || i >= end - 1) {
+            return null;
+        }
+
+        String value = in.toString(i + 1, end - i - 1, StandardCharsets.UTF_8);
+        in.skipBytes(length);
+        return new PinWriteMessage(messageId, pinType, (short) pin, value, null);
+    }
+
+    private static PinType getPinType(byte pinTypeChar) {
+        switch (pinTypeChar) {
+            case 'v' :
+                return PinType.VIRTUAL;
+            case 'd' :
+                return PinType.DIGITAL;
+            case 'a' :
+                return PinType.ANALOG;
+            default:
+                return null;
+        }
+    }
+
+    public String getBody() {
+        String body = this.body;
+        if (body == null) {
+            body = "" + pinType.pintTypeChar + 'w' + BODY_SEPARATOR + pin + BODY_SEPARATOR + value;
+            this.body = body;
+        }
+        return body;
+    }
+
+    @Override
+    public byte[] getBytes() {
+        return getBody().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String toString() {
+        return "PinWriteMessage{" + super.toString() + ", body='" + getBody() + "'}";
+    }
+}
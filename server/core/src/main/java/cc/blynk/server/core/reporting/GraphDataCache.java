@@ -0,0 +1,206 @@
+package cc.blynk.server.core.reporting;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of the compressed graph responses. Many apps of the shared dashboard
+ * and app reopens request the same graphs over and over, while history files change
+ * only when reporting worker appends new points once a minute.
+ *
+ * Every entry remembers history files it was built from and is removed as soon as
+ * any of them is appended, removed or replaced. Cache is bounded by the total size of the
+ * entries, least recently used entries are evicted first.
+ *
+ * The Blynk Project.
+ * Created by Dmitriy Dumanskiy.
+ * Created on 18.10.26.
+ */
+public class GraphDataCache {
+
+    public static final int DEFAULT_MAX_SIZE_MB = 64;
+    //rough size of the map entries, key object and file index, that hold single cached response
+    private static final int ENTRY_OVERHEAD = 128;
+    private static final int FILE_INDEX_OVERHEAD = 64;
+
+    private final long maxBytes;
+    private final LinkedHashMap<String, CachedGraph> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Path, Set<String>> keysByFile = new HashMap<>();
+    private long bytes;
+    //incremented on every invalidation, so responses read before the invalidation are not cached
+    private long version;
+    private long evictions;
+    private long invalidations;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public GraphDataCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public boolean isEnabled() {
+        return maxBytes > 0;
+    }
+
+    public static String key(String email, String appName, GraphPinRequest[] requestedPins) {
+        StringBuilder sb = new StringBuilder(64 * requestedPins.length)
+                .append(email).append('\0').append(appName);
+        for (GraphPinRequest pinRequest : requestedPins) {
+            sb.append('\0').append(pinRequest.dashId)
+              .append('-').append(pinRequest.deviceId);
+            for (int deviceId : pinRequest.deviceIds) {
+                sb.append(',').append(deviceId);
+            }
+            sb.append('-').append(pinRequest.pinType.pintTypeChar)
+              .append(pinRequest.pin)
+              .append('-').append(pinRequest.type.label)
+              .append('-').append(pinRequest.count)
+              .append('-').append(pinRequest.skipCount)
+              .append('-').append(pinRequest.functionType)
+              .append('-').append(pinRequest.maxPoints);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return - cached compressed response or null.
+     */
+    public byte[] get(String key) {
+        CachedGraph cachedGraph;
+        synchronized (this) {
+            cachedGraph = entries.get(key);
+        }
+        if (cachedGraph == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return cachedGraph.data;
+    }
+
+    /**
+     * Version should be taken before history files are read,
+     * response is not cached in case any file was invalidated after that.
+     */
+    public synchronized long version() {
+        return version;
+    }
+
+    public synchronized void put(String key, Path[] files, byte[] data, long readVersion) {
+        if (readVersion != version) {
+            return;
+        }
+        CachedGraph cachedGraph = new CachedGraph(key, files, data);
+        if (cachedGraph.weight > maxBytes) {
+            return;
+        }
+
+        remove(key);
+        entries.put(key, cachedGraph);
+        bytes += cachedGraph.weight;
+        for (Path file : files) {
+            keysByFile.computeIfAbsent(file, k -> new HashSet<>()).add(key);
+        }
+
+        Iterator<CachedGraph> lru = entries.values().iterator();
+        while (bytes > maxBytes && lru.hasNext()) {
+            CachedGraph eldest = lru.next();
+            lru.remove();
+            unindex(eldest);
+            evictions++;
+        }
+    }
+
+    public synchronized void invalidate(Path file) {
+        version++;
+        invalidateFile(file);
+    }
+
+    public synchronized void invalidate(Iterable<Path> files) {
+        version++;
+        for (Path file : files) {
+            invalidateFile(file);
+        }
+    }
+
+    private void invalidateFile(Path file) {
+        Set<String> keys = keysByFile.remove(file);
+        if (keys != null) {
+            for (String key : keys) {
+                if (remove(key)) {
+                    invalidations++;
+                }
+            }
+        }
+    }
+
+    private boolean remove(String key) {
+        CachedGraph cachedGraph = entries.remove(key);
+        if (cachedGraph == null) {
+            return false;
+        }
+        unindex(cachedGraph);
+        return true;
+    }
+
+    private void unindex(CachedGraph cachedGraph) {
+        bytes -= cachedGraph.weight;
+        for (Path file : cachedGraph.files) {
+            Set<String> keys = keysByFile.get(file);
+            if (keys != null) {
+                keys.remove(cachedGraph.key);
+                if (keys.isEmpty()) {
+                    keysByFile.remove(file);
+                }
+            }
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized long getInvalidations() {
+        return invalidations;
+    }
+
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    private static final class CachedGraph {
+
+        private final String key;
+        private final Path[] files;
+        private final byte[] data;
+        private final long weight;
+
+        CachedGraph(String key, Path[] files, byte[] data) {
+            this.key = key;
+            this.files = files;
+            this.data = data;
+            this.weight = ENTRY_OVERHEAD + 2L * key.length() + data.length
+                    + (long) FILE_INDEX_OVERHEAD * files.length;
+        }
+    }
+
+}
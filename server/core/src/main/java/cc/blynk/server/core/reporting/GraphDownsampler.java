@@ -0,0 +1,139 @@
+package cc.blynk.server.core.reporting;
+
+import cc.blynk.server.core.model.widgets.outputs.graph.AggregationFunctionType;
+
+import java.nio.ByteBuffer;
+
+import static cc.blynk.utils.FileUtils.SIZE_OF_REPORT_ENTRY;
+
+/**
+ * Reduces number of the graph points (value + timestamp entries) to the number of points
+ * app is able to draw. Graphs with min or max function are reduced with min/max buckets,
+ * so peaks are not lost. All other graphs are reduced with
+ * Largest-Triangle-Three-Buckets algorithm, that keeps visual shape of the graph.
+ *
+ * The Blynk Project.
+ * Created by Dmitriy Dumanskiy.
+ * Created on 18.10.26.
+ */
+public final class GraphDownsampler {
+
+    private static final int MIN_POINTS = 4;
+    private static final int TS_OFFSET = 8;
+
+    private GraphDownsampler() {
+    }
+
+    /**
+     * @return - same array when data already fits into maxPoints, downsampled copy otherwise.
+     */
+    public static byte[] downsample(byte[] data, int maxPoints, AggregationFunctionType functionType) {
+        if (maxPoints <= 0) {
+            return data;
+        }
+        maxPoints = Math.max(MIN_POINTS, maxPoints);
+        if (data.length / SIZE_OF_REPORT_ENTRY <= maxPoints) {
+            return data;
+        }
+        if (functionType == AggregationFunctionType.MIN || functionType == AggregationFunctionType.MAX) {
+            return minMax(data, maxPoints);
+        }
+        return lttb(data, maxPoints);
+    }
+
+    static byte[] lttb(byte[] data, int threshold) {
+        ByteBuffer in = ByteBuffer.wrap(data);
+        int size = data.length / SIZE_OF_REPORT_ENTRY;
+        ByteBuffer out = ByteBuffer.allocate(threshold * SIZE_OF_REPORT_ENTRY);
+
+        //first and last points are always kept, the rest is split into threshold - 2 buckets
+        double bucketSize = (double) (size - 2) / (threshold - 2);
+        int selected = 0;
+        copy(in, out, selected);
+
+        for (int bucket = 0; bucket < threshold - 2; bucket++) {
+            //average of the next bucket is the third point of the triangle
+            int nextStart = (int) ((bucket + 1) * bucketSize) + 1;
+            int nextEnd = Math.min((int) ((bucket + 2) * bucketSize) + 1, size);
+            double avgTs = 0;
+            double avgValue = 0;
+            for (int i = nextStart; i < nextEnd; i++) {
+                avgTs += ts(in, i);
+                avgValue += value(in, i);
+            }
+            int nextLength = nextEnd - nextStart;
+            avgTs /= nextLength;
+            avgValue /= nextLength;
+
+            double selectedTs = ts(in, selected);
+            double selectedValue = value(in, selected);
+
+            int start = (int) (bucket * bucketSize) + 1;
+            int end = (int) ((bucket + 1) * bucketSize) + 1;
+            double maxArea = -1;
+            int maxAreaIndex = start;
+            for (int i = start; i < end; i++) {
+                double area = Math.abs((selectedTs - avgTs) * (value(in, i) - selectedValue)
+                        - (selectedTs - ts(in, i)) * (avgValue - selectedValue));
+                if (area > maxArea) {
+                    maxArea = area;
+                    maxAreaIndex = i;
+                }
+            }
+            selected = maxAreaIndex;
+            copy(in, out, selected);
+        }
+
+        copy(in, out, size - 1);
+        return out.array();
+    }
+
+    static byte[] minMax(byte[] data, int maxPoints) {
+        ByteBuffer in = ByteBuffer.wrap(data);
+        int size = data.length / SIZE_OF_REPORT_ENTRY;
+        int buckets = maxPoints / 2;
+        ByteBuffer out = ByteBuffer.allocate(buckets * 2 * SIZE_OF_REPORT_ENTRY);
+
+        double bucketSize = (double) size / buckets;
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            int start = (int) (bucket * bucketSize);
+            int end = Math.min((int) ((bucket + 1) * bucketSize), size);
+            int minIndex = start;
+            int maxIndex = start;
+            for (int i = start + 1; i < end; i++) {
+                double value = value(in, i);
+                if (value < value(in, minIndex)) {
+                    minIndex = i;
+                }
+                if (value > value(in, maxIndex)) {
+                    maxIndex = i;
+                }
+            }
+            //points are kept in the original order
+            copy(in, out, Math.min(minIndex, maxIndex));
+            if (minIndex != maxIndex) {
+                copy(in, out, Math.max(minIndex, maxIndex));
+            }
+        }
+
+        if (out.hasRemaining()) {
+            byte[] result = new byte[out.position()];
+            System.arraycopy(out.array(), 0, result, 0, result.length);
+            return result;
+        }
+        return out.array();
+    }
+
+    private static double value(ByteBuffer buffer, int index) {
+        return buffer.getDouble(index * SIZE_OF_REPORT_ENTRY);
+    }
+
+    private static long ts(ByteBuffer buffer, int index) {
+        return buffer.getLong(index * SIZE_OF_REPORT_ENTRY + TS_OFFSET);
+    }
+
+    private static void copy(ByteBuffer in, ByteBuffer out, int index) {
+        out.put(in.array(), index * SIZE_OF_REPORT_ENTRY, SIZE_OF_REPORT_ENTRY);
+    }
+
+}
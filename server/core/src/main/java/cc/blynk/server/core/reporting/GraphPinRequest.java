@@ -40,8 +40,12 @@ public class GraphPinRequest {
 
     public final int skipCount;
 
+    //max number of points app wants to draw, 0 means no downsampling
+    public final int maxPoints;
+
     public GraphPinRequest(int dashId, int[] deviceIds, DataStream dataStream,
-                           GraphPeriod graphPeriod, int skipCount, AggregationFunctionType function) {
+                           GraphPeriod graphPeriod, int skipCount, AggregationFunctionType function,
+                           int maxPoints) {
         this.dashId = dashId;
         this.deviceId = -1;
         this.deviceIds = deviceIds == null ? EMPTY_INTS : deviceIds;
@@ -58,10 +62,12 @@ public class GraphPinRequest {
         this.count = graphPeriod.numberOfPoints;
         this.type = graphPeriod.granularityType;
         this.skipCount = skipCount;
+        this.maxPoints = maxPoints;
     }
 
     public GraphPinRequest(int dashId, int deviceId, DataStream dataStream,
-                           GraphPeriod graphPeriod, int skipCount, AggregationFunctionType function) {
+                           GraphPeriod graphPeriod, int skipCount, AggregationFunctionType function,
+                           int maxPoints) {
         this.dashId = dashId;
         this.deviceId = deviceId;
         this.deviceIds = EMPTY_INTS;
@@ -78,6 +84,7 @@ public class GraphPinRequest {
         this.count = graphPeriod.numberOfPoints;
         this.type = graphPeriod.granularityType;
         this.skipCount = skipCount;
+        this.maxPoints = maxPoints;
     }
 
     public boolean isLiveData() {
@@ -102,6 +109,7 @@ public class GraphPinRequest {
                 + ", count=" + count
                 + ", type=" + type
                 + ", skipCount=" + skipCount
+                + ", maxPoints=" + maxPoints
                 + '}';
     }
 }
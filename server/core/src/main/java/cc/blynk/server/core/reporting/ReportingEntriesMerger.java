@@ -0,0 +1,142 @@
+package cc.blynk.server.core.reporting;
+
+import cc.blynk.server.core.dao.functions.GraphFunction;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static cc.blynk.utils.FileUtils.SIZE_OF_REPORT_ENTRY;
+
+/**
+ * K-way merge of the reporting entries (value + timestamp) of the different devices.
+ * Every source is expected to be sorted by timestamp, as this is how entries are
+ * appended to the history files. Entries with the same timestamp are aggregated
+ * with the graph function. Merge works on primitives only and allocates
+ * just the resulting array.
+ *
+ * The Blynk Project.
+ * Created by Dmitriy Dumanskiy.
+ * Created on 18.10.26.
+ */
+public final class ReportingEntriesMerger {
+
+    private static final int TS_OFFSET = 8;
+
+    private ReportingEntriesMerger() {
+    }
+
+    /**
+     * Sources are consumed during merge.
+     *
+     * @return - merged entries or null in case there is no data within sources.
+     */
+    public static byte[] merge(ByteBuffer[] sources, GraphFunction function) {
+        int[] heap = new int[sources.length];
+        long[] heads = new long[sources.length];
+        int heapSize = 0;
+        int totalBytes = 0;
+
+        for (int i = 0; i < sources.length; i++) {
+            ByteBuffer source = sources[i];
+            if (source != null && source.remaining() >= SIZE_OF_REPORT_ENTRY) {
+                totalBytes += source.remaining();
+                heads[i] = headTs(source);
+                heap[heapSize] = i;
+                siftUp(heap, heads, heapSize);
+                heapSize++;
+            }
+        }
+
+        if (heapSize == 0) {
+            return null;
+        }
+
+        ByteBuffer result = ByteBuffer.allocate(totalBytes);
+        long currentTs = heads[heap[0]];
+        function.reset();
+
+        while (heapSize > 0) {
+            int sourceIndex = heap[0];
+            ByteBuffer source = sources[sourceIndex];
+            double value = source.getDouble();
+            long ts = source.getLong();
+
+            if (ts != currentTs) {
+                result.putDouble(function.getResult()).putLong(currentTs);
+                function.reset();
+                currentTs = ts;
+            }
+            function.apply(value);
+
+            if (source.remaining() >= SIZE_OF_REPORT_ENTRY) {
+                heads[sourceIndex] = headTs(source);
+            } else {
+                heapSize--;
+                heap[0] = heap[heapSize];
+            }
+            siftDown(heap, heads, heapSize);
+        }
+        result.putDouble(function.getResult()).putLong(currentTs);
+
+        byte[] array = result.array();
+        return result.position() == array.length ? array : Arrays.copyOf(array, result.position());
+    }
+
+    /**
+     * Merge requires every source to be sorted. Data pushed with the custom timestamps
+     * may break the order, so it should be checked upfront.
+     */
+    public static boolean isSorted(ByteBuffer source) {
+        if (source == null) {
+            return true;
+        }
+        long prevTs = Long.MIN_VALUE;
+        for (int i = source.position() + TS_OFFSET; i < source.limit(); i += SIZE_OF_REPORT_ENTRY) {
+            long ts = source.getLong(i);
+            if (ts < prevTs) {
+                return false;
+            }
+            prevTs = ts;
+        }
+        return true;
+    }
+
+    private static long headTs(ByteBuffer source) {
+        return source.getLong(source.position() + TS_OFFSET);
+    }
+
+    private static void siftUp(int[] heap, long[] heads, int index) {
+        int element = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (heads[heap[parent]] <= heads[element]) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = element;
+    }
+
+    private static void siftDown(int[] heap, long[] heads, int heapSize) {
+        if (heapSize == 0) {
+            return;
+        }
+        int index = 0;
+        int element = heap[0];
+        int half = heapSize >>> 1;
+        while (index < half) {
+            int child = (index << 1) + 1;
+            int right = child + 1;
+            if (right < heapSize && heads[heap[right]] < heads[heap[child]]) {
+                child = right;
+            }
+            if (heads[element] <= heads[heap[child]]) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = element;
+    }
+}
@@ -0,0 +1,165 @@
+package cc.blynk.server.core.reporting;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+
+/**
+ * Bounded pool of append-only channels to the history files.
+ * Reporting worker flushes the same files every minute, so instead of
+ * open/append/close on every entry we keep most recently used channels open
+ * and close the least recently used one when pool is full.
+ *
+ * History files should be removed or replaced only via {@link #delete(Path)} and
+ * {@link #replace(Path, Path)}, otherwise next flush will append to the unlinked file.
+ *
+ * The Blynk Project.
+ * Created by Dmitriy Dumanskiy.
+ * Created on 18.10.26.
+ */
+public class ReportingFileChannelPool implements Closeable {
+
+    private static final Logger log = LogManager.getLogger(ReportingFileChannelPool.class);
+
+    public static final int DEFAULT_POOL_SIZE = 2000;
+
+    private final ChannelsMap channels;
+
+    private volatile long evictions;
+    private volatile long lastFlushTime;
+    private volatile int lastFlushEntries;
+
+    public ReportingFileChannelPool(int maxOpenChannels) {
+        this.channels = new ChannelsMap(maxOpenChannels);
+    }
+
+    /**
+     * Appends all entries to the file with gathering write.
+     * File and its parent folder are created in case they don't exist.
+     */
+    public synchronized void write(Path reportingFile, ByteBuffer[] entries) throws IOException {
+        FileChannel channel = channels.get(reportingFile);
+        if (channel == null) {
+            channel = open(reportingFile);
+            channels.put(reportingFile, channel);
+        }
+        try {
+            long remaining = 0;
+            for (ByteBuffer entry : entries) {
+                remaining += entry.remaining();
+            }
+            //gathering write may be partial
+            while (remaining > 0) {
+                remaining -= channel.write(entries);
+            }
+        } catch (IOException ioe) {
+            //channel may be broken, so we'll reopen it during next flush
+            channels.remove(reportingFile);
+            closeQuietly(channel);
+            throw ioe;
+        }
+    }
+
+    private static FileChannel open(Path reportingFile) throws IOException {
+        try {
+            return FileChannel.open(reportingFile, CREATE, APPEND);
+        } catch (NoSuchFileException e) {
+            Files.createDirectories(reportingFile.getParent());
+            return FileChannel.open(reportingFile, CREATE, APPEND);
+        }
+    }
+
+    public synchronized void invalidate(Path reportingFile) {
+        closeQuietly(channels.remove(reportingFile));
+    }
+
+    /**
+     * Channel is closed and file is removed under the pool lock,
+     * so concurrent flush can't reopen the file in between and append to the unlinked file.
+     */
+    public synchronized void delete(Path reportingFile) throws IOException {
+        invalidate(reportingFile);
+        Files.deleteIfExists(reportingFile);
+    }
+
+    /**
+     * Atomically moves new file over the history file. Channel is closed and file is moved
+     * under the pool lock, so concurrent flush can't append to the replaced file.
+     */
+    public synchronized void replace(Path reportingFile, Path newFile) throws IOException {
+        invalidate(reportingFile);
+        Files.move(newFile, reportingFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public void markFlushed(int entries, long flushTime) {
+        this.lastFlushEntries = entries;
+        this.lastFlushTime = flushTime;
+    }
+
+    public synchronized int getOpenChannels() {
+        return channels.size();
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public long getLastFlushTime() {
+        return lastFlushTime;
+    }
+
+    public int getLastFlushEntries() {
+        return lastFlushEntries;
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.debug("Error closing reporting file channel.", e);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        for (FileChannel channel : channels.values()) {
+            closeQuietly(channel);
+        }
+        channels.clear();
+    }
+
+    private final class ChannelsMap extends LinkedHashMap<Path, FileChannel> {
+
+        private final int maxSize;
+
+        ChannelsMap(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, FileChannel> eldest) {
+            if (size() > maxSize) {
+                closeQuietly(eldest.getValue());
+                evictions++;
+                return true;
+            }
+            return false;
+        }
+    }
+}
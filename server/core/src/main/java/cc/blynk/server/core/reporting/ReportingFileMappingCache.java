@@ -0,0 +1,357 @@
+package cc.blynk.server.core.reporting;
+
+import cc.blynk.utils.FileUtils;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import static cc.blynk.utils.FileUtils.SIZE_OF_REPORT_ENTRY;
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * Bounded cache of read-only memory mappings of the history files.
+ * Graph requests read the tail of the same files over and over, so instead of
+ * allocating heap buffer and reading file on every request we return
+ * read-only slices of the mapped file.
+ *
+ * History files are append-only, so mapping is reused while file key (inode) is the same
+ * and file only grows. Records appended after mapping are read through the channel into the small
+ * heap tail, file is remapped only when the tail grows over {@link #MAX_TAIL_SIZE}.
+ * Truncation or file replacement leads to remapping.
+ * Files should never be truncated in place, but replaced with the new file instead,
+ * otherwise readers of the old mapping may access memory beyond end of file.
+ *
+ * Stale mappings (invalidated, evicted or replaced) are not unmapped explicitly, as returned
+ * slices may be still used by the readers, mapping is released by GC once no slice is reachable.
+ *
+ * The Blynk Project.
+ * Created by Dmitriy Dumanskiy.
+ * Created on 18.10.26.
+ */
+public class ReportingFileMappingCache {
+
+    public static final int DEFAULT_CACHE_SIZE = 1000;
+    //1024 records, ~17 hours of the minute graph
+    static final int MAX_TAIL_SIZE = 1024 * SIZE_OF_REPORT_ENTRY;
+    //record is value (double) + timestamp (long)
+    private static final int TS_OFFSET = 8;
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+    private final MappingsMap mappings;
+    private long remaps;
+
+    public ReportingFileMappingCache(int maxMappedFiles) {
+        this.mappings = new MappingsMap(maxMappedFiles);
+    }
+
+    /**
+     * Returns read-only view of the last records of the file.
+     *
+     * @param reportingFile - file to read
+     * @param count         - number of records to read
+     * @param skip          - number of entries to skip from the end
+     * @return - read-only byte buffer with data or null if there is no data
+     */
+    public ByteBuffer read(Path reportingFile, int count, int skip) throws IOException {
+        BasicFileAttributes attrs = readAttributes(reportingFile);
+        if (attrs == null) {
+            return null;
+        }
+
+        if (attrs.size() > Integer.MAX_VALUE) {
+            return FileUtils.read(reportingFile, count, skip);
+        }
+
+        MappedFile mappedFile = getOrMap(reportingFile, attrs);
+        return mappedFile == null ? null : mappedFile.last(count, skip);
+    }
+
+    /**
+     * Returns read-only view of the records with timestamp within [from, to).
+     * Records are appended with growing timestamps, so window bounds are found with
+     * the binary search and only pages of the window are touched.
+     * Records pushed with custom timestamps may break the order, such files are not searched,
+     * but window is filtered out of the maxCount last records instead.
+     *
+     * @param reportingFile - file to read
+     * @param from          - inclusive start of the window
+     * @param to            - exclusive end of the window
+     * @param maxCount      - max number of records to return, newest records are returned
+     * @return - read-only byte buffer with data or null if there is no data within window
+     */
+    public ByteBuffer readRange(Path reportingFile, long from, long to, int maxCount) throws IOException {
+        BasicFileAttributes attrs = readAttributes(reportingFile);
+        if (attrs == null) {
+            return null;
+        }
+
+        if (attrs.size() > Integer.MAX_VALUE) {
+            ByteBuffer tail = FileUtils.read(reportingFile, maxCount, 0);
+            return tail == null ? null : range(tail, from, to, maxCount);
+        }
+
+        MappedFile mappedFile = getOrMap(reportingFile, attrs);
+        return mappedFile == null ? null : mappedFile.range(from, to, maxCount);
+    }
+
+    static ByteBuffer range(ByteBuffer buffer, long from, long to, int maxCount) {
+        return new MappedFile(buffer.slice(), EMPTY, buffer.remaining(), null, null).range(from, to, maxCount);
+    }
+
+    private BasicFileAttributes readAttributes(Path reportingFile) throws IOException {
+        try {
+            return Files.readAttributes(reportingFile, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            invalidate(reportingFile);
+            return null;
+        }
+    }
+
+    private MappedFile getOrMap(Path reportingFile, BasicFileAttributes attrs) throws IOException {
+        MappedFile mappedFile = get(reportingFile);
+        if (mappedFile != null && mappedFile.isSame(attrs)) {
+            return mappedFile;
+        }
+
+        if (attrs.size() < SIZE_OF_REPORT_ENTRY) {
+            invalidate(reportingFile);
+            return null;
+        }
+
+        MappedFile updated;
+        if (mappedFile != null && mappedFile.isAppended(attrs)
+                && attrs.size() - mappedFile.mappedSize() <= MAX_TAIL_SIZE) {
+            updated = mappedFile.readTail(reportingFile, attrs);
+        } else {
+            updated = map(reportingFile, attrs, mappedFile != null && mappedFile.isAppended(attrs) ? mappedFile : null);
+        }
+        replace(reportingFile, mappedFile, updated);
+        return updated;
+    }
+
+    private static MappedFile map(Path reportingFile, BasicFileAttributes attrs,
+                                  MappedFile previous) throws IOException {
+        //only full records are mapped
+        long size = attrs.size() - attrs.size() % SIZE_OF_REPORT_ENTRY;
+        try (FileChannel channel = FileChannel.open(reportingFile, READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return new MappedFile(buffer, EMPTY, attrs.size(), attrs.fileKey(), previous);
+        }
+    }
+
+    private synchronized MappedFile get(Path reportingFile) {
+        return mappings.get(reportingFile);
+    }
+
+    //concurrent readers may update the same file, only update based on the cached state wins
+    private synchronized void replace(Path reportingFile, MappedFile expected, MappedFile updated) {
+        if (mappings.get(reportingFile) == expected) {
+            mappings.put(reportingFile, updated);
+            if (expected != null && expected.mapping != updated.mapping) {
+                remaps++;
+            }
+        }
+    }
+
+    public synchronized void invalidate(Path reportingFile) {
+        mappings.remove(reportingFile);
+    }
+
+    public synchronized int getMappedFiles() {
+        return mappings.size();
+    }
+
+    synchronized long getRemaps() {
+        return remaps;
+    }
+
+    /**
+     * Mapped full records of the file followed by the records appended after mapping.
+     * Order of the records is checked once, for the appended file only new records are checked.
+     */
+    private static final class MappedFile {
+
+        private final ByteBuffer mapping;
+        private final ByteBuffer tail;
+        private final long fileSize;
+        private final Object fileKey;
+        private final boolean sorted;
+
+        //previous - state of the same file before append or null
+        MappedFile(ByteBuffer mapping, ByteBuffer tail, long fileSize, Object fileKey, MappedFile previous) {
+            this.mapping = mapping;
+            this.tail = tail;
+            this.fileSize = fileSize;
+            this.fileKey = fileKey;
+            this.sorted = previous == null
+                    ? isSorted(0)
+                    : previous.sorted && isSorted(previous.size() / SIZE_OF_REPORT_ENTRY);
+        }
+
+        private boolean isSorted(int fromRecord) {
+            int records = size() / SIZE_OF_REPORT_ENTRY;
+            long prevTs = fromRecord == 0 ? Long.MIN_VALUE : ts(fromRecord - 1);
+            for (int i = fromRecord; i < records; i++) {
+                long ts = ts(i);
+                if (ts < prevTs) {
+                    return false;
+                }
+                prevTs = ts;
+            }
+            return true;
+        }
+
+        boolean isSame(BasicFileAttributes attrs) {
+            return fileSize == attrs.size() && Objects.equals(fileKey, attrs.fileKey());
+        }
+
+        boolean isAppended(BasicFileAttributes attrs) {
+            return fileSize < attrs.size() && Objects.equals(fileKey, attrs.fileKey());
+        }
+
+        int mappedSize() {
+            return mapping.capacity();
+        }
+
+        private int size() {
+            return mapping.capacity() + tail.capacity();
+        }
+
+        MappedFile readTail(Path reportingFile, BasicFileAttributes attrs) throws IOException {
+            int from = size();
+            int size = (int) (attrs.size() - attrs.size() % SIZE_OF_REPORT_ENTRY);
+            ByteBuffer newTail = ByteBuffer.allocate(size - mappedSize());
+            newTail.put(tail.duplicate());
+            try (FileChannel channel = FileChannel.open(reportingFile, READ)) {
+                long position = from;
+                while (newTail.hasRemaining()) {
+                    int read = channel.read(newTail, position);
+                    if (read < 0) {
+                        throw new EOFException("History file " + reportingFile + " was truncated.");
+                    }
+                    position += read;
+                }
+            }
+            ((Buffer) newTail).flip();
+            return new MappedFile(mapping, newTail.asReadOnlyBuffer(), attrs.size(), fileKey, this);
+        }
+
+        ByteBuffer last(int count, int skip) {
+            int records = size() / SIZE_OF_REPORT_ENTRY;
+            int end = Math.max(0, records - skip);
+            int start = Math.max(0, end - count);
+            return start < end ? window(start, end) : null;
+        }
+
+        ByteBuffer range(long from, long to, int maxCount) {
+            int records = size() / SIZE_OF_REPORT_ENTRY;
+            if (!sorted) {
+                return scan(records, from, to, maxCount);
+            }
+            int start = lowerBound(records, from);
+            int end = lowerBound(records, to);
+            if (end - start > maxCount) {
+                start = end - maxCount;
+            }
+            return start < end ? window(start, end) : null;
+        }
+
+        //binary search may skip records of the window in out of order file,
+        //so such file is filtered within maxCount last records
+        private ByteBuffer scan(int records, long from, long to, int maxCount) {
+            ByteBuffer result = null;
+            for (int i = Math.max(0, records - maxCount); i < records; i++) {
+                long ts = ts(i);
+                if (ts >= from && ts < to) {
+                    if (result == null) {
+                        result = ByteBuffer.allocate((records - i) * SIZE_OF_REPORT_ENTRY);
+                    }
+                    result.putDouble(value(i)).putLong(ts);
+                }
+            }
+            if (result == null) {
+                return null;
+            }
+            ((Buffer) result).flip();
+            return result.asReadOnlyBuffer();
+        }
+
+        //index of the first record with timestamp >= ts
+        private int lowerBound(int records, long ts) {
+            int low = 0;
+            int high = records;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (ts(mid) < ts) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private long ts(int record) {
+            int index = record * SIZE_OF_REPORT_ENTRY + TS_OFFSET;
+            int mappedSize = mappedSize();
+            return index < mappedSize ? mapping.getLong(index) : tail.getLong(index - mappedSize);
+        }
+
+        private double value(int record) {
+            int index = record * SIZE_OF_REPORT_ENTRY;
+            int mappedSize = mappedSize();
+            return index < mappedSize ? mapping.getDouble(index) : tail.getDouble(index - mappedSize);
+        }
+
+        //records [start, end), mapped records are returned without copy
+        private ByteBuffer window(int start, int end) {
+            int from = start * SIZE_OF_REPORT_ENTRY;
+            int to = end * SIZE_OF_REPORT_ENTRY;
+            int mappedSize = mappedSize();
+            if (to <= mappedSize) {
+                return slice(mapping, from, to);
+            }
+            if (from >= mappedSize) {
+                return slice(tail, from - mappedSize, to - mappedSize);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(to - from);
+            buffer.put(slice(mapping, from, mappedSize))
+                  .put(slice(tail, 0, to - mappedSize));
+            ((Buffer) buffer).flip();
+            return buffer.asReadOnlyBuffer();
+        }
+
+        private static ByteBuffer slice(ByteBuffer buffer, int from, int to) {
+            //duplicate, so concurrent readers do not share position
+            ByteBuffer view = buffer.duplicate();
+            ((Buffer) view).position(from).limit(to);
+            return view.slice();
+        }
+    }
+
+    private static final class MappingsMap extends LinkedHashMap<Path, MappedFile> {
+
+        private final int maxSize;
+
+        MappingsMap(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, MappedFile> eldest) {
+            return size() > maxSize;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package cc.blynk.server.core.reporting.average;
+
+import cc.blynk.server.core.model.enums.PinType;
+import cc.blynk.server.core.reporting.raw.BaseReportingKey;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import static cc.blynk.server.internal.SerializationUtil.deserialize;
+
+/**
+ * Binary snapshot of the aggregation table that is stored on server stop
+ * and restored on server start.
+ *
+ * Format :
+ * magic (int), version (byte),
+ * series count (int), series : email (utf), appName (utf), dashId (int), deviceId (int), pinType (char), pin (short),
+ * entries count (int), entries : series index (int), bucket (long), sum (double), count (long).
+ *
+ * Files in the old java serialization format are still recognized and restored.
+ *
+ * The Blynk Project.
+ * Created by Dmitriy Dumanskiy.
+ * Created on 18.10.26.
+ */
+final class AggregationSnapshot {
+
+    private static final Logger log = LogManager.getLogger(AggregationSnapshot.class);
+
+    private static final int MAGIC = 0x424C4147;
+    private static final byte VERSION = 1;
+
+    private AggregationSnapshot() {
+    }
+
+    static void write(Path path, AggregationTable table) {
+        AggregationTable.Entries entries = table.entries();
+        if (entries.size == 0) {
+            return;
+        }
+
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+
+            //series id -> index within snapshot
+            Map<Integer, Integer> seriesIndexes = new HashMap<>();
+            for (int i = 0; i < entries.size; i++) {
+                seriesIndexes.putIfAbsent(entries.series[i], seriesIndexes.size());
+            }
+            BaseReportingKey[] series = new BaseReportingKey[seriesIndexes.size()];
+            for (Map.Entry<Integer, Integer> entry : seriesIndexes.entrySet()) {
+                series[entry.getValue()] = table.getSeries(entry.getKey());
+            }
+
+            out.writeInt(series.length);
+            for (BaseReportingKey key : series) {
+                out.writeUTF(key.email);
+                out.writeUTF(key.appName);
+                out.writeInt(key.dashId);
+                out.writeInt(key.deviceId);
+                out.writeChar(key.pinType.pintTypeChar);
+                out.writeShort(key.pin);
+            }
+
+            out.writeInt(entries.size);
+            for (int i = 0; i < entries.size; i++) {
+                out.writeInt(seriesIndexes.get(entries.series[i]));
+                out.writeLong(entries.buckets[i]);
+                out.writeDouble(entries.sums[i]);
+                out.writeLong(entries.counts[i]);
+            }
+        } catch (Exception e) {
+            log.error("Error storing aggregation snapshot {}.", path, e);
+        }
+    }
+
+    static void read(Path path, AggregationTable table, PinSeriesRegistry registry) {
+        if (Files.notExists(path)) {
+            return;
+        }
+
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC) {
+                in.close();
+                readLegacy(path, table);
+                return;
+            }
+            byte version = in.readByte();
+            if (version != VERSION) {
+                log.error("Unsupported aggregation snapshot version {} for {}.", version, path);
+                return;
+            }
+
+            int[] seriesIds = new int[in.readInt()];
+            for (int i = 0; i < seriesIds.length; i++) {
+                String email = in.readUTF();
+                String appName = in.readUTF();
+                int dashId = in.readInt();
+                int deviceId = in.readInt();
+                PinType pinType = PinType.getPinType(in.readChar());
+                short pin = in.readShort();
+                seriesIds[i] = registry.intern(
+                        new BaseReportingKey(email, appName, dashId, deviceId, pinType, pin));
+            }
+
+            int entriesCount = in.readInt();
+            for (int i = 0; i < entriesCount; i++) {
+                int seriesId = seriesIds[in.readInt()];
+                long bucket = in.readLong();
+                double sum = in.readDouble();
+                long count = in.readLong();
+                table.merge(seriesId, bucket, sum, count);
+            }
+        } catch (Exception e) {
+            log.error("Error restoring aggregation snapshot {}.", path, e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void readLegacy(Path path, AggregationTable table) {
+        Map<AggregationKey, AggregationValue> map = (Map<AggregationKey, AggregationValue>) deserialize(path);
+        for (Map.Entry<AggregationKey, AggregationValue> entry : map.entrySet()) {
+            table.put(entry.getKey(), entry.getValue());
+        }
+        log.info("Restored {} aggregation entries from legacy snapshot {}.", map.size(), path);
+    }
+
+}
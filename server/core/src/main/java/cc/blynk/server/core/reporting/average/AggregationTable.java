@@ -0,0 +1,317 @@
+package cc.blynk.server.core.reporting.average;
+
+import cc.blynk.server.core.reporting.raw.BaseReportingKey;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Aggregated (sum + count) reporting values of the single granularity.
+ * Key is a pair of interned pin series id and bucket (timestamp truncated to the period).
+ * Table is split into stripes with own lock, every stripe is an open addressing
+ * hash table with linear probing on top of primitive arrays, so aggregation of the
+ * existing bucket doesn't allocate anything.
+ *
+ * Entries are never removed one by one. Reporting worker takes all outdated
+ * buckets at once and the stripe is rebuilt from remaining entries.
+ * Same is done when data of the series is removed.
+ *
+ * The Blynk Project.
+ * Created by Dmitriy Dumanskiy.
+ * Created on 18.10.26.
+ */
+public final class AggregationTable {
+
+    private static final int STRIPES = 16;
+    private static final int STRIPE_SHIFT = Integer.SIZE - Integer.numberOfTrailingZeros(STRIPES);
+
+    private final PinSeriesRegistry registry;
+    private final Stripe[] stripes;
+
+    AggregationTable(PinSeriesRegistry registry) {
+        this.registry = registry;
+        this.stripes = new Stripe[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    private static int hash(int seriesId, long bucket) {
+        long h = seriesId * 0x9E3779B97F4A7C15L ^ bucket * 0xC2B2AE3D27D4EB4FL;
+        h ^= h >>> 32;
+        return (int) (h ^ (h >>> 16));
+    }
+
+    private Stripe stripeFor(int hash) {
+        return stripes[hash >>> STRIPE_SHIFT];
+    }
+
+    public void aggregate(int seriesId, long bucket, double value) {
+        int hash = hash(seriesId, bucket);
+        stripeFor(hash).aggregate(hash, seriesId, bucket, value, 1);
+    }
+
+    public void aggregate(BaseReportingKey key, long bucket, double value) {
+        aggregate(registry.intern(key), bucket, value);
+    }
+
+    /**
+     * Merges already aggregated value into the table. Used for restoring from snapshot.
+     */
+    void merge(int seriesId, long bucket, double sum, long count) {
+        int hash = hash(seriesId, bucket);
+        stripeFor(hash).aggregate(hash, seriesId, bucket, sum, count);
+    }
+
+    public void put(AggregationKey key, AggregationValue value) {
+        int seriesId = registry.intern(key.getBaseReportingKey());
+        int hash = hash(seriesId, key.ts);
+        stripeFor(hash).put(hash, seriesId, key.ts, value.getSum(), value.getCount());
+    }
+
+    public AggregationValue get(AggregationKey key) {
+        int seriesId = registry.lookup(key.getBaseReportingKey());
+        if (seriesId == -1) {
+            return null;
+        }
+        int hash = hash(seriesId, key.ts);
+        return stripeFor(hash).get(hash, seriesId, key.ts);
+    }
+
+    /**
+     * Removes all buckets that are older than given one.
+     *
+     * @param nowTruncatedToPeriod - current time truncated to the period of the table.
+     * @return - removed entries.
+     */
+    public Map<AggregationKey, AggregationValue> removeOutdated(long nowTruncatedToPeriod) {
+        Map<AggregationKey, AggregationValue> removed = new HashMap<>();
+        for (Stripe stripe : stripes) {
+            stripe.removeOutdated(nowTruncatedToPeriod, registry, removed);
+        }
+        return removed;
+    }
+
+    /**
+     * Removes all buckets of the given series.
+     *
+     * @param seriesIds - sorted ids of the series.
+     */
+    void removeSeries(int[] seriesIds) {
+        if (seriesIds.length > 0) {
+            for (Stripe stripe : stripes) {
+                stripe.removeSeries(seriesIds);
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public void clear() {
+        for (Stripe stripe : stripes) {
+            stripe.clear();
+        }
+    }
+
+    Entries entries() {
+        Entries entries = new Entries();
+        for (Stripe stripe : stripes) {
+            stripe.copyTo(entries);
+        }
+        return entries;
+    }
+
+    BaseReportingKey getSeries(int seriesId) {
+        return registry.get(seriesId);
+    }
+
+    /**
+     * Plain copy of the table content.
+     */
+    static final class Entries {
+
+        int size;
+        int[] series = new int[0];
+        long[] buckets = new long[0];
+        double[] sums = new double[0];
+        long[] counts = new long[0];
+
+        void ensureCapacity(int capacity) {
+            if (series.length < capacity) {
+                series = Arrays.copyOf(series, capacity);
+                buckets = Arrays.copyOf(buckets, capacity);
+                sums = Arrays.copyOf(sums, capacity);
+                counts = Arrays.copyOf(counts, capacity);
+            }
+        }
+    }
+
+    private static final class Stripe {
+
+        private static final int EMPTY = -1;
+        private static final int INITIAL_CAPACITY = 64;
+
+        private int[] series;
+        private long[] buckets;
+        private double[] sums;
+        private long[] counts;
+        private int size;
+
+        Stripe() {
+            allocate(INITIAL_CAPACITY);
+        }
+
+        private void allocate(int capacity) {
+            this.series = new int[capacity];
+            Arrays.fill(series, EMPTY);
+            this.buckets = new long[capacity];
+            this.sums = new double[capacity];
+            this.counts = new long[capacity];
+        }
+
+        //returns slot with given key or empty slot where key should be placed
+        private int indexOf(int hash, int seriesId, long bucket) {
+            int mask = series.length - 1;
+            int index = hash & mask;
+            while (series[index] != EMPTY
+                    && (series[index] != seriesId || buckets[index] != bucket)) {
+                index = (index + 1) & mask;
+            }
+            return index;
+        }
+
+        synchronized void aggregate(int hash, int seriesId, long bucket, double sum, long count) {
+            int index = indexOf(hash, seriesId, bucket);
+            if (series[index] == EMPTY) {
+                insert(index, seriesId, bucket, sum, count);
+            } else {
+                sums[index] += sum;
+                counts[index] += count;
+            }
+        }
+
+        synchronized void put(int hash, int seriesId, long bucket, double sum, long count) {
+            int index = indexOf(hash, seriesId, bucket);
+            if (series[index] == EMPTY) {
+                insert(index, seriesId, bucket, sum, count);
+            } else {
+                sums[index] = sum;
+                counts[index] = count;
+            }
+        }
+
+        synchronized AggregationValue get(int hash, int seriesId, long bucket) {
+            int index = indexOf(hash, seriesId, bucket);
+            if (series[index] == EMPTY) {
+                return null;
+            }
+            return new AggregationValue(sums[index], counts[index]);
+        }
+
+        private void insert(int index, int seriesId, long bucket, double sum, long count) {
+            series[index] = seriesId;
+            buckets[index] = bucket;
+            sums[index] = sum;
+            counts[index] = count;
+            size++;
+            //load factor 0.5 keeps probe sequences short
+            if (size << 1 > series.length) {
+                rehash(series.length << 1);
+            }
+        }
+
+        private void rehash(int newCapacity) {
+            int[] oldSeries = series;
+            long[] oldBuckets = buckets;
+            double[] oldSums = sums;
+            long[] oldCounts = counts;
+
+            allocate(newCapacity);
+            for (int i = 0; i < oldSeries.length; i++) {
+                int seriesId = oldSeries[i];
+                if (seriesId != EMPTY) {
+                    int index = indexOf(hash(seriesId, oldBuckets[i]), seriesId, oldBuckets[i]);
+                    series[index] = seriesId;
+                    buckets[index] = oldBuckets[i];
+                    sums[index] = oldSums[i];
+                    counts[index] = oldCounts[i];
+                }
+            }
+        }
+
+        synchronized void removeOutdated(long nowTruncatedToPeriod, PinSeriesRegistry registry,
+                                         Map<AggregationKey, AggregationValue> removed) {
+            int removedCount = 0;
+            for (int i = 0; i < series.length; i++) {
+                int seriesId = series[i];
+                if (seriesId != EMPTY && buckets[i] < nowTruncatedToPeriod) {
+                    removed.put(new AggregationKey(registry.get(seriesId), buckets[i]),
+                            new AggregationValue(sums[i], counts[i]));
+                    series[i] = EMPTY;
+                    removedCount++;
+                }
+            }
+            if (removedCount > 0) {
+                size -= removedCount;
+                //linear probing chains are broken after removal, so rebuilding stripe.
+                //it also shrinks stripe back after the load spike
+                rehash(capacityFor(size));
+            }
+        }
+
+        synchronized void removeSeries(int[] seriesIds) {
+            int removedCount = 0;
+            for (int i = 0; i < series.length; i++) {
+                if (series[i] != EMPTY && Arrays.binarySearch(seriesIds, series[i]) >= 0) {
+                    series[i] = EMPTY;
+                    removedCount++;
+                }
+            }
+            if (removedCount > 0) {
+                size -= removedCount;
+                rehash(capacityFor(size));
+            }
+        }
+
+        private static int capacityFor(int size) {
+            int capacity = INITIAL_CAPACITY;
+            while (size << 1 > capacity) {
+                capacity <<= 1;
+            }
+            return capacity;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        synchronized void clear() {
+            allocate(INITIAL_CAPACITY);
+            size = 0;
+        }
+
+        synchronized void copyTo(Entries entries) {
+            entries.ensureCapacity(entries.size + size);
+            for (int i = 0; i < series.length; i++) {
+                if (series[i] != EMPTY) {
+                    int index = entries.size++;
+                    entries.series[index] = series[i];
+                    entries.buckets[index] = buckets[i];
+                    entries.sums[index] = sums[i];
+                    entries.counts[index] = counts[i];
+                }
+            }
+        }
+    }
+}
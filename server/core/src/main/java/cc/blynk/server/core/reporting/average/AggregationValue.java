@@ -9,15 +9,18 @@ import java.io.Serializable;
  */
 public class AggregationValue implements Serializable {
 
+    //kept from the java serialized snapshots, so they could be restored after upgrade
+    private static final long serialVersionUID = 2165743203609644899L;
+
     private double values = 0;
     private long count = 0;
 
     public AggregationValue() {
     }
 
-    AggregationValue(double value) {
-        this.values = value;
-        this.count = 1;
+    AggregationValue(double sum, long count) {
+        this.values = sum;
+        this.count = count;
     }
 
     public void update(double val) {
@@ -25,6 +28,14 @@ public class AggregationValue implements Serializable {
         count++;
     }
 
+    double getSum() {
+        return values;
+    }
+
+    long getCount() {
+        return count;
+    }
+
     public double calcAverage() {
         return values / count;
     }
@@ -1,5 +1,6 @@
 package cc.blynk.server.core.reporting.average;
 
+import cc.blynk.server.core.model.enums.PinType;
 import cc.blynk.server.core.reporting.raw.BaseReportingKey;
 import cc.blynk.utils.FileUtils;
 import org.apache.logging.log4j.LogManager;
@@ -8,11 +9,7 @@ import org.apache.logging.log4j.Logger;
 import java.io.Closeable;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-
-import static cc.blynk.server.internal.SerializationUtil.deserialize;
-import static cc.blynk.server.internal.SerializationUtil.serialize;
+import java.util.function.Predicate;
 
 /**
  * The Blynk Project.
@@ -30,69 +27,92 @@ public class AverageAggregatorProcessor implements Closeable {
     static final String HOURLY_TEMP_FILENAME = "hourly_temp.bin";
     static final String DAILY_TEMP_FILENAME = "daily_temp.bin";
     private final String dataFolder;
-    private final ConcurrentHashMap<AggregationKey, AggregationValue> minute;
-    private final ConcurrentHashMap<AggregationKey, AggregationValue> hourly;
-    private final ConcurrentHashMap<AggregationKey, AggregationValue> daily;
+    private final PinSeriesRegistry registry;
+    private final AggregationTable minute;
+    private final AggregationTable hourly;
+    private final AggregationTable daily;
 
-    @SuppressWarnings("unchecked")
     public AverageAggregatorProcessor(String dataFolder) {
         this.dataFolder = dataFolder;
+        this.registry = new PinSeriesRegistry();
+        this.minute = restore(MINUTE_TEMP_FILENAME);
+        this.hourly = restore(HOURLY_TEMP_FILENAME);
+        this.daily = restore(DAILY_TEMP_FILENAME);
+    }
 
-        Path path;
-
-        path = Paths.get(dataFolder, MINUTE_TEMP_FILENAME);
-        this.minute = (ConcurrentHashMap<AggregationKey, AggregationValue>) deserialize(path);
+    private AggregationTable restore(String fileName) {
+        AggregationTable table = new AggregationTable(registry);
+        Path path = Paths.get(dataFolder, fileName);
+        AggregationSnapshot.read(path, table, registry);
         FileUtils.deleteQuietly(path);
+        return table;
+    }
 
-        path = Paths.get(dataFolder, HOURLY_TEMP_FILENAME);
-        this.hourly = (ConcurrentHashMap<AggregationKey, AggregationValue>) deserialize(path);
-        FileUtils.deleteQuietly(path);
+    public void collect(BaseReportingKey baseReportingKey, long ts, double val) {
+        int seriesId = registry.intern(baseReportingKey);
+        minute.aggregate(seriesId, ts / MINUTE, val);
+        hourly.aggregate(seriesId, ts / HOUR, val);
+        daily.aggregate(seriesId, ts / DAY, val);
+    }
 
-        path = Paths.get(dataFolder, DAILY_TEMP_FILENAME);
-        this.daily = (ConcurrentHashMap<AggregationKey, AggregationValue>) deserialize(path);
-        FileUtils.deleteQuietly(path);
+    /**
+     * Same as collect, but known series is found without key allocation.
+     *
+     * @return - interned key of the series.
+     */
+    public BaseReportingKey collect(String email, String appName, int dashId, int deviceId,
+                                    PinType pinType, short pin, long ts, double val) {
+        int seriesId = registry.intern(email, appName, dashId, deviceId, pinType, pin);
+        minute.aggregate(seriesId, ts / MINUTE, val);
+        hourly.aggregate(seriesId, ts / HOUR, val);
+        daily.aggregate(seriesId, ts / DAY, val);
+        return registry.get(seriesId);
     }
 
-    private static void aggregate(Map<AggregationKey, AggregationValue> map, AggregationKey key, double value) {
-        AggregationValue aggregationValue = map.get(key);
-        if (aggregationValue == null) {
-            aggregationValue = map.putIfAbsent(key, new AggregationValue(value));
-            if (aggregationValue == null) {
-                return;
-            }
+    /**
+     * Drops not yet stored values of the removed series and frees the series id.
+     */
+    public void release(String email, String appName, int dashId, int deviceId, PinType pinType, short pin) {
+        int seriesId = registry.remove(email, appName, dashId, deviceId, pinType, pin);
+        if (seriesId != -1) {
+            release(new int[] {seriesId});
         }
+    }
 
-        aggregationValue.update(value);
+    public void release(Predicate<BaseReportingKey> filter) {
+        release(registry.removeIf(filter));
     }
 
-    public void collect(BaseReportingKey baseReportingKey, long ts, double val) {
-        aggregate(minute, new AggregationKey(baseReportingKey, ts / MINUTE), val);
-        aggregate(hourly, new AggregationKey(baseReportingKey, ts / HOUR), val);
-        aggregate(daily, new AggregationKey(baseReportingKey, ts / DAY), val);
+    private void release(int[] seriesIds) {
+        minute.removeSeries(seriesIds);
+        hourly.removeSeries(seriesIds);
+        daily.removeSeries(seriesIds);
+        registry.free(seriesIds);
     }
 
-    public ConcurrentHashMap<AggregationKey, AggregationValue> getMinute() {
+    public AggregationTable getMinute() {
         return minute;
     }
 
-    public ConcurrentHashMap<AggregationKey, AggregationValue> getHourly() {
+    public AggregationTable getHourly() {
         return hourly;
     }
 
-    public ConcurrentHashMap<AggregationKey, AggregationValue> getDaily() {
+    public AggregationTable getDaily() {
         return daily;
     }
 
     @Override
     public void close() {
-        if (minute.size() > 100_000) {
+        int minuteSize = minute.size();
+        if (minuteSize > 100_000) {
             log.info("Too many minute records ({}). "
-                    + "This may cause performance issues on server start. Skipping.", minute.size());
+                    + "This may cause performance issues on server start. Skipping.", minuteSize);
         } else {
-            serialize(Paths.get(dataFolder, MINUTE_TEMP_FILENAME), minute);
+            AggregationSnapshot.write(Paths.get(dataFolder, MINUTE_TEMP_FILENAME), minute);
         }
-        serialize(Paths.get(dataFolder, HOURLY_TEMP_FILENAME), hourly);
-        serialize(Paths.get(dataFolder, DAILY_TEMP_FILENAME), daily);
+        AggregationSnapshot.write(Paths.get(dataFolder, HOURLY_TEMP_FILENAME), hourly);
+        AggregationSnapshot.write(Paths.get(dataFolder, DAILY_TEMP_FILENAME), daily);
     }
 
 }
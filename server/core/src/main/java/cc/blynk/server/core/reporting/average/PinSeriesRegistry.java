@@ -0,0 +1,247 @@
+package cc.blynk.server.core.reporting.average;
+
+import cc.blynk.server.core.model.enums.PinType;
+import cc.blynk.server.core.reporting.raw.BaseReportingKey;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.function.Predicate;
+
+/**
+ * Interns reporting keys (user + dash + device + pin) into dense numeric series ids,
+ * so aggregation tables could store primitives only.
+ * Index is split into stripes with own lock, every stripe is an open addressing hash table
+ * of series ids. Slots are compared with key fields, so lookup of the known series doesn't
+ * allocate the key.
+ *
+ * Ids of the removed series are reused. Released ids are reused in release order,
+ * so id that was just released is taken last.
+ *
+ * The Blynk Project.
+ * Created by Dmitriy Dumanskiy.
+ * Created on 18.10.26.
+ */
+final class PinSeriesRegistry {
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int STRIPES = 16;
+    private static final int STRIPE_SHIFT = Integer.SIZE - Integer.numberOfTrailingZeros(STRIPES);
+
+    private final Stripe[] stripes;
+    private final ArrayDeque<Integer> freeIds = new ArrayDeque<>();
+    private volatile BaseReportingKey[] keys = new BaseReportingKey[INITIAL_CAPACITY];
+    private int size;
+
+    PinSeriesRegistry() {
+        this.stripes = new Stripe[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    private static int spread(int hash) {
+        return (hash ^ (hash >>> 16)) * 0x9E3779B9;
+    }
+
+    private Stripe stripeFor(int hash) {
+        return stripes[hash >>> STRIPE_SHIFT];
+    }
+
+    int intern(BaseReportingKey key) {
+        int hash = spread(key.hashCode());
+        return stripeFor(hash).intern(hash, key,
+                key.email, key.appName, key.dashId, key.deviceId, key.pinType, key.pin);
+    }
+
+    int intern(String email, String appName, int dashId, int deviceId, PinType pinType, short pin) {
+        int hash = spread(BaseReportingKey.hashCode(email, appName, dashId, deviceId, pinType, pin));
+        return stripeFor(hash).intern(hash, null, email, appName, dashId, deviceId, pinType, pin);
+    }
+
+    /**
+     * @return - series id or -1 in case key was never interned.
+     */
+    int lookup(BaseReportingKey key) {
+        int hash = spread(key.hashCode());
+        return stripeFor(hash).lookup(hash,
+                key.email, key.appName, key.dashId, key.deviceId, key.pinType, key.pin);
+    }
+
+    BaseReportingKey get(int id) {
+        return keys[id];
+    }
+
+    /**
+     * Removes series from the index. Id is not reused until it is freed,
+     * so caller has a chance to drop all values of the series first.
+     *
+     * @return - removed series id or -1 in case key was never interned.
+     */
+    int remove(String email, String appName, int dashId, int deviceId, PinType pinType, short pin) {
+        int hash = spread(BaseReportingKey.hashCode(email, appName, dashId, deviceId, pinType, pin));
+        return stripeFor(hash).remove(hash, email, appName, dashId, deviceId, pinType, pin);
+    }
+
+    /**
+     * @return - sorted ids of removed series.
+     */
+    int[] removeIf(Predicate<BaseReportingKey> filter) {
+        int[][] removedByStripe = new int[STRIPES][];
+        int count = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            removedByStripe[i] = stripes[i].removeIf(filter);
+            count += removedByStripe[i].length;
+        }
+        int[] removed = new int[count];
+        int offset = 0;
+        for (int[] stripeRemoved : removedByStripe) {
+            System.arraycopy(stripeRemoved, 0, removed, offset, stripeRemoved.length);
+            offset += stripeRemoved.length;
+        }
+        Arrays.sort(removed);
+        return removed;
+    }
+
+    synchronized void free(int[] ids) {
+        for (int id : ids) {
+            freeIds.add(id);
+        }
+    }
+
+    private synchronized int allocate(BaseReportingKey key) {
+        BaseReportingKey[] keys = this.keys;
+        Integer freeId = freeIds.poll();
+        int newId;
+        if (freeId == null) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size << 1);
+            }
+            newId = size++;
+        } else {
+            newId = freeId;
+        }
+        keys[newId] = key;
+        //volatile write publishes key before id becomes visible to others
+        this.keys = keys;
+        return newId;
+    }
+
+    private final class Stripe {
+
+        private static final int EMPTY = -1;
+        private static final int REMOVED = -2;
+        private static final int INITIAL_STRIPE_CAPACITY = 64;
+
+        private int[] slots;
+        private int size;
+        private int removed;
+
+        Stripe() {
+            allocateSlots(INITIAL_STRIPE_CAPACITY);
+        }
+
+        private void allocateSlots(int capacity) {
+            this.slots = new int[capacity];
+            Arrays.fill(slots, EMPTY);
+        }
+
+        //returns slot with given key or -1
+        private int indexOf(int hash, String email, String appName,
+                            int dashId, int deviceId, PinType pinType, short pin) {
+            int mask = slots.length - 1;
+            int index = hash & mask;
+            int id;
+            while ((id = slots[index]) != EMPTY) {
+                if (id != REMOVED && keys[id].isSame(email, appName, dashId, deviceId, pinType, pin)) {
+                    return index;
+                }
+                index = (index + 1) & mask;
+            }
+            return -1;
+        }
+
+        synchronized int lookup(int hash, String email, String appName,
+                                int dashId, int deviceId, PinType pinType, short pin) {
+            int index = indexOf(hash, email, appName, dashId, deviceId, pinType, pin);
+            return index == -1 ? -1 : slots[index];
+        }
+
+        synchronized int intern(int hash, BaseReportingKey key, String email, String appName,
+                                int dashId, int deviceId, PinType pinType, short pin) {
+            int index = indexOf(hash, email, appName, dashId, deviceId, pinType, pin);
+            if (index != -1) {
+                return slots[index];
+            }
+            //key is created only once for the new series
+            if (key == null) {
+                key = new BaseReportingKey(email, appName, dashId, deviceId, pinType, pin);
+            }
+            int id = allocate(key);
+            insert(hash, id);
+            size++;
+            //load factor 0.5 keeps probe sequences short
+            if ((size + removed) << 1 > slots.length) {
+                rehash(capacityFor(size));
+            }
+            return id;
+        }
+
+        private void insert(int hash, int id) {
+            int mask = slots.length - 1;
+            int index = hash & mask;
+            while (slots[index] != EMPTY) {
+                index = (index + 1) & mask;
+            }
+            slots[index] = id;
+        }
+
+        synchronized int remove(int hash, String email, String appName,
+                                int dashId, int deviceId, PinType pinType, short pin) {
+            int index = indexOf(hash, email, appName, dashId, deviceId, pinType, pin);
+            if (index == -1) {
+                return -1;
+            }
+            int id = slots[index];
+            //slot stays in the probe chain till the next rehash
+            slots[index] = REMOVED;
+            size--;
+            removed++;
+            return id;
+        }
+
+        synchronized int[] removeIf(Predicate<BaseReportingKey> filter) {
+            int[] result = new int[size];
+            int count = 0;
+            for (int i = 0; i < slots.length; i++) {
+                int id = slots[i];
+                if (id >= 0 && filter.test(keys[id])) {
+                    result[count++] = id;
+                    slots[i] = REMOVED;
+                }
+            }
+            size -= count;
+            removed += count;
+            return Arrays.copyOf(result, count);
+        }
+
+        private void rehash(int newCapacity) {
+            int[] oldSlots = slots;
+            allocateSlots(newCapacity);
+            removed = 0;
+            for (int id : oldSlots) {
+                if (id >= 0) {
+                    insert(spread(keys[id].hashCode()), id);
+                }
+            }
+        }
+
+        private int capacityFor(int size) {
+            int capacity = INITIAL_STRIPE_CAPACITY;
+            while (size << 1 >= capacity) {
+                capacity <<= 1;
+            }
+            return capacity;
+        }
+    }
+
+}
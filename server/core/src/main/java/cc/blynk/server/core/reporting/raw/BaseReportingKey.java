@@ -35,6 +35,22 @@ public final class BaseReportingKey implements Serializable {
         this.pin = pin;
     }
 
+    public boolean isSameUser(String email, String appName) {
+        return (this.email != null ? this.email.equals(email) : email == null)
+                && (this.appName != null ? this.appName.equals(appName) : appName == null);
+    }
+
+    /**
+     * Same as equals, but doesn't require key instance, so lookups don't allocate.
+     */
+    public boolean isSame(String email, String appName, int dashId, int deviceId, PinType pinType, short pin) {
+        return this.dashId == dashId
+                && this.deviceId == deviceId
+                && this.pin == pin
+                && this.pinType == pinType
+                && isSameUser(email, appName);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -66,6 +82,10 @@ public final class BaseReportingKey implements Serializable {
 
     @Override
     public int hashCode() {
+        return hashCode(email, appName, dashId, deviceId, pinType, pin);
+    }
+
+    public static int hashCode(String email, String appName, int dashId, int deviceId, PinType pinType, short pin) {
         int result = email != null ? email.hashCode() : 0;
         result = 31 * result + (appName != null ? appName.hashCode() : 0);
         result = 31 * result + dashId;
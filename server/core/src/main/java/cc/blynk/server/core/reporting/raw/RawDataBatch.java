@@ -0,0 +1,38 @@
+package cc.blynk.server.core.reporting.raw;
+
+/**
+ * Fixed size chunk of raw records taken out of the RawDataProcessor.
+ * String value is null for the numeric records.
+ *
+ * The Blynk Project.
+ * Created by Dmitriy Dumanskiy.
+ * Created on 18.10.26.
+ */
+public final class RawDataBatch {
+
+    public final BaseReportingKey[] keys;
+    public final long[] timestamps;
+    public final double[] doubleValues;
+    public final String[] stringValues;
+    public int size;
+
+    public RawDataBatch(int capacity) {
+        this.keys = new BaseReportingKey[capacity];
+        this.timestamps = new long[capacity];
+        this.doubleValues = new double[capacity];
+        this.stringValues = new String[capacity];
+    }
+
+    void add(BaseReportingKey key, long ts, double doubleValue, String stringValue) {
+        keys[size] = key;
+        timestamps[size] = ts;
+        doubleValues[size] = doubleValue;
+        stringValues[size] = stringValue;
+        size++;
+    }
+
+    public boolean isFull() {
+        return size == keys.length;
+    }
+
+}
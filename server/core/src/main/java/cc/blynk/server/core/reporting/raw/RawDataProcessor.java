@@ -1,16 +1,17 @@
 package cc.blynk.server.core.reporting.raw;
 
-import cc.blynk.server.core.reporting.average.AggregationKey;
 import cc.blynk.utils.NumberUtil;
 
-import java.util.Collections;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
- * Simply stores every record in memory that should be stored in reporting DB lately.
- * Could cause OOM at high request rate. However we don't use it very high loads.
- * So this is fine for now.
+ * Stores every record that should be stored in reporting DB lately.
+ * Records are kept in preallocated ring buffer of primitive arrays, so memory is bounded
+ * and there are no allocations per record. Many event loops write to the buffer
+ * and only one drainer takes records out of it.
+ * When buffer is full (DB is slow or down) new records are dropped and counted.
  *
  * The Blynk Project.
  * Created by Dmitriy Dumanskiy.
@@ -18,24 +19,101 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 public class RawDataProcessor {
 
-    public final Map<AggregationKey, Object> rawStorage;
+    public static final int DEFAULT_CAPACITY = 1 << 18;
+
+    private final int capacity;
+    private final int mask;
+
+    private final BaseReportingKey[] keys;
+    private final long[] timestamps;
+    private final double[] doubleValues;
+    private final String[] stringValues;
+    //sequence + 1 of the record that was written to the slot, 0 - slot was never written
+    private final AtomicLongArray published;
+
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    private final LongAdder dropped = new LongAdder();
 
     public RawDataProcessor(boolean enable) {
-        if (enable) {
-            rawStorage = new ConcurrentHashMap<>();
-        } else {
-            rawStorage = Collections.emptyMap();
+        this(enable ? DEFAULT_CAPACITY : 0);
+    }
+
+    public RawDataProcessor(int capacity) {
+        this.capacity = capacity <= 0 ? 0 : powerOfTwo(capacity);
+        this.mask = this.capacity - 1;
+        this.keys = new BaseReportingKey[this.capacity];
+        this.timestamps = new long[this.capacity];
+        this.doubleValues = new double[this.capacity];
+        this.stringValues = new String[this.capacity];
+        this.published = new AtomicLongArray(this.capacity);
+    }
+
+    private static int powerOfTwo(int capacity) {
+        int result = 1;
+        while (result < capacity) {
+            result <<= 1;
         }
+        return result;
     }
 
     //todo 2 millis is minimum allowed interval for data pushing.
     public void collect(BaseReportingKey key, long ts, String stringValue, double doubleValue) {
-        final AggregationKey aggregationKey = new AggregationKey(key, ts);
-        if (doubleValue == NumberUtil.NO_RESULT) {
-            rawStorage.put(aggregationKey, stringValue);
-        } else {
-            rawStorage.put(aggregationKey, doubleValue);
+        long sequence;
+        do {
+            sequence = tail.get();
+            if (sequence - head >= capacity) {
+                dropped.increment();
+                return;
+            }
+        } while (!tail.compareAndSet(sequence, sequence + 1));
+
+        int index = (int) sequence & mask;
+        keys[index] = key;
+        timestamps[index] = ts;
+        doubleValues[index] = doubleValue;
+        stringValues[index] = doubleValue == NumberUtil.NO_RESULT ? stringValue : null;
+        published.lazySet(index, sequence + 1);
+    }
+
+    /**
+     * Moves published records to the batch till batch is full.
+     *
+     * @return number of moved records.
+     */
+    public synchronized int drainTo(RawDataBatch batch) {
+        long current = head;
+        int drained = 0;
+        while (!batch.isFull()) {
+            int index = (int) current & mask;
+            if (published.get(index) != current + 1) {
+                break;
+            }
+            batch.add(keys[index], timestamps[index], doubleValues[index], stringValues[index]);
+            keys[index] = null;
+            stringValues[index] = null;
+            current++;
+            drained++;
         }
+        //releases drained slots for the producers
+        head = current;
+        return drained;
+    }
+
+    /**
+     * @return approximate number of records within the buffer.
+     */
+    public int size() {
+        return (int) (tail.get() - head);
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public long getDroppedRecords() {
+        return dropped.sum();
     }
 
 }
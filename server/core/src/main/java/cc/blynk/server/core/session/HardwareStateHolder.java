@@ -25,6 +25,11 @@ public final class HardwareStateHolder extends StateHolderBase {
         return false;
     }
 
+    @Override
+    public int getDashId() {
+        return dash.id;
+    }
+
     @Override
     public boolean isSameDash(int inDashId) {
         return dash.id == inDashId;
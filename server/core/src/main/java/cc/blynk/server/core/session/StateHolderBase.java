@@ -14,6 +14,9 @@ import cc.blynk.server.core.model.auth.User;
  */
 public abstract class StateHolderBase {
 
+    //connection is not limited to the single dashboard
+    public static final int ANY_DASH = Integer.MIN_VALUE;
+
     public final User user;
     public final UserKey userKey;
 
@@ -24,6 +27,10 @@ public abstract class StateHolderBase {
 
     public abstract boolean contains(String sharedToken);
 
+    public int getDashId() {
+        return ANY_DASH;
+    }
+
     public abstract boolean isSameDash(int inDashId);
 
     public abstract boolean isSameDevice(int deviceId);
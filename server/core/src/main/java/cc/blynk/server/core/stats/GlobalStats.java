@@ -1,6 +1,8 @@
 package cc.blynk.server.core.stats;
 
 import cc.blynk.server.core.protocol.enums.Command;
+import cc.blynk.server.core.stats.metrics.LagGauge;
+import cc.blynk.server.core.stats.metrics.LatencyStats;
 
 import java.util.concurrent.atomic.LongAdder;
 
@@ -20,8 +22,17 @@ public class GlobalStats {
     //2 last load adders are used as separate counters
     public final LongAdder[] specificCounters;
 
+    //handlers latency, unlike counters are never reset
+    public final LatencyStats latencies;
+
+    //delay between the timer tick second start and the moment last timer of the tick was processed
+    public final LagGauge timerTickLag = new LagGauge();
+    //max age of the profile change that wasn't saved to disk yet, see ProfileSaverWorker
+    public final LagGauge profileSaveLag = new LagGauge();
+
     public GlobalStats() {
         this.totalMessages = new Meter();
+        this.latencies = new LatencyStats();
 
         //yeah, this is a bit ugly code, but as fast as possible =).
         this.specificCounters = new LongAdder[Command.LAST_COMMAND_INDEX];
@@ -0,0 +1,80 @@
+package cc.blynk.server.core.stats;
+
+import cc.blynk.server.core.dao.UserKey;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Online sessions and channels counters. Counters are updated by the session
+ * every time its channels are changed, so reading them doesn't require the sessions walk.
+ *
+ * The Blynk Project.
+ * Created by Dmitriy Dumanskiy.
+ * Created on 18.10.26.
+ */
+public class SessionStats {
+
+    //sessions with both app and hardware online
+    private final AtomicInteger connected = new AtomicInteger();
+    private final AtomicInteger appSessions = new AtomicInteger();
+    private final AtomicInteger hardSessions = new AtomicInteger();
+    private final AtomicInteger appChannels = new AtomicInteger();
+    private final AtomicInteger hardChannels = new AtomicInteger();
+
+    //users that got session since the last poll, used for the users activity stats
+    private final Queue<UserKey> newSessions = new ConcurrentLinkedQueue<>();
+
+    public void sessionCreated(UserKey userKey) {
+        newSessions.offer(userKey);
+    }
+
+    public UserKey pollNewSession() {
+        return newSessions.poll();
+    }
+
+    public void channelsChanged(int prevApps, int prevHards, int apps, int hards) {
+        boolean wasApp = prevApps > 0;
+        boolean wasHard = prevHards > 0;
+        boolean isApp = apps > 0;
+        boolean isHard = hards > 0;
+
+        if (wasApp != isApp) {
+            appSessions.addAndGet(isApp ? 1 : -1);
+        }
+        if (wasHard != isHard) {
+            hardSessions.addAndGet(isHard ? 1 : -1);
+        }
+        if ((wasApp && wasHard) != (isApp && isHard)) {
+            connected.addAndGet(isApp && isHard ? 1 : -1);
+        }
+        if (prevApps != apps) {
+            appChannels.addAndGet(apps - prevApps);
+        }
+        if (prevHards != hards) {
+            hardChannels.addAndGet(hards - prevHards);
+        }
+    }
+
+    public int getConnected() {
+        return connected.get();
+    }
+
+    public int getAppSessions() {
+        return appSessions.get();
+    }
+
+    public int getHardSessions() {
+        return hardSessions.get();
+    }
+
+    public int getAppChannels() {
+        return appChannels.get();
+    }
+
+    public int getHardChannels() {
+        return hardChannels.get();
+    }
+
+}
@@ -0,0 +1,147 @@
+package cc.blynk.server.core.stats;
+
+import cc.blynk.server.core.dao.UserKey;
+import cc.blynk.server.core.model.DashBoard;
+import cc.blynk.server.core.model.auth.User;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Number of users with session that were active during last day, week and month.
+ * Every tracked user is counted within the bucket of the hour of its last activity,
+ * and moved to the newer bucket when profile saver finds the user modified.
+ * So active users are counted with 1 hour precision.
+ *
+ * Updates are done only by the background workers, counters are recalculated
+ * from buckets by the stats worker, so reading is just a volatile read.
+ *
+ * The Blynk Project.
+ * Created by Dmitriy Dumanskiy.
+ * Created on 18.10.26.
+ */
+public class UserActivityStats {
+
+    private static final long HOUR = 60 * 60 * 1000;
+    private static final int DAY_HOURS = 24;
+    private static final int WEEK_HOURS = 7 * DAY_HOURS;
+    private static final int MONTH_HOURS = 30 * DAY_HOURS;
+    private static final int BUCKETS = MONTH_HOURS + DAY_HOURS;
+
+    //hour of the last activity of the tracked users
+    private final Map<UserKey, Long> trackedUsers = new HashMap<>();
+    private final int[] counts = new int[BUCKETS];
+    //hour that bucket counts, bucket is reused for the newer hour when old one is out of the month
+    private final long[] hours = new long[BUCKETS];
+
+    private volatile int activeDay;
+    private volatile int activeWeek;
+    private volatile int activeMonth;
+
+    private static long lastActivityHour(User user) {
+        long lastActivity = user.lastModifiedTs;
+        for (DashBoard dash : user.profile.dashBoards) {
+            lastActivity = Math.max(lastActivity, Math.max(dash.updatedAt, dash.valuesUpdatedAt));
+        }
+        return lastActivity / HOUR;
+    }
+
+    /**
+     * Starts tracking of the users that got session since the last call.
+     */
+    public void trackNewSessions(SessionStats sessionStats, Map<UserKey, User> users) {
+        UserKey userKey;
+        while ((userKey = sessionStats.pollNewSession()) != null) {
+            User user = users.get(userKey);
+            if (user != null) {
+                track(userKey, user);
+            }
+        }
+    }
+
+    private synchronized void track(UserKey userKey, User user) {
+        if (!trackedUsers.containsKey(userKey)) {
+            long hour = lastActivityHour(user);
+            trackedUsers.put(userKey, hour);
+            add(hour, 1);
+        }
+    }
+
+    /**
+     * Moves the user to the bucket of its last activity. Not tracked users are ignored.
+     */
+    public synchronized void update(User user) {
+        UserKey userKey = new UserKey(user);
+        Long prevHour = trackedUsers.get(userKey);
+        if (prevHour == null) {
+            return;
+        }
+        long hour = lastActivityHour(user);
+        if (hour != prevHour) {
+            add(prevHour, -1);
+            add(hour, 1);
+            trackedUsers.put(userKey, hour);
+        }
+    }
+
+    public synchronized void remove(UserKey userKey) {
+        Long prevHour = trackedUsers.remove(userKey);
+        if (prevHour != null) {
+            add(prevHour, -1);
+        }
+    }
+
+    private void add(long hour, int delta) {
+        int index = (int) (hour % BUCKETS);
+        if (hours[index] != hour) {
+            //bucket already belongs to the newer hour, so this one is out of the month
+            if (delta < 0 || hour < hours[index]) {
+                return;
+            }
+            hours[index] = hour;
+            counts[index] = 0;
+        }
+        counts[index] += delta;
+    }
+
+    /**
+     * Recalculates active users counters for the given time.
+     */
+    public synchronized void refresh(long now) {
+        long nowHour = now / HOUR;
+        int day = 0;
+        int week = 0;
+        int month = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            long age = nowHour - hours[i];
+            if (age < 0 || counts[i] == 0) {
+                continue;
+            }
+            if (age < DAY_HOURS) {
+                day += counts[i];
+            }
+            if (age < WEEK_HOURS) {
+                week += counts[i];
+            }
+            if (age < MONTH_HOURS) {
+                month += counts[i];
+            }
+        }
+        this.activeDay = day;
+        this.activeWeek = week;
+        this.activeMonth = month;
+    }
+
+    public int getActiveDay() {
+        return activeDay;
+    }
+
+    public int getActiveWeek() {
+        return activeWeek;
+    }
+
+    public int getActiveMonth() {
+        return activeMonth;
+    }
+
+}
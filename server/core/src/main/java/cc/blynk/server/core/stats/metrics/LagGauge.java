@@ -0,0 +1,31 @@
+package cc.blynk.server.core.stats.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lag of the periodic background job in millis : lag of the last run
+ * and max lag since the last reset.
+ *
+ * The Blynk Project.
+ * Created by Dmitriy Dumanskiy.
+ * Created on 18.10.26.
+ */
+public final class LagGauge {
+
+    private volatile long last;
+    private final AtomicLong max = new AtomicLong();
+
+    public void update(long lag) {
+        this.last = lag;
+        max.accumulateAndGet(lag, Math::max);
+    }
+
+    public long getLast() {
+        return last;
+    }
+
+    public long getMax(boolean reset) {
+        return reset ? max.getAndSet(0) : max.get();
+    }
+
+}
@@ -0,0 +1,39 @@
+package cc.blynk.server.core.stats.metrics;
+
+import cc.blynk.server.core.protocol.enums.Command;
+
+/**
+ * Latency histograms of the message handlers and http handlers, indexed by command
+ * same way as {@link cc.blynk.server.core.stats.GlobalStats} counters.
+ *
+ * The Blynk Project.
+ * Created by Dmitriy Dumanskiy.
+ * Created on 18.10.26.
+ */
+public class LatencyStats {
+
+    public final LatencyHistogram[] commands;
+    public final LatencyHistogram[] http;
+
+    public LatencyStats() {
+        this.commands = new LatencyHistogram[Command.LAST_COMMAND_INDEX];
+        this.http = new LatencyHistogram[Command.LAST_COMMAND_INDEX];
+        for (int i = 0; i < Command.LAST_COMMAND_INDEX; i++) {
+            commands[i] = new LatencyHistogram();
+            http[i] = new LatencyHistogram();
+        }
+    }
+
+    public void recordCommand(short cmd, long nanos) {
+        if (cmd >= 0 && cmd < commands.length) {
+            commands[cmd].recordNanos(nanos);
+        }
+    }
+
+    public void recordHttp(short cmd, long nanos) {
+        if (cmd >= 0 && cmd < http.length) {
+            http[cmd].recordNanos(nanos);
+        }
+    }
+
+}
@@ -0,0 +1,119 @@
+package cc.blynk.server.core.stats.metrics;
+
+/**
+ * Builds metrics in the Prometheus text exposition format (text/plain; version=0.0.4),
+ * that is accepted by Prometheus and OpenMetrics scrapers.
+ * Histograms are exposed in seconds with power of 2 buckets from 16us till ~33s.
+ * Histograms without records are skipped.
+ *
+ * The Blynk Project.
+ * Created by Dmitriy Dumanskiy.
+ * Created on 18.10.26.
+ */
+public final class OpenMetricsWriter {
+
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final int MIN_POWER = 4;
+    private static final int MAX_POWER = 25;
+
+    private final StringBuilder sb = new StringBuilder(16 * 1024);
+
+    public OpenMetricsWriter header(String name, String type, String help) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        return this;
+    }
+
+    public OpenMetricsWriter sample(String name, String labelName, String labelValue, long value) {
+        sb.append(name);
+        appendLabel(labelName, labelValue, null);
+        sb.append(' ').append(value).append('\n');
+        return this;
+    }
+
+    public OpenMetricsWriter sample(String name, String labelName, String labelValue, double value) {
+        sb.append(name);
+        appendLabel(labelName, labelValue, null);
+        sb.append(' ').append(value).append('\n');
+        return this;
+    }
+
+    public OpenMetricsWriter histogram(String name, String labelName, String labelValue,
+                                       LatencyHistogram histogram) {
+        long cumulative = 0;
+        int from = 0;
+        for (int power = MIN_POWER; power <= MAX_POWER; power++) {
+            int to = LatencyHistogram.lastBucketBelowPowerOf2(power);
+            for (int i = from; i <= to; i++) {
+                cumulative += histogram.getCountAt(i);
+            }
+            from = to + 1;
+            sb.append(name).append("_bucket");
+            appendLabel(labelName, labelValue, toSeconds(1L << power));
+            sb.append(' ').append(cumulative).append('\n');
+        }
+        for (int i = from; i < LatencyHistogram.BUCKETS; i++) {
+            cumulative += histogram.getCountAt(i);
+        }
+        sb.append(name).append("_bucket");
+        appendLabel(labelName, labelValue, "+Inf");
+        sb.append(' ').append(cumulative).append('\n');
+
+        sb.append(name).append("_sum");
+        appendLabel(labelName, labelValue, null);
+        sb.append(' ').append(toSeconds(histogram.getSumMicros())).append('\n');
+
+        sb.append(name).append("_count");
+        appendLabel(labelName, labelValue, null);
+        sb.append(' ').append(cumulative).append('\n');
+        return this;
+    }
+
+    private void appendLabel(String labelName, String labelValue, String le) {
+        if (labelName == null && le == null) {
+            return;
+        }
+        sb.append('{');
+        if (labelName != null) {
+            sb.append(labelName).append("=\"");
+            escape(labelValue);
+            sb.append('"');
+            if (le != null) {
+                sb.append(',');
+            }
+        }
+        if (le != null) {
+            sb.append("le=\"").append(le).append('"');
+        }
+        sb.append('}');
+    }
+
+    private void escape(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' :
+                    sb.append("\\\\");
+                    break;
+                case '"' :
+                    sb.append("\\\"");
+                    break;
+                case '\n' :
+                    sb.append("\\n");
+                    break;
+                default :
+                    sb.append(c);
+            }
+        }
+    }
+
+    private static String toSeconds(long micros) {
+        return Double.toString(micros / 1_000_000D);
+    }
+
+    public String build() {
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,46 @@
+package cc.blynk.server.core.stats.metrics;
+
+/**
+ * Time tasks of the thread pool spend in the queue and in the execution.
+ *
+ * The Blynk Project.
+ * Created by Dmitriy Dumanskiy.
+ * Created on 18.10.26.
+ */
+public class TaskLatency {
+
+    public final String pool;
+    public final LatencyHistogram wait = new LatencyHistogram();
+    public final LatencyHistogram run = new LatencyHistogram();
+
+    public TaskLatency(String pool) {
+        this.pool = pool;
+    }
+
+    public Runnable wrap(Runnable task) {
+        return new TimedTask(task, System.nanoTime());
+    }
+
+    private final class TimedTask implements Runnable {
+
+        private final Runnable task;
+        private final long submittedAt;
+
+        TimedTask(Runnable task, long submittedAt) {
+            this.task = task;
+            this.submittedAt = submittedAt;
+        }
+
+        @Override
+        public void run() {
+            long start = System.nanoTime();
+            wait.recordNanos(start - submittedAt);
+            try {
+                task.run();
+            } finally {
+                run.recordNanos(System.nanoTime() - start);
+            }
+        }
+    }
+
+}
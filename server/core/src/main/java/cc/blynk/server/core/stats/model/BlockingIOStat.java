@@ -26,6 +26,16 @@ class BlockingIOStat {
 
     private final long getServerExecutedTasks;
 
+    private final long messagingRejectedTasks;
+
+    private final long historyRejectedTasks;
+
+    private final long dbRejectedTasks;
+
+    private final long getServerRejectedTasks;
+
+    private final int spillActiveTasks;
+
     private final int reportsActive;
 
     private final long reportsExecuted;
@@ -45,6 +55,12 @@ class BlockingIOStat {
              blockingIOProcessor.dbGetServerExecutor.getQueue().size(),
              blockingIOProcessor.dbGetServerExecutor.getCompletedTaskCount(),
 
+             blockingIOProcessor.messagingExecutor.getRejectedCount(),
+             blockingIOProcessor.historyExecutor.getRejectedCount(),
+             blockingIOProcessor.dbExecutor.getRejectedCount(),
+             blockingIOProcessor.dbGetServerExecutor.getRejectedCount(),
+             blockingIOProcessor.getSpillQueueSize(),
+
              reportScheduler.getQueue().size(),
              reportScheduler.getCompletedTaskCount(),
              reportScheduler.map.size()
@@ -55,6 +71,8 @@ class BlockingIOStat {
                           int historyActiveTasks, long historyExecutedTasks,
                           int dbActiveTasks, long dbExecutedTasks,
                           int getServerActiveTasks, long getServerExecutedTasks,
+                          long messagingRejectedTasks, long historyRejectedTasks,
+                          long dbRejectedTasks, long getServerRejectedTasks, int spillActiveTasks,
                           int reportsActive, long reportsExecuted, int reportsFutureMapSize) {
         this.messagingActiveTasks = messagingActiveTasks;
         this.messagingExecutedTasks = messagingExecutedTasks;
@@ -64,6 +82,11 @@ class BlockingIOStat {
         this.dbExecutedTasks = dbExecutedTasks;
         this.getServerActiveTasks = getServerActiveTasks;
         this.getServerExecutedTasks = getServerExecutedTasks;
+        this.messagingRejectedTasks = messagingRejectedTasks;
+        this.historyRejectedTasks = historyRejectedTasks;
+        this.dbRejectedTasks = dbRejectedTasks;
+        this.getServerRejectedTasks = getServerRejectedTasks;
+        this.spillActiveTasks = spillActiveTasks;
         this.reportsActive = reportsActive;
         this.reportsExecuted = reportsExecuted;
         this.reportsFutureMapSize = reportsFutureMapSize;
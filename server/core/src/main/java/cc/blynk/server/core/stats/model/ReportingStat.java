@@ -0,0 +1,88 @@
+package cc.blynk.server.core.stats.model;
+
+import cc.blynk.server.core.dao.ReportingDiskDao;
+import cc.blynk.server.core.reporting.GraphDataCache;
+import cc.blynk.server.core.reporting.ReportingFileChannelPool;
+import cc.blynk.server.db.ReportingDBManager;
+import cc.blynk.server.db.ReportingDBWriter;
+
+/**
+ * The Blynk Project.
+ * Created by Dmitriy Dumanskiy.
+ * Created on 18.10.26.
+ */
+public class ReportingStat {
+
+    public final int openFiles;
+
+    public final long evictedFiles;
+
+    public final long lastFlushTime;
+
+    public final int lastFlushEntries;
+
+    public final int mappedFiles;
+
+    public final int graphCacheEntries;
+
+    public final long graphCacheBytes;
+
+    public final long graphCacheHits;
+
+    public final long graphCacheMisses;
+
+    public final long graphCacheEvictions;
+
+    public final long graphCacheInvalidations;
+
+    public final int rawBufferedRecords;
+
+    public final long rawDroppedRecords;
+
+    public final int dbPendingRecords;
+
+    public final long dbDroppedRecords;
+
+    public final long dbFailedRecords;
+
+    public final long dbLastChunkTime;
+
+    public final long dbMaxChunkTime;
+
+    public final long dbLag;
+
+    ReportingStat(ReportingDiskDao reportingDiskDao, ReportingDBManager reportingDBManager, boolean reset) {
+        ReportingFileChannelPool channelPool = reportingDiskDao.channelPool;
+        this.openFiles = channelPool.getOpenChannels();
+        this.evictedFiles = channelPool.getEvictions();
+        this.lastFlushTime = channelPool.getLastFlushTime();
+        this.lastFlushEntries = channelPool.getLastFlushEntries();
+        this.mappedFiles = reportingDiskDao.mappingCache.getMappedFiles();
+        GraphDataCache graphDataCache = reportingDiskDao.graphDataCache;
+        this.graphCacheEntries = graphDataCache.getSize();
+        this.graphCacheBytes = graphDataCache.getBytes();
+        this.graphCacheHits = graphDataCache.getHits();
+        this.graphCacheMisses = graphDataCache.getMisses();
+        this.graphCacheEvictions = graphDataCache.getEvictions();
+        this.graphCacheInvalidations = graphDataCache.getInvalidations();
+        this.rawBufferedRecords = reportingDiskDao.rawDataProcessor.size();
+        this.rawDroppedRecords = reportingDiskDao.rawDataProcessor.getDroppedRecords();
+
+        ReportingDBWriter writer = reportingDBManager.reportingDBWriter;
+        if (writer == null) {
+            this.dbPendingRecords = 0;
+            this.dbDroppedRecords = 0;
+            this.dbFailedRecords = 0;
+            this.dbLastChunkTime = 0;
+            this.dbMaxChunkTime = 0;
+            this.dbLag = 0;
+        } else {
+            this.dbPendingRecords = writer.getPendingRecords();
+            this.dbDroppedRecords = writer.getDroppedRecords();
+            this.dbFailedRecords = writer.getFailedRecords();
+            this.dbLastChunkTime = writer.getLastChunkTime();
+            this.dbMaxChunkTime = writer.getMaxChunkTime(reset);
+            this.dbLag = writer.getLastLag();
+        }
+    }
+}
@@ -1,19 +1,18 @@
 package cc.blynk.server.core.stats.model;
 
 import cc.blynk.server.core.BlockingIOProcessor;
+import cc.blynk.server.core.dao.ReportingDiskDao;
 import cc.blynk.server.core.dao.SessionDao;
 import cc.blynk.server.core.dao.UserDao;
-import cc.blynk.server.core.dao.UserKey;
-import cc.blynk.server.core.model.DashBoard;
-import cc.blynk.server.core.model.auth.Session;
-import cc.blynk.server.core.model.auth.User;
 import cc.blynk.server.core.model.serialization.JsonParser;
 import cc.blynk.server.core.model.widgets.ui.reporting.ReportScheduler;
 import cc.blynk.server.core.protocol.enums.Command;
 import cc.blynk.server.core.stats.GlobalStats;
+import cc.blynk.server.core.stats.SessionStats;
+import cc.blynk.server.core.stats.UserActivityStats;
+import cc.blynk.server.db.ReportingDBManager;
 import io.netty.buffer.ByteBufAllocator;
 
-import java.util.Map;
 import java.util.concurrent.atomic.LongAdder;
 
 /**
@@ -23,14 +22,12 @@ import java.util.concurrent.atomic.LongAdder;
  */
 public class Stat {
 
-    private final static long ONE_DAY = 24 * 60 * 60 * 1000;
-    private final static long ONE_WEEK = 7 * ONE_DAY;
-    private final static long ONE_MONTH = 30 * ONE_DAY;
-
     public final CommandStat commands = new CommandStat();
     public final HttpStat http = new HttpStat();
     public final BlockingIOStat ioStat;
     public final MemoryStat memoryStat;
+    public final ReportingStat reportingStat;
+    public final WorkersStat workersStat;
 
     public final int oneMinRate;
     public final int registrations;
@@ -45,7 +42,8 @@ public class Stat {
     public final transient long ts;
 
     public Stat(SessionDao sessionDao, UserDao userDao, BlockingIOProcessor blockingIOProcessor,
-                GlobalStats globalStats, ReportScheduler reportScheduler, boolean reset) {
+                GlobalStats globalStats, ReportScheduler reportScheduler, ReportingDiskDao reportingDiskDao,
+                ReportingDBManager reportingDBManager, boolean reset) {
         //yeap, some stats updates may be lost (because of sumThenReset()),
         //but we don't care, cause this is just for general monitoring
         for (Short command : Command.VALUES_NAME.keySet()) {
@@ -60,76 +58,26 @@ public class Stat {
         this.commands.mqttTotal = (int) globalStats.getTotalMqttCounter(reset);
 
         this.oneMinRate = (int) globalStats.totalMessages.getOneMinuteRate();
-        int connectedSessions = 0;
-
-        int hardActive = 0;
-        int totalOnlineHards = 0;
-
-        int appActive = 0;
-        int totalOnlineApps = 0;
-
-        int active = 0;
-        int activeWeek = 0;
-        int activeMonth = 0;
-
         this.ts = System.currentTimeMillis();
-        for (Map.Entry<UserKey, Session> entry: sessionDao.userSession.entrySet()) {
-            Session session = entry.getValue();
 
-            if (session.isHardwareConnected() && session.isAppConnected()) {
-                connectedSessions++;
-            }
-            if (session.isHardwareConnected()) {
-                hardActive++;
-                totalOnlineHards += session.hardwareChannels.size();
-            }
-            if (session.isAppConnected()) {
-                appActive++;
-                totalOnlineApps += session.appChannels.size();
-            }
-            UserKey userKey = entry.getKey();
-            User user = userDao.users.get(userKey);
+        //counters are maintained by sessions and background workers, so no sessions walk here
+        SessionStats sessionStats = sessionDao.sessionStats;
+        this.connected = sessionStats.getConnected();
+        this.onlineApps = sessionStats.getAppSessions();
+        this.totalOnlineApps = sessionStats.getAppChannels();
+        this.onlineHards = sessionStats.getHardSessions();
+        this.totalOnlineHards = sessionStats.getHardChannels();
 
-            if (user != null) {
-                if (this.ts - user.lastModifiedTs < ONE_DAY || dashUpdated(user, this.ts, ONE_DAY)) {
-                    active++;
-                    activeWeek++;
-                    activeMonth++;
-                    continue;
-                }
-                if (this.ts - user.lastModifiedTs < ONE_WEEK || dashUpdated(user, this.ts, ONE_WEEK)) {
-                    activeWeek++;
-                    activeMonth++;
-                    continue;
-                }
-                if (this.ts - user.lastModifiedTs < ONE_MONTH || dashUpdated(user, this.ts, ONE_MONTH)) {
-                    activeMonth++;
-                }
-            }
-        }
-
-        this.connected = connectedSessions;
-        this.onlineApps = appActive;
-        this.totalOnlineApps = totalOnlineApps;
-        this.onlineHards = hardActive;
-        this.totalOnlineHards = totalOnlineHards;
-
-        this.active = active;
-        this.activeWeek = activeWeek;
-        this.activeMonth = activeMonth;
-        this.registrations = userDao.users.size();
+        UserActivityStats activityStats = userDao.activityStats;
+        this.active = activityStats.getActiveDay();
+        this.activeWeek = activityStats.getActiveWeek();
+        this.activeMonth = activityStats.getActiveMonth();
+        this.registrations = userDao.size();
 
         this.ioStat = new BlockingIOStat(blockingIOProcessor, reportScheduler);
         this.memoryStat = new MemoryStat(ByteBufAllocator.DEFAULT);
-    }
-
-    private boolean dashUpdated(User user, long now, long period) {
-        for (DashBoard dash : user.profile.dashBoards) {
-            if (now - dash.updatedAt < period) {
-                return true;
-            }
-        }
-        return false;
+        this.reportingStat = new ReportingStat(reportingDiskDao, reportingDBManager, reset);
+        this.workersStat = new WorkersStat(globalStats, reset);
     }
 
     @Override
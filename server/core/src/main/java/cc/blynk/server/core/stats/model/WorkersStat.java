@@ -0,0 +1,28 @@
+package cc.blynk.server.core.stats.model;
+
+import cc.blynk.server.core.stats.GlobalStats;
+
+/**
+ * Lags of the periodic background workers in millis.
+ *
+ * The Blynk Project.
+ * Created by Dmitriy Dumanskiy.
+ * Created on 18.10.26.
+ */
+class WorkersStat {
+
+    private final long timerLastTickLag;
+
+    private final long timerMaxTickLag;
+
+    private final long profileLastSaveLag;
+
+    private final long profileMaxSaveLag;
+
+    WorkersStat(GlobalStats globalStats, boolean reset) {
+        this.timerLastTickLag = globalStats.timerTickLag.getLast();
+        this.timerMaxTickLag = globalStats.timerTickLag.getMax(reset);
+        this.profileLastSaveLag = globalStats.profileSaveLag.getLast();
+        this.profileMaxSaveLag = globalStats.profileSaveLag.getMax(reset);
+    }
+}
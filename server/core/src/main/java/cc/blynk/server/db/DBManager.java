@@ -22,7 +22,6 @@ import org.apache.logging.log4j.Logger;
 import java.io.Closeable;
 import java.sql.Connection;
 import java.sql.Statement;
-import java.util.ArrayList;
 import java.util.List;
 
 import static cc.blynk.utils.properties.DBProperties.DB_PROPERTIES_FILENAME;
@@ -76,7 +75,8 @@ public class DBManager implements Closeable {
         }
 
         this.ds = hikariDataSource;
-        this.userDBDao = new UserDBDao(hikariDataSource);
+        this.userDBDao = new UserDBDao(hikariDataSource,
+                dbProperties.getIntProperty("user.save.chunk.size", UserDBDao.DEFAULT_CHUNK_SIZE));
         this.redeemDBDao = new RedeemDBDao(hikariDataSource);
         this.purchaseDBDao = new PurchaseDBDao(hikariDataSource);
         this.flashedTokensDBDao = new FlashedTokensDBDao(hikariDataSource);
@@ -85,6 +85,12 @@ public class DBManager implements Closeable {
 
         checkDBVersion();
 
+        try {
+            userDBDao.migrateCompressedProfile();
+        } catch (Exception e) {
+            log.error("Error adding json_compressed column to users table. Reason : {}", e.getMessage());
+        }
+
         log.info("Connected to database successfully.");
     }
 
@@ -120,9 +126,13 @@ public class DBManager implements Closeable {
         }
     }
 
-    public void saveUsers(ArrayList<User> users) {
+    /**
+     * Saves users modified since given time. Users with only pin values changed
+     * get only login info updated, so their profile isn't rewritten.
+     */
+    public void saveUsers(List<User> users, long since) {
         if (isDBEnabled() && users.size() > 0) {
-            blockingIOProcessor.executeDB(() -> userDBDao.save(users));
+            blockingIOProcessor.executeDB(() -> userDBDao.save(users, since));
         }
     }
 
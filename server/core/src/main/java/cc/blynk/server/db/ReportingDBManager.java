@@ -4,6 +4,7 @@ import cc.blynk.server.core.BlockingIOProcessor;
 import cc.blynk.server.core.model.widgets.outputs.graph.GraphGranularityType;
 import cc.blynk.server.core.reporting.average.AggregationKey;
 import cc.blynk.server.core.reporting.average.AggregationValue;
+import cc.blynk.server.core.reporting.raw.RawDataProcessor;
 import cc.blynk.server.core.stats.model.Stat;
 import cc.blynk.server.db.dao.ReportingDBDao;
 import cc.blynk.utils.properties.BaseProperties;
@@ -35,6 +36,7 @@ public class ReportingDBManager implements Closeable {
     private final boolean cleanOldReporting;
 
     public ReportingDBDao reportingDBDao;
+    public ReportingDBWriter reportingDBWriter;
 
     public ReportingDBManager(BlockingIOProcessor blockingIOProcessor, boolean isEnabled) {
         this(DB_PROPERTIES_FILENAME, blockingIOProcessor, isEnabled);
@@ -69,8 +71,17 @@ public class ReportingDBManager implements Closeable {
 
         this.ds = hikariDataSource;
         this.reportingDBDao = new ReportingDBDao(hikariDataSource);
+        this.reportingDBWriter = new ReportingDBWriter(reportingDBDao, blockingIOProcessor,
+                dbProperties.getIntProperty("reporting.chunk.size", ReportingDBDao.DEFAULT_CHUNK_SIZE),
+                dbProperties.getIntProperty("reporting.buffer.max.records", 1_000_000));
         this.cleanOldReporting = dbProperties.cleanReporting();
 
+        try {
+            reportingDBDao.migrateRawDataKey();
+        } catch (Exception e) {
+            log.error("Error migrating reporting_raw_data key. Reason : {}", e.getMessage());
+        }
+
         log.info("Connected to reporting database successfully.");
     }
 
@@ -96,13 +107,13 @@ public class ReportingDBManager implements Closeable {
 
     public void insertReporting(Map<AggregationKey, AggregationValue> map, GraphGranularityType graphGranularityType) {
         if (isDBEnabled() && map.size() > 0) {
-            blockingIOProcessor.executeDB(() -> reportingDBDao.insert(map, graphGranularityType));
+            reportingDBWriter.addAverages(map, graphGranularityType);
         }
     }
 
-    public void insertReportingRaw(Map<AggregationKey, Object> rawData) {
-        if (isDBEnabled() && rawData.size() > 0) {
-            blockingIOProcessor.executeDB(() -> reportingDBDao.insertRawData(rawData));
+    public void insertReportingRaw(RawDataProcessor rawDataProcessor) {
+        if (isDBEnabled() && rawDataProcessor.size() > 0) {
+            reportingDBWriter.addRaw(rawDataProcessor);
         }
     }
 
@@ -132,6 +143,7 @@ public class ReportingDBManager implements Closeable {
     public void close() {
         if (isDBEnabled()) {
             System.out.println("Closing Reporting DB...");
+            reportingDBWriter.flush();
             ds.close();
         }
     }
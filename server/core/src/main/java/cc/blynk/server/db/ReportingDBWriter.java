@@ -0,0 +1,273 @@
+package cc.blynk.server.db;
+
+import cc.blynk.server.core.BlockingIOProcessor;
+import cc.blynk.server.core.model.widgets.outputs.graph.GraphGranularityType;
+import cc.blynk.server.core.reporting.average.AggregationKey;
+import cc.blynk.server.core.reporting.average.AggregationValue;
+import cc.blynk.server.core.reporting.raw.RawDataBatch;
+import cc.blynk.server.core.reporting.raw.RawDataProcessor;
+import cc.blynk.server.db.dao.ReportingDBDao;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Streams reporting records to the reporting DB in fixed size chunks.
+ * Producers (reporting worker) only cut the records into chunks and put them to the bounded buffer,
+ * while the single drainer within the DB pool writes chunks one by one.
+ * So the next minute is cut while previous one is still written.
+ *
+ * In case DB is slow and buffer is full, new records are dropped, so memory usage is always bounded.
+ *
+ * The Blynk Project.
+ * Created by Dmitriy Dumanskiy.
+ * Created on 18.10.26.
+ */
+public class ReportingDBWriter {
+
+    private static final Logger log = LogManager.getLogger(ReportingDBWriter.class);
+
+    private final ReportingDBDao reportingDBDao;
+    private final BlockingIOProcessor blockingIOProcessor;
+    private final int chunkSize;
+    private final int maxPendingRecords;
+
+    private final Queue<Chunk> chunks = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingRecords = new AtomicInteger();
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    private final LongAdder writtenRecords = new LongAdder();
+    private final LongAdder failedRecords = new LongAdder();
+    private final LongAdder droppedRecords = new LongAdder();
+    private volatile long lastChunkTime;
+    private volatile long maxChunkTime;
+    private volatile long lastLag;
+
+    public ReportingDBWriter(ReportingDBDao reportingDBDao, BlockingIOProcessor blockingIOProcessor,
+                             int chunkSize, int maxPendingRecords) {
+        this.reportingDBDao = reportingDBDao;
+        this.blockingIOProcessor = blockingIOProcessor;
+        this.chunkSize = chunkSize;
+        this.maxPendingRecords = Math.max(chunkSize, maxPendingRecords);
+    }
+
+    public void addAverages(Map<AggregationKey, AggregationValue> map, GraphGranularityType type) {
+        long now = System.currentTimeMillis();
+        AverageChunk chunk = null;
+        for (Map.Entry<AggregationKey, AggregationValue> entry : map.entrySet()) {
+            if (chunk == null) {
+                chunk = new AverageChunk(Math.min(chunkSize, map.size()), type, now);
+            }
+            chunk.add(entry.getKey(), entry.getValue().calcAverage());
+            if (chunk.isFull()) {
+                offer(chunk);
+                chunk = null;
+            }
+        }
+        if (chunk != null) {
+            offer(chunk);
+        }
+        drain();
+    }
+
+    /**
+     * Raw records are taken out of the ring buffer of the raw data processor.
+     * When the buffer of the writer is full, records stay in the ring buffer,
+     * so they are dropped by the processor when it is full as well.
+     */
+    public void addRaw(RawDataProcessor rawDataProcessor) {
+        long now = System.currentTimeMillis();
+        while (pendingRecords.get() + chunkSize <= maxPendingRecords) {
+            int available = rawDataProcessor.size();
+            if (available <= 0) {
+                break;
+            }
+            RawDataBatch batch = new RawDataBatch(Math.min(chunkSize, available));
+            if (rawDataProcessor.drainTo(batch) == 0) {
+                break;
+            }
+            offer(new RawChunk(batch, now));
+        }
+        drain();
+    }
+
+    private void offer(Chunk chunk) {
+        int pending = pendingRecords.addAndGet(chunk.size);
+        if (pending > maxPendingRecords) {
+            pendingRecords.addAndGet(-chunk.size);
+            droppedRecords.add(chunk.size);
+            log.warn("Reporting DB buffer is full. Dropping {} records.", chunk.size);
+            return;
+        }
+        chunks.offer(chunk);
+    }
+
+    private void drain() {
+        if (!chunks.isEmpty() && draining.compareAndSet(false, true)) {
+            try {
+                blockingIOProcessor.executeDB(this::writeAll);
+            } catch (Exception e) {
+                //pool is full or closed, chunks stay in the buffer till the next drain
+                draining.set(false);
+                log.warn("Error scheduling reporting DB write. {}", e.getMessage());
+            }
+        }
+    }
+
+    private void writeAll() {
+        try {
+            Chunk chunk;
+            while ((chunk = chunks.poll()) != null) {
+                write(chunk);
+            }
+        } finally {
+            draining.set(false);
+        }
+        //chunks could be added after the last poll and before the flag reset
+        drain();
+    }
+
+    private void write(Chunk chunk) {
+        long start = System.currentTimeMillis();
+        try {
+            chunk.write(reportingDBDao);
+            writtenRecords.add(chunk.size);
+        } catch (Exception e) {
+            failedRecords.add(chunk.size);
+            log.error("Error writing {} reporting chunk of {} records to DB.", chunk.name(), chunk.size, e);
+        } finally {
+            pendingRecords.addAndGet(-chunk.size);
+        }
+        long now = System.currentTimeMillis();
+        long chunkTime = now - start;
+        this.lastChunkTime = chunkTime;
+        this.maxChunkTime = Math.max(maxChunkTime, chunkTime);
+        this.lastLag = now - chunk.createdAt;
+        log.debug("Stored {} reporting chunk of {} records. Time {} ms. Lag {} ms.",
+                chunk.name(), chunk.size, chunkTime, lastLag);
+    }
+
+    /**
+     * Writes everything left in the buffer within the calling thread. Used on shutdown.
+     */
+    public void flush() {
+        Chunk chunk;
+        while ((chunk = chunks.poll()) != null) {
+            write(chunk);
+        }
+    }
+
+    public int getPendingRecords() {
+        return pendingRecords.get();
+    }
+
+    public long getWrittenRecords() {
+        return writtenRecords.sum();
+    }
+
+    public long getFailedRecords() {
+        return failedRecords.sum();
+    }
+
+    public long getDroppedRecords() {
+        return droppedRecords.sum();
+    }
+
+    /**
+     * @return time in millis of the last chunk write.
+     */
+    public long getLastChunkTime() {
+        return lastChunkTime;
+    }
+
+    public long getMaxChunkTime(boolean reset) {
+        long result = maxChunkTime;
+        if (reset) {
+            maxChunkTime = 0;
+        }
+        return result;
+    }
+
+    /**
+     * @return time in millis from the moment the last written chunk was cut till it was stored.
+     */
+    public long getLastLag() {
+        return lastLag;
+    }
+
+    private abstract static class Chunk {
+
+        final long createdAt;
+        int size;
+
+        Chunk(long createdAt) {
+            this.createdAt = createdAt;
+        }
+
+        abstract String name();
+
+        abstract void write(ReportingDBDao reportingDBDao) throws Exception;
+    }
+
+    private static final class AverageChunk extends Chunk {
+
+        private final GraphGranularityType type;
+        private final AggregationKey[] keys;
+        private final double[] values;
+
+        AverageChunk(int capacity, GraphGranularityType type, long createdAt) {
+            super(createdAt);
+            this.type = type;
+            this.keys = new AggregationKey[capacity];
+            this.values = new double[capacity];
+        }
+
+        void add(AggregationKey key, double value) {
+            keys[size] = key;
+            values[size] = value;
+            size++;
+        }
+
+        boolean isFull() {
+            return size == keys.length;
+        }
+
+        @Override
+        String name() {
+            return type.name();
+        }
+
+        @Override
+        void write(ReportingDBDao reportingDBDao) throws Exception {
+            reportingDBDao.insertAverages(keys, values, size, type);
+        }
+    }
+
+    private static final class RawChunk extends Chunk {
+
+        private final RawDataBatch batch;
+
+        RawChunk(RawDataBatch batch, long createdAt) {
+            super(createdAt);
+            this.batch = batch;
+            this.size = batch.size;
+        }
+
+        @Override
+        String name() {
+            return "raw";
+        }
+
+        @Override
+        void write(ReportingDBDao reportingDBDao) throws Exception {
+            reportingDBDao.insertRaw(batch);
+        }
+    }
+
+}
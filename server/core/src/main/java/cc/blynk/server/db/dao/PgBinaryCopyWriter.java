@@ -0,0 +1,103 @@
+package cc.blynk.server.db.dao;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodes rows into the postgres binary COPY format.
+ * Column types should exactly match the table columns, as there is no conversion on the server side.
+ *
+ * The Blynk Project.
+ * Created by Dmitriy Dumanskiy.
+ * Created on 18.10.26.
+ */
+final class PgBinaryCopyWriter {
+
+    private static final byte[] SIGNATURE = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0};
+
+    //postgres timestamps are microseconds since 2000-01-01 UTC
+    private static final long POSTGRES_EPOCH_MILLIS = 946_684_800_000L;
+
+    private final ByteArrayOutputStream bytes;
+    private final DataOutputStream out;
+
+    PgBinaryCopyWriter(int rows, int approximateRowSize) {
+        this.bytes = new ByteArrayOutputStream(SIGNATURE.length + 8 + rows * approximateRowSize + 2);
+        this.out = new DataOutputStream(bytes);
+        try {
+            out.write(SIGNATURE);
+            //flags
+            out.writeInt(0);
+            //header extension length
+            out.writeInt(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    PgBinaryCopyWriter startRow(int columns) throws IOException {
+        out.writeShort(columns);
+        return this;
+    }
+
+    PgBinaryCopyWriter writeText(String value) throws IOException {
+        if (value == null) {
+            return writeNull();
+        }
+        byte[] data = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(data.length);
+        out.write(data);
+        return this;
+    }
+
+    PgBinaryCopyWriter writeInt2(short value) throws IOException {
+        out.writeInt(2);
+        out.writeShort(value);
+        return this;
+    }
+
+    PgBinaryCopyWriter writeInt4(int value) throws IOException {
+        out.writeInt(4);
+        out.writeInt(value);
+        return this;
+    }
+
+    PgBinaryCopyWriter writeInt8(long value) throws IOException {
+        out.writeInt(8);
+        out.writeLong(value);
+        return this;
+    }
+
+    PgBinaryCopyWriter writeFloat8(double value) throws IOException {
+        out.writeInt(8);
+        out.writeDouble(value);
+        return this;
+    }
+
+    /**
+     * Works for both timestamp and timestamptz columns, timestamp values are stored in UTC.
+     */
+    PgBinaryCopyWriter writeTimestamp(long epochMillis) throws IOException {
+        out.writeInt(8);
+        out.writeLong((epochMillis - POSTGRES_EPOCH_MILLIS) * 1000);
+        return this;
+    }
+
+    PgBinaryCopyWriter writeNull() throws IOException {
+        out.writeInt(-1);
+        return this;
+    }
+
+    InputStream finish() throws IOException {
+        //trailer
+        out.writeShort(-1);
+        out.flush();
+        return new ByteArrayInputStream(bytes.toByteArray());
+    }
+
+}
@@ -4,8 +4,9 @@ import cc.blynk.server.core.model.enums.PinType;
 import cc.blynk.server.core.model.widgets.outputs.graph.GraphGranularityType;
 import cc.blynk.server.core.model.widgets.outputs.graph.GraphPeriod;
 import cc.blynk.server.core.reporting.average.AggregationKey;
-import cc.blynk.server.core.reporting.average.AggregationValue;
 import cc.blynk.server.core.reporting.average.AverageAggregatorProcessor;
+import cc.blynk.server.core.reporting.raw.BaseReportingKey;
+import cc.blynk.server.core.reporting.raw.RawDataBatch;
 import cc.blynk.server.core.stats.model.CommandStat;
 import cc.blynk.server.core.stats.model.HttpStat;
 import cc.blynk.server.core.stats.model.Stat;
@@ -13,24 +14,32 @@ import cc.blynk.utils.DateTimeUtils;
 import com.zaxxer.hikari.HikariDataSource;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.postgresql.PGConnection;
 
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.sql.Timestamp;
 import java.sql.Types;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
-import java.util.Iterator;
-import java.util.Map;
 
 /**
+ * Reporting records are written in chunks cut by ReportingDBWriter, each chunk within separate transaction,
+ * so one huge minute doesn't hold the connection and memory for the whole insert.
+ * For postgres chunks are streamed with the binary COPY instead of the batched inserts.
+ *
  * The Blynk Project.
  * Created by Dmitriy Dumanskiy.
  * Created on 09.03.16.
  */
 public class ReportingDBDao {
 
+    public static final int DEFAULT_CHUNK_SIZE = 10_000;
+
     public static final String insertMinute =
             "INSERT INTO reporting_average_minute (email, project_id, device_id, pin, pin_type, ts, value) "
                     + "VALUES (?, ?, ?, ?, ?, ?, ?)";
@@ -46,6 +55,28 @@ public class ReportingDBDao {
                     + "stringValue, doubleValue) "
                     + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
 
+    private static final String selectRawDataPrimaryKey =
+            "SELECT 1 FROM pg_constraint WHERE conname = 'reporting_raw_data_pkey'";
+    private static final String createRawDataSeriesIndex =
+            "CREATE INDEX IF NOT EXISTS reporting_raw_data_series_idx "
+                    + "ON reporting_raw_data (email, project_id, device_id, pin, pinType, ts)";
+    private static final String dropRawDataPrimaryKey =
+            "ALTER TABLE reporting_raw_data DROP CONSTRAINT IF EXISTS reporting_raw_data_pkey";
+
+    private static final String copyMinute =
+            "COPY reporting_average_minute (email, project_id, device_id, pin, pin_type, ts, value) "
+                    + "FROM STDIN (FORMAT BINARY)";
+    private static final String copyHourly =
+            "COPY reporting_average_hourly (email, project_id, device_id, pin, pin_type, ts, value) "
+                    + "FROM STDIN (FORMAT BINARY)";
+    private static final String copyDaily =
+            "COPY reporting_average_daily (email, project_id, device_id, pin, pin_type, ts, value) "
+                    + "FROM STDIN (FORMAT BINARY)";
+
+    private static final String copyRawData =
+            "COPY reporting_raw_data (email, project_id, device_id, pin, pinType, ts, stringValue, doubleValue) "
+                    + "FROM STDIN (FORMAT BINARY)";
+
     public static final String selectMinute =
             "SELECT ts, value FROM reporting_average_minute WHERE ts > ? ORDER BY ts DESC limit ?";
     public static final String selectHourly =
@@ -95,15 +126,6 @@ public class ReportingDBDao {
         ps.setInt(2, limit);
     }
 
-    private static void prepareReportingInsert(PreparedStatement ps,
-                                               Map.Entry<AggregationKey, AggregationValue> entry,
-                                               GraphGranularityType type) throws SQLException {
-        AggregationKey key = entry.getKey();
-        AggregationValue value = entry.getValue();
-        prepareReportingInsert(ps, key.getEmail(), key.getDashId(), key.getDeviceId(),
-                key.getPin(), key.getPinType(), key.getTs(type), value.calcAverage());
-    }
-
     public static void prepareReportingInsert(PreparedStatement ps,
                                                  String email,
                                                  int dashId,
@@ -132,49 +154,95 @@ public class ReportingDBDao {
         }
     }
 
-    public void insertRawData(Map<AggregationKey, Object> rawData) {
-        long start = System.currentTimeMillis();
-
-        log.info("Storing raw reporting...");
-        int counter = 0;
+    private static String getCopyByGraphType(GraphGranularityType graphGranularityType) {
+        switch (graphGranularityType) {
+            case MINUTE :
+                return copyMinute;
+            case HOURLY :
+                return copyHourly;
+            default :
+                return copyDaily;
+        }
+    }
 
+    /**
+     * Raw records of the same series may have the same timestamp, while old schema had
+     * the primary key on the series timestamp. With such key single duplicate fails the whole batch,
+     * so key is replaced with the non unique index.
+     */
+    public void migrateRawDataKey() throws Exception {
         try (Connection connection = ds.getConnection();
-             PreparedStatement ps = connection.prepareStatement(insertRawData)) {
-
-            for (Iterator<Map.Entry<AggregationKey, Object>> iter = rawData.entrySet().iterator(); iter.hasNext();) {
-                Map.Entry<AggregationKey, Object> entry = iter.next();
-
-                final AggregationKey key = entry.getKey();
-                final Object value = entry.getValue();
-
-                ps.setString(1, key.getEmail());
-                ps.setInt(2, key.getDashId());
-                ps.setInt(3, key.getDeviceId());
-                ps.setShort(4, key.getPin());
-                ps.setString(5, key.getPinType().pinTypeString);
-                ps.setTimestamp(6, new Timestamp(key.ts), DateTimeUtils.UTC_CALENDAR);
-
-                if (value instanceof String) {
-                    ps.setString(7, (String) value);
-                    ps.setNull(8, Types.DOUBLE);
-                } else {
-                    ps.setNull(7, Types.VARCHAR);
-                    ps.setDouble(8, (Double) value);
-                }
-
-                ps.addBatch();
-                counter++;
-                iter.remove();
+             Statement statement = connection.createStatement()) {
+            boolean hasPrimaryKey;
+            try (ResultSet rs = statement.executeQuery(selectRawDataPrimaryKey)) {
+                hasPrimaryKey = rs.next();
             }
+            if (hasPrimaryKey) {
+                log.info("Replacing primary key of reporting_raw_data with index. This may take a while...");
+                statement.execute(createRawDataSeriesIndex);
+                statement.execute(dropRawDataPrimaryKey);
+            }
+            connection.commit();
+        }
+    }
 
-            ps.executeBatch();
+    /**
+     * Inserts raw records of the batch within one transaction.
+     */
+    public void insertRaw(RawDataBatch batch) throws Exception {
+        try (Connection connection = ds.getConnection()) {
+            if (connection.isWrapperFor(PGConnection.class)) {
+                PgBinaryCopyWriter writer = new PgBinaryCopyWriter(batch.size, 96);
+                for (int i = 0; i < batch.size; i++) {
+                    BaseReportingKey key = batch.keys[i];
+                    String stringValue = batch.stringValues[i];
+                    writer.startRow(8)
+                            .writeText(key.email)
+                            .writeInt4(key.dashId)
+                            .writeInt4(key.deviceId)
+                            .writeInt2(key.pin)
+                            .writeText(key.pinType.pinTypeString)
+                            .writeTimestamp(batch.timestamps[i]);
+                    if (stringValue != null) {
+                        writer.writeText(stringValue).writeNull();
+                    } else {
+                        writer.writeNull().writeFloat8(batch.doubleValues[i]);
+                    }
+                }
+                copyIn(connection, copyRawData, writer);
+            } else {
+                try (PreparedStatement ps = connection.prepareStatement(insertRawData)) {
+                    for (int i = 0; i < batch.size; i++) {
+                        BaseReportingKey key = batch.keys[i];
+                        String stringValue = batch.stringValues[i];
+
+                        ps.setString(1, key.email);
+                        ps.setInt(2, key.dashId);
+                        ps.setInt(3, key.deviceId);
+                        ps.setShort(4, key.pin);
+                        ps.setString(5, key.pinType.pinTypeString);
+                        ps.setTimestamp(6, new Timestamp(batch.timestamps[i]), DateTimeUtils.UTC_CALENDAR);
+
+                        if (stringValue != null) {
+                            ps.setString(7, stringValue);
+                            ps.setNull(8, Types.DOUBLE);
+                        } else {
+                            ps.setNull(7, Types.VARCHAR);
+                            ps.setDouble(8, batch.doubleValues[i]);
+                        }
+
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
+            }
             connection.commit();
-        } catch (Exception e) {
-            log.error("Error inserting raw reporting data in DB.", e);
         }
+    }
 
-        log.info("Storing raw reporting finished. Time {}. Records saved {}",
-                System.currentTimeMillis() - start, counter);
+    private static void copyIn(Connection connection, String copySQL,
+                               PgBinaryCopyWriter writer) throws SQLException, IOException {
+        connection.unwrap(PGConnection.class).getCopyAPI().copyIn(copySQL, writer.finish());
     }
 
     public void insertStat(String region, Stat stat) {
@@ -277,29 +345,39 @@ public class ReportingDBDao {
         }
     }
 
-    public void insert(Map<AggregationKey, AggregationValue> map, GraphGranularityType graphGranularityType) {
-        long start = System.currentTimeMillis();
-
-        log.info("Storing {} reporting...", graphGranularityType.name());
-
-        String insertSQL = getTableByGraphType(graphGranularityType);
-
-        try (Connection connection = ds.getConnection();
-             PreparedStatement ps = connection.prepareStatement(insertSQL)) {
-
-            for (Map.Entry<AggregationKey, AggregationValue> entry : map.entrySet()) {
-                prepareReportingInsert(ps, entry, graphGranularityType);
-                ps.addBatch();
+    /**
+     * Inserts first size average values of the given granularity within one transaction.
+     */
+    public void insertAverages(AggregationKey[] keys, double[] values, int size,
+                               GraphGranularityType type) throws Exception {
+        try (Connection connection = ds.getConnection()) {
+            if (connection.isWrapperFor(PGConnection.class)) {
+                PgBinaryCopyWriter writer = new PgBinaryCopyWriter(size, 80);
+                for (int i = 0; i < size; i++) {
+                    AggregationKey key = keys[i];
+                    writer.startRow(7)
+                            .writeText(key.getEmail())
+                            .writeInt4(key.getDashId())
+                            .writeInt8(key.getDeviceId())
+                            .writeInt2(key.getPin())
+                            .writeInt2((short) key.getPinType().ordinal())
+                            .writeTimestamp(key.getTs(type))
+                            .writeFloat8(values[i]);
+                }
+                copyIn(connection, getCopyByGraphType(type), writer);
+            } else {
+                try (PreparedStatement ps = connection.prepareStatement(getTableByGraphType(type))) {
+                    for (int i = 0; i < size; i++) {
+                        AggregationKey key = keys[i];
+                        prepareReportingInsert(ps, key.getEmail(), key.getDashId(), key.getDeviceId(),
+                                key.getPin(), key.getPinType(), key.getTs(type), values[i]);
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
             }
-
-            ps.executeBatch();
             connection.commit();
-        } catch (Exception e) {
-            log.error("Error inserting reporting data in DB.", e);
         }
-
-        log.info("Storing {} reporting finished. Time {}. Records saved {}",
-                graphGranularityType.name(), System.currentTimeMillis() - start, map.size());
     }
 
     public void cleanOldReportingRecords(Instant now) {
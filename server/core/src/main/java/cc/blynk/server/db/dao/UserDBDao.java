@@ -1,12 +1,14 @@
 package cc.blynk.server.db.dao;
 
 import cc.blynk.server.core.dao.UserKey;
+import cc.blynk.server.core.model.Profile;
 import cc.blynk.server.core.model.auth.User;
 import cc.blynk.server.core.model.serialization.JsonParser;
 import com.zaxxer.hikari.HikariDataSource;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -14,6 +16,7 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
@@ -26,24 +29,41 @@ import static cc.blynk.utils.DateTimeUtils.UTC_CALENDAR;
  */
 public class UserDBDao {
 
+    public static final int DEFAULT_CHUNK_SIZE = 500;
+
+    //profile is stored compressed, old text json is cleared on the first upsert
     private static final String upsertUser =
             "INSERT INTO users (email, appName, region, ip, name, pass, last_modified, last_logged,"
-                    + " last_logged_ip, is_facebook_user, is_super_admin, energy, json) "
-                    + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) ON CONFLICT (email, appName) DO UPDATE "
+                    + " last_logged_ip, is_facebook_user, is_super_admin, energy, json, json_compressed) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, NULL, ?) ON CONFLICT (email, appName) DO UPDATE "
                     + "SET ip = EXCLUDED.ip, pass = EXCLUDED.pass, name = EXCLUDED.name, "
                     + "last_modified = EXCLUDED.last_modified, "
                     + "last_logged = EXCLUDED.last_logged, last_logged_ip = EXCLUDED.last_logged_ip, "
                     + "is_facebook_user = EXCLUDED.is_facebook_user, is_super_admin = EXCLUDED.is_super_admin, "
-                    + "energy = EXCLUDED.energy, json = EXCLUDED.json, region = EXCLUDED.region";
+                    + "energy = EXCLUDED.energy, json = NULL, json_compressed = EXCLUDED.json_compressed, "
+                    + "region = EXCLUDED.region";
+    //for users with only pin values changed, pin values are not stored in DB until next profile update
+    private static final String updateUserMeta =
+            "UPDATE users SET ip = ?, last_logged = ?, last_logged_ip = ?, energy = ? "
+                    + "WHERE email = ? AND appName = ?";
     private static final String selectAllUsers = "SELECT * from users where region = ?";
     private static final String selectIpForUser = "SELECT ip FROM users WHERE email = ? AND appName = ?";
     private static final String deleteUser = "DELETE FROM users WHERE email = ? AND appName = ?";
+    private static final String selectCompressedProfileColumn =
+            "SELECT 1 FROM information_schema.columns WHERE table_name = 'users' AND column_name = 'json_compressed'";
+    private static final String addCompressedProfileColumn = "ALTER TABLE users ADD COLUMN json_compressed bytea";
 
     private static final Logger log = LogManager.getLogger(UserDBDao.class);
     private final HikariDataSource ds;
+    private final int chunkSize;
 
     public UserDBDao(HikariDataSource ds) {
+        this(ds, DEFAULT_CHUNK_SIZE);
+    }
+
+    public UserDBDao(HikariDataSource ds, int chunkSize) {
         this.ds = ds;
+        this.chunkSize = chunkSize;
     }
 
     public int getDBVersion() throws Exception {
@@ -60,6 +80,24 @@ public class UserDBDao {
         return dbVersion;
     }
 
+    /**
+     * Profiles were stored as text json before, so old schema doesn't have column for compressed profile.
+     */
+    public void migrateCompressedProfile() throws Exception {
+        try (Connection connection = ds.getConnection();
+             Statement statement = connection.createStatement()) {
+            boolean hasColumn;
+            try (ResultSet rs = statement.executeQuery(selectCompressedProfileColumn)) {
+                hasColumn = rs.next();
+            }
+            if (!hasColumn) {
+                log.info("Adding json_compressed column to users table.");
+                statement.execute(addCompressedProfileColumn);
+            }
+            connection.commit();
+        }
+    }
+
     public String getUserServerIp(String email, String appName) {
         String ip = null;
 
@@ -103,7 +141,7 @@ public class UserDBDao {
                             getTs(rs, "last_modified"),
                             getTs(rs, "last_logged"),
                             rs.getString("last_logged_ip"),
-                            JsonParser.parseProfileFromString(rs.getString("json")),
+                            getProfile(rs),
                             rs.getInt("energy")
                             );
 
@@ -118,41 +156,118 @@ public class UserDBDao {
         return users;
     }
 
+    private static Profile getProfile(ResultSet rs) throws SQLException, IOException {
+        byte[] compressed = rs.getBytes("json_compressed");
+        if (compressed == null) {
+            return JsonParser.parseProfileFromString(rs.getString("json"));
+        }
+        return JsonParser.parseProfileFromCompressed(compressed);
+    }
+
     private static long getTs(ResultSet rs, String fieldName) throws SQLException {
         Timestamp t = rs.getTimestamp(fieldName, UTC_CALENDAR);
         return t == null ? 0 : t.getTime();
     }
 
-    public void save(ArrayList<User> users) {
+    public void save(List<User> users) {
+        save(users, 0);
+    }
+
+    /**
+     * Upserts users in chunks, every chunk is separate transaction.
+     * Whole user with compressed profile is written only for users updated since given time,
+     * for the rest of the users only login info and energy are updated.
+     * Users that are not in DB yet are upserted fully, as update doesn't touch any row for them.
+     */
+    public void save(List<User> users, long since) {
         long start = System.currentTimeMillis();
         log.info("Storing users...");
 
+        int upserted = 0;
+        int updated = 0;
+        List<User> metaUpdates = new ArrayList<>(Math.min(chunkSize, users.size()));
         try (Connection connection = ds.getConnection();
-             PreparedStatement ps = connection.prepareStatement(upsertUser)) {
-
-            for (User user : users) {
-                ps.setString(1, user.email);
-                ps.setString(2, user.appName);
-                ps.setString(3, user.region);
-                ps.setString(4, user.ip);
-                ps.setString(5, user.name);
-                ps.setString(6, user.pass);
-                ps.setTimestamp(7, new Timestamp(user.lastModifiedTs), UTC_CALENDAR);
-                ps.setTimestamp(8, new Timestamp(user.lastLoggedAt), UTC_CALENDAR);
-                ps.setString(9, user.lastLoggedIP); //finish
-                ps.setBoolean(10, user.isFacebookUser);
-                ps.setBoolean(11, user.isSuperAdmin);
-                ps.setInt(12, user.energy);
-                ps.setString(13, user.profile.toString());
-                ps.addBatch();
-            }
+             PreparedStatement upsertPs = connection.prepareStatement(upsertUser);
+             PreparedStatement updatePs = connection.prepareStatement(updateUserMeta)) {
 
-            ps.executeBatch();
-            connection.commit();
+            for (int chunkStart = 0; chunkStart < users.size(); chunkStart += chunkSize) {
+                int chunkEnd = Math.min(chunkStart + chunkSize, users.size());
+                int chunkUpserted = 0;
+                metaUpdates.clear();
+                try {
+                    for (int i = chunkStart; i < chunkEnd; i++) {
+                        User user = users.get(i);
+                        if (user.isUpdated(since)) {
+                            if (addUpsert(upsertPs, user)) {
+                                chunkUpserted++;
+                            }
+                        } else {
+                            addMetaUpdate(updatePs, user);
+                            metaUpdates.add(user);
+                        }
+                    }
+                    int chunkUpdated = metaUpdates.size();
+                    if (chunkUpdated > 0) {
+                        int[] updateCounts = updatePs.executeBatch();
+                        for (int i = 0; i < updateCounts.length; i++) {
+                            //user row doesn't exist yet
+                            if (updateCounts[i] == 0 && addUpsert(upsertPs, metaUpdates.get(i))) {
+                                chunkUpserted++;
+                                chunkUpdated--;
+                            }
+                        }
+                    }
+                    if (chunkUpserted > 0) {
+                        upsertPs.executeBatch();
+                    }
+                    connection.commit();
+                    upserted += chunkUpserted;
+                    updated += chunkUpdated;
+                } catch (Exception e) {
+                    log.error("Error upserting users chunk in DB.", e);
+                    upsertPs.clearBatch();
+                    updatePs.clearBatch();
+                    connection.rollback();
+                }
+            }
         } catch (Exception e) {
             log.error("Error upserting users in DB.", e);
         }
-        log.info("Storing users finished. Time {}. Users saved {}", System.currentTimeMillis() - start, users.size());
+        log.info("Storing users finished. Time {}. Users saved {}, users with login info only updated {}.",
+                System.currentTimeMillis() - start, upserted, updated);
+    }
+
+    private static boolean addUpsert(PreparedStatement ps, User user) throws SQLException {
+        //compression is done here, on the db thread, so profile saver isn't blocked with it
+        byte[] profile = JsonParser.gzipProfile(user.profile);
+        if (profile == null) {
+            return false;
+        }
+        ps.setString(1, user.email);
+        ps.setString(2, user.appName);
+        ps.setString(3, user.region);
+        ps.setString(4, user.ip);
+        ps.setString(5, user.name);
+        ps.setString(6, user.pass);
+        ps.setTimestamp(7, new Timestamp(user.lastModifiedTs), UTC_CALENDAR);
+        ps.setTimestamp(8, new Timestamp(user.lastLoggedAt), UTC_CALENDAR);
+        ps.setString(9, user.lastLoggedIP); //finish
+        ps.setBoolean(10, user.isFacebookUser);
+        ps.setBoolean(11, user.isSuperAdmin);
+        ps.setInt(12, user.energy);
+        ps.setBytes(13, profile);
+        ps.addBatch();
+        return true;
+    }
+
+    private static void addMetaUpdate(PreparedStatement ps, User user) throws SQLException {
+        ps.setString(1, user.ip);
+        ps.setTimestamp(2, new Timestamp(user.lastLoggedAt), UTC_CALENDAR);
+        ps.setString(3, user.lastLoggedIP);
+        ps.setInt(4, user.energy);
+        ps.setString(5, user.email);
+        ps.setString(6, user.appName);
+        ps.addBatch();
     }
 
     public boolean deleteUser(UserKey userKey) {
@@ -11,6 +11,7 @@ import cc.blynk.server.core.model.widgets.ui.reporting.source.ReportDataStream;
 import cc.blynk.server.core.model.widgets.ui.reporting.source.ReportSource;
 import cc.blynk.server.core.model.widgets.ui.tiles.Tile;
 import cc.blynk.server.core.model.widgets.ui.tiles.TileTemplate;
+import io.netty.channel.Channel;
 import io.netty.util.internal.EmptyArrays;
 
 /**
@@ -36,5 +37,6 @@ public final class EmptyArraysUtil {
     public static final ReportDataStream[] EMPTY_REPORT_DATA_STREAMS = {};
     public static final ReportSource[] EMPTY_REPORT_SOURCES = {};
     public static final Report[] EMPTY_REPORTS = {};
+    public static final Channel[] EMPTY_CHANNELS = {};
 
 }
@@ -2,6 +2,7 @@ package cc.blynk.server.internal;
 
 import cc.blynk.server.common.BaseSimpleChannelInboundHandler;
 import cc.blynk.server.core.session.HardwareStateHolder;
+import cc.blynk.server.core.session.StateHolderBase;
 import io.netty.channel.Channel;
 
 /**
@@ -17,6 +18,11 @@ public final class StateHolderUtil {
     private StateHolderUtil() {
     }
 
+    public static StateHolderBase getState(Channel channel) {
+        BaseSimpleChannelInboundHandler handler = channel.pipeline().get(BaseSimpleChannelInboundHandler.class);
+        return handler == null ? null : handler.getState();
+    }
+
     public static HardwareStateHolder getHardState(Channel channel) {
         BaseSimpleChannelInboundHandler handler = channel.pipeline().get(BaseSimpleChannelInboundHandler.class);
         return handler == null ? null : (HardwareStateHolder) handler.getState();
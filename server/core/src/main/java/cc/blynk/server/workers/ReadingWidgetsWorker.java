@@ -1,12 +1,10 @@
 package cc.blynk.server.workers;
 
 import cc.blynk.server.core.dao.SessionDao;
-import cc.blynk.server.core.dao.UserDao;
-import cc.blynk.server.core.dao.UserKey;
 import cc.blynk.server.core.model.DashBoard;
 import cc.blynk.server.core.model.Profile;
+import cc.blynk.server.core.model.ReadingWidgetsIndex;
 import cc.blynk.server.core.model.auth.Session;
-import cc.blynk.server.core.model.auth.User;
 import cc.blynk.server.core.model.device.Tag;
 import cc.blynk.server.core.model.widgets.FrequencyWidget;
 import cc.blynk.server.core.model.widgets.Target;
@@ -18,12 +16,21 @@ import cc.blynk.server.core.model.widgets.ui.tiles.TileTemplate;
 import cc.blynk.server.core.session.HardwareStateHolder;
 import cc.blynk.server.internal.StateHolderUtil;
 import io.netty.channel.Channel;
+import io.netty.util.AttributeKey;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
+ * Sends reading commands to hardware for widgets with reading interval.
+ *
+ * Every hardware channel has own reading schedule with the time of the earliest reading
+ * command among the reading widgets of its dashboard. Worker tick only selects channels
+ * that are due and processes them on the channel's own event loop, so the widgets are
+ * checked only when something should be sent and writes happen without cross-thread handoff.
+ *
  * The Blynk Project.
  * Created by Dmitriy Dumanskiy.
  * Created on 02.02.17.
@@ -32,17 +39,17 @@ public class ReadingWidgetsWorker implements Runnable {
 
     private static final Logger log = LogManager.getLogger(ReadingWidgetsWorker.class);
 
+    private static final AttributeKey<ReadingSchedule> READING_SCHEDULE = AttributeKey.valueOf("readingSchedule");
+
     private final SessionDao sessionDao;
-    private final UserDao userDao;
     private final boolean allowRunWithoutApp;
 
-    private int tickedWidgets = 0;
+    private final LongAdder tickedWidgets = new LongAdder();
     private int counter = 0;
     private long totalTime = 0;
 
-    public ReadingWidgetsWorker(SessionDao sessionDao, UserDao userDao, boolean allowRunWithoutApp) {
+    public ReadingWidgetsWorker(SessionDao sessionDao, boolean allowRunWithoutApp) {
         this.sessionDao = sessionDao;
-        this.userDao = userDao;
         this.allowRunWithoutApp = allowRunWithoutApp;
     }
 
@@ -58,40 +65,25 @@ public class ReadingWidgetsWorker implements Runnable {
 
         counter++;
         if (counter == 60) {
+            long ticked = tickedWidgets.sumThenReset();
             log.info("Ticked widgets for 1 minute : {}. Per second : {}, total time : {} ms",
-                    tickedWidgets, tickedWidgets / 60, totalTime);
-            tickedWidgets = 0;
+                    ticked, ticked / 60, totalTime);
             counter = 0;
             totalTime = 0;
         }
     }
 
     private void process(long now) {
-        for (Map.Entry<UserKey, Session> entry : sessionDao.userSession.entrySet()) {
-            Session session = entry.getValue();
+        for (Session session : sessionDao.userSession.values()) {
             //for now checking widgets for active app only
             if ((allowRunWithoutApp || session.isAppConnected()) && session.isHardwareConnected()) {
-                UserKey userKey = entry.getKey();
-                User user = userDao.users.get(userKey);
-                if (user != null) {
-                    Profile profile = user.profile;
-                    for (DashBoard dashBoard : profile.dashBoards) {
-                        if (dashBoard.isActive) {
-                            for (Channel channel : session.hardwareChannels) {
-                                HardwareStateHolder stateHolder = StateHolderUtil.getHardState(channel);
-                                if (stateHolder != null && stateHolder.dash.id == dashBoard.id) {
-                                    int deviceId = stateHolder.device.id;
-                                    for (Widget widget : dashBoard.widgets) {
-                                        if (widget instanceof FrequencyWidget) {
-                                            process(channel, (FrequencyWidget) widget,
-                                                    profile, dashBoard, deviceId, now);
-                                        } else if (widget instanceof DeviceTiles) {
-                                            processDeviceTile(channel, (DeviceTiles) widget, deviceId, now);
-                                        }
-                                    }
-                                    channel.flush();
-                                }
-                            }
+                for (Channel channel : session.hardwareChannels) {
+                    HardwareStateHolder stateHolder = StateHolderUtil.getHardState(channel);
+                    if (stateHolder != null && stateHolder.dash.isActive) {
+                        ReadingWidgetsIndex readingWidgets = stateHolder.dash.getReadingWidgets();
+                        ReadingSchedule schedule = getSchedule(channel);
+                        if (schedule.isDue(readingWidgets, now)) {
+                            submit(channel, stateHolder, schedule, readingWidgets, now);
                         }
                     }
                 }
@@ -99,23 +91,80 @@ public class ReadingWidgetsWorker implements Runnable {
         }
     }
 
-    private void processDeviceTile(Channel channel,  DeviceTiles deviceTiles, int deviceId, long now) {
+    private static ReadingSchedule getSchedule(Channel channel) {
+        ReadingSchedule schedule = channel.attr(READING_SCHEDULE).get();
+        if (schedule == null) {
+            schedule = new ReadingSchedule();
+            ReadingSchedule existing = channel.attr(READING_SCHEDULE).setIfAbsent(schedule);
+            if (existing != null) {
+                return existing;
+            }
+        }
+        return schedule;
+    }
+
+    private void submit(Channel channel, HardwareStateHolder stateHolder, ReadingSchedule schedule,
+                        ReadingWidgetsIndex readingWidgets, long now) {
+        try {
+            channel.eventLoop().execute(() -> {
+                try {
+                    process(channel, stateHolder, schedule, readingWidgets, now);
+                } catch (Exception e) {
+                    log.error("Error processing reading widgets. ", e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.debug("Hardware channel event loop is stopped.");
+        }
+    }
+
+    //is executed on the channel event loop
+    private void process(Channel channel, HardwareStateHolder stateHolder, ReadingSchedule schedule,
+                         ReadingWidgetsIndex readingWidgets, long now) {
+        if (!channel.isActive()) {
+            return;
+        }
+
+        Profile profile = stateHolder.user.profile;
+        DashBoard dash = stateHolder.dash;
+        int deviceId = stateHolder.device.id;
+        long nextTickTs = Long.MAX_VALUE;
+
+        for (FrequencyWidget frequencyWidget : readingWidgets.widgets) {
+            process(channel, frequencyWidget, profile, dash, deviceId, now);
+            nextTickTs = Math.min(nextTickTs, frequencyWidget.getNextTickTs());
+        }
+        for (DeviceTiles deviceTiles : readingWidgets.deviceTiles) {
+            nextTickTs = Math.min(nextTickTs, processDeviceTile(channel, deviceTiles, deviceId, now));
+        }
+        channel.flush();
+
+        schedule.update(readingWidgets, nextTickTs);
+    }
+
+    //returns time of the next tick of the device tiles
+    private long processDeviceTile(Channel channel, DeviceTiles deviceTiles, int deviceId, long now) {
+        long nextTickTs = Long.MAX_VALUE;
         for (Tile tile : deviceTiles.tiles) {
-            if (tile.deviceId == deviceId && tile.isTicked(now)) {
-                TileTemplate tileTemplate = deviceTiles.getTileTemplateById(tile.templateId);
-                if (tileTemplate != null) {
-                    for (Widget tileWidget : tileTemplate.widgets) {
-                        if (tileWidget instanceof FrequencyWidget) {
-                            FrequencyWidget frequencyWidget = (FrequencyWidget) tileWidget;
-                            if (frequencyWidget.hasReadingInterval() && channel.isWritable()) {
-                                frequencyWidget.writeReadingCommand(channel);
-                                tickedWidgets++;
+            if (tile.deviceId == deviceId) {
+                if (tile.isTicked(now)) {
+                    TileTemplate tileTemplate = deviceTiles.getTileTemplateById(tile.templateId);
+                    if (tileTemplate != null) {
+                        for (Widget tileWidget : tileTemplate.widgets) {
+                            if (tileWidget instanceof FrequencyWidget) {
+                                FrequencyWidget frequencyWidget = (FrequencyWidget) tileWidget;
+                                if (frequencyWidget.hasReadingInterval() && channel.isWritable()) {
+                                    frequencyWidget.writeReadingCommand(channel);
+                                    tickedWidgets.increment();
+                                }
                             }
                         }
                     }
                 }
+                nextTickTs = Math.min(nextTickTs, tile.getNextTickTs());
             }
         }
+        return nextTickTs;
     }
 
     private void process(Channel channel, FrequencyWidget frequencyWidget,
@@ -124,7 +173,7 @@ public class ReadingWidgetsWorker implements Runnable {
                 && sameDeviceId(profile, dashBoard, frequencyWidget.getDeviceId(), deviceId)
                 && frequencyWidget.isTicked(now)) {
             frequencyWidget.writeReadingCommand(channel);
-            tickedWidgets++;
+            tickedWidgets.increment();
         }
     }
 
@@ -141,4 +190,27 @@ public class ReadingWidgetsWorker implements Runnable {
         return target != null && target.isSelected(channelDeviceId);
     }
 
+    /**
+     * Reading state of the hardware channel. Updated on the channel event loop,
+     * checked by the worker tick.
+     */
+    private static final class ReadingSchedule {
+
+        //reading widgets the next tick time was calculated for
+        private volatile ReadingWidgetsIndex readingWidgets;
+        private volatile long nextTickTs;
+
+        //channel is due when some widget should be ticked or dashboard structure was changed.
+        //target of the widget may be changed without dashboard structure change (device selector),
+        //so next tick is calculated for all reading widgets of the dashboard
+        boolean isDue(ReadingWidgetsIndex readingWidgets, long now) {
+            return this.readingWidgets != readingWidgets || now >= nextTickTs;
+        }
+
+        void update(ReadingWidgetsIndex readingWidgets, long nextTickTs) {
+            this.nextTickTs = nextTickTs;
+            this.readingWidgets = readingWidgets;
+        }
+    }
+
 }
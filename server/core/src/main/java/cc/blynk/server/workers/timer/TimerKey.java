@@ -26,6 +26,9 @@ public class TimerKey {
 
     public final TimerTime time;
 
+    //days of week of the timer as bits, so tick check doesn't iterate over days array
+    private final int daysMask;
+
     public TimerKey(UserKey userKey, int dashId, int deviceId, long widgetId,
                     int additionalId, long deviceTilesId, long templateId, TimerTime time) {
         this.userKey = userKey;
@@ -36,6 +39,21 @@ public class TimerKey {
         this.deviceTilesId = deviceTilesId;
         this.templateId = templateId;
         this.time = time;
+        this.daysMask = daysMask(time.days);
+    }
+
+    private static int daysMask(int[] days) {
+        int mask = 0;
+        for (int day : days) {
+            if (day >= 1 && day <= 7) {
+                mask |= 1 << day;
+            }
+        }
+        return mask;
+    }
+
+    public boolean isTickDay(int dayOfWeek) {
+        return (daysMask & (1 << dayOfWeek)) != 0;
     }
 
     public boolean isTilesTimer() {
@@ -1,5 +1,6 @@
 package cc.blynk.server.workers.timer;
 
+import cc.blynk.server.core.BlockingIOProcessor;
 import cc.blynk.server.core.dao.SessionDao;
 import cc.blynk.server.core.dao.UserDao;
 import cc.blynk.server.core.dao.UserKey;
@@ -22,17 +23,27 @@ import cc.blynk.server.core.model.widgets.ui.tiles.DeviceTiles;
 import cc.blynk.server.core.model.widgets.ui.tiles.Tile;
 import cc.blynk.server.core.model.widgets.ui.tiles.TileTemplate;
 import cc.blynk.server.core.processors.EventorProcessor;
+import cc.blynk.server.core.stats.GlobalStats;
+import cc.blynk.server.core.stats.metrics.LagGauge;
 import cc.blynk.server.notifications.push.GCMWrapper;
 import cc.blynk.utils.DateTimeUtils;
 import cc.blynk.utils.IntArray;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.EventExecutorGroup;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.time.Instant;
+import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import static cc.blynk.server.core.protocol.enums.Command.HARDWARE;
@@ -49,6 +60,10 @@ import static cc.blynk.server.internal.EmptyArraysUtil.EMPTY_INTS;
  *
  * + Concurrency around it as timerWorker may be accessed from different threads.
  *
+ * Every cell is split into shards by user key, every shard is processed on its own
+ * event loop, so timers of one user are always processed by the same thread and
+ * timers that fire at the same second (like 08:00) are processed in parallel.
+ *
  * The Blynk Project.
  * Created by Dmitriy Dumanskiy.
  * Created on 2/6/2015.
@@ -62,17 +77,29 @@ public class TimerWorker implements Runnable {
     private final UserDao userDao;
     private final SessionDao sessionDao;
     private final GCMWrapper gcmWrapper;
-    private final AtomicReferenceArray<ConcurrentHashMap<TimerKey, BaseAction[]>> timerExecutors;
+    private final BlockingIOProcessor blockingIOProcessor;
+    private final AtomicReferenceArray<ConcurrentHashMap<TimerKey, BaseAction[]>[]> timerExecutors;
+    private final EventExecutor[] shardExecutors;
     private final static int size = 86400;
 
-    @SuppressWarnings("unchecked")
-    public TimerWorker(UserDao userDao, SessionDao sessionDao, GCMWrapper gcmWrapper) {
+    private final LagGauge tickLag;
+
+    public TimerWorker(UserDao userDao, SessionDao sessionDao, GCMWrapper gcmWrapper,
+                       EventExecutorGroup executorGroup, BlockingIOProcessor blockingIOProcessor,
+                       GlobalStats globalStats) {
         this.userDao = userDao;
         this.sessionDao = sessionDao;
         this.gcmWrapper = gcmWrapper;
+        this.blockingIOProcessor = blockingIOProcessor;
+        this.tickLag = globalStats.timerTickLag;
         //array cell for every second in a day,
         //yes, it costs a bit of memory, but still cheap :)
         this.timerExecutors = new AtomicReferenceArray<>(size);
+        List<EventExecutor> executors = new ArrayList<>();
+        for (EventExecutor executor : executorGroup) {
+            executors.add(executor);
+        }
+        this.shardExecutors = executors.toArray(new EventExecutor[0]);
         init(userDao.users);
     }
 
@@ -131,14 +158,14 @@ public class TimerWorker implements Runnable {
                 SetPinAction action = new SetPinAction(timer.pin, timer.pinType, timer.startValue);
                 TimerKey timerKey = new TimerKey(userKey, dashId, timer.deviceId, timer.id, 0,
                         deviceTilesId, templateId, timerTime);
-                getExecutorOrCreate(timerTime.time).put(timerKey, new BaseAction[]{action});
+                getExecutorOrCreate(timerTime.time, userKey).put(timerKey, new BaseAction[]{action});
             }
             if (timer.isValidStop()) {
                 TimerTime timerTime = new TimerTime(timer.stopTime);
                 SetPinAction action = new SetPinAction(timer.pin, timer.pinType, timer.stopValue);
                 TimerKey timerKey = new TimerKey(userKey, dashId, timer.deviceId, timer.id, 1,
                         deviceTilesId, templateId, timerTime);
-                getExecutorOrCreate(timerTime.time).put(timerKey, new BaseAction[]{action});
+                getExecutorOrCreate(timerTime.time, userKey).put(timerKey, new BaseAction[]{action});
             }
         }
     }
@@ -152,7 +179,7 @@ public class TimerWorker implements Runnable {
             }
         }
         if (!validActions.isEmpty()) {
-            getExecutorOrCreate(time.time).put(
+            getExecutorOrCreate(time.time, userKey).put(
                     new TimerKey(userKey, dashId, deviceId, widgetId, additionalId,
                             -1L, -1L, time),
                     validActions.toArray(new BaseAction[0]));
@@ -183,75 +210,158 @@ public class TimerWorker implements Runnable {
 
     private void delete(UserKey userKey, int dashId, int deviceId, long widgetId, int additionalId,
                         long deviceTilesId, long templateId, TimerTime time) {
-        ConcurrentHashMap<TimerKey, BaseAction[]> secondExecutor = timerExecutors.get(time.time);
+        ConcurrentHashMap<TimerKey, BaseAction[]>[] secondExecutor = timerExecutors.get(time.time);
         if (secondExecutor != null) {
-            secondExecutor.remove(new TimerKey(userKey, dashId, deviceId,
+            secondExecutor[shard(userKey)].remove(new TimerKey(userKey, dashId, deviceId,
                     widgetId, additionalId,
                     deviceTilesId, templateId, time));
         }
     }
 
+    private int shard(UserKey userKey) {
+        return Math.floorMod(userKey.hashCode(), shardExecutors.length);
+    }
+
+    private ConcurrentHashMap<TimerKey, BaseAction[]> getExecutorOrCreate(int seconds, UserKey userKey) {
+        return getExecutorOrCreate(seconds)[shard(userKey)];
+    }
+
     //may be improved in Java9 with compareAndExchange
-    private ConcurrentHashMap<TimerKey, BaseAction[]> getExecutorOrCreate(int seconds) {
-        ConcurrentHashMap<TimerKey, BaseAction[]> secondExecutor = timerExecutors.get(seconds);
+    @SuppressWarnings("unchecked")
+    private ConcurrentHashMap<TimerKey, BaseAction[]>[] getExecutorOrCreate(int seconds) {
+        ConcurrentHashMap<TimerKey, BaseAction[]>[] secondExecutor = timerExecutors.get(seconds);
         if (secondExecutor != null) {
             return secondExecutor;
         }
-        ConcurrentHashMap<TimerKey, BaseAction[]> newSecondExecutorMap = new ConcurrentHashMap<>();
-        if (timerExecutors.compareAndSet(seconds, null, newSecondExecutorMap)) {
-            return newSecondExecutorMap;
+        ConcurrentHashMap<TimerKey, BaseAction[]>[] newSecondExecutor =
+                new ConcurrentHashMap[shardExecutors.length];
+        for (int i = 0; i < newSecondExecutor.length; i++) {
+            newSecondExecutor[i] = new ConcurrentHashMap<>();
+        }
+        if (timerExecutors.compareAndSet(seconds, null, newSecondExecutor)) {
+            return newSecondExecutor;
         }
         return timerExecutors.get(seconds);
     }
 
-    private int actuallySendTimers;
-    private int activeTimers;
-
     @Override
     public void run() {
+        run(System.currentTimeMillis());
+    }
+
+    void run(long now) {
         log.trace("Starting timer...");
 
-        long now = System.currentTimeMillis();
-        ConcurrentMap<TimerKey, BaseAction[]> tickedExecutors = timerExecutors.get((int) ((now / 1000) % 86400));
+        ConcurrentHashMap<TimerKey, BaseAction[]>[] tickedExecutors =
+                timerExecutors.get((int) ((now / 1000) % 86400));
 
         if (tickedExecutors == null) {
             return;
         }
 
+        IntArray tickedShards = new IntArray();
+        for (int i = 0; i < tickedExecutors.length; i++) {
+            if (!tickedExecutors[i].isEmpty()) {
+                tickedShards.add(i);
+            }
+        }
+
+        TimerTick tick = new TimerTick(now, tickedShards.size());
+        for (int shard : tickedShards.toArray()) {
+            ConcurrentHashMap<TimerKey, BaseAction[]> shardExecutor = tickedExecutors[shard];
+            EventExecutor executor = shardExecutors[shard];
+            try {
+                executor.execute(() -> send(shardExecutor, tick, executor));
+            } catch (RejectedExecutionException e) {
+                log.debug("Timer shard executor is stopped.");
+                tick.pendingShards.decrementAndGet();
+            }
+        }
+    }
+
+    private void send(ConcurrentMap<TimerKey, BaseAction[]> shardExecutor, TimerTick tick, EventExecutor executor) {
+        int ready = 0;
+        int active = 0;
+        //timers of the same shard usually have few different timezones, so day of week is resolved
+        //once per timezone per tick instead of once per timer
+        Map<ZoneId, Integer> daysOfWeek = new HashMap<>();
+
         try {
-            this.activeTimers = 0;
-            this.actuallySendTimers = 0;
-            send(tickedExecutors, now);
+            for (Map.Entry<TimerKey, BaseAction[]> entry : shardExecutor.entrySet()) {
+                TimerKey key = entry.getKey();
+                ready++;
+                ZoneId tzName = key.time.tzName == null ? DateTimeUtils.UTC : key.time.tzName;
+                int dayOfWeek = daysOfWeek.computeIfAbsent(tzName, tick::dayOfWeek);
+                if (key.isTickDay(dayOfWeek)) {
+                    User user = userDao.getIfLoaded(key.userKey);
+                    if (user == null && userDao.isEvicted(key.userKey)) {
+                        sendForEvicted(key, entry.getValue(), tick, executor);
+                    } else if (user != null) {
+                        DashBoard dash = user.profile.getDashById(key.dashId);
+                        if (dash != null && dash.isActive) {
+                            active++;
+                            process(user.profile, dash, key, entry.getValue(), tick);
+                        }
+                    }
+                }
+            }
         } catch (Exception e) {
             log.error("Error running timers. ", e);
         }
 
-        if (activeTimers > 0) {
-            log.info("Timer finished. Ready {}, Active {}, Actual {}. Processing time : {} ms",
-                    tickedExecutors.size(), activeTimers, actuallySendTimers, System.currentTimeMillis() - now);
+        tick.readyTimers.addAndGet(ready);
+        tick.activeTimers.addAndGet(active);
+        if (tick.pendingShards.decrementAndGet() == 0) {
+            finish(tick);
         }
     }
 
-    private void send(ConcurrentMap<TimerKey, BaseAction[]> tickedExecutors, long now) {
-        ZonedDateTime currentDateTime = ZonedDateTime.now(DateTimeUtils.UTC);
-
-        for (Map.Entry<TimerKey, BaseAction[]> entry : tickedExecutors.entrySet()) {
-            TimerKey key = entry.getKey();
-            BaseAction[] actions = entry.getValue();
-            if (key.time.isTickTime(currentDateTime)) {
-                User user = userDao.users.get(key.userKey);
+    //disk read of the evicted user is done on the blocking pool, so it doesn't delay the rest of the shard.
+    //timer is processed after the load on the same shard executor
+    private void sendForEvicted(TimerKey key, BaseAction[] actions, TimerTick tick, EventExecutor executor) {
+        try {
+            blockingIOProcessor.execute(() -> {
+                User user = userDao.get(key.userKey);
                 if (user != null) {
-                    DashBoard dash = user.profile.getDashById(key.dashId);
-                    if (dash != null && dash.isActive) {
-                        activeTimers++;
-                        process(user.profile, dash, key, actions, now);
-                    }
+                    executor.execute(() -> {
+                        DashBoard dash = user.profile.getDashById(key.dashId);
+                        if (dash != null && dash.isActive) {
+                            process(user.profile, dash, key, actions, tick);
+                        }
+                    });
                 }
-            }
+            });
+        } catch (RejectedExecutionException e) {
+            log.warn("Unable to load evicted user {} for timer. Limit of tasks reached.", key.userKey.email);
         }
     }
 
-    private void process(Profile profile, DashBoard dash, TimerKey key, BaseAction[] actions, long now) {
+    private void finish(TimerTick tick) {
+        long finished = System.currentTimeMillis();
+        long lag = finished - tick.tickStart;
+        tickLag.update(lag);
+
+        int activeTimers = tick.activeTimers.get();
+        if (activeTimers > 0) {
+            log.info("Timer finished. Ready {}, Active {}, Actual {}. Processing time : {} ms. Lag : {} ms.",
+                    tick.readyTimers.get(), activeTimers, tick.actuallySendTimers.get(),
+                    finished - tick.now, lag);
+        }
+        if (lag >= 1000) {
+            log.warn("Timer tick overrun. Lag : {} ms.", lag);
+        }
+    }
+
+    public long getLastTickLag() {
+        return tickLag.getLast();
+    }
+
+    public long getMaxTickLag(boolean reset) {
+        return tickLag.getMax(reset);
+    }
+
+    private void process(Profile profile, DashBoard dash, TimerKey key, BaseAction[] actions, TimerTick tick) {
+        long now = tick.now;
         for (BaseAction action : actions) {
             if (action instanceof SetPinAction) {
                 SetPinAction setPinAction = (SetPinAction) action;
@@ -296,7 +406,7 @@ public class TimerWorker implements Runnable {
                             setPinAction.dataStream.pinType, setPinAction.value, now);
                 }
 
-                triggerTimer(sessionDao, key.userKey, setPinAction.makeHardwareBody(), key.dashId, deviceIds);
+                triggerTimer(sessionDao, key.userKey, setPinAction.makeHardwareBody(), key.dashId, deviceIds, tick);
             } else if (action instanceof NotifyAction) {
                 NotifyAction notifyAction = (NotifyAction) action;
                 EventorProcessor.push(gcmWrapper, dash, notifyAction.message);
@@ -304,11 +414,12 @@ public class TimerWorker implements Runnable {
         }
     }
 
-    private void triggerTimer(SessionDao sessionDao, UserKey userKey, String value, int dashId, int[] deviceIds) {
+    private static void triggerTimer(SessionDao sessionDao, UserKey userKey, String value,
+                                     int dashId, int[] deviceIds, TimerTick tick) {
         Session session = sessionDao.get(userKey);
         if (session != null) {
             if (!session.sendMessageToHardware(dashId, HARDWARE, TIMER_MSG_ID, value, deviceIds)) {
-                actuallySendTimers++;
+                tick.actuallySendTimers.incrementAndGet();
             }
             for (int deviceId : deviceIds) {
                 session.sendToApps(HARDWARE, TIMER_MSG_ID, dashId, deviceId, value);
@@ -338,4 +449,28 @@ public class TimerWorker implements Runnable {
             }
         }
     }
+
+    //state of the single timer tick shared between shards
+    private static final class TimerTick {
+
+        private final long now;
+        //start of the second the tick belongs to
+        private final long tickStart;
+        private final ZonedDateTime currentDateTime;
+        private final AtomicInteger pendingShards = new AtomicInteger();
+        private final AtomicInteger readyTimers = new AtomicInteger();
+        private final AtomicInteger activeTimers = new AtomicInteger();
+        private final AtomicInteger actuallySendTimers = new AtomicInteger();
+
+        TimerTick(long now, int shards) {
+            this.now = now;
+            this.pendingShards.set(shards);
+            this.tickStart = now - now % 1000;
+            this.currentDateTime = ZonedDateTime.ofInstant(Instant.ofEpochMilli(now), DateTimeUtils.UTC);
+        }
+
+        int dayOfWeek(ZoneId zoneId) {
+            return currentDateTime.withZoneSameInstant(zoneId).getDayOfWeek().getValue();
+        }
+    }
 }
@@ -12,6 +12,7 @@ module cc.blynk.core {
     exports cc.blynk.server.core.protocol.handlers;
     exports cc.blynk.server.core.model.serialization;
     exports cc.blynk.server.core.stats;
+    exports cc.blynk.server.core.stats.metrics;
     exports cc.blynk.server.core.model;
     exports cc.blynk.server.core.stats.model;
     exports cc.blynk.server.core;
@@ -60,9 +61,11 @@ module cc.blynk.core {
     requires io.netty.codec.http;
     requires async.http.client;
     requires com.zaxxer.hikari;
+    requires org.postgresql.jdbc;
     requires java.sql;
     requires com.fasterxml.jackson.databind;
     requires jackson.annotations;
     requires org.apache.logging.log4j;
     requires com.fasterxml.jackson.core;
+    requires com.fasterxml.jackson.dataformat.smile;
 }
\ No newline at end of file
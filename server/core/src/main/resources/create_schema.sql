@@ -16,6 +16,7 @@ CREATE TABLE users (
   is_super_admin bool DEFAULT FALSE,
   energy int,
   json text,
+  json_compressed bytea,
   PRIMARY KEY(email, appName)
 );
 
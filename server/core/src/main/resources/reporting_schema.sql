@@ -10,10 +10,10 @@ CREATE TABLE reporting_raw_data (
   pinType char,
   ts timestamp,
   stringValue text,
-  doubleValue float8,
-
-  PRIMARY KEY (email, project_id, device_id, pin, pinType, ts)
+  doubleValue float8
 );
+--hardware may send few values within the same millisecond, so series timestamp is not unique
+CREATE INDEX reporting_raw_data_series_idx ON reporting_raw_data (email, project_id, device_id, pin, pinType, ts);
 
 CREATE TABLE reporting_average_minute (
   email text,
@@ -0,0 +1,117 @@
+package cc.blynk.server.core;
+
+import io.netty.util.concurrent.FastThreadLocalThread;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * The Blynk Project.
+ * Created by Dmitriy Dumanskiy.
+ * Created on 18.10.26.
+ */
+public class BlockingPoolTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final ThreadPoolExecutor spillPool = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(10));
+    private BlockingPool pool;
+
+    @After
+    public void shutdown() {
+        release.countDown();
+        pool.shutdownNow();
+        spillPool.shutdownNow();
+    }
+
+    //occupies the only thread and the only queue slot of the pool
+    private void fill(OverflowStrategy overflowStrategy) {
+        pool = new BlockingPool("test", 1, 1, 1, overflowStrategy, spillPool);
+        pool.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        pool.execute(() -> { });
+    }
+
+    @Test
+    public void testAbort() {
+        fill(OverflowStrategy.ABORT);
+        try {
+            pool.execute(() -> { });
+            fail();
+        } catch (RejectedExecutionException ree) {
+            assertEquals(1, pool.getRejectedCount());
+        }
+    }
+
+    @Test
+    public void testDropOldest() throws Exception {
+        fill(OverflowStrategy.DROP_OLDEST);
+        AtomicBoolean executed = new AtomicBoolean();
+        pool.execute(() -> executed.set(true));
+        assertEquals(1, pool.getRejectedCount());
+        assertEquals(1, pool.getQueue().size());
+
+        release.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(1, TimeUnit.SECONDS));
+        assertTrue(executed.get());
+        assertEquals(3, pool.latency.wait.getCount() + pool.getRejectedCount());
+    }
+
+    @Test
+    public void testCallerRuns() {
+        fill(OverflowStrategy.CALLER_RUNS);
+        AtomicReference<Thread> executor = new AtomicReference<>();
+        pool.execute(() -> executor.set(Thread.currentThread()));
+        assertSame(Thread.currentThread(), executor.get());
+        assertEquals(0, pool.getRejectedCount());
+    }
+
+    @Test
+    public void testCallerRunsSpillsFromEventLoop() throws Exception {
+        fill(OverflowStrategy.CALLER_RUNS);
+        AtomicReference<Thread> executor = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(1);
+        Thread eventLoop = new FastThreadLocalThread(() -> pool.execute(() -> {
+            executor.set(Thread.currentThread());
+            done.countDown();
+        }));
+        eventLoop.start();
+
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        assertNotEquals(eventLoop, executor.get());
+        assertEquals(1, pool.getSpilledCount());
+    }
+
+    @Test
+    public void testSpill() throws Exception {
+        fill(OverflowStrategy.SPILL);
+        CountDownLatch done = new CountDownLatch(1);
+        pool.execute(done::countDown);
+
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        assertEquals(1, pool.getSpilledCount());
+        assertEquals(0, pool.getRejectedCount());
+        assertFalse(spillPool.isShutdown());
+    }
+
+}
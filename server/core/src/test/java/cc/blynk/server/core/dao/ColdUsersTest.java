@@ -0,0 +1,152 @@
+package cc.blynk.server.core.dao;
+
+import cc.blynk.server.core.model.DashBoard;
+import cc.blynk.server.core.model.auth.User;
+import cc.blynk.server.core.model.device.BoardType;
+import cc.blynk.server.core.model.device.Device;
+import cc.blynk.utils.AppNameUtil;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The Blynk Project.
+ * Created by Dmitriy Dumanskiy.
+ * Created on 18.10.26.
+ */
+public class ColdUsersTest {
+
+    private static final long DAY = 24 * 60 * 60 * 1000;
+
+    private FileManager fileManager;
+    private UserDao userDao;
+    private TokenManager tokenManager;
+    private ColdUsers coldUsers;
+
+    @Before
+    public void init() throws IOException {
+        String dataFolder = Paths.get(System.getProperty("java.io.tmpdir"), "blynk").toString();
+        org.apache.commons.io.FileUtils.deleteDirectory(Paths.get(dataFolder).toFile());
+        fileManager = new FileManager(dataFolder, null);
+        userDao = new UserDao(new ConcurrentHashMap<>(), "local", "127.0.0.1");
+        tokenManager = new TokenManager(userDao.users, null, "127.0.0.1");
+        coldUsers = new ColdUsers(fileManager, userDao, tokenManager, new SessionDao(), DAY);
+    }
+
+    private User inactiveUser(String email, String token) {
+        User user = new User(email, "pass", AppNameUtil.BLYNK, "local", "127.0.0.1", false, false);
+        user.lastModifiedTs = System.currentTimeMillis() - 2 * DAY;
+        DashBoard dash = new DashBoard();
+        dash.id = 1;
+        dash.sharedToken = token + "shared";
+        Device device = new Device(0, "device", BoardType.ESP8266);
+        device.token = token;
+        dash.devices = new Device[] {device};
+        user.profile.dashBoards = new DashBoard[] {dash};
+        userDao.add(user);
+        tokenManager.updateRegularCache(token, user, dash, device);
+        tokenManager.updateSharedCache(dash.sharedToken, user, dash.id);
+        return user;
+    }
+
+    @Test
+    public void testInactiveUserEvictedAndLoadedByToken() {
+        User user = inactiveUser("cold@blynk.cc", "token1");
+        User active = new User("hot@blynk.cc", "pass", AppNameUtil.BLYNK, "local", "127.0.0.1", false, false);
+        userDao.add(active);
+
+        assertEquals(1, coldUsers.evictInactive());
+        assertEquals(1, userDao.users.size());
+        assertEquals(2, userDao.size());
+        assertTrue(userDao.contains(user.email, user.appName));
+
+        TokenValue tokenValue = tokenManager.getTokenValueByToken("token1");
+        assertNotNull(tokenValue);
+        assertNotSame(user, tokenValue.user);
+        assertEquals(user.email, tokenValue.user.email);
+        assertSame(tokenValue.user, userDao.getByName(user.email, user.appName));
+        assertEquals(0, coldUsers.size());
+        assertEquals(2, userDao.users.size());
+
+        //just loaded user is not evicted
+        assertEquals(0, coldUsers.evictInactive());
+    }
+
+    @Test
+    public void testEvictedUserLoadedByNameAndSharedToken() {
+        User user = inactiveUser("cold@blynk.cc", "token1");
+        assertEquals(1, coldUsers.evictInactive());
+
+        User loaded = userDao.getByName(user.email, user.appName);
+        assertNotNull(loaded);
+        assertSame(loaded, tokenManager.getUserBySharedToken("token1shared").user);
+        assertSame(loaded, tokenManager.getTokenValueByToken("token1").user);
+    }
+
+    @Test
+    public void testSearchIncludesColdUsers() {
+        User user = inactiveUser("cold@blynk.cc", "token1");
+        userDao.add(new User("hot@blynk.cc", "pass", AppNameUtil.BLYNK, "local", "127.0.0.1", false, false));
+        assertEquals(1, coldUsers.evictInactive());
+
+        assertEquals(2, userDao.getUserKeys().size());
+        assertTrue(userDao.getUserKeys().contains(new UserKey(user)));
+        assertEquals(1, coldUsers.size());
+
+        List<User> found = userDao.searchByUsername("cold", null);
+        assertEquals(1, found.size());
+        assertEquals(user.email, found.get(0).email);
+        assertEquals(user.lastModifiedTs, found.get(0).lastModifiedTs);
+        assertEquals(2, userDao.searchByUsername(null, null).size());
+        //search doesn't load evicted users back to memory
+        assertEquals(1, coldUsers.size());
+
+        User peeked = userDao.peek(new UserKey(user));
+        assertNotNull(peeked);
+        assertEquals("token1", peeked.profile.dashBoards[0].devices[0].token);
+        assertEquals(1, coldUsers.size());
+        assertNull(userDao.getUsers().get(new UserKey(user)));
+    }
+
+    @Test
+    public void testEvictionRevertedForUserAcquiredDuringEviction() {
+        //user logs in while profile is written to disk
+        coldUsers = new ColdUsers(new FileManager(fileManager.getDataDir().toString(), null) {
+            @Override
+            public void overrideUserFile(User user) throws IOException {
+                super.overrideUserFile(user);
+                user.lastLoggedAt = System.currentTimeMillis();
+            }
+        }, userDao, tokenManager, new SessionDao(), DAY);
+        User user = inactiveUser("cold@blynk.cc", "token1");
+
+        assertEquals(0, coldUsers.evictInactive());
+        assertEquals(0, coldUsers.size());
+        assertSame(user, userDao.users.get(new UserKey(user)));
+        assertSame(user, tokenManager.getTokenValueByToken("token1").user);
+        assertSame(user, tokenManager.getUserBySharedToken("token1shared").user);
+    }
+
+    @Test
+    public void testDeletedColdUserIsForgotten() {
+        User user = inactiveUser("cold@blynk.cc", "token1");
+        assertEquals(1, coldUsers.evictInactive());
+
+        userDao.delete(user.email, user.appName);
+        assertFalse(userDao.contains(user.email, user.appName));
+        assertNull(tokenManager.getTokenValueByToken("token1"));
+    }
+
+}
@@ -238,4 +238,20 @@ public class DataStreamStorageSerializationTest {
         assertEquals(0, ((MultiPinStorageValue) user.profile.pinsStorage.get(pinStorageKey)).values.size());
     }
 
+    @Test
+    public void testDeserializeSkipsBrokenValue() throws Exception {
+        String expectedString = "{\"email\":\"123\",\"appName\":\"Blynk\",\"lastModifiedTs\":0,\"lastLoggedAt\":0," +
+                "\"profile\":{" +
+                "\"dashBoards\":[{\"id\":0,\"createdAt\":0,\"updatedAt\":0,\"theme\":\"Blynk\",\"keepScreenOn\":false,\"isShared\":false,\"isActive\":false}]," +
+                "\"pinsStorage\":{\"0-0-v0\":\"1\", \"0-0-v1\":{\"values\":[\"1\"]}, \"0-0-v2\":null}" +
+                "},\"isFacebookUser\":false,\"energy\":2000,\"id\":\"123-Blynk\"}";
+
+        User user = JsonParser.parseUserFromString(expectedString);
+        assertNotNull(user);
+        assertEquals(1, user.profile.pinsStorage.size());
+
+        DashPinStorageKey pinStorageKey = new DashPinStorageKey(0, 0, PinType.VIRTUAL, (short) 0);
+        assertEquals("1", ((SinglePinStorageValue) user.profile.pinsStorage.get(pinStorageKey)).value);
+    }
+
 }
@@ -0,0 +1,71 @@
+package cc.blynk.server.core.model;
+
+import cc.blynk.server.core.model.device.Tag;
+import cc.blynk.server.core.model.enums.PinType;
+import cc.blynk.server.core.model.widgets.Widget;
+import cc.blynk.server.core.model.widgets.outputs.graph.GraphDataStream;
+import cc.blynk.server.core.model.widgets.outputs.graph.Superchart;
+import org.junit.Test;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * The Blynk Project.
+ * Created by Dmitriy Dumanskiy.
+ * Created on 18.10.26.
+ */
+public class LoggedPinsIndexTest {
+
+    private static GraphDataStream graphDataStream(int targetId, DataStream dataStream) {
+        return new GraphDataStream(null, null, 0, targetId, dataStream,
+                null, 0, null, null, null, 0, 0, false, null,
+                false, false, false, null, 0, false, 0);
+    }
+
+    private static Superchart superchart(long id, GraphDataStream... dataStreams) {
+        Superchart superchart = new Superchart();
+        superchart.id = id;
+        superchart.dataStreams = dataStreams;
+        return superchart;
+    }
+
+    @Test
+    public void testDeviceAndPwmPins() {
+        DashBoard dash = new DashBoard();
+        Superchart graph = superchart(1,
+                graphDataStream(0, new DataStream((short) 1, PinType.VIRTUAL)),
+                graphDataStream(1, new DataStream((short) 2, true, false, PinType.DIGITAL, null, 0, 255, null)));
+        dash.widgets = new Widget[] {graph};
+
+        assertSame(graph, dash.getWidgetWithLoggedPin(0, (short) 1, PinType.VIRTUAL));
+        assertNull(dash.getWidgetWithLoggedPin(1, (short) 1, PinType.VIRTUAL));
+        assertSame(graph, dash.getWidgetWithLoggedPin(1, (short) 2, PinType.DIGITAL));
+        assertSame(graph, dash.getWidgetWithLoggedPin(1, (short) 2, PinType.ANALOG));
+        assertNull(dash.getWidgetWithLoggedPin(0, (short) 2, PinType.DIGITAL));
+    }
+
+    @Test
+    public void testIndexIsRebuiltOnWidgetsAndTagsChange() {
+        DashBoard dash = new DashBoard();
+        Superchart graph = superchart(1, graphDataStream(Tag.START_TAG_ID, new DataStream((short) 1, PinType.VIRTUAL)));
+        dash.widgets = new Widget[] {graph};
+        assertNull(dash.getWidgetWithLoggedPin(5, (short) 1, PinType.VIRTUAL));
+
+        dash.tags = new Tag[] {new Tag(Tag.START_TAG_ID, "tag", new int[] {5, 6})};
+        assertSame(graph, dash.getWidgetWithLoggedPin(5, (short) 1, PinType.VIRTUAL));
+        assertSame(graph, dash.getWidgetWithLoggedPin(6, (short) 1, PinType.VIRTUAL));
+
+        //in place change has to be reported explicitly
+        dash.tags[0].deleteDevice(5);
+        dash.invalidatePinIndexes();
+        assertNull(dash.getWidgetWithLoggedPin(5, (short) 1, PinType.VIRTUAL));
+        assertSame(graph, dash.getWidgetWithLoggedPin(6, (short) 1, PinType.VIRTUAL));
+
+        Superchart graph2 = superchart(2, graphDataStream(5, new DataStream((short) 1, PinType.VIRTUAL)));
+        dash.widgets = new Widget[] {graph2, graph};
+        assertSame(graph2, dash.getWidgetWithLoggedPin(5, (short) 1, PinType.VIRTUAL));
+        assertSame(graph, dash.getWidgetWithLoggedPin(6, (short) 1, PinType.VIRTUAL));
+    }
+
+}
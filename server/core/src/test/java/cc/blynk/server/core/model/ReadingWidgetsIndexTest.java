@@ -0,0 +1,73 @@
+package cc.blynk.server.core.model;
+
+import cc.blynk.server.core.model.enums.PinType;
+import cc.blynk.server.core.model.widgets.Widget;
+import cc.blynk.server.core.model.widgets.controls.Button;
+import cc.blynk.server.core.model.widgets.outputs.Gauge;
+import cc.blynk.server.core.model.widgets.outputs.ValueDisplay;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The Blynk Project.
+ * Created by Dmitriy Dumanskiy.
+ * Created on 18.10.26.
+ */
+public class ReadingWidgetsIndexTest {
+
+    private static ValueDisplay display(long id, int frequency) {
+        ValueDisplay display = new ValueDisplay();
+        display.id = id;
+        display.pinType = PinType.VIRTUAL;
+        display.pin = 1;
+        display.frequency = frequency;
+        return display;
+    }
+
+    @Test
+    public void testOnlyWidgetsWithReadingInterval() {
+        DashBoard dash = new DashBoard();
+        ValueDisplay reading = display(1, 1000);
+        dash.widgets = new Widget[] {new Button(), display(2, 0), reading};
+
+        ReadingWidgetsIndex index = dash.getReadingWidgets();
+        assertArrayEquals(new Object[] {reading}, index.widgets);
+        assertEquals(0, index.deviceTiles.length);
+        assertSame(index, dash.getReadingWidgets());
+    }
+
+    @Test
+    public void testIndexIsRebuiltOnWidgetsChange() {
+        DashBoard dash = new DashBoard();
+        dash.widgets = new Widget[] {new Button()};
+        ReadingWidgetsIndex index = dash.getReadingWidgets();
+        assertTrue(index.isEmpty());
+
+        Gauge gauge = new Gauge();
+        gauge.frequency = 500;
+        dash.widgets = new Widget[] {new Button(), gauge};
+        ReadingWidgetsIndex rebuilt = dash.getReadingWidgets();
+        assertNotSame(index, rebuilt);
+        assertArrayEquals(new Object[] {gauge}, rebuilt.widgets);
+
+        //in place change has to be reported explicitly
+        gauge.frequency = 0;
+        assertSame(rebuilt, dash.getReadingWidgets());
+        dash.invalidatePinIndexes();
+        assertTrue(dash.getReadingWidgets().isEmpty());
+    }
+
+    @Test
+    public void testNextTickTs() {
+        ValueDisplay display = display(1, 1000);
+        assertTrue(display.isTicked(5000));
+        assertEquals(6000, display.getNextTickTs());
+        assertEquals(Long.MAX_VALUE, display(2, 0).getNextTickTs());
+    }
+
+}
@@ -0,0 +1,71 @@
+package cc.blynk.server.core.model;
+
+import cc.blynk.server.core.model.enums.PinType;
+import cc.blynk.server.core.model.widgets.OnePinWidget;
+import cc.blynk.server.core.model.widgets.Widget;
+import cc.blynk.server.core.model.widgets.controls.Button;
+import cc.blynk.server.core.model.widgets.outputs.ValueDisplay;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The Blynk Project.
+ * Created by Dmitriy Dumanskiy.
+ * Created on 18.10.26.
+ */
+public class WidgetsByPinIndexTest {
+
+    private static <T extends OnePinWidget> T widget(T widget, long id, int deviceId, PinType pinType, int pin) {
+        widget.id = id;
+        widget.deviceId = deviceId;
+        widget.pinType = pinType;
+        widget.pin = (short) pin;
+        return widget;
+    }
+
+    @Test
+    public void testUpdateWidgetsByPin() {
+        DashBoard dash = new DashBoard();
+        Button button = widget(new Button(), 1, 0, PinType.ANALOG, 1);
+        ValueDisplay display = widget(new ValueDisplay(), 2, 1, PinType.VIRTUAL, 1);
+        dash.widgets = new Widget[] {button, display};
+
+        assertTrue(dash.updateWidgets(0, (short) 1, PinType.ANALOG, "10"));
+        assertEquals("10", button.value);
+        assertNull(display.value);
+
+        //analog widget is updated with digital value as well, see OnePinWidget.isSame()
+        assertTrue(dash.updateWidgets(0, (short) 1, PinType.DIGITAL, "1"));
+        assertEquals("1", button.value);
+
+        assertTrue(dash.updateWidgets(1, (short) 1, PinType.VIRTUAL, "2"));
+        assertEquals("2", display.value);
+
+        assertFalse(dash.updateWidgets(0, (short) 1, PinType.VIRTUAL, "3"));
+        assertFalse(dash.updateWidgets(2, (short) 1, PinType.VIRTUAL, "3"));
+    }
+
+    @Test
+    public void testIndexIsRebuiltOnWidgetsChange() {
+        DashBoard dash = new DashBoard();
+        ValueDisplay display = widget(new ValueDisplay(), 1, 0, PinType.VIRTUAL, 1);
+        dash.widgets = new Widget[] {display};
+        assertFalse(dash.updateWidgets(0, (short) 2, PinType.VIRTUAL, "1"));
+
+        //in place change has to be reported explicitly
+        display.pin = 2;
+        dash.invalidatePinIndexes();
+        assertTrue(dash.updateWidgets(0, (short) 2, PinType.VIRTUAL, "1"));
+        assertEquals("1", display.value);
+
+        ValueDisplay display2 = widget(new ValueDisplay(), 2, 0, PinType.VIRTUAL, 3);
+        dash.widgets = new Widget[] {display, display2};
+        assertTrue(dash.updateWidgets(0, (short) 3, PinType.VIRTUAL, "2"));
+        assertEquals("2", display2.value);
+    }
+
+}
@@ -0,0 +1,197 @@
+package cc.blynk.server.core.model.auth;
+
+import cc.blynk.server.common.BaseSimpleChannelInboundHandler;
+import cc.blynk.server.core.model.DashBoard;
+import cc.blynk.server.core.model.device.Device;
+import cc.blynk.server.core.protocol.model.messages.StringMessage;
+import cc.blynk.server.core.session.HardwareStateHolder;
+import cc.blynk.server.core.session.StateHolderBase;
+import cc.blynk.server.core.stats.GlobalStats;
+import cc.blynk.server.core.stats.SessionStats;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static cc.blynk.server.core.protocol.enums.Command.HARDWARE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The Blynk Project.
+ * Created by Dmitriy Dumanskiy.
+ * Created on 18.10.26.
+ */
+public class SessionTest {
+
+    private final User user = new User();
+
+    private static EmbeddedChannel channel(StateHolderBase state) {
+        return new EmbeddedChannel(new BaseSimpleChannelInboundHandler<Object>(Object.class, new GlobalStats()) {
+            @Override
+            public void messageReceived(ChannelHandlerContext ctx, Object msg) {
+            }
+
+            @Override
+            public StateHolderBase getState() {
+                return state;
+            }
+        });
+    }
+
+    private EmbeddedChannel hardChannel(int dashId, int deviceId) {
+        DashBoard dash = new DashBoard();
+        dash.id = dashId;
+        Device device = new Device();
+        device.id = deviceId;
+        return channel(new HardwareStateHolder(user, dash, device));
+    }
+
+    private EmbeddedChannel appChannel(int dashId) {
+        return channel(new StateHolderBase(user) {
+            @Override
+            public boolean contains(String sharedToken) {
+                return false;
+            }
+
+            @Override
+            public int getDashId() {
+                return dashId;
+            }
+
+            @Override
+            public boolean isSameDash(int inDashId) {
+                return dashId == ANY_DASH || dashId == inDashId;
+            }
+
+            @Override
+            public boolean isSameDevice(int deviceId) {
+                return true;
+            }
+
+            @Override
+            public boolean isSameDashAndDeviceId(int inDashId, int deviceId) {
+                return isSameDash(inDashId);
+            }
+        });
+    }
+
+    private static String readBody(EmbeddedChannel channel) {
+        StringMessage msg = channel.readOutbound();
+        return msg == null ? null : msg.body;
+    }
+
+    @Test
+    public void testSendToHardwareByDashAndDevice() {
+        Session session = new Session(null);
+        EmbeddedChannel device1 = hardChannel(1, 1);
+        EmbeddedChannel device2 = hardChannel(1, 2);
+        EmbeddedChannel otherDash = hardChannel(2, 1);
+        session.addHardChannel(device1);
+        session.addHardChannel(device2);
+        session.addHardChannel(otherDash);
+
+        assertFalse(session.sendMessageToHardware(1, HARDWARE, 1, "vw 1 1", 1));
+        assertEquals("vw 1 1", readBody(device1));
+        assertNull(readBody(device2));
+        assertNull(readBody(otherDash));
+
+        //same device listed twice receives message once
+        assertFalse(session.sendMessageToHardware(1, HARDWARE, 1, "vw 1 2", 2, 2, 3));
+        assertNull(readBody(device1));
+        assertEquals("vw 1 2", readBody(device2));
+        assertNull(readBody(device2));
+
+        assertFalse(session.sendMessageToHardware(1, HARDWARE, 1, "vw 1 3", new int[0]));
+        assertEquals("vw 1 3", readBody(device1));
+        assertEquals("vw 1 3", readBody(device2));
+        assertNull(readBody(otherDash));
+
+        assertTrue(session.sendMessageToHardware(3, HARDWARE, 1, "vw 1 4", 1));
+        assertTrue(session.isHardwareConnected(1, 2));
+        assertTrue(session.isHardwareConnected(2));
+
+        device2.close();
+        assertFalse(session.isHardwareConnected(1, 2));
+        assertTrue(session.sendMessageToHardware(1, HARDWARE, 1, "vw 1 5", 2));
+        assertTrue(session.isHardwareConnected(1));
+    }
+
+    @Test
+    public void testSendToAppsByDash() {
+        Session session = new Session(null);
+        EmbeddedChannel app = appChannel(StateHolderBase.ANY_DASH);
+        EmbeddedChannel sharedApp = appChannel(1);
+        session.addAppChannel(app);
+        session.addAppChannel(sharedApp);
+
+        session.sendToApps(HARDWARE, 1, 1, "1-1 vw 1 1");
+        assertEquals("1-1 vw 1 1", readBody(app));
+        assertEquals("1-1 vw 1 1", readBody(sharedApp));
+
+        session.sendToApps(HARDWARE, 1, 2, "2-1 vw 1 1");
+        assertEquals("2-1 vw 1 1", readBody(app));
+        assertNull(readBody(sharedApp));
+
+        app.close();
+        session.sendToApps(HARDWARE, 1, 2, "2-1 vw 1 2");
+        assertNull(readBody(sharedApp));
+        session.sendToApps(HARDWARE, 1, 1, "1-1 vw 1 2");
+        assertEquals("1-1 vw 1 2", readBody(sharedApp));
+    }
+
+    @Test
+    public void testSendManyToAppsFlushesWhenNotWritable() {
+        Session session = new Session(null);
+        EmbeddedChannel app = appChannel(StateHolderBase.ANY_DASH);
+        //few messages are enough to fill outbound buffer
+        app.config().setWriteBufferWaterMark(new WriteBufferWaterMark(8, 16));
+        session.addAppChannel(app);
+
+        List<String> bodies = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            bodies.add("1-1 vw " + i + " 1");
+        }
+        session.sendToApps(HARDWARE, 1, 1, bodies);
+
+        for (String body : bodies) {
+            assertEquals(body, readBody(app));
+        }
+        assertNull(readBody(app));
+        assertTrue(app.isWritable());
+    }
+
+    @Test
+    public void testOnlineCountersFollowChannels() {
+        SessionStats sessionStats = new SessionStats();
+        Session session1 = new Session(null, sessionStats);
+        Session session2 = new Session(null, sessionStats);
+
+        EmbeddedChannel app = appChannel(StateHolderBase.ANY_DASH);
+        EmbeddedChannel device1 = hardChannel(1, 1);
+        EmbeddedChannel device2 = hardChannel(1, 2);
+        session1.addAppChannel(app);
+        session1.addHardChannel(device1);
+        session2.addHardChannel(device2);
+
+        assertEquals(1, sessionStats.getConnected());
+        assertEquals(1, sessionStats.getAppSessions());
+        assertEquals(2, sessionStats.getHardSessions());
+        assertEquals(1, sessionStats.getAppChannels());
+        assertEquals(2, sessionStats.getHardChannels());
+
+        app.close();
+        device2.close();
+        assertEquals(0, sessionStats.getConnected());
+        assertEquals(0, sessionStats.getAppSessions());
+        assertEquals(1, sessionStats.getHardSessions());
+        assertEquals(0, sessionStats.getAppChannels());
+        assertEquals(1, sessionStats.getHardChannels());
+    }
+
+}
@@ -0,0 +1,116 @@
+package cc.blynk.server.core.protocol.handlers.decoders;
+
+import cc.blynk.server.Limits;
+import cc.blynk.server.core.model.enums.PinType;
+import cc.blynk.server.core.protocol.model.messages.MessageBase;
+import cc.blynk.server.core.protocol.model.messages.StringMessage;
+import cc.blynk.server.core.protocol.model.messages.hardware.PinWriteMessage;
+import cc.blynk.server.core.stats.GlobalStats;
+import cc.blynk.utils.properties.ServerProperties;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static cc.blynk.server.core.protocol.enums.Command.HARDWARE;
+import static cc.blynk.server.core.protocol.enums.Command.PING;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The Blynk Project.
+ * Created by Dmitriy Dumanskiy.
+ * Created on 18.10.26.
+ */
+public class MessageDecoderTest {
+
+    private final Limits limits = new Limits(new ServerProperties(Collections.emptyMap()));
+
+    private static ByteBuf frame(short command, int messageId, String body) {
+        byte[] bytes = body.replace(' ', '\0').getBytes(StandardCharsets.UTF_8);
+        ByteBuf buf = Unpooled.buffer();
+        buf.writeByte(command);
+        buf.writeShort(messageId);
+        buf.writeShort(bytes.length);
+        buf.writeBytes(bytes);
+        return buf;
+    }
+
+    private MessageBase decode(boolean decodePinWrites, short command, String body) {
+        EmbeddedChannel channel = new EmbeddedChannel(new MessageDecoder(new GlobalStats(), limits, decodePinWrites));
+        assertTrue(channel.writeInbound(frame(command, 1, body)));
+        MessageBase message = channel.readInbound();
+        assertFalse(channel.finish());
+        return message;
+    }
+
+    private static String toBody(String body) {
+        return body.replace(' ', '\0');
+    }
+
+    @Test
+    public void testPinWritesDecodedFromBuffer() {
+        PinWriteMessage message = (PinWriteMessage) decode(true, HARDWARE, "vw 12 ёжик 1");
+        assertEquals(1, message.id);
+        assertEquals(HARDWARE, message.command);
+        assertEquals(PinType.VIRTUAL, message.pinType);
+        assertEquals(12, message.pin);
+        assertEquals(toBody("ёжик 1"), message.value);
+        assertEquals(toBody("vw 12 ёжик 1"), message.getBody());
+
+        message = (PinWriteMessage) decode(true, HARDWARE, "dw 0 1");
+        assertEquals(PinType.DIGITAL, message.pinType);
+        assertEquals(0, message.pin);
+        assertEquals("1", message.value);
+
+        message = (PinWriteMessage) decode(true, HARDWARE, "aw 255 1023");
+        assertEquals(PinType.ANALOG, message.pinType);
+        assertEquals(255, message.pin);
+        assertEquals("1023", message.value);
+    }
+
+    @Test
+    public void testNotCanonicalWritesDecodedAsString() {
+        String[] bodies = {
+                "vw 256 1", "vw 01 1", "vw 1000 1", "vw -1 1", "vw 1", "vw 1 ", "vw  1",
+                "Vw 1 1", "xw 1 1", "vr 1", "vwx 1 1"
+        };
+        for (String body : bodies) {
+            StringMessage message = (StringMessage) decode(true, HARDWARE, body);
+            assertEquals(toBody(body), message.body);
+        }
+    }
+
+    @Test
+    public void testPinWritesDecodedAsStringWhenDisabled() {
+        StringMessage message = (StringMessage) decode(false, HARDWARE, "vw 1 1");
+        assertEquals(toBody("vw 1 1"), message.body);
+
+        message = (StringMessage) decode(true, PING, "vw 1 1");
+        assertEquals(toBody("vw 1 1"), message.body);
+    }
+
+    @Test
+    public void testBufferPositionAfterDecode() {
+        ByteBuf buf = frame(HARDWARE, 1, "vw 1 100");
+        buf.writeBytes(frame(HARDWARE, 2, "vw 01 100"));
+        buf.writeBytes(frame(HARDWARE, 3, "dw 2 1"));
+
+        EmbeddedChannel channel = new EmbeddedChannel(new MessageDecoder(new GlobalStats(), limits, true));
+        assertTrue(channel.writeInbound(buf));
+
+        PinWriteMessage first = channel.readInbound();
+        StringMessage second = channel.readInbound();
+        PinWriteMessage third = channel.readInbound();
+        assertEquals("100", first.value);
+        assertEquals(toBody("vw 01 100"), second.body);
+        assertEquals(3, third.id);
+        assertEquals("1", third.value);
+        assertFalse(channel.finish());
+    }
+
+}
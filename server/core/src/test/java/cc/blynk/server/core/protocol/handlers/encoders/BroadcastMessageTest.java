@@ -0,0 +1,73 @@
+package cc.blynk.server.core.protocol.handlers.encoders;
+
+import cc.blynk.server.core.protocol.model.messages.StringMessage;
+import cc.blynk.server.core.stats.GlobalStats;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import org.junit.Test;
+
+import static cc.blynk.server.core.protocol.enums.Command.HARDWARE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * The Blynk Project.
+ * Created by Dmitriy Dumanskiy.
+ * Created on 18.10.26.
+ */
+public class BroadcastMessageTest {
+
+    private final GlobalStats stats = new GlobalStats();
+    private final StringMessage message = new StringMessage(1, HARDWARE, "1-1 vw 1 ёжик");
+
+    //frame produced by the regular pipeline encoding
+    private static ByteBuf encode(ChannelHandler encoder, StringMessage message) {
+        EmbeddedChannel channel = new EmbeddedChannel(encoder);
+        channel.writeOutbound(message);
+        Object msg = channel.readOutbound();
+        return msg instanceof BinaryWebSocketFrame ? ((BinaryWebSocketFrame) msg).content() : (ByteBuf) msg;
+    }
+
+    @Test
+    public void testFramesAreSameAsRegularEncoding() {
+        EmbeddedChannel hardware = new EmbeddedChannel(new MessageEncoder(stats));
+        EmbeddedChannel mobile1 = new EmbeddedChannel(new MobileMessageEncoder(stats));
+        EmbeddedChannel mobile2 = new EmbeddedChannel(new MobileMessageEncoder(stats));
+        EmbeddedChannel web = new EmbeddedChannel(new WSMessageEncoder());
+        EmbeddedChannel unknown = new EmbeddedChannel();
+
+        BroadcastMessage broadcastMessage = new BroadcastMessage(message);
+        broadcastMessage.writeAndFlush(hardware);
+        broadcastMessage.writeAndFlush(mobile1);
+        broadcastMessage.writeAndFlush(mobile2);
+        broadcastMessage.writeAndFlush(web);
+        broadcastMessage.writeAndFlush(unknown);
+        broadcastMessage.release();
+
+        ByteBuf hardwareFrame = hardware.readOutbound();
+        ByteBuf mobileFrame1 = mobile1.readOutbound();
+        ByteBuf mobileFrame2 = mobile2.readOutbound();
+        BinaryWebSocketFrame webFrame = web.readOutbound();
+
+        assertEquals(encode(new MessageEncoder(stats), message), hardwareFrame);
+        assertEquals(encode(new MobileMessageEncoder(stats), message), mobileFrame1);
+        assertEquals(encode(new WSMessageEncoder(), message), webFrame.content());
+        assertSame(message, unknown.readOutbound());
+
+        //mobile channels share the same frame, it is freed when all channels release it
+        ByteBuf sharedMobileFrame = mobileFrame1.unwrap();
+        assertSame(sharedMobileFrame, mobileFrame2.unwrap());
+        assertEquals(2, sharedMobileFrame.refCnt());
+        mobileFrame1.release();
+        mobileFrame2.release();
+        assertEquals(0, sharedMobileFrame.refCnt());
+
+        ByteBuf sharedHardwareFrame = hardwareFrame.unwrap();
+        hardwareFrame.release();
+        webFrame.release();
+        assertEquals(0, sharedHardwareFrame.refCnt());
+    }
+
+}
@@ -0,0 +1,82 @@
+package cc.blynk.server.core.reporting;
+
+import org.junit.Test;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * The Blynk Project.
+ * Created by Dmitriy Dumanskiy.
+ * Created on 18.10.26.
+ */
+public class GraphDataCacheTest {
+
+    private final Path minuteFile = Paths.get("/tmp/user/history_1-0_v1_minute.bin");
+    private final Path hourlyFile = Paths.get("/tmp/user/history_1-0_v1_hourly.bin");
+
+    @Test
+    public void testHitAndMiss() {
+        GraphDataCache cache = new GraphDataCache(1024 * 1024);
+        assertNull(cache.get("a"));
+
+        byte[] data = {1, 2, 3};
+        cache.put("a", new Path[] {minuteFile}, data, cache.version());
+        assertArrayEquals(data, cache.get("a"));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void testInvalidatedByFileAppend() {
+        GraphDataCache cache = new GraphDataCache(1024 * 1024);
+        cache.put("minute", new Path[] {minuteFile}, new byte[10], cache.version());
+        cache.put("hourly", new Path[] {hourlyFile}, new byte[10], cache.version());
+        cache.put("both", new Path[] {minuteFile, hourlyFile}, new byte[10], cache.version());
+
+        cache.invalidate(Collections.singletonList(minuteFile));
+        assertNull(cache.get("minute"));
+        assertNull(cache.get("both"));
+        assertNotNull(cache.get("hourly"));
+        assertEquals(2, cache.getInvalidations());
+
+        cache.invalidate(hourlyFile);
+        assertEquals(0, cache.getSize());
+        assertEquals(0, cache.getBytes());
+    }
+
+    @Test
+    public void testResponseReadBeforeInvalidationIsNotCached() {
+        GraphDataCache cache = new GraphDataCache(1024 * 1024);
+        long version = cache.version();
+        cache.invalidate(minuteFile);
+        cache.put("a", new Path[] {minuteFile}, new byte[10], version);
+        assertNull(cache.get("a"));
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsedBySize() {
+        GraphDataCache cache = new GraphDataCache(3000);
+        cache.put("a", new Path[] {minuteFile}, new byte[1000], cache.version());
+        cache.put("b", new Path[] {minuteFile}, new byte[1000], cache.version());
+        cache.get("a");
+        cache.put("c", new Path[] {hourlyFile}, new byte[1000], cache.version());
+
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("a"));
+        assertNotNull(cache.get("c"));
+        assertEquals(1, cache.getEvictions());
+
+        //entries above the limit are never cached
+        cache.put("d", new Path[] {hourlyFile}, new byte[5000], cache.version());
+        assertNull(cache.get("d"));
+        assertEquals(2, cache.getSize());
+    }
+
+}
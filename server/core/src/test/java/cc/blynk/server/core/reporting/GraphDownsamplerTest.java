@@ -0,0 +1,74 @@
+package cc.blynk.server.core.reporting;
+
+import cc.blynk.server.core.model.widgets.outputs.graph.AggregationFunctionType;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static cc.blynk.utils.FileUtils.SIZE_OF_REPORT_ENTRY;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The Blynk Project.
+ * Created by Dmitriy Dumanskiy.
+ * Created on 18.10.26.
+ */
+public class GraphDownsamplerTest {
+
+    private static byte[] points(double... values) {
+        ByteBuffer buffer = ByteBuffer.allocate(values.length * SIZE_OF_REPORT_ENTRY);
+        for (int i = 0; i < values.length; i++) {
+            buffer.putDouble(values[i]).putLong(i * 1000L);
+        }
+        return buffer.array();
+    }
+
+    @Test
+    public void testNoDownsamplingWithinBudget() {
+        byte[] data = points(1, 2, 3, 4, 5);
+        assertSame(data, GraphDownsampler.downsample(data, 0, AggregationFunctionType.AVG));
+        assertSame(data, GraphDownsampler.downsample(data, 5, AggregationFunctionType.AVG));
+    }
+
+    @Test
+    public void testLttbKeepsEdgesAndPeak() {
+        double[] values = new double[1000];
+        values[500] = 100;
+        byte[] result = GraphDownsampler.downsample(points(values), 10, AggregationFunctionType.AVG);
+
+        ByteBuffer buffer = ByteBuffer.wrap(result);
+        assertEquals(10, result.length / SIZE_OF_REPORT_ENTRY);
+        assertEquals(0, buffer.getLong(8));
+        assertEquals(999_000, buffer.getLong(result.length - 8));
+
+        boolean hasPeak = false;
+        long prevTs = -1;
+        while (buffer.hasRemaining()) {
+            double value = buffer.getDouble();
+            long ts = buffer.getLong();
+            assertTrue(ts > prevTs);
+            prevTs = ts;
+            hasPeak |= value == 100;
+        }
+        assertTrue(hasPeak);
+    }
+
+    @Test
+    public void testMinMaxBuckets() {
+        byte[] result = GraphDownsampler.downsample(points(5, 1, 9, 3, 7, 2, 8, 4), 4, AggregationFunctionType.MAX);
+
+        ByteBuffer buffer = ByteBuffer.wrap(result);
+        assertEquals(4, result.length / SIZE_OF_REPORT_ENTRY);
+        assertEquals(1, buffer.getDouble(), 0.0001);
+        assertEquals(1000, buffer.getLong());
+        assertEquals(9, buffer.getDouble(), 0.0001);
+        assertEquals(2000, buffer.getLong());
+        assertEquals(2, buffer.getDouble(), 0.0001);
+        assertEquals(5000, buffer.getLong());
+        assertEquals(8, buffer.getDouble(), 0.0001);
+        assertEquals(6000, buffer.getLong());
+    }
+
+}
@@ -0,0 +1,81 @@
+package cc.blynk.server.core.reporting;
+
+import cc.blynk.server.core.dao.functions.AverageGraphFunction;
+import cc.blynk.server.core.dao.functions.SumGraphFunction;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The Blynk Project.
+ * Created by Dmitriy Dumanskiy.
+ * Created on 18.10.26.
+ */
+public class ReportingEntriesMergerTest {
+
+    private static ByteBuffer entries(double[] values, long[] timestamps) {
+        ByteBuffer byteBuffer = ByteBuffer.allocate(values.length * 16);
+        for (int i = 0; i < values.length; i++) {
+            byteBuffer.putDouble(values[i]).putLong(timestamps[i]);
+        }
+        byteBuffer.flip();
+        return byteBuffer;
+    }
+
+    @Test
+    public void testMergeAggregatesSameTimestamps() {
+        ByteBuffer[] sources = new ByteBuffer[] {
+                entries(new double[] {1, 2, 3}, new long[] {10, 20, 30}),
+                null,
+                entries(new double[] {5, 6}, new long[] {20, 40}),
+                entries(new double[] {7}, new long[] {5})
+        };
+
+        ByteBuffer result = ByteBuffer.wrap(ReportingEntriesMerger.merge(sources, new SumGraphFunction()));
+        assertEquals(5 * 16, result.capacity());
+
+        assertEquals(7, result.getDouble(), 0.001);
+        assertEquals(5, result.getLong());
+        assertEquals(1, result.getDouble(), 0.001);
+        assertEquals(10, result.getLong());
+        assertEquals(7, result.getDouble(), 0.001);
+        assertEquals(20, result.getLong());
+        assertEquals(3, result.getDouble(), 0.001);
+        assertEquals(30, result.getLong());
+        assertEquals(6, result.getDouble(), 0.001);
+        assertEquals(40, result.getLong());
+    }
+
+    @Test
+    public void testMergeResetsFunctionBetweenPoints() {
+        ByteBuffer[] sources = new ByteBuffer[] {
+                entries(new double[] {1, 3}, new long[] {10, 20}),
+                entries(new double[] {3, 5}, new long[] {10, 20})
+        };
+
+        ByteBuffer result = ByteBuffer.wrap(ReportingEntriesMerger.merge(sources, new AverageGraphFunction()));
+        assertEquals(2 * 16, result.capacity());
+        assertEquals(2, result.getDouble(), 0.001);
+        assertEquals(10, result.getLong());
+        assertEquals(4, result.getDouble(), 0.001);
+        assertEquals(20, result.getLong());
+    }
+
+    @Test
+    public void testNoData() {
+        assertNull(ReportingEntriesMerger.merge(new ByteBuffer[] {null, null}, new SumGraphFunction()));
+    }
+
+    @Test
+    public void testIsSorted() {
+        assertTrue(ReportingEntriesMerger.isSorted(entries(new double[] {1, 2}, new long[] {10, 10})));
+        assertFalse(ReportingEntriesMerger.isSorted(entries(new double[] {1, 2}, new long[] {10, 9})));
+        assertTrue(ReportingEntriesMerger.isSorted(null));
+    }
+
+}
@@ -0,0 +1,88 @@
+package cc.blynk.server.core.reporting;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static cc.blynk.utils.FileUtils.SIZE_OF_REPORT_ENTRY;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * The Blynk Project.
+ * Created by Dmitriy Dumanskiy.
+ * Created on 18.10.26.
+ */
+public class ReportingFileChannelPoolTest {
+
+    private final ReportingFileChannelPool channelPool = new ReportingFileChannelPool(10);
+    private Path folder;
+    private Path file;
+
+    @Before
+    public void init() throws Exception {
+        folder = Files.createTempDirectory("reporting");
+        file = folder.resolve("history_1-0_v1_minute.bin");
+    }
+
+    @After
+    public void cleanup() throws Exception {
+        channelPool.close();
+        try (var files = Files.list(folder)) {
+            for (Path path : (Iterable<Path>) files::iterator) {
+                Files.delete(path);
+            }
+        }
+        Files.delete(folder);
+    }
+
+    private static ByteBuffer[] points(int from, int to) {
+        ByteBuffer[] entries = new ByteBuffer[to - from + 1];
+        for (int i = from; i <= to; i++) {
+            entries[i - from] = ByteBuffer.allocate(SIZE_OF_REPORT_ENTRY).putDouble(i).putLong(i * 1000L).flip();
+        }
+        return entries;
+    }
+
+    @Test
+    public void testAllEntriesWritten() throws Exception {
+        ByteBuffer[] entries = points(1, 1000);
+        channelPool.write(file, entries);
+        channelPool.write(file, points(1001, 1001));
+
+        assertEquals(1001 * SIZE_OF_REPORT_ENTRY, Files.size(file));
+        for (ByteBuffer entry : entries) {
+            assertFalse(entry.hasRemaining());
+        }
+        assertEquals(1, channelPool.getOpenChannels());
+    }
+
+    @Test
+    public void testWriteAfterDeleteCreatesNewFile() throws Exception {
+        channelPool.write(file, points(1, 10));
+        channelPool.delete(file);
+        assertFalse(Files.exists(file));
+        assertEquals(0, channelPool.getOpenChannels());
+
+        channelPool.write(file, points(11, 12));
+        assertEquals(2 * SIZE_OF_REPORT_ENTRY, Files.size(file));
+    }
+
+    @Test
+    public void testWriteAfterReplaceAppendsToNewFile() throws Exception {
+        channelPool.write(file, points(1, 10));
+
+        Path tmpFile = folder.resolve("history_1-0_v1_minute.bin.tmp");
+        Files.write(tmpFile, new byte[3 * SIZE_OF_REPORT_ENTRY]);
+        channelPool.replace(file, tmpFile);
+        channelPool.write(file, points(11, 11));
+
+        assertFalse(Files.exists(tmpFile));
+        assertEquals(4 * SIZE_OF_REPORT_ENTRY, Files.size(file));
+    }
+
+}
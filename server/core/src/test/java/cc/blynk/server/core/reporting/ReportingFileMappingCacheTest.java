@@ -0,0 +1,190 @@
+package cc.blynk.server.core.reporting;
+
+import cc.blynk.utils.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import static cc.blynk.utils.FileUtils.SIZE_OF_REPORT_ENTRY;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The Blynk Project.
+ * Created by Dmitriy Dumanskiy.
+ * Created on 18.10.26.
+ */
+public class ReportingFileMappingCacheTest {
+
+    private final ReportingFileMappingCache mappingCache = new ReportingFileMappingCache(10);
+    private Path file;
+
+    @Before
+    public void writeFile() throws Exception {
+        file = Files.createTempFile("history_1-0_v1_minute", ".bin");
+        //points with ts 1000, 2000 ... 100_000
+        Files.write(file, points(1, 100));
+    }
+
+    private static byte[] points(int from, int to) {
+        ByteBuffer data = ByteBuffer.allocate((to - from + 1) * SIZE_OF_REPORT_ENTRY);
+        for (int i = from; i <= to; i++) {
+            data.putDouble(i).putLong(i * 1000L);
+        }
+        return data.array();
+    }
+
+    private void append(int from, int to) throws Exception {
+        Files.write(file, points(from, to), StandardOpenOption.APPEND);
+    }
+
+    @After
+    public void deleteFile() throws Exception {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void testReadRange() throws Exception {
+        ByteBuffer range = mappingCache.readRange(file, 95_500, Long.MAX_VALUE, 100);
+        assertEquals(5 * SIZE_OF_REPORT_ENTRY, range.remaining());
+        assertEquals(96, range.getDouble(), 0.0001);
+        assertEquals(96_000, range.getLong());
+
+        range = mappingCache.readRange(file, 10_000, 20_000, 100);
+        assertEquals(10 * SIZE_OF_REPORT_ENTRY, range.remaining());
+        assertEquals(10_000, range.getLong(8));
+        assertEquals(19_000, range.getLong(range.limit() - 8));
+    }
+
+    @Test
+    public void testReadRangeReturnsNewestPoints() throws Exception {
+        ByteBuffer range = mappingCache.readRange(file, 0, Long.MAX_VALUE, 3);
+        assertEquals(3 * SIZE_OF_REPORT_ENTRY, range.remaining());
+        assertEquals(98_000, range.getLong(8));
+    }
+
+    @Test
+    public void testReadEmptyRange() throws Exception {
+        assertNull(mappingCache.readRange(file, 100_001, Long.MAX_VALUE, 100));
+        assertNull(mappingCache.readRange(file, 0, 1000, 100));
+        assertNull(mappingCache.readRange(file.resolveSibling("no_file.bin"), 0, Long.MAX_VALUE, 100));
+    }
+
+    @Test
+    public void testRangeOfHeapBuffer() throws Exception {
+        ByteBuffer tail = FileUtils.read(file, 10);
+        ByteBuffer range = ReportingFileMappingCache.range(tail, 95_000, Long.MAX_VALUE, 100);
+        assertEquals(6 * SIZE_OF_REPORT_ENTRY, range.remaining());
+        assertEquals(95_000, range.getLong(8));
+    }
+
+    @Test
+    public void testAppendedPointsReadWithoutRemap() throws Exception {
+        ByteBuffer last = mappingCache.read(file, 1, 0);
+        assertEquals(100_000, last.getLong(8));
+
+        append(101, 103);
+        //partial record is not read
+        Files.write(file, new byte[] {1, 2, 3}, StandardOpenOption.APPEND);
+
+        last = mappingCache.read(file, 5, 0);
+        assertEquals(5 * SIZE_OF_REPORT_ENTRY, last.remaining());
+        assertEquals(99_000, last.getLong(8));
+        assertEquals(103_000, last.getLong(last.limit() - 8));
+        assertTrue(last.isReadOnly());
+
+        ByteBuffer skipped = mappingCache.read(file, 2, 2);
+        assertEquals(100_000, skipped.getLong(8));
+        assertEquals(101_000, skipped.getLong(24));
+
+        ByteBuffer range = mappingCache.readRange(file, 101_500, Long.MAX_VALUE, 100);
+        assertEquals(2 * SIZE_OF_REPORT_ENTRY, range.remaining());
+        assertEquals(102_000, range.getLong(8));
+
+        assertEquals(1, mappingCache.getMappedFiles());
+        assertEquals(0, mappingCache.getRemaps());
+    }
+
+    @Test
+    public void testRemapWhenTailGrowsTooLarge() throws Exception {
+        mappingCache.read(file, 1, 0);
+
+        int tailRecords = ReportingFileMappingCache.MAX_TAIL_SIZE / SIZE_OF_REPORT_ENTRY;
+        append(101, 100 + tailRecords);
+        assertEquals(100 + tailRecords, (int) mappingCache.read(file, 1, 0).getDouble());
+        assertEquals(0, mappingCache.getRemaps());
+
+        append(101 + tailRecords, 101 + tailRecords);
+        ByteBuffer last = mappingCache.read(file, 2, 0);
+        assertEquals(100 + tailRecords, (int) last.getDouble());
+        assertEquals((101 + tailRecords) * 1000L, last.getLong(24));
+        assertEquals(1, mappingCache.getRemaps());
+    }
+
+    @Test
+    public void testReplacedFileRemapped() throws Exception {
+        mappingCache.read(file, 1, 0);
+
+        Path replacement = Files.createTempFile("history_1-0_v1_minute", ".bin");
+        Files.write(replacement, points(1, 10));
+        Files.move(replacement, file, StandardCopyOption.REPLACE_EXISTING);
+
+        ByteBuffer last = mappingCache.read(file, 100, 0);
+        assertEquals(10 * SIZE_OF_REPORT_ENTRY, last.remaining());
+        assertEquals(1, mappingCache.getRemaps());
+    }
+
+    @Test
+    public void testReadRangeOfOutOfOrderFile() throws Exception {
+        assertEquals(1, mappingCache.readRange(file, 50_000, 51_000, 100).remaining() / SIZE_OF_REPORT_ENTRY);
+
+        //point pushed with custom timestamp
+        Files.write(file, ByteBuffer.allocate(SIZE_OF_REPORT_ENTRY).putDouble(-1).putLong(50_500).array(),
+                StandardOpenOption.APPEND);
+        append(102, 102);
+
+        ByteBuffer range = mappingCache.readRange(file, 50_000, 51_000, 200);
+        assertEquals(2 * SIZE_OF_REPORT_ENTRY, range.remaining());
+        assertEquals(50_000, range.getLong(8));
+        assertEquals(-1, range.getDouble(16), 0.0001);
+        assertEquals(50_500, range.getLong(24));
+
+        //window is filtered within maxCount last records only
+        range = mappingCache.readRange(file, 50_000, 51_000, 10);
+        assertEquals(1, range.remaining() / SIZE_OF_REPORT_ENTRY);
+        assertEquals(50_500, range.getLong(8));
+
+        assertEquals(0, mappingCache.getRemaps());
+        assertNull(mappingCache.readRange(file, 200_000, Long.MAX_VALUE, 200));
+    }
+
+    @Test
+    public void testSlicesReadableAfterInvalidate() throws Exception {
+        ReportingFileMappingCache cache = new ReportingFileMappingCache(1);
+        ByteBuffer last = cache.read(file, 1, 0);
+        cache.invalidate(file);
+        assertEquals(0, cache.getMappedFiles());
+        //mapping is released by GC only, so slices of the stale mapping are still valid
+        assertEquals(100_000, last.getLong(8));
+
+        Path other = Files.createTempFile("history_1-0_v2_minute", ".bin");
+        try {
+            Files.write(other, points(1, 10));
+            last = cache.read(file, 1, 0);
+            //evicts mapping of the first file
+            assertEquals(10_000, cache.read(other, 1, 0).getLong(8));
+            assertEquals(1, cache.getMappedFiles());
+            assertEquals(100_000, last.getLong(8));
+        } finally {
+            Files.deleteIfExists(other);
+        }
+    }
+
+}
@@ -0,0 +1,111 @@
+package cc.blynk.server.core.reporting.average;
+
+import cc.blynk.server.core.model.enums.PinType;
+import cc.blynk.server.core.reporting.raw.BaseReportingKey;
+import cc.blynk.utils.AppNameUtil;
+import org.junit.Test;
+
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The Blynk Project.
+ * Created by Dmitriy Dumanskiy.
+ * Created on 18.10.26.
+ */
+public class AggregationTableTest {
+
+    private static BaseReportingKey key(int dashId, short pin) {
+        return new BaseReportingKey("test@test.com", AppNameUtil.BLYNK, dashId, 0, PinType.VIRTUAL, pin);
+    }
+
+    @Test
+    public void testAggregateAndRemoveOutdated() {
+        AggregationTable table = new AggregationTable(new PinSeriesRegistry());
+
+        //enough entries to trigger stripes growth
+        for (int dashId = 0; dashId < 100; dashId++) {
+            for (short pin = 0; pin < 10; pin++) {
+                for (long bucket = 0; bucket < 3; bucket++) {
+                    table.aggregate(key(dashId, pin), bucket, pin);
+                    table.aggregate(key(dashId, pin), bucket, pin + 2);
+                }
+            }
+        }
+        assertEquals(3000, table.size());
+
+        AggregationValue value = table.get(new AggregationKey(key(5, (short) 3), 1));
+        assertNotNull(value);
+        assertEquals(4, value.calcAverage(), 0);
+        assertEquals(2, value.getCount());
+
+        Map<AggregationKey, AggregationValue> removed = table.removeOutdated(2);
+        assertEquals(2000, removed.size());
+        assertEquals(1000, table.size());
+        assertEquals(4, removed.get(new AggregationKey(key(5, (short) 3), 1)).calcAverage(), 0);
+
+        assertNull(table.get(new AggregationKey(key(5, (short) 3), 1)));
+        assertEquals(4, table.get(new AggregationKey(key(5, (short) 3), 2)).calcAverage(), 0);
+
+        table.aggregate(key(5, (short) 3), 2, 10);
+        assertEquals(6, table.get(new AggregationKey(key(5, (short) 3), 2)).calcAverage(), 0);
+        assertEquals(1000, table.size());
+
+        table.clear();
+        assertTrue(table.isEmpty());
+    }
+
+    @Test
+    public void testSnapshotRestore() throws Exception {
+        Path path = Files.createTempFile("aggregation", ".bin");
+        AggregationTable table = new AggregationTable(new PinSeriesRegistry());
+        table.aggregate(key(1, (short) 1), 10, 1);
+        table.aggregate(key(1, (short) 1), 10, 2);
+        table.aggregate(key(1, (short) 1), 11, 3);
+        table.aggregate(key(2, (short) 1), 10, 4);
+
+        AggregationSnapshot.write(path, table);
+
+        PinSeriesRegistry registry = new PinSeriesRegistry();
+        AggregationTable restored = new AggregationTable(registry);
+        AggregationSnapshot.read(path, restored, registry);
+
+        assertEquals(3, restored.size());
+        assertEquals(1.5, restored.get(new AggregationKey(key(1, (short) 1), 10)).calcAverage(), 0);
+        assertEquals(3, restored.get(new AggregationKey(key(1, (short) 1), 11)).calcAverage(), 0);
+        assertEquals(4, restored.get(new AggregationKey(key(2, (short) 1), 10)).calcAverage(), 0);
+        Files.delete(path);
+    }
+
+    @Test
+    public void testLegacySnapshotRestore() throws Exception {
+        Path path = Files.createTempFile("aggregation", ".bin");
+        ConcurrentHashMap<AggregationKey, AggregationValue> legacy = new ConcurrentHashMap<>();
+        AggregationValue value = new AggregationValue();
+        value.update(10);
+        value.update(20);
+        legacy.put(new AggregationKey(key(1, (short) 1), 10), value);
+        try (OutputStream os = Files.newOutputStream(path);
+             ObjectOutputStream oos = new ObjectOutputStream(os)) {
+            oos.writeObject(legacy);
+        }
+
+        PinSeriesRegistry registry = new PinSeriesRegistry();
+        AggregationTable restored = new AggregationTable(registry);
+        AggregationSnapshot.read(path, restored, registry);
+
+        assertEquals(1, restored.size());
+        assertEquals(15, restored.get(new AggregationKey(key(1, (short) 1), 10)).calcAverage(), 0);
+        Files.delete(path);
+    }
+
+}
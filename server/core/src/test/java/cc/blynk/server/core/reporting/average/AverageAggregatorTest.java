@@ -16,7 +16,10 @@ import java.time.ZoneOffset;
 
 import static cc.blynk.server.core.reporting.average.AverageAggregatorProcessor.DAY;
 import static cc.blynk.server.core.reporting.average.AverageAggregatorProcessor.HOUR;
+import static cc.blynk.server.core.reporting.average.AverageAggregatorProcessor.MINUTE;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -62,6 +65,63 @@ public class AverageAggregatorTest {
         assertEquals(expectedAverage, averageAggregator.getDaily().get(new AggregationKey(user.email, user.appName, dashId, 0, pinType, pin, ts / DAY)).calcAverage(), 0);
     }
 
+    @Test
+    public void testCollectByFieldsReusesSeriesKey() {
+        AverageAggregatorProcessor averageAggregator = new AverageAggregatorProcessor("");
+        long ts = getMillis(2015, 8, 1, 0, 0);
+
+        BaseReportingKey key = averageAggregator.collect("test@test.com", AppNameUtil.BLYNK,
+                1, 0, PinType.VIRTUAL, (short) 1, ts, 1);
+        assertSame(key, averageAggregator.collect("test@test.com", AppNameUtil.BLYNK,
+                1, 0, PinType.VIRTUAL, (short) 1, ts, 3));
+        averageAggregator.collect(new BaseReportingKey("test@test.com", AppNameUtil.BLYNK,
+                1, 0, PinType.VIRTUAL, (short) 1), ts, 5);
+
+        assertEquals(1, averageAggregator.getMinute().size());
+        assertEquals(3, averageAggregator.getMinute().get(new AggregationKey(key, ts / MINUTE)).calcAverage(), 0);
+    }
+
+    @Test
+    public void testReleasedSeriesDropsValuesAndFreesId() {
+        AverageAggregatorProcessor averageAggregator = new AverageAggregatorProcessor("");
+        long ts = getMillis(2015, 8, 1, 0, 0);
+
+        for (short pin = 0; pin < 100; pin++) {
+            averageAggregator.collect("test@test.com", AppNameUtil.BLYNK, 1, pin % 2, PinType.VIRTUAL, pin, ts, pin);
+        }
+        averageAggregator.collect("test2@test.com", AppNameUtil.BLYNK, 1, 0, PinType.VIRTUAL, (short) 0, ts, 1);
+
+        averageAggregator.release("test@test.com", AppNameUtil.BLYNK, 1, 0, PinType.VIRTUAL, (short) 0);
+        assertEquals(100, averageAggregator.getHourly().size());
+        assertNull(averageAggregator.getHourly().get(
+                new AggregationKey("test@test.com", AppNameUtil.BLYNK, 1, 0, PinType.VIRTUAL, (short) 0, ts / HOUR)));
+
+        //all series of the device 1
+        averageAggregator.release(key -> key.isSameUser("test@test.com", AppNameUtil.BLYNK) && key.deviceId == 1);
+        assertEquals(50, averageAggregator.getMinute().size());
+        assertEquals(50, averageAggregator.getDaily().size());
+        assertNull(averageAggregator.getDaily().get(
+                new AggregationKey("test@test.com", AppNameUtil.BLYNK, 1, 1, PinType.VIRTUAL, (short) 99, ts / DAY)));
+        assertEquals(98, averageAggregator.getDaily().get(
+                new AggregationKey("test@test.com", AppNameUtil.BLYNK, 1, 0, PinType.VIRTUAL, (short) 98, ts / DAY))
+                .calcAverage(), 0);
+
+        //new series take freed ids and don't see values of the removed ones
+        for (short pin = 0; pin < 100; pin += 2) {
+            averageAggregator.collect("test@test.com", AppNameUtil.BLYNK, 2, 0, PinType.VIRTUAL, pin, ts, -1);
+        }
+        assertEquals(100, averageAggregator.getMinute().size());
+        assertEquals(1, averageAggregator.getMinute().get(
+                new AggregationKey("test2@test.com", AppNameUtil.BLYNK, 1, 0, PinType.VIRTUAL, (short) 0, ts / MINUTE))
+                .calcAverage(), 0);
+        assertEquals(-1, averageAggregator.getMinute().get(
+                new AggregationKey("test@test.com", AppNameUtil.BLYNK, 2, 0, PinType.VIRTUAL, (short) 2, ts / MINUTE))
+                .calcAverage(), 0);
+        assertEquals(2, averageAggregator.getMinute().get(
+                new AggregationKey("test@test.com", AppNameUtil.BLYNK, 1, 0, PinType.VIRTUAL, (short) 2, ts / MINUTE))
+                .calcAverage(), 0);
+    }
+
     @Test
     public void testAverageWorksForOneDay() {
         AverageAggregatorProcessor averageAggregator = new AverageAggregatorProcessor("");
@@ -0,0 +1,89 @@
+package cc.blynk.server.core.reporting.raw;
+
+import cc.blynk.server.core.model.enums.PinType;
+import cc.blynk.utils.NumberUtil;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * The Blynk Project.
+ * Created by Dmitriy Dumanskiy.
+ * Created on 18.10.26.
+ */
+public class RawDataProcessorTest {
+
+    private static final BaseReportingKey KEY =
+            new BaseReportingKey("test@blynk.cc", "Blynk", 1, 0, PinType.VIRTUAL, (short) 1);
+
+    @Test
+    public void testRecordsWithSameTimestampAreKept() {
+        RawDataProcessor rawDataProcessor = new RawDataProcessor(4);
+        rawDataProcessor.collect(KEY, 1, "1.5", 1.5D);
+        rawDataProcessor.collect(KEY, 1, "Lamp is ON", NumberUtil.NO_RESULT);
+
+        RawDataBatch batch = new RawDataBatch(10);
+        assertEquals(2, rawDataProcessor.drainTo(batch));
+        assertSame(KEY, batch.keys[0]);
+        assertEquals(1.5D, batch.doubleValues[0], 0.0001D);
+        assertNull(batch.stringValues[0]);
+        assertEquals("Lamp is ON", batch.stringValues[1]);
+        assertEquals(0, rawDataProcessor.size());
+    }
+
+    @Test
+    public void testRecordsAreDroppedWhenBufferIsFull() {
+        RawDataProcessor rawDataProcessor = new RawDataProcessor(3);
+        assertEquals(4, rawDataProcessor.capacity());
+        for (int i = 0; i < 6; i++) {
+            rawDataProcessor.collect(KEY, i, null, i);
+        }
+        assertEquals(4, rawDataProcessor.size());
+        assertEquals(2, rawDataProcessor.getDroppedRecords());
+
+        //drained slots are reused
+        RawDataBatch batch = new RawDataBatch(2);
+        assertEquals(2, rawDataProcessor.drainTo(batch));
+        rawDataProcessor.collect(KEY, 10, null, 10);
+        rawDataProcessor.collect(KEY, 11, null, 11);
+
+        batch = new RawDataBatch(10);
+        assertEquals(4, rawDataProcessor.drainTo(batch));
+        assertEquals(2, batch.timestamps[0]);
+        assertEquals(11, batch.timestamps[3]);
+        assertEquals(2, rawDataProcessor.getDroppedRecords());
+    }
+
+    @Test
+    public void testConcurrentProducers() throws Exception {
+        RawDataProcessor rawDataProcessor = new RawDataProcessor(1024);
+        int producers = 4;
+        int recordsPerProducer = 10_000;
+
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < recordsPerProducer; i++) {
+                    rawDataProcessor.collect(KEY, i, null, i);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        long drained = 0;
+        RawDataBatch batch = new RawDataBatch(100);
+        while (threads.stream().anyMatch(Thread::isAlive) || rawDataProcessor.size() > 0) {
+            batch.size = 0;
+            drained += rawDataProcessor.drainTo(batch);
+        }
+
+        assertEquals(producers * recordsPerProducer, drained + rawDataProcessor.getDroppedRecords());
+    }
+
+}
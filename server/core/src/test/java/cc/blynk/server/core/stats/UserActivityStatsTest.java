@@ -0,0 +1,71 @@
+package cc.blynk.server.core.stats;
+
+import cc.blynk.server.core.dao.UserKey;
+import cc.blynk.server.core.model.DashBoard;
+import cc.blynk.server.core.model.auth.User;
+import cc.blynk.utils.AppNameUtil;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * The Blynk Project.
+ * Created by Dmitriy Dumanskiy.
+ * Created on 18.10.26.
+ */
+public class UserActivityStatsTest {
+
+    private static final long DAY = 24 * 60 * 60 * 1000;
+
+    private final Map<UserKey, User> users = new HashMap<>();
+    private final SessionStats sessionStats = new SessionStats();
+
+    private User user(String email, long lastModifiedTs) {
+        User user = new User(email, "pass", AppNameUtil.BLYNK, "local", "127.0.0.1", false, false);
+        user.lastModifiedTs = lastModifiedTs;
+        UserKey userKey = new UserKey(user);
+        users.put(userKey, user);
+        sessionStats.sessionCreated(userKey);
+        return user;
+    }
+
+    @Test
+    public void testActiveUsersCountedByLastActivity() {
+        long now = System.currentTimeMillis();
+        user("day@blynk.cc", now - 1000);
+        user("week@blynk.cc", now - 3 * DAY);
+        User month = user("month@blynk.cc", now - 20 * DAY);
+        user("old@blynk.cc", now - 60 * DAY);
+
+        UserActivityStats activityStats = new UserActivityStats();
+        activityStats.trackNewSessions(sessionStats, users);
+        activityStats.refresh(now);
+        assertEquals(1, activityStats.getActiveDay());
+        assertEquals(2, activityStats.getActiveWeek());
+        assertEquals(3, activityStats.getActiveMonth());
+
+        //dash update makes user active again
+        DashBoard dash = new DashBoard();
+        dash.valuesUpdatedAt = now;
+        month.profile.dashBoards = new DashBoard[] {dash};
+        activityStats.update(month);
+        activityStats.refresh(now);
+        assertEquals(2, activityStats.getActiveDay());
+        assertEquals(3, activityStats.getActiveWeek());
+        assertEquals(3, activityStats.getActiveMonth());
+
+        //users age out of the windows
+        activityStats.refresh(now + 2 * DAY);
+        assertEquals(0, activityStats.getActiveDay());
+        assertEquals(3, activityStats.getActiveWeek());
+
+        activityStats.remove(new UserKey(month));
+        activityStats.refresh(now);
+        assertEquals(1, activityStats.getActiveDay());
+        assertEquals(2, activityStats.getActiveMonth());
+    }
+
+}
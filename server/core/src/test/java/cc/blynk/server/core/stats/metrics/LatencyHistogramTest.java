@@ -0,0 +1,68 @@
+package cc.blynk.server.core.stats.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The Blynk Project.
+ * Created by Dmitriy Dumanskiy.
+ * Created on 18.10.26.
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBucketsAreContinuous() {
+        for (long micros = 0; micros < 1_000_000; micros++) {
+            int index = LatencyHistogram.bucketIndex(micros);
+            assertTrue(micros < LatencyHistogram.bucketUpperBound(index));
+            if (index > 0) {
+                assertTrue(micros >= LatencyHistogram.bucketUpperBound(index - 1));
+            }
+        }
+        assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucketIndex(Long.MAX_VALUE));
+        assertEquals(0, LatencyHistogram.bucketIndex(-1));
+    }
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertTrue(histogram.isEmpty());
+        assertEquals(0, histogram.getValueAtPercentile(99));
+
+        for (int i = 1; i <= 100; i++) {
+            histogram.recordMicros(i * 100);
+        }
+        assertFalse(histogram.isEmpty());
+        assertEquals(100, histogram.getCount());
+        assertEquals(505_000, histogram.getSumMicros());
+
+        long p50 = histogram.getValueAtPercentile(50);
+        assertTrue(p50 > 5000 && p50 <= 5000 * 1.125);
+        long p99 = histogram.getValueAtPercentile(99);
+        assertTrue(p99 > 9900 && p99 <= 9900 * 1.125);
+    }
+
+    @Test
+    public void testExposition() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.recordNanos(10_000);
+        histogram.recordNanos(20_000_000);
+
+        String text = new OpenMetricsWriter()
+                .header("test_seconds", "histogram", "Test.")
+                .histogram("test_seconds", "command", "Hard\"ware", histogram)
+                .build();
+
+        assertTrue(text.contains("# TYPE test_seconds histogram\n"));
+        assertTrue(text.contains("test_seconds_bucket{command=\"Hard\\\"ware\",le=\"1.6E-5\"} 1\n"));
+        assertTrue(text.contains("test_seconds_bucket{command=\"Hard\\\"ware\",le=\"0.016384\"} 1\n"));
+        assertTrue(text.contains("test_seconds_bucket{command=\"Hard\\\"ware\",le=\"0.032768\"} 2\n"));
+        assertTrue(text.contains("test_seconds_bucket{command=\"Hard\\\"ware\",le=\"+Inf\"} 2\n"));
+        assertTrue(text.contains("test_seconds_count{command=\"Hard\\\"ware\"} 2\n"));
+        assertTrue(text.contains("test_seconds_sum{command=\"Hard\\\"ware\"} 0.02001\n"));
+    }
+
+}
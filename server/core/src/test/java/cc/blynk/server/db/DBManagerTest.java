@@ -6,6 +6,7 @@ import cc.blynk.server.core.model.DashBoard;
 import cc.blynk.server.core.model.Profile;
 import cc.blynk.server.core.model.auth.User;
 import cc.blynk.server.core.model.enums.PinType;
+import cc.blynk.server.core.model.serialization.JsonParser;
 import cc.blynk.server.core.reporting.average.AverageAggregatorProcessor;
 import cc.blynk.server.db.dao.ReportingDBDao;
 import cc.blynk.server.db.model.Purchase;
@@ -189,7 +190,8 @@ public class DBManagerTest {
                 assertFalse(rs.getBoolean("is_super_admin"));
                 assertEquals(2000, rs.getInt("energy"));
 
-                assertEquals("{}", rs.getString("json"));
+                assertNull(rs.getString("json"));
+                assertEquals("{}", JsonParser.parseProfileFromCompressed(rs.getBytes("json_compressed")).toString());
             }
             connection.commit();
         }
@@ -243,6 +245,52 @@ public class DBManagerTest {
         assertEquals("{\"dashBoards\":[{\"id\":1,\"parentId\":-1,\"isPreview\":false,\"name\":\"123\",\"createdAt\":0,\"updatedAt\":0,\"theme\":\"Blynk\",\"keepScreenOn\":false,\"isAppConnectedOn\":false,\"isNotificationsOff\":false,\"isShared\":false,\"isActive\":false,\"widgetBackgroundOn\":false,\"color\":-1,\"isDefaultColor\":true}]}", user.profile.toString());
     }
 
+    @Test
+    public void testOnlyLoginInfoUpdatedForNotModifiedUser() throws Exception {
+        ArrayList<User> users = new ArrayList<>();
+        User user = new User("test@gmail.com", "pass", AppNameUtil.BLYNK, "local", "127.0.0.1", false, false);
+        user.lastModifiedTs = 1;
+        user.lastLoggedAt = 1;
+        user.lastLoggedIP = "127.0.0.1";
+        user.name = "123";
+        users.add(user);
+
+        dbManager.userDBDao.save(users);
+
+        user.name = "1234";
+        user.lastLoggedAt = 2;
+        user.lastLoggedIP = "127.0.0.2";
+        user.energy = 1000;
+        dbManager.userDBDao.save(users, 2);
+
+        user = dbManager.userDBDao.getAllUsers("local").get(new UserKey("test@gmail.com", AppNameUtil.BLYNK));
+        assertEquals("123", user.name);
+        assertEquals(2, user.lastLoggedAt);
+        assertEquals("127.0.0.2", user.lastLoggedIP);
+        assertEquals(1000, user.energy);
+        assertEquals("{}", user.profile.toString());
+    }
+
+    @Test
+    public void testNotModifiedUserInsertedWhenMissingInDB() throws Exception {
+        ArrayList<User> users = new ArrayList<>();
+        User user = new User("test@gmail.com", "pass", AppNameUtil.BLYNK, "local", "127.0.0.1", false, false);
+        user.lastModifiedTs = 1;
+        user.lastLoggedAt = 2;
+        user.lastLoggedIP = "127.0.0.2";
+        user.name = "123";
+        users.add(user);
+
+        dbManager.userDBDao.save(users, 2);
+
+        user = dbManager.userDBDao.getAllUsers("local").get(new UserKey("test@gmail.com", AppNameUtil.BLYNK));
+        assertNotNull(user);
+        assertEquals("123", user.name);
+        assertEquals(2, user.lastLoggedAt);
+        assertEquals("127.0.0.2", user.lastLoggedIP);
+        assertEquals("{}", user.profile.toString());
+    }
+
     @Test
     public void testInsertAndGetUser() throws Exception {
         ArrayList<User> users = new ArrayList<>();
@@ -4,6 +4,7 @@ import cc.blynk.server.core.BlockingIOProcessor;
 import cc.blynk.server.core.model.auth.User;
 import cc.blynk.server.core.model.enums.PinType;
 import cc.blynk.server.core.reporting.raw.BaseReportingKey;
+import cc.blynk.server.core.reporting.raw.RawDataBatch;
 import cc.blynk.server.core.reporting.raw.RawDataProcessor;
 import cc.blynk.utils.AppNameUtil;
 import cc.blynk.utils.NumberUtil;
@@ -19,8 +20,10 @@ import java.util.Calendar;
 import java.util.TimeZone;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 /**
  * The Blynk Project.
@@ -61,7 +64,9 @@ public class RawDataDBTest {
         rawDataProcessor.collect(new BaseReportingKey(user.email, user.appName, 1, 2, PinType.VIRTUAL, (short) 3), 1111111111, "Lamp is ON", NumberUtil.NO_RESULT);
 
         //invoking directly dao to avoid separate thread execution
-        reportingDBManager.reportingDBDao.insertRawData(rawDataProcessor.rawStorage);
+        RawDataBatch batch = new RawDataBatch(10);
+        rawDataProcessor.drainTo(batch);
+        reportingDBManager.reportingDBDao.insertRaw(batch);
 
         try (Connection connection = reportingDBManager.getConnection();
              Statement statement = connection.createStatement();
@@ -90,7 +95,9 @@ public class RawDataDBTest {
         rawDataProcessor.collect(new BaseReportingKey(user.email, user.appName, 1, 2, PinType.VIRTUAL, (short) 3), 1111111111, "Lamp is ON", 1.33D);
 
         //invoking directly dao to avoid separate thread execution
-        reportingDBManager.reportingDBDao.insertRawData(rawDataProcessor.rawStorage);
+        RawDataBatch batch = new RawDataBatch(10);
+        rawDataProcessor.drainTo(batch);
+        reportingDBManager.reportingDBDao.insertRaw(batch);
 
         try (Connection connection = reportingDBManager.getConnection();
              Statement statement = connection.createStatement();
@@ -114,6 +121,34 @@ public class RawDataDBTest {
 
     }
 
+    @Test
+    public void testInsertValuesWithSameTimestamp() throws Exception {
+        RawDataProcessor rawDataProcessor = new RawDataProcessor(true);
+        BaseReportingKey key = new BaseReportingKey(user.email, user.appName, 1, 2, PinType.VIRTUAL, (short) 3);
+        rawDataProcessor.collect(key, 1111111111, "1", 1D);
+        rawDataProcessor.collect(key, 1111111111, "2", 2D);
+
+        //invoking directly dao to avoid separate thread execution
+        RawDataBatch batch = new RawDataBatch(10);
+        assertEquals(2, rawDataProcessor.drainTo(batch));
+        reportingDBManager.reportingDBDao.insertRaw(batch);
+
+        try (Connection connection = reportingDBManager.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("select * from reporting_raw_data order by doubleValue")) {
+
+            assertTrue(rs.next());
+            assertEquals(1111111111, rs.getTimestamp("ts", UTC).getTime());
+            assertEquals(1D, rs.getDouble("doubleValue"), 0.0000001);
+            assertTrue(rs.next());
+            assertEquals(1111111111, rs.getTimestamp("ts", UTC).getTime());
+            assertEquals(2D, rs.getDouble("doubleValue"), 0.0000001);
+            assertFalse(rs.next());
+
+            connection.commit();
+        }
+    }
+
     //todo tests for large batches.
 
 
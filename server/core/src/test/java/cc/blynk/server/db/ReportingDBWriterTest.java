@@ -0,0 +1,137 @@
+package cc.blynk.server.db;
+
+import cc.blynk.server.core.BlockingIOProcessor;
+import cc.blynk.server.core.model.enums.PinType;
+import cc.blynk.server.core.model.widgets.outputs.graph.GraphGranularityType;
+import cc.blynk.server.core.reporting.average.AggregationKey;
+import cc.blynk.server.core.reporting.average.AggregationValue;
+import cc.blynk.server.core.reporting.raw.BaseReportingKey;
+import cc.blynk.server.core.reporting.raw.RawDataBatch;
+import cc.blynk.server.core.reporting.raw.RawDataProcessor;
+import cc.blynk.server.db.dao.ReportingDBDao;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * The Blynk Project.
+ * Created by Dmitriy Dumanskiy.
+ * Created on 18.10.26.
+ */
+public class ReportingDBWriterTest {
+
+    private BlockingIOProcessor blockingIOProcessor;
+
+    @Before
+    public void init() {
+        blockingIOProcessor = new BlockingIOProcessor(6, 1000);
+    }
+
+    @After
+    public void close() {
+        blockingIOProcessor.close();
+    }
+
+    private static BaseReportingKey key(int pin) {
+        return new BaseReportingKey("test@blynk.cc", "Blynk", 1, 0, PinType.VIRTUAL, (short) pin);
+    }
+
+    @Test
+    public void testRecordsAreWrittenInChunks() throws Exception {
+        RecordingDao dao = new RecordingDao(null);
+        ReportingDBWriter writer = new ReportingDBWriter(dao, blockingIOProcessor, 10, 1000);
+
+        Map<AggregationKey, AggregationValue> averages = new HashMap<>();
+        for (int i = 0; i < 25; i++) {
+            AggregationValue value = new AggregationValue();
+            value.update(i);
+            averages.put(new AggregationKey(key(i), 1), value);
+        }
+        writer.addAverages(averages, GraphGranularityType.MINUTE);
+
+        RawDataProcessor raw = new RawDataProcessor(16);
+        for (int i = 0; i < 5; i++) {
+            raw.collect(key(i), i, null, i);
+        }
+        writer.addRaw(raw);
+        assertEquals(0, raw.size());
+
+        awaitWritten(writer, 30);
+        assertEquals(List.of(10, 10, 5, 5), dao.chunkSizes);
+        assertEquals(0, writer.getDroppedRecords());
+    }
+
+    @Test
+    public void testRecordsAreDroppedWhenBufferIsFull() throws Exception {
+        CountDownLatch dbIsSlow = new CountDownLatch(1);
+        RecordingDao dao = new RecordingDao(dbIsSlow);
+        ReportingDBWriter writer = new ReportingDBWriter(dao, blockingIOProcessor, 10, 20);
+
+        RawDataProcessor raw = new RawDataProcessor(32);
+        for (int i = 0; i < 30; i++) {
+            raw.collect(key(i), i, null, i);
+        }
+        writer.addRaw(raw);
+
+        //records that don't fit into the writer buffer stay within the ring buffer
+        assertEquals(20, writer.getPendingRecords());
+        assertEquals(10, raw.size());
+
+        Map<AggregationKey, AggregationValue> averages = new HashMap<>();
+        AggregationValue value = new AggregationValue();
+        value.update(1);
+        averages.put(new AggregationKey(key(1), 1), value);
+        writer.addAverages(averages, GraphGranularityType.MINUTE);
+        assertEquals(1, writer.getDroppedRecords());
+
+        dbIsSlow.countDown();
+        awaitWritten(writer, 20);
+        assertEquals(List.of(10, 10), dao.chunkSizes);
+    }
+
+    private static void awaitWritten(ReportingDBWriter writer, long records) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (writer.getWrittenRecords() < records && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(records, writer.getWrittenRecords());
+    }
+
+    private static final class RecordingDao extends ReportingDBDao {
+
+        private final CountDownLatch dbIsSlow;
+        private final List<Integer> chunkSizes = new ArrayList<>();
+
+        RecordingDao(CountDownLatch dbIsSlow) {
+            super(null);
+            this.dbIsSlow = dbIsSlow;
+        }
+
+        @Override
+        public void insertAverages(AggregationKey[] keys, double[] values, int size,
+                                   GraphGranularityType type) throws Exception {
+            record(size);
+        }
+
+        @Override
+        public void insertRaw(RawDataBatch batch) throws Exception {
+            record(batch.size);
+        }
+
+        private synchronized void record(int size) throws Exception {
+            if (dbIsSlow != null) {
+                dbIsSlow.await();
+            }
+            chunkSizes.add(size);
+        }
+    }
+
+}
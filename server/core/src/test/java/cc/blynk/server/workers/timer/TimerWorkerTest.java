@@ -0,0 +1,225 @@
+package cc.blynk.server.workers.timer;
+
+import cc.blynk.server.core.BlockingIOProcessor;
+import cc.blynk.server.core.dao.SessionDao;
+import cc.blynk.server.core.dao.UserDao;
+import cc.blynk.server.core.dao.UserKey;
+import cc.blynk.server.core.model.auth.User;
+import cc.blynk.server.core.model.enums.PinType;
+import cc.blynk.server.core.model.widgets.controls.Timer;
+import cc.blynk.server.core.model.widgets.others.eventor.Eventor;
+import cc.blynk.server.core.model.widgets.others.eventor.Rule;
+import cc.blynk.server.core.model.widgets.others.eventor.TimerTime;
+import cc.blynk.server.core.model.widgets.others.eventor.model.action.BaseAction;
+import cc.blynk.server.core.model.widgets.others.eventor.model.action.SetPinAction;
+import cc.blynk.server.core.stats.GlobalStats;
+import cc.blynk.utils.AppNameUtil;
+import cc.blynk.utils.DateTimeUtils;
+import io.netty.channel.DefaultEventLoopGroup;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.ZonedDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The Blynk Project.
+ * Created by Dmitriy Dumanskiy.
+ * Created on 18.10.26.
+ */
+public class TimerWorkerTest {
+
+    //Monday, 08:00:00 UTC
+    private static final long TICK = ZonedDateTime.of(2026, 10, 12, 8, 0, 0, 0, DateTimeUtils.UTC)
+            .toInstant().toEpochMilli();
+
+    private DefaultEventLoopGroup eventLoopGroup;
+    private GlobalStats globalStats;
+    private Map<UserKey, List<Thread>> processedBy;
+    private Map<UserKey, Thread> loadedBy;
+    private Set<UserKey> evicted;
+    private BlockingIOProcessor blockingIOProcessor;
+    private TimerWorker timerWorker;
+
+    @Before
+    public void init() {
+        eventLoopGroup = new DefaultEventLoopGroup(4);
+        globalStats = new GlobalStats();
+        processedBy = new ConcurrentHashMap<>();
+        loadedBy = new ConcurrentHashMap<>();
+        evicted = ConcurrentHashMap.newKeySet();
+        blockingIOProcessor = new BlockingIOProcessor(2, 100);
+        //records the thread timer of the user is processed on, users itself are not needed
+        UserDao userDao = new UserDao(new ConcurrentHashMap<>(), "local", "127.0.0.1") {
+            @Override
+            public User getIfLoaded(UserKey userKey) {
+                processedBy.computeIfAbsent(userKey, k -> new CopyOnWriteArrayList<>()).add(Thread.currentThread());
+                return null;
+            }
+
+            @Override
+            public boolean isEvicted(UserKey userKey) {
+                return evicted.contains(userKey);
+            }
+
+            @Override
+            public User get(UserKey userKey) {
+                loadedBy.put(userKey, Thread.currentThread());
+                return null;
+            }
+        };
+        timerWorker = new TimerWorker(userDao, new SessionDao(), null, eventLoopGroup, blockingIOProcessor,
+                globalStats);
+    }
+
+    @After
+    public void shutdown() {
+        eventLoopGroup.shutdownGracefully();
+        blockingIOProcessor.close();
+    }
+
+    private static Timer timer(int startTime, int stopTime) {
+        Timer timer = new Timer();
+        timer.id = 1;
+        timer.pin = 1;
+        timer.pinType = PinType.VIRTUAL;
+        timer.startTime = startTime;
+        timer.startValue = "1";
+        timer.stopTime = stopTime;
+        timer.stopValue = "0";
+        return timer;
+    }
+
+    private void tickAndWait(long now) throws Exception {
+        timerWorker.run(now);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (globalStats.timerTickLag.getMax(false) == 0) {
+            assertTrue("Timer tick wasn't finished.", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void testTimersOfUserProcessedOnSameEventLoop() throws Exception {
+        int time = 8 * 3600;
+        for (int i = 0; i < 50; i++) {
+            UserKey userKey = new UserKey("user" + i + "@blynk.cc", AppNameUtil.BLYNK);
+            timerWorker.add(userKey, timer(time, time), 1, -1, -1);
+        }
+
+        tickAndWait(TICK);
+
+        assertEquals(50, processedBy.size());
+        Set<Thread> threads = new HashSet<>();
+        for (List<Thread> userThreads : processedBy.values()) {
+            //start and stop of the same timer
+            assertEquals(2, userThreads.size());
+            assertEquals(1, new HashSet<>(userThreads).size());
+            threads.addAll(userThreads);
+        }
+        assertTrue(threads.size() > 1);
+    }
+
+    @Test
+    public void testOnlyTimersOfTickSecondProcessed() throws Exception {
+        UserKey ticked = new UserKey("ticked@blynk.cc", AppNameUtil.BLYNK);
+        UserKey other = new UserKey("other@blynk.cc", AppNameUtil.BLYNK);
+        timerWorker.add(ticked, timer(8 * 3600, -1), 1, -1, -1);
+        timerWorker.add(other, timer(8 * 3600 + 1, -1), 1, -1, -1);
+
+        tickAndWait(TICK);
+
+        assertEquals(1, processedBy.size());
+        assertTrue(processedBy.containsKey(ticked));
+    }
+
+    @Test
+    public void testOnlyTimersOfTickDayProcessed() throws Exception {
+        UserKey monday = new UserKey("monday@blynk.cc", AppNameUtil.BLYNK);
+        UserKey weekend = new UserKey("weekend@blynk.cc", AppNameUtil.BLYNK);
+        timerWorker.add(monday, eventor(new int[] {1, 3}), 1);
+        timerWorker.add(weekend, eventor(new int[] {6, 7}), 1);
+
+        tickAndWait(TICK);
+
+        assertEquals(1, processedBy.size());
+        assertTrue(processedBy.containsKey(monday));
+    }
+
+    private static Eventor eventor(int[] days) {
+        TimerTime timerTime = new TimerTime(1, days, 8 * 3600, DateTimeUtils.UTC);
+        BaseAction[] actions = {new SetPinAction((short) 1, PinType.VIRTUAL, "1")};
+        return new Eventor(new Rule[] {new Rule(null, timerTime, null, actions, true)});
+    }
+
+    @Test
+    public void testTickDaysMask() {
+        UserKey userKey = new UserKey("test@blynk.cc", AppNameUtil.BLYNK);
+        TimerKey weekend = new TimerKey(userKey, 1, 0, 1, 0, -1, -1,
+                new TimerTime(0, new int[] {6, 7}, 0, DateTimeUtils.UTC));
+        for (int day = 1; day <= 5; day++) {
+            assertFalse(weekend.isTickDay(day));
+        }
+        assertTrue(weekend.isTickDay(6));
+        assertTrue(weekend.isTickDay(7));
+
+        TimerKey invalidDays = new TimerKey(userKey, 1, 0, 1, 0, -1, -1,
+                new TimerTime(0, new int[] {0, 8, -1}, 0, DateTimeUtils.UTC));
+        for (int day = 1; day <= 7; day++) {
+            assertFalse(invalidDays.isTickDay(day));
+        }
+
+        TimerKey everyDay = new TimerKey(userKey, 1, 0, 1, 0, -1, -1, new TimerTime(0));
+        for (int day = 1; day <= 7; day++) {
+            assertTrue(everyDay.isTickDay(day));
+        }
+    }
+
+    @Test
+    public void testEvictedUserLoadedOnBlockingPool() throws Exception {
+        UserKey cold = new UserKey("cold@blynk.cc", AppNameUtil.BLYNK);
+        UserKey hot = new UserKey("hot@blynk.cc", AppNameUtil.BLYNK);
+        evicted.add(cold);
+        timerWorker.add(cold, timer(8 * 3600, -1), 1, -1, -1);
+        timerWorker.add(hot, timer(8 * 3600, -1), 1, -1, -1);
+
+        tickAndWait(TICK);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!loadedBy.containsKey(cold)) {
+            assertTrue("Evicted user wasn't loaded.", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+
+        //disk read of the evicted user is never done on the shard event loop
+        Thread shardThread = processedBy.get(cold).get(0);
+        assertNotSame(shardThread, loadedBy.get(cold));
+        assertFalse(loadedBy.containsKey(hot));
+    }
+
+    @Test
+    public void testTickLagTracked() throws Exception {
+        timerWorker.add(new UserKey("test@blynk.cc", AppNameUtil.BLYNK), timer(8 * 3600, -1), 1, -1, -1);
+
+        long start = System.currentTimeMillis();
+        tickAndWait(TICK + 300);
+
+        //lag is counted from the start of the tick second
+        assertTrue(timerWorker.getLastTickLag() >= start - TICK);
+        assertEquals(timerWorker.getLastTickLag(), timerWorker.getMaxTickLag(false));
+        assertEquals(timerWorker.getLastTickLag(), timerWorker.getMaxTickLag(true));
+        assertEquals(0, timerWorker.getMaxTickLag(false));
+        assertEquals(timerWorker.getLastTickLag(), globalStats.timerTickLag.getLast());
+    }
+
+}
@@ -2,7 +2,14 @@ package cc.blynk.test.utils;
 
 import cc.blynk.server.core.dao.FileManager;
 import cc.blynk.server.core.dao.UserKey;
+import cc.blynk.server.core.model.DashBoard;
 import cc.blynk.server.core.model.auth.User;
+import cc.blynk.server.core.model.enums.PinType;
+import cc.blynk.server.core.model.enums.WidgetProperty;
+import cc.blynk.server.core.model.storage.key.DashPinStorageKey;
+import cc.blynk.server.core.model.storage.value.SinglePinStorageValue;
+import cc.blynk.server.core.model.widgets.Widget;
+import cc.blynk.server.core.model.widgets.outputs.ValueDisplay;
 import cc.blynk.utils.AppNameUtil;
 import org.junit.Before;
 import org.junit.Test;
@@ -11,10 +18,16 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
 import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 /**
  * User: ddumanskiy
@@ -77,9 +90,142 @@ public class FileManagerIntegrationTest {
         fileManager.overrideUserFile(user1);
         fileManager.overrideUserFile(user1);
 
+        //profile is written via temp file
+        Path path = fileManager.generateFileName(user1.email, user1.appName);
+        assertTrue(Files.exists(path));
+        assertFalse(Files.exists(Paths.get(path.toString() + ".tmp")));
+
         Map<UserKey, User> users = fileManager.deserializeUsers();
         assertNotNull(users);
         assertNotNull(users.get(new UserKey(user1.email, AppNameUtil.BLYNK)));
     }
 
+    private static DashBoard journalDash() {
+        ValueDisplay valueDisplay = new ValueDisplay();
+        valueDisplay.id = 1;
+        valueDisplay.pinType = PinType.VIRTUAL;
+        valueDisplay.pin = 1;
+
+        DashBoard dash = new DashBoard();
+        dash.id = 1;
+        dash.widgets = new Widget[] {valueDisplay};
+        return dash;
+    }
+
+    @Test
+    public void testJournalReplayedOnTopOfSnapshot() throws IOException {
+        user1.profile.dashBoards = new DashBoard[] {journalDash()};
+        fileManager.overrideUserFile(user1);
+
+        DashBoard dash = user1.profile.dashBoards[0];
+        user1.profile.update(dash, 0, (short) 1, PinType.VIRTUAL, "41", 1);
+        user1.profile.update(dash, 0, (short) 1, PinType.VIRTUAL, "42", 2);
+        user1.profile.update(dash, 0, (short) 2, PinType.VIRTUAL, "7", 3);
+        user1.profile.updateProperty(dash, 0, (short) 1, WidgetProperty.LABEL, "Temp", 4);
+        assertEquals(0, dash.updatedAt);
+        fileManager.saveUserJournal(user1);
+        assertFalse(user1.profile.journal.hasPendingUpdates());
+        assertTrue(Files.exists(fileManager.generateJournalFileName(user1.email, user1.appName)));
+
+        User restored = fileManager.deserializeUsers().get(new UserKey(user1.email, AppNameUtil.BLYNK));
+        DashBoard restoredDash = restored.profile.dashBoards[0];
+        ValueDisplay valueDisplay = (ValueDisplay) restoredDash.widgets[0];
+        assertEquals("42", valueDisplay.value);
+        assertEquals("Temp", valueDisplay.label);
+        assertEquals(4, restoredDash.valuesUpdatedAt);
+        SinglePinStorageValue storageValue = (SinglePinStorageValue) restored.profile.pinsStorage.get(
+                new DashPinStorageKey(1, 0, PinType.VIRTUAL, (short) 2));
+        assertEquals("7", storageValue.value);
+        assertFalse(restored.profile.journal.hasPendingUpdates());
+    }
+
+    @Test
+    public void testSnapshotRemovesJournal() throws IOException {
+        user1.profile.dashBoards = new DashBoard[] {journalDash()};
+        fileManager.overrideUserFile(user1);
+        user1.profile.update(user1.profile.dashBoards[0], 0, (short) 1, PinType.VIRTUAL, "42", 1);
+        fileManager.saveUserJournal(user1);
+
+        fileManager.overrideUserFile(user1);
+        assertFalse(Files.exists(fileManager.generateJournalFileName(user1.email, user1.appName)));
+
+        User restored = fileManager.deserializeUsers().get(new UserKey(user1.email, AppNameUtil.BLYNK));
+        assertEquals("42", ((ValueDisplay) restored.profile.dashBoards[0].widgets[0]).value);
+    }
+
+    @Test
+    public void testOutdatedJournalIsRemoved() throws IOException {
+        user1.profile.dashBoards = new DashBoard[] {journalDash()};
+        fileManager.overrideUserFile(user1);
+        user1.profile.update(user1.profile.dashBoards[0], 0, (short) 1, PinType.VIRTUAL, "42", 1);
+        fileManager.saveUserJournal(user1);
+
+        //snapshot was written, but server was stopped before journal removal
+        Path journal = fileManager.generateJournalFileName(user1.email, user1.appName);
+        Path snapshot = fileManager.generateFileName(user1.email, user1.appName);
+        Files.setLastModifiedTime(journal,
+                FileTime.fromMillis(Files.getLastModifiedTime(snapshot).toMillis() - 1000));
+
+        User restored = fileManager.deserializeUsers().get(new UserKey(user1.email, AppNameUtil.BLYNK));
+        assertNull(((ValueDisplay) restored.profile.dashBoards[0].widgets[0]).value);
+        assertFalse(Files.exists(journal));
+    }
+
+    @Test
+    public void testBrokenJournalRequiresSnapshot() throws IOException {
+        user1.profile.dashBoards = new DashBoard[] {journalDash()};
+        fileManager.overrideUserFile(user1);
+        user1.profile.update(user1.profile.dashBoards[0], 0, (short) 1, PinType.VIRTUAL, "42", 1);
+        fileManager.saveUserJournal(user1);
+
+        //update was written partially
+        Path journal = fileManager.generateJournalFileName(user1.email, user1.appName);
+        Files.write(journal, new byte[] {0, 0, 0}, StandardOpenOption.APPEND);
+
+        User restored = fileManager.deserializeUsers().get(new UserKey(user1.email, AppNameUtil.BLYNK));
+        assertEquals("42", ((ValueDisplay) restored.profile.dashBoards[0].widgets[0]).value);
+        assertTrue(restored.profile.journal.hasPendingUpdates());
+        assertNull(restored.profile.journal.drain());
+    }
+
+    @Test
+    public void testUnchangedUsersRestoredFromSnapshot() throws IOException {
+        user1.profile.dashBoards = new DashBoard[] {journalDash()};
+        user1.profile.dashBoards[0].name = "json";
+        fileManager.overrideUserFile(user1);
+        fileManager.overrideUserFile(user2);
+        for (User user : new User[] {user1, user2}) {
+            Path path = fileManager.generateFileName(user.email, user.appName);
+            Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis() - 10_000));
+        }
+
+        //snapshot is newer than json files, so it is used
+        user1.profile.dashBoards[0].name = "snapshot";
+        fileManager.writeUsersSnapshot(List.of(user1, user2));
+
+        Map<UserKey, User> users = fileManager.deserializeUsers(true);
+        assertEquals(2, users.size());
+        assertEquals("snapshot", users.get(new UserKey(user1.email, AppNameUtil.BLYNK)).profile.dashBoards[0].name);
+        assertNotNull(users.get(new UserKey(user2.email, AppNameUtil.BLYNK)));
+
+        users = fileManager.deserializeUsers(false);
+        assertEquals("json", users.get(new UserKey(user1.email, AppNameUtil.BLYNK)).profile.dashBoards[0].name);
+
+        //json file changed after the snapshot
+        user1.profile.dashBoards[0].name = "new json";
+        fileManager.overrideUserFile(user1);
+        users = fileManager.deserializeUsers(true);
+        assertEquals("new json", users.get(new UserKey(user1.email, AppNameUtil.BLYNK)).profile.dashBoards[0].name);
+    }
+
+    @Test
+    public void testBrokenSnapshotFallbackToJson() throws IOException {
+        fileManager.overrideUserFile(user1);
+        Files.write(fileManager.getUsersSnapshotPath(), new byte[32]);
+
+        Map<UserKey, User> users = fileManager.deserializeUsers(true);
+        assertEquals(1, users.size());
+        assertNotNull(users.get(new UserKey(user1.email, AppNameUtil.BLYNK)));
+    }
+
 }
@@ -9,7 +9,9 @@ import cc.blynk.server.Holder;
 import cc.blynk.server.admin.http.response.IpNameResponse;
 import cc.blynk.server.admin.http.response.RequestPerSecondResponse;
 import cc.blynk.server.core.BlockingIOProcessor;
+import cc.blynk.server.core.BlockingPool;
 import cc.blynk.server.core.dao.FileManager;
+import cc.blynk.server.core.dao.ReportingDiskDao;
 import cc.blynk.server.core.dao.UserDao;
 import cc.blynk.server.core.dao.UserKey;
 import cc.blynk.server.core.model.DashBoard;
@@ -18,8 +20,13 @@ import cc.blynk.server.core.model.auth.User;
 import cc.blynk.server.core.model.device.Device;
 import cc.blynk.server.core.model.serialization.JsonParser;
 import cc.blynk.server.core.model.widgets.ui.reporting.ReportScheduler;
+import cc.blynk.server.core.protocol.enums.Command;
+import cc.blynk.server.core.reporting.GraphDataCache;
 import cc.blynk.server.core.stats.GlobalStats;
+import cc.blynk.server.core.stats.metrics.LatencyHistogram;
+import cc.blynk.server.core.stats.metrics.OpenMetricsWriter;
 import cc.blynk.server.core.stats.model.Stat;
+import cc.blynk.server.db.ReportingDBManager;
 import io.netty.channel.ChannelHandler;
 
 import java.util.ArrayList;
@@ -49,6 +56,8 @@ public class StatsLogic extends CookiesBaseHttpHandler {
     private final BlockingIOProcessor blockingIOProcessor;
     private final GlobalStats globalStats;
     private final ReportScheduler reportScheduler;
+    private final ReportingDiskDao reportingDiskDao;
+    private final ReportingDBManager reportingDBManager;
 
     public StatsLogic(Holder holder, String rootPath) {
         super(holder, rootPath);
@@ -57,13 +66,96 @@ public class StatsLogic extends CookiesBaseHttpHandler {
         this.blockingIOProcessor = holder.blockingIOProcessor;
         this.globalStats = holder.stats;
         this.reportScheduler = holder.reportScheduler;
+        this.reportingDiskDao = holder.reportingDiskDao;
+        this.reportingDBManager = holder.reportingDBManager;
     }
 
     @GET
     @Path("/realtime")
     public Response getReatime() {
        return ok(Collections.singletonList(
-               new Stat(sessionDao, userDao, blockingIOProcessor, globalStats, reportScheduler, false)));
+               new Stat(sessionDao, userDao, blockingIOProcessor, globalStats,
+                       reportScheduler, reportingDiskDao, reportingDBManager, false)));
+    }
+
+    @GET
+    @Path("/metrics")
+    public Response getMetrics() {
+        OpenMetricsWriter writer = new OpenMetricsWriter();
+
+        writer.header("blynk_command_duration_seconds", "histogram",
+                "Time spent by the message handler on the event loop.");
+        writeCommandHistograms(writer, "blynk_command_duration_seconds", globalStats.latencies.commands);
+
+        writer.header("blynk_http_duration_seconds", "histogram",
+                "Time spent by the http handler, for handlers with metric only.");
+        writeCommandHistograms(writer, "blynk_http_duration_seconds", globalStats.latencies.http);
+
+        BlockingPool[] pools = blockingIOProcessor.getPools();
+        writer.header("blynk_pool_wait_seconds", "histogram",
+                "Time task spent in the queue of the blocking pool.");
+        for (BlockingPool pool : pools) {
+            writer.histogram("blynk_pool_wait_seconds", "pool", pool.name, pool.latency.wait);
+        }
+        writer.header("blynk_pool_run_seconds", "histogram",
+                "Execution time of the blocking pool task.");
+        for (BlockingPool pool : pools) {
+            writer.histogram("blynk_pool_run_seconds", "pool", pool.name, pool.latency.run);
+        }
+
+        writer.header("blynk_pool_queue_size", "gauge", "Tasks waiting in the queue of the blocking pool.");
+        for (BlockingPool pool : pools) {
+            writer.sample("blynk_pool_queue_size", "pool", pool.name, pool.getQueue().size());
+        }
+        writer.sample("blynk_pool_queue_size", "pool", "spill", blockingIOProcessor.getSpillQueueSize());
+
+        writer.header("blynk_pool_rejected_total", "counter",
+                "Tasks rejected or dropped by the blocking pool due to the full queue.");
+        for (BlockingPool pool : pools) {
+            writer.sample("blynk_pool_rejected_total", "pool", pool.name, pool.getRejectedCount());
+        }
+        writer.header("blynk_pool_spilled_total", "counter",
+                "Tasks moved from the full blocking pool to the spill thread.");
+        for (BlockingPool pool : pools) {
+            writer.sample("blynk_pool_spilled_total", "pool", pool.name, pool.getSpilledCount());
+        }
+
+        GraphDataCache graphDataCache = reportingDiskDao.graphDataCache;
+        writer.header("blynk_graph_cache_requests_total", "counter",
+                "Graph requests served from the graph cache (hit) or read from disk (miss).");
+        writer.sample("blynk_graph_cache_requests_total", "result", "hit", graphDataCache.getHits());
+        writer.sample("blynk_graph_cache_requests_total", "result", "miss", graphDataCache.getMisses());
+        writer.header("blynk_graph_cache_removed_total", "counter",
+                "Graph cache entries removed due to the size limit or history file change.");
+        writer.sample("blynk_graph_cache_removed_total", "reason", "evicted", graphDataCache.getEvictions());
+        writer.sample("blynk_graph_cache_removed_total", "reason", "invalidated",
+                graphDataCache.getInvalidations());
+        writer.header("blynk_graph_cache_bytes", "gauge", "Approximate size of the graph cache.");
+        writer.sample("blynk_graph_cache_bytes", "cache", "graph", graphDataCache.getBytes());
+
+        writer.header("blynk_worker_lag_seconds", "gauge", "Lag of the last run of the background worker.");
+        writer.sample("blynk_worker_lag_seconds", "worker", "timer", globalStats.timerTickLag.getLast() / 1000D);
+        writer.sample("blynk_worker_lag_seconds", "worker", "profile_saver",
+                globalStats.profileSaveLag.getLast() / 1000D);
+        writer.header("blynk_worker_max_lag_seconds", "gauge",
+                "Max lag of the background worker since the last stats worker run.");
+        writer.sample("blynk_worker_max_lag_seconds", "worker", "timer",
+                globalStats.timerTickLag.getMax(false) / 1000D);
+        writer.sample("blynk_worker_max_lag_seconds", "worker", "profile_saver",
+                globalStats.profileSaveLag.getMax(false) / 1000D);
+
+        return ok(writer.build(), OpenMetricsWriter.CONTENT_TYPE);
+    }
+
+    private static void writeCommandHistograms(OpenMetricsWriter writer, String name,
+                                               LatencyHistogram[] histograms) {
+        for (short cmd = 0; cmd < histograms.length; cmd++) {
+            LatencyHistogram histogram = histograms[cmd];
+            if (!histogram.isEmpty()) {
+                String cmdName = Command.getNameByValue(cmd);
+                writer.histogram(name, "command", cmdName == null ? String.valueOf(cmd) : cmdName, histogram);
+            }
+        }
     }
 
     @GET
@@ -89,7 +181,8 @@ public class StatsLogic extends CookiesBaseHttpHandler {
     public Response getMessages(@QueryParam("_sortField") String sortField,
                                     @QueryParam("_sortDir") String sortOrder) {
         return ok(sort(convertObjectToMap(
-                new Stat(sessionDao, userDao, blockingIOProcessor, globalStats, reportScheduler, false).commands),
+                new Stat(sessionDao, userDao, blockingIOProcessor, globalStats,
+                        reportScheduler, reportingDiskDao, reportingDBManager, false).commands),
                 sortField, sortOrder));
     }
 
@@ -29,6 +29,7 @@ import cc.blynk.utils.TokenGeneratorUtil;
 import cc.blynk.utils.http.MediaType;
 import io.netty.channel.ChannelHandler;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import static cc.blynk.core.http.Response.appendTotalCountHeader;
@@ -36,6 +37,7 @@ import static cc.blynk.core.http.Response.badRequest;
 import static cc.blynk.core.http.Response.notFound;
 import static cc.blynk.core.http.Response.ok;
 import static cc.blynk.core.http.utils.AdminHttpUtil.sort;
+import static cc.blynk.core.http.utils.ListUtils.subList;
 
 
 /**
@@ -84,9 +86,15 @@ public class UsersLogic extends CookiesBaseHttpHandler {
         }
 
         List<User> users = userDao.searchByUsername(filterParam, null);
-        return appendTotalCountHeader(
-                ok(sort(users, sortField, sortOrder), page, size), users.size()
-        );
+        //evicted users are found as summary, so full profiles are read only for the returned page
+        List<User> pageUsers = new ArrayList<>();
+        for (Object user : subList(sort(users, sortField, sortOrder), page, size)) {
+            User pageUser = userDao.peek(new UserKey((User) user));
+            if (pageUser != null) {
+                pageUsers.add(pageUser);
+            }
+        }
+        return appendTotalCountHeader(ok(pageUsers), users.size());
     }
 
     @GET
@@ -105,7 +113,7 @@ public class UsersLogic extends CookiesBaseHttpHandler {
     @GET
     @Path("/names/getAll")
     public Response getAllUserNames() {
-        return ok(userDao.users.keySet());
+        return ok(userDao.getUserKeys());
     }
 
     @GET
@@ -129,7 +137,7 @@ public class UsersLogic extends CookiesBaseHttpHandler {
                                @QueryParam("deviceId") int deviceId,
                                @QueryParam("new") String newToken) {
 
-        User user = userDao.getUsers().get(new UserKey(email, app));
+        User user = userDao.get(new UserKey(email, app));
 
         if (user == null) {
             return badRequest("No user with such email.");
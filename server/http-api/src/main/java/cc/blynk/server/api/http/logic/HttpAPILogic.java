@@ -14,6 +14,7 @@ import cc.blynk.core.http.annotation.QueryParam;
 import cc.blynk.server.Holder;
 import cc.blynk.server.api.http.pojo.EmailPojo;
 import cc.blynk.server.api.http.pojo.PinData;
+import cc.blynk.server.api.http.pojo.PinUpdate;
 import cc.blynk.server.api.http.pojo.PushMessagePojo;
 import cc.blynk.server.core.BlockingIOProcessor;
 import cc.blynk.server.core.dao.FileManager;
@@ -54,6 +55,8 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.util.AbstractMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import static cc.blynk.core.http.Response.badRequest;
 import static cc.blynk.core.http.Response.ok;
@@ -70,6 +73,7 @@ import static cc.blynk.server.core.protocol.enums.Command.HTTP_QR;
 import static cc.blynk.server.core.protocol.enums.Command.HTTP_UPDATE_PIN_DATA;
 import static cc.blynk.server.core.protocol.enums.Command.SET_WIDGET_PROPERTY;
 import static cc.blynk.utils.StringUtils.BODY_SEPARATOR;
+import static cc.blynk.utils.StringUtils.prependDashIdAndDeviceId;
 
 /**
  * The Blynk Project.
@@ -475,6 +479,106 @@ public class HttpAPILogic extends TokenBaseHttpHandler {
         return ok();
     }
 
+    /**
+     * Updates many pins of the devices of the same user within one request.
+     * Apps of every dashboard receive all updates of the dashboard in one pass,
+     * in case pin updated few times within the batch, apps receive only the last value.
+     */
+    @PUT
+    @Path("{token}/batch/update")
+    @Consumes(value = MediaType.APPLICATION_JSON)
+    @Metric(HTTP_UPDATE_PIN_DATA)
+    public Response updateWidgetsPinData(@PathParam("token") String token,
+                                         PinUpdate[] pinUpdates) {
+
+        if (pinUpdates == null || pinUpdates.length == 0) {
+            log.debug("No pin for update provided.");
+            return badRequest("No pin for update provided.");
+        }
+
+        TokenValue requestTokenValue = tokenManager.getTokenValueByToken(token);
+
+        if (requestTokenValue == null) {
+            log.debug("Requested token {} not found.", token);
+            return badRequest("Invalid token.");
+        }
+
+        User user = requestTokenValue.user;
+
+        //whole batch is validated first, so it is either applied fully or not applied at all
+        TokenValue[] tokenValues = new TokenValue[pinUpdates.length];
+        PinType[] pinTypes = new PinType[pinUpdates.length];
+        short[] pins = new short[pinUpdates.length];
+        for (int i = 0; i < pinUpdates.length; i++) {
+            PinUpdate pinUpdate = pinUpdates[i];
+            if (pinUpdate == null || pinUpdate.pin == null || pinUpdate.pin.isEmpty()
+                    || pinUpdate.value == null || pinUpdate.value.length == 0) {
+                log.debug("Wrong pin update format.");
+                return badRequest("Wrong pin update format.");
+            }
+
+            TokenValue tokenValue = pinUpdate.token == null || pinUpdate.token.isEmpty()
+                    ? requestTokenValue
+                    : tokenManager.getTokenValueByToken(pinUpdate.token);
+            if (tokenValue == null || tokenValue.user != user) {
+                log.debug("Requested token {} not found.", pinUpdate.token);
+                return badRequest("Invalid token.");
+            }
+            tokenValues[i] = tokenValue;
+
+            try {
+                pinTypes[i] = PinType.getPinType(pinUpdate.pin.charAt(0));
+                pins[i] = NumberUtil.parsePin(pinUpdate.pin.substring(1));
+            } catch (NumberFormatException | IllegalCommandBodyException e) {
+                log.debug("Wrong pin format. {}", pinUpdate.pin);
+                return badRequest("Wrong pin format.");
+            }
+        }
+
+        long now = System.currentTimeMillis();
+        Session session = sessionDao.get(new UserKey(user));
+        //dashId -> device pin -> app message body
+        Map<Integer, Map<String, String>> appBodies = new LinkedHashMap<>();
+
+        for (int i = 0; i < pinUpdates.length; i++) {
+            TokenValue tokenValue = tokenValues[i];
+            DashBoard dash = tokenValue.dash;
+            int deviceId = tokenValue.device.id;
+            PinType pinType = pinTypes[i];
+            short pin = pins[i];
+            String pinValue = String.join(StringUtils.BODY_SEPARATOR_STRING, pinUpdates[i].value);
+
+            reportingDao.process(user, dash, deviceId, pin, pinType, pinValue, now);
+
+            user.profile.update(dash, deviceId, pin, pinType, pinValue, now);
+            tokenValue.device.dataReceivedAt = now;
+
+            if (session != null) {
+                eventorProcessor.process(user, session, dash, deviceId, pin, pinType, pinValue, now);
+
+                String body = makeBody(dash, deviceId, pin, pinType, pinValue);
+                session.sendMessageToHardware(dash.id, HARDWARE, 111, body, deviceId);
+
+                if (dash.isActive && session.isAppConnected()) {
+                    appBodies.computeIfAbsent(dash.id, k -> new LinkedHashMap<>())
+                             .put("" + deviceId + pinType.pintTypeChar + pin,
+                                     prependDashIdAndDeviceId(dash.id, deviceId, body));
+                }
+            }
+        }
+
+        if (session == null) {
+            log.debug("No session for user {}.", user.email);
+            return ok();
+        }
+
+        for (Map.Entry<Integer, Map<String, String>> entry : appBodies.entrySet()) {
+            session.sendToApps(HARDWARE, 111, entry.getKey(), entry.getValue().values());
+        }
+
+        return ok();
+    }
+
     @PUT
     @Path("{token}/extra/pin/{pin}")
     @Consumes(value = MediaType.APPLICATION_JSON)
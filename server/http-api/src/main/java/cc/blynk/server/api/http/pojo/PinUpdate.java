@@ -0,0 +1,19 @@
+package cc.blynk.server.api.http.pojo;
+
+/**
+ * Single pin update of the batch update request.
+ *
+ * The Blynk Project.
+ * Created by Dmitriy Dumanskiy.
+ * Created on 18.10.26.
+ */
+public class PinUpdate {
+
+    //token of the device to update, device of the request token is updated when empty
+    public String token;
+
+    public String pin;
+
+    public String[] value;
+
+}
@@ -58,7 +58,7 @@ public final class AnnotationsProcessor {
 
                 for (int i = 0; i < method.getParameterCount(); i++) {
                     Parameter parameter = method.getParameters()[i];
-                    handlerHolder.params[i] = resolveParam(parameter, contentType);
+                    handlerHolder.params[i] = resolveParam(parameter, contentType, uriTemplate);
                 }
 
                 processors.add(handlerHolder);
@@ -68,7 +68,7 @@ public final class AnnotationsProcessor {
         return processors.toArray(new HandlerWrapper[0]);
     }
 
-    private static Param resolveParam(Parameter parameter, String contentType) {
+    private static Param resolveParam(Parameter parameter, String contentType, UriTemplate uriTemplate) {
         cc.blynk.core.http.annotation.QueryParam queryParamAnnotation =
                 parameter.getAnnotation(cc.blynk.core.http.annotation.QueryParam.class);
         if (queryParamAnnotation != null) {
@@ -84,7 +84,8 @@ public final class AnnotationsProcessor {
         cc.blynk.core.http.annotation.PathParam pathParamAnnotation =
                 parameter.getAnnotation(cc.blynk.core.http.annotation.PathParam.class);
         if (pathParamAnnotation != null) {
-            return new PathParam(pathParamAnnotation.value(), parameter.getType());
+            return new PathParam(pathParamAnnotation.value(), parameter.getType(),
+                    uriTemplate.indexOf(pathParamAnnotation.value()));
         }
 
         cc.blynk.core.http.annotation.FormParam formParamAnnotation =
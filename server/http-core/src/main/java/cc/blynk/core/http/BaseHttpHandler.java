@@ -2,6 +2,8 @@ package cc.blynk.core.http;
 
 import cc.blynk.core.http.rest.HandlerHolder;
 import cc.blynk.core.http.rest.HandlerWrapper;
+import cc.blynk.core.http.rest.PathParams;
+import cc.blynk.core.http.rest.Router;
 import cc.blynk.core.http.rest.URIDecoder;
 import cc.blynk.server.Holder;
 import cc.blynk.server.core.dao.SessionDao;
@@ -15,9 +17,6 @@ import io.netty.util.ReferenceCountUtil;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.util.Map;
-import java.util.regex.Matcher;
-
 import static cc.blynk.core.http.Response.serverError;
 import static cc.blynk.server.core.protocol.handlers.DefaultExceptionHandler.handleUnexpectedException;
 
@@ -34,6 +33,7 @@ public abstract class BaseHttpHandler extends ChannelInboundHandlerAdapter {
     protected final SessionDao sessionDao;
     protected final HandlerWrapper[] handlers;
     protected final String rootPath;
+    private final Router router;
 
     public BaseHttpHandler(Holder holder, String rootPath) {
         this(holder.tokenManager, holder.sessionDao, holder.stats, rootPath);
@@ -45,6 +45,7 @@ public abstract class BaseHttpHandler extends ChannelInboundHandlerAdapter {
         this.sessionDao = sessionDao;
         this.rootPath = rootPath;
         this.handlers = AnnotationsProcessor.register(rootPath, this, globalStats);
+        this.router = new Router(handlers);
     }
 
     @Override
@@ -59,7 +60,7 @@ public abstract class BaseHttpHandler extends ChannelInboundHandlerAdapter {
     }
 
     public boolean process(ChannelHandlerContext ctx, HttpRequest req) {
-        HandlerHolder handlerHolder = lookupHandler(req);
+        HandlerHolder handlerHolder = router.lookup(req);
 
         if (handlerHolder != null) {
             try {
@@ -77,7 +78,7 @@ public abstract class BaseHttpHandler extends ChannelInboundHandlerAdapter {
     }
 
     private void invokeHandler(ChannelHandlerContext ctx, HttpRequest req,
-                               HandlerWrapper handler, Map<String, String> extractedParams) {
+                               HandlerWrapper handler, PathParams extractedParams) {
         log.debug("{} : {}", req.method().name(), req.uri());
         try (URIDecoder uriDecoder = new URIDecoder(req, extractedParams)) {
             Object[] params = handler.fetchParams(ctx, uriDecoder);
@@ -93,19 +94,6 @@ public abstract class BaseHttpHandler extends ChannelInboundHandlerAdapter {
         }
     }
 
-    private HandlerHolder lookupHandler(HttpRequest req) {
-        for (HandlerWrapper handler : handlers) {
-            if (handler.httpMethod == req.method()) {
-                Matcher matcher = handler.uriTemplate.matcher(req.uri());
-                if (matcher.matches()) {
-                    Map<String, String> extractedParams = handler.uriTemplate.extractParameters(matcher);
-                    return new HandlerHolder(handler, extractedParams);
-                }
-            }
-        }
-        return null;
-    }
-
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
         handleUnexpectedException(ctx, cause);
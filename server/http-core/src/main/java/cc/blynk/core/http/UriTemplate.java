@@ -1,9 +1,9 @@
 package cc.blynk.core.http;
 
+import cc.blynk.core.http.rest.PathParams;
+
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -42,6 +42,18 @@ public class UriTemplate {
         compile();
     }
 
+    public String getUrlPattern() {
+        return urlPattern;
+    }
+
+    public String[] getParameterNames() {
+        return parameterNames.toArray(new String[0]);
+    }
+
+    public int indexOf(String parameterName) {
+        return parameterNames.indexOf(parameterName);
+    }
+
     public Matcher matcher(String url) {
         return compiledUrl.matcher(url);
     }
@@ -61,18 +73,14 @@ public class UriTemplate {
         }
     }
 
-    public Map<String, String> extractParameters(Matcher matcher) {
-        Map<String, String> values = new HashMap<>();
+    public PathParams extractParameters(Matcher matcher) {
+        String[] values = new String[parameterNames.size()];
 
         for (int i = 0; i < matcher.groupCount(); i++) {
-            String value = matcher.group(i + 1);
-
-            if (value != null) {
-                values.put(parameterNames.get(i), value);
-            }
+            values[i] = matcher.group(i + 1);
         }
 
-        return values;
+        return new PathParams(getParameterNames(), values);
     }
 
 }
@@ -1,7 +1,5 @@
 package cc.blynk.core.http.rest;
 
-import java.util.Map;
-
 /**
  * The Blynk Project.
  * Created by Dmitriy Dumanskiy.
@@ -11,9 +9,9 @@ public final class HandlerHolder {
 
     public final HandlerWrapper handler;
 
-    public final Map<String, String> extractedParams;
+    public final PathParams extractedParams;
 
-    public HandlerHolder(HandlerWrapper handler, Map<String, String> extractedParams) {
+    public HandlerHolder(HandlerWrapper handler, PathParams extractedParams) {
         this.handler = handler;
         this.extractedParams = extractedParams;
     }
@@ -80,6 +80,7 @@ public class HandlerWrapper {
     }
 
     public FullHttpResponse invoke(Object[] params) {
+        long start = System.nanoTime();
         try {
             mark();
             return (FullHttpResponse) classMethod.invoke(handler, params);
@@ -94,6 +95,10 @@ public class HandlerWrapper {
             }
 
             return Response.serverError(e.getMessage());
+        } finally {
+            if (metricIndex > -1) {
+                globalStats.latencies.recordHttp(metricIndex, System.nanoTime() - start);
+            }
         }
     }
 
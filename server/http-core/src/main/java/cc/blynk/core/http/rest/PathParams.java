@@ -0,0 +1,35 @@
+package cc.blynk.core.http.rest;
+
+/**
+ * Path parameters extracted from the request uri.
+ * Values are stored in the order of parameters within uri template,
+ * so handler params resolve them by index without any map lookups.
+ *
+ * The Blynk Project.
+ * Created by Dmitriy Dumanskiy.
+ * Created on 18.10.26.
+ */
+public final class PathParams {
+
+    private final String[] names;
+    private final String[] values;
+
+    public PathParams(String[] names, String[] values) {
+        this.names = names;
+        this.values = values;
+    }
+
+    public String get(int index) {
+        return index < 0 ? null : values[index];
+    }
+
+    public String get(String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return values[i];
+            }
+        }
+        return null;
+    }
+
+}
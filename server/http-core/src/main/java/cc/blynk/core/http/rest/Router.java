@@ -0,0 +1,213 @@
+package cc.blynk.core.http.rest;
+
+import cc.blynk.core.http.UriTemplate;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpRequest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Finds handler for the request uri. Uri templates that consist only of the literal
+ * and "{param}" segments are compiled into the segment trie, so lookup is a single pass
+ * over the request path without regex matching and without intermediate objects.
+ * Literal segments have priority over the params.
+ *
+ * All other templates (with the format suffix, regex special chars, etc.) are matched
+ * with the regex of the uri template, after the trie lookup.
+ *
+ * The Blynk Project.
+ * Created by Dmitriy Dumanskiy.
+ * Created on 18.10.26.
+ */
+public final class Router {
+
+    //template segment that may be compiled into the trie as the literal
+    private static final Pattern LITERAL_SEGMENT = Pattern.compile("[\\w\\-~]*");
+    private static final Pattern PARAM_SEGMENT = Pattern.compile("\\{\\w*}");
+
+    private final Node root = new Node(null);
+    private final HandlerWrapper[] regexHandlers;
+
+    public Router(HandlerWrapper[] handlers) {
+        List<HandlerWrapper> regexHandlers = new ArrayList<>();
+        for (HandlerWrapper handler : handlers) {
+            if (!add(handler)) {
+                regexHandlers.add(handler);
+            }
+        }
+        this.regexHandlers = regexHandlers.toArray(new HandlerWrapper[0]);
+    }
+
+    private boolean add(HandlerWrapper handler) {
+        UriTemplate uriTemplate = handler.uriTemplate;
+        String[] segments = uriTemplate.getUrlPattern().split("/", -1);
+        int[] paramSegments = new int[segments.length];
+        int paramsCount = 0;
+        for (int i = 0; i < segments.length; i++) {
+            String segment = segments[i];
+            if (PARAM_SEGMENT.matcher(segment).matches()) {
+                paramSegments[paramsCount++] = i;
+            } else if (!LITERAL_SEGMENT.matcher(segment).matches()) {
+                return false;
+            }
+        }
+
+        Node node = root;
+        for (String segment : segments) {
+            node = segment.startsWith("{") ? node.paramChild() : node.literalChild(segment);
+        }
+        node.add(new Route(handler, uriTemplate.getParameterNames(), Arrays.copyOf(paramSegments, paramsCount)));
+        return true;
+    }
+
+    public HandlerHolder lookup(HttpRequest req) {
+        String uri = req.uri();
+        int pathEnd = uri.indexOf('?');
+        if (pathEnd == -1) {
+            pathEnd = uri.length();
+        }
+
+        Route route = root.match(uri, 0, pathEnd, req.method());
+        if (route != null) {
+            return new HandlerHolder(route.handler, route.extractParams(uri, pathEnd));
+        }
+
+        for (HandlerWrapper handler : regexHandlers) {
+            if (handler.httpMethod == req.method()) {
+                Matcher matcher = handler.uriTemplate.matcher(uri);
+                if (matcher.matches()) {
+                    return new HandlerHolder(handler, handler.uriTemplate.extractParameters(matcher));
+                }
+            }
+        }
+        return null;
+    }
+
+    private static int segmentEnd(String uri, int segmentStart, int pathEnd) {
+        for (int i = segmentStart; i < pathEnd; i++) {
+            if (uri.charAt(i) == '/') {
+                return i;
+            }
+        }
+        return pathEnd;
+    }
+
+    //same chars as allowed for the param by the uri template regex
+    private static boolean isParamValue(String uri, int start, int end) {
+        if (start == end) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            char c = uri.charAt(i);
+            if (!(c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9'
+                    || "%_-.~!$&'()*+,;=:[]@".indexOf(c) != -1)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final class Node {
+
+        private static final Node[] NO_CHILDREN = {};
+        private static final Route[] NO_ROUTES = {};
+
+        private final String literal;
+        private Node[] literalChildren = NO_CHILDREN;
+        private Node paramChild;
+        private Route[] routes = NO_ROUTES;
+
+        Node(String literal) {
+            this.literal = literal;
+        }
+
+        Node literalChild(String segment) {
+            for (Node child : literalChildren) {
+                if (child.literal.equals(segment)) {
+                    return child;
+                }
+            }
+            Node child = new Node(segment);
+            literalChildren = Arrays.copyOf(literalChildren, literalChildren.length + 1);
+            literalChildren[literalChildren.length - 1] = child;
+            return child;
+        }
+
+        Node paramChild() {
+            if (paramChild == null) {
+                paramChild = new Node(null);
+            }
+            return paramChild;
+        }
+
+        void add(Route route) {
+            routes = Arrays.copyOf(routes, routes.length + 1);
+            routes[routes.length - 1] = route;
+        }
+
+        /**
+         * Matches path segment starting at segmentStart against the children of this node.
+         */
+        Route match(String uri, int segmentStart, int pathEnd, HttpMethod method) {
+            int segmentEnd = segmentEnd(uri, segmentStart, pathEnd);
+            int length = segmentEnd - segmentStart;
+            for (Node child : literalChildren) {
+                if (child.literal.length() == length && uri.startsWith(child.literal, segmentStart)) {
+                    Route route = child.next(uri, segmentEnd, pathEnd, method);
+                    if (route != null) {
+                        return route;
+                    }
+                }
+            }
+            if (paramChild != null && isParamValue(uri, segmentStart, segmentEnd)) {
+                return paramChild.next(uri, segmentEnd, pathEnd, method);
+            }
+            return null;
+        }
+
+        private Route next(String uri, int segmentEnd, int pathEnd, HttpMethod method) {
+            if (segmentEnd == pathEnd) {
+                for (Route route : routes) {
+                    if (route.handler.httpMethod == method) {
+                        return route;
+                    }
+                }
+                return null;
+            }
+            return match(uri, segmentEnd + 1, pathEnd, method);
+        }
+    }
+
+    private static final class Route {
+
+        private final HandlerWrapper handler;
+        private final String[] paramNames;
+        //indexes of the path segments with param values, in order of params within template
+        private final int[] paramSegments;
+
+        Route(HandlerWrapper handler, String[] paramNames, int[] paramSegments) {
+            this.handler = handler;
+            this.paramNames = paramNames;
+            this.paramSegments = paramSegments;
+        }
+
+        PathParams extractParams(String uri, int pathEnd) {
+            String[] values = new String[paramSegments.length];
+            int segment = 0;
+            int segmentStart = 0;
+            for (int i = 0; i < paramSegments.length; i++) {
+                while (segment < paramSegments[i]) {
+                    segmentStart = segmentEnd(uri, segmentStart, pathEnd) + 1;
+                    segment++;
+                }
+                values[i] = uri.substring(segmentStart, segmentEnd(uri, segmentStart, pathEnd));
+            }
+            return new PathParams(paramNames, values);
+        }
+    }
+
+}
@@ -24,14 +24,14 @@ import java.util.Map;
 public class URIDecoder extends QueryStringDecoder implements Closeable {
 
     public final String[] paths;
-    public final Map<String, String> pathData;
+    public final PathParams pathData;
     public String contentType;
     public Map<String, String> headers;
 
     private HttpPostRequestDecoder decoder;
     private ByteBuf bodyData;
 
-    public URIDecoder(HttpRequest httpRequest, Map<String, String> extractedParams) {
+    public URIDecoder(HttpRequest httpRequest, PathParams extractedParams) {
         super(httpRequest.uri());
         this.paths = path().split("/");
         if (httpRequest.method() == HttpMethod.PUT || httpRequest.method() == HttpMethod.POST) {
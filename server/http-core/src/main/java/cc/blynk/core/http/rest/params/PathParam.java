@@ -10,13 +10,17 @@ import io.netty.channel.ChannelHandlerContext;
  */
 public class PathParam extends Param {
 
-    public PathParam(String name, Class<?> type) {
+    //position of the param within uri template
+    private final int index;
+
+    public PathParam(String name, Class<?> type, int index) {
         super(name, type);
+        this.index = index;
     }
 
     @Override
     public Object get(ChannelHandlerContext ctx, URIDecoder uriDecoder) {
-        return convertTo(uriDecoder.pathData.get(name));
+        return convertTo(uriDecoder.pathData.get(index));
     }
 
 }
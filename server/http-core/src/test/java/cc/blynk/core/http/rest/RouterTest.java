@@ -0,0 +1,96 @@
+package cc.blynk.core.http.rest;
+
+import cc.blynk.core.http.AnnotationsProcessor;
+import cc.blynk.core.http.annotation.GET;
+import cc.blynk.core.http.annotation.PUT;
+import cc.blynk.core.http.annotation.Path;
+import cc.blynk.core.http.annotation.PathParam;
+import io.netty.handler.codec.http.DefaultHttpRequest;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpVersion;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * The Blynk Project.
+ * Created by Dmitriy Dumanskiy.
+ * Created on 18.10.26.
+ */
+public class RouterTest {
+
+    private final Router router = new Router(AnnotationsProcessor.register("/api", new TestLogic(), null));
+
+    private HandlerHolder lookup(HttpMethod method, String uri) {
+        return router.lookup(new DefaultHttpRequest(HttpVersion.HTTP_1_1, method, uri));
+    }
+
+    @Test
+    public void testParamsExtracted() {
+        HandlerHolder holder = lookup(HttpMethod.GET, "/api/test/abc-123/update/v1?value=10");
+        assertEquals("update", holder.handler.classMethod.getName());
+        assertEquals("abc-123", holder.extractedParams.get("token"));
+        assertEquals("v1", holder.extractedParams.get(1));
+
+        holder = lookup(HttpMethod.PUT, "/api/test/abc/update/v1");
+        assertEquals("updatePut", holder.handler.classMethod.getName());
+    }
+
+    @Test
+    public void testLiteralHasPriority() {
+        assertEquals("stats", lookup(HttpMethod.GET, "/api/test/stats").handler.classMethod.getName());
+        assertEquals("project", lookup(HttpMethod.GET, "/api/test/dmitriy@blynk.cc").handler.classMethod.getName());
+    }
+
+    @Test
+    public void testNoMatch() {
+        assertNull(lookup(HttpMethod.GET, "/api/test/abc/update/v1/"));
+        assertNull(lookup(HttpMethod.GET, "/api/test//update/v1"));
+        assertNull(lookup(HttpMethod.GET, "/api/test/a b/update/v1"));
+        assertNull(lookup(HttpMethod.DELETE, "/api/test/abc/update/v1"));
+        assertNull(lookup(HttpMethod.GET, "/api/other"));
+    }
+
+    @Test
+    public void testRegexFallback() {
+        HandlerHolder holder = lookup(HttpMethod.GET, "/api/test/files/report.csv");
+        assertEquals("file", holder.handler.classMethod.getName());
+        assertEquals("report", holder.extractedParams.get("name"));
+    }
+
+    @Path("/test")
+    public static class TestLogic {
+
+        @GET
+        @Path("/{token}/update/{pin}")
+        public Object update(@PathParam("token") String token, @PathParam("pin") String pin) {
+            return null;
+        }
+
+        @PUT
+        @Path("/{token}/update/{pin}")
+        public Object updatePut(@PathParam("token") String token, @PathParam("pin") String pin) {
+            return null;
+        }
+
+        @GET
+        @Path("/stats")
+        public Object stats() {
+            return null;
+        }
+
+        @GET
+        @Path("/{name}")
+        public Object project(@PathParam("name") String name) {
+            return null;
+        }
+
+        @GET
+        @Path("/files/{name}.csv")
+        public Object file(@PathParam("name") String name) {
+            return null;
+        }
+    }
+
+}
@@ -5,7 +5,9 @@ import cc.blynk.server.core.reporting.average.AverageAggregatorProcessor;
 import cc.blynk.server.servers.BaseServer;
 import cc.blynk.server.workers.CertificateRenewalWorker;
 import cc.blynk.server.workers.HistoryGraphUnusedPinDataCleanerWorker;
+import cc.blynk.server.workers.ProfileEvictionWorker;
 import cc.blynk.server.workers.ProfileSaverWorker;
+import cc.blynk.server.workers.RawDataDrainWorker;
 import cc.blynk.server.workers.ReportingTruncateWorker;
 import cc.blynk.server.workers.ReportingWorker;
 import cc.blynk.server.workers.ShutdownHookWorker;
@@ -20,6 +22,7 @@ import java.util.concurrent.TimeUnit;
 import static java.util.concurrent.TimeUnit.DAYS;
 import static java.util.concurrent.TimeUnit.HOURS;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.MINUTES;
 
 /**
  * Launches a bunch of separate jobs/schedulers responsible for different aspects of business logic
@@ -50,12 +53,21 @@ final class JobLauncher {
         scheduler.scheduleAtFixedRate(reportingWorker, startDelay,
                 AverageAggregatorProcessor.MINUTE, MILLISECONDS);
 
-        var profileSaverWorker = new ProfileSaverWorker(holder.userDao, holder.fileManager, holder.dbManager);
+        var profileSaverWorker = new ProfileSaverWorker(holder.userDao, holder.fileManager, holder.dbManager,
+                holder.props.getIntProperty("profile.save.worker.threads", 2),
+                holder.props.isUsersSnapshotEnabled()
+                        ? holder.props.getLongProperty("profile.snapshot.period", 3_600_000) : 0,
+                holder.stats.profileSaveLag);
 
         //running 1 sec later after reporting
         scheduler.scheduleAtFixedRate(profileSaverWorker, startDelay + 1000,
                 holder.props.getIntProperty("profile.save.worker.period"), MILLISECONDS);
 
+        if (holder.props.isProfileEvictionEnabled()) {
+            //first run right after start, so inactive profiles loaded on startup are evicted
+            scheduler.scheduleAtFixedRate(new ProfileEvictionWorker(holder.coldUsers), 1, 60, MINUTES);
+        }
+
         var statsWorker = new StatsWorker(holder);
         scheduler.scheduleAtFixedRate(statsWorker, 1000,
                 holder.props.getIntProperty("stats.print.worker.period"), MILLISECONDS);
@@ -89,6 +101,14 @@ final class JobLauncher {
         ses.scheduleAtFixedRate(holder.timerWorker, startDelay, 1000, MILLISECONDS);
         ses.scheduleAtFixedRate(holder.readingWidgetsWorker, startDelay + 400, 1000, MILLISECONDS);
 
+        if (holder.reportingDiskDao.rawDataProcessor.capacity() > 0) {
+            //separate thread, so raw data doesn't wait for the profile saving
+            var rawDataDrainer = Executors.newScheduledThreadPool(1, BlynkTPFactory.build("RawDataDrainer"));
+            rawDataDrainer.scheduleWithFixedDelay(
+                    new RawDataDrainWorker(holder.reportingDiskDao.rawDataProcessor, holder.reportingDBManager),
+                    1000, 200, MILLISECONDS);
+        }
+
         //shutdown hook thread catcher
         Runtime.getRuntime().addShutdownHook(new Thread(
                 new ShutdownHookWorker(servers, holder, scheduler, profileSaverWorker)
@@ -94,9 +94,11 @@ public final class ServerLauncher {
                               SmsProperties smsProperties, GCMProperties gcmProperties,
                               TwitterProperties twitterProperties,
                               boolean restore) {
+        long start = System.currentTimeMillis();
         Holder holder = new Holder(serverProperties,
                 mailProperties, smsProperties, gcmProperties, twitterProperties,
                 restore);
+        long dataLoaded = System.currentTimeMillis();
 
         BaseServer[] servers = new BaseServer[] {
                 new HardwareAndHttpAPIServer(holder),
@@ -105,11 +107,14 @@ public final class ServerLauncher {
         };
 
         if (startServers(servers)) {
+            long serversStarted = System.currentTimeMillis();
             //Launching all background jobs.
             JobLauncher.start(holder, servers);
 
             System.out.println();
             System.out.println("Blynk Server " + JarUtil.getServerVersion() + " successfully started.");
+            System.out.println("Loading data took " + (dataLoaded - start) + " ms. Starting servers took "
+                    + (serversStarted - dataLoaded) + " ms.");
             String path = new File(System.getProperty("logs.folder")).getAbsolutePath().replace("/./", "/");
             System.out.println("All server output is stored in folder '" + path + "' file.");
 
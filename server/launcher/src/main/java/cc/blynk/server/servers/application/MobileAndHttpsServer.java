@@ -94,6 +94,7 @@ public class MobileAndHttpsServer extends BaseServer {
                 holder.props.getCommaSeparatedValueAsArray("allowed.administrator.ips"));
 
         var stats = holder.stats;
+        var decodePinWrites = holder.props.isHardwarePinWriteDecodingEnabled();
 
         //http API handlers
         var resetPasswordLogic = new ResetPasswordHttpLogic(holder);
@@ -217,7 +218,7 @@ public class MobileAndHttpsServer extends BaseServer {
                         .addLast("WSWebSocketServerProtocolHandler",
                         new WebSocketServerProtocolHandler(websocketPath, true))
                         .addLast("WSWebSocket", webSocketHandler)
-                        .addLast("WSMessageDecoder", new MessageDecoder(stats, holder.limits))
+                        .addLast("WSMessageDecoder", new MessageDecoder(stats, holder.limits, decodePinWrites))
                         .addLast("WSSocketWrapper", webSocketWrapperEncoder)
                         .addLast("WSMessageEncoder", new MessageEncoder(stats))
                         .addLast("WSLogin", hardwareLoginHandler)
@@ -279,7 +280,8 @@ public class MobileAndHttpsServer extends BaseServer {
                                 .addFirst("H_IdleStateHandler",
                                         new IdleStateHandler(hardTimeoutSecs, 0, 0))
                                 .addLast("H_ChannelState", hardwareChannelStateHandler)
-                                .addLast("H_MessageDecoder", new MessageDecoder(holder.stats, holder.limits))
+                                .addLast("H_MessageDecoder",
+                                        new MessageDecoder(holder.stats, holder.limits, decodePinWrites))
                                 .addLast("H_MessageEncoder", new MessageEncoder(holder.stats))
                                 .addLast("H_Login", hardwareLoginHandler)
                                 .addLast("H_AlreadyLogged", alreadyLoggedHandler);
@@ -60,6 +60,7 @@ public class HardwareAndHttpAPIServer extends BaseServer {
         int hardTimeoutSecs = NumberUtil.calcHeartbeatTimeout(holder.limits.hardwareIdleTimeout);
 
         GlobalStats stats = holder.stats;
+        boolean decodePinWrites = holder.props.isHardwarePinWriteDecodingEnabled();
 
         //http API handlers
         ResetPasswordHttpLogic resetPasswordLogic = new ResetPasswordHttpLogic(holder);
@@ -115,7 +116,7 @@ public class HardwareAndHttpAPIServer extends BaseServer {
                         .addLast("WSWebSocketServerProtocolHandler",
                         new WebSocketServerProtocolHandler(websocketPath, true))
                         .addLast("WSWebSocket", new WSHandler(stats))
-                        .addLast("WSMessageDecoder", new MessageDecoder(stats, holder.limits))
+                        .addLast("WSMessageDecoder", new MessageDecoder(stats, holder.limits, decodePinWrites))
                         .addLast("WSSocketWrapper", new WSWrapperEncoder())
                         .addLast("WSMessageEncoder", new MessageEncoder(stats))
                         .addLast("WSLogin", hardwareLoginHandler)
@@ -155,7 +156,8 @@ public class HardwareAndHttpAPIServer extends BaseServer {
                                         .addFirst("H_IdleStateHandler",
                                                 new IdleStateHandler(hardTimeoutSecs, 0, 0))
                                         .addLast("H_ChannelState", hardwareChannelStateHandler)
-                                        .addLast("H_MessageDecoder", new MessageDecoder(holder.stats, holder.limits))
+                                        .addLast("H_MessageDecoder",
+                                                new MessageDecoder(holder.stats, holder.limits, decodePinWrites))
                                         .addLast("H_MessageEncoder", new MessageEncoder(holder.stats))
                                         .addLast("H_Login", hardwareLoginHandler)
                                         .addLast("H_AlreadyLogged", alreadyLoggedHandler);
@@ -73,7 +73,7 @@ public class HistoryGraphUnusedPinDataCleanerWorker implements Runnable {
         for (User user : userDao.getUsers().values()) {
             //we don't want to do a lot of work here,
             //so we check only active profiles that actually write data
-            if (user.isUpdated(lastStart)) {
+            if (user.isUpdated(lastStart) || user.isValuesUpdated(lastStart)) {
                 doNotRemovePaths.clear();
                 try {
                     Profile profile = user.profile;
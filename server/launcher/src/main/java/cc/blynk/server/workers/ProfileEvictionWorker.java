@@ -0,0 +1,36 @@
+package cc.blynk.server.workers;
+
+import cc.blynk.server.core.dao.ColdUsers;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Evicts profiles of the inactive users from memory. Evicted profiles are loaded back on demand.
+ *
+ * The Blynk Project.
+ * Created by Dmitriy Dumanskiy.
+ * Created on 18.10.26.
+ */
+public class ProfileEvictionWorker implements Runnable {
+
+    private static final Logger log = LogManager.getLogger(ProfileEvictionWorker.class);
+
+    private final ColdUsers coldUsers;
+
+    public ProfileEvictionWorker(ColdUsers coldUsers) {
+        this.coldUsers = coldUsers;
+    }
+
+    @Override
+    public void run() {
+        try {
+            long now = System.currentTimeMillis();
+            int evicted = coldUsers.evictInactive();
+            log.info("Evicted {} inactive profiles. Evicted total : {}. Time : {} ms.",
+                    evicted, coldUsers.size(), System.currentTimeMillis() - now);
+        } catch (Throwable t) {
+            log.error("Error evicting inactive profiles.", t);
+        }
+    }
+
+}
@@ -2,18 +2,37 @@ package cc.blynk.server.workers;
 
 import cc.blynk.server.core.dao.FileManager;
 import cc.blynk.server.core.dao.UserDao;
+import cc.blynk.server.core.dao.UserKey;
 import cc.blynk.server.core.model.auth.User;
 import cc.blynk.server.core.model.serialization.JsonParser;
+import cc.blynk.server.core.stats.metrics.LagGauge;
 import cc.blynk.server.db.DBManager;
+import cc.blynk.utils.BlynkTPFactory;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.Closeable;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Background thread that once a minute stores all user DB to disk in case profile was changed since last saving.
+ * When only pin values and properties were changed, they are appended to the user journal
+ * instead of rewriting the whole profile.
+ *
+ * Modified users are collected once per cycle, so every user is saved only once no matter
+ * how many times it was changed since the last cycle. Users are serialized and written
+ * by the bounded pool of saver threads, cycle waits for all of them, so cycles never overlap.
+ *
+ * When enabled, binary snapshot of all users is written periodically and on server stop.
  *
  * The Blynk Project.
  * Created by Dmitriy Dumanskiy.
@@ -23,19 +42,48 @@ public class ProfileSaverWorker implements Runnable, Closeable {
 
     private static final Logger log = LogManager.getLogger(ProfileSaverWorker.class);
 
-    //1 min
+    private static final long BACKUP_PERIOD = 86_400_000;
+    //backup pass doesn't write more than this number of users per second, so it doesn't compete with savers
+    private static final int BACKUP_USERS_PER_SECOND = 1000;
+
     private final UserDao userDao;
     private final FileManager fileManager;
     private final DBManager dbManager;
+    private final int threads;
+    private final ExecutorService saverPool;
+    private final ExecutorService backupExecutor;
+    private final AtomicBoolean backupInProgress = new AtomicBoolean();
+    //0 means binary snapshot of users is disabled
+    private final long snapshotPeriod;
     private long lastStart;
     private long backupTs;
+    private long snapshotTs;
+
+    //time between the start of the previous cycle and the end of the current one,
+    //so that's the max age of the change that wasn't on disk yet
+    private final LagGauge saveLag;
 
     public ProfileSaverWorker(UserDao userDao, FileManager fileManager, DBManager dbManager) {
+        this(userDao, fileManager, dbManager, 1);
+    }
+
+    public ProfileSaverWorker(UserDao userDao, FileManager fileManager, DBManager dbManager, int threads) {
+        this(userDao, fileManager, dbManager, threads, 0, new LagGauge());
+    }
+
+    public ProfileSaverWorker(UserDao userDao, FileManager fileManager, DBManager dbManager,
+                              int threads, long snapshotPeriod, LagGauge saveLag) {
         this.userDao = userDao;
         this.fileManager = fileManager;
         this.dbManager = dbManager;
+        this.threads = Math.max(1, threads);
+        this.saverPool = Executors.newFixedThreadPool(this.threads, BlynkTPFactory.build("ProfileSaver"));
+        this.backupExecutor = Executors.newSingleThreadExecutor(BlynkTPFactory.build("ProfileBackup"));
         this.lastStart = System.currentTimeMillis();
         this.backupTs = 0;
+        this.snapshotPeriod = snapshotPeriod;
+        this.snapshotTs = this.lastStart;
+        this.saveLag = saveLag;
     }
 
     @Override
@@ -46,58 +94,166 @@ public class ProfileSaverWorker implements Runnable, Closeable {
             final long now = System.currentTimeMillis();
 
             ArrayList<User> users = saveModified();
+            for (User user : users) {
+                userDao.activityStats.update(user);
+            }
 
-            dbManager.saveUsers(users);
+            dbManager.saveUsers(users, lastStart);
 
             //backup only for local mode
             if (dbManager.dbIsNotEnabled() && users.size() > 0) {
-                archiveUser(now);
+                archiveUsers(now);
             }
 
+            if (snapshotPeriod > 0 && now - snapshotTs > snapshotPeriod) {
+                snapshotTs = now;
+                writeSnapshotInBackground();
+            }
+
+            long lag = System.currentTimeMillis() - lastStart;
+            saveLag.update(lag);
             lastStart = now;
 
-            log.debug("Saving user db finished. Modified {} users.", users.size());
+            log.debug("Saving user db finished. Modified {} users. Save lag : {} ms.", users.size(), lag);
         } catch (Throwable t) {
             log.error("Error saving users.", t);
         }
     }
 
-    private void archiveUser(long now) {
-        if (now - backupTs > 86_400_000) {
-            //it is time for backup, once per day.
-            log.info("Backup for user DB started...");
+    public long getLastSaveLag() {
+        return saveLag.getLast();
+    }
+
+    public long getMaxSaveLag(boolean reset) {
+        return saveLag.getMax(reset);
+    }
+
+    private void archiveUsers(long now) {
+        //it is time for backup, once per day.
+        if (now - backupTs > BACKUP_PERIOD && backupInProgress.compareAndSet(false, true)) {
             backupTs = now;
-            for (User user : userDao.users.values()) {
+            try {
+                backupExecutor.execute(this::archiveUsers);
+            } catch (Exception e) {
+                backupInProgress.set(false);
+                log.warn("Unable to start backup for user DB. {}", e.getMessage());
+            }
+        }
+    }
+
+    private void writeSnapshotInBackground() {
+        try {
+            backupExecutor.execute(this::writeSnapshot);
+        } catch (Exception e) {
+            log.warn("Unable to start writing users snapshot. {}", e.getMessage());
+        }
+    }
+
+    private void writeSnapshot() {
+        try {
+            fileManager.writeUsersSnapshot(userDao.getUsers().values());
+        } catch (Exception e) {
+            log.error("Error writing users snapshot.", e);
+        }
+    }
+
+    private void archiveUsers() {
+        log.info("Backup for user DB started...");
+        try {
+            int written = 0;
+            long secondStart = System.currentTimeMillis();
+            //evicted users are read from disk without loading them back to memory
+            for (UserKey userKey : userDao.getUserKeys()) {
                 try {
+                    User user = userDao.peek(userKey);
+                    if (user == null) {
+                        continue;
+                    }
                     Path path = fileManager.generateBackupFileName(user.email, user.appName);
                     JsonParser.writeUser(path.toFile(), user);
                 } catch (Exception e) {
                     //ignore
                 }
+                if (++written == BACKUP_USERS_PER_SECOND) {
+                    long sleep = 1000 - (System.currentTimeMillis() - secondStart);
+                    if (sleep > 0) {
+                        Thread.sleep(sleep);
+                    }
+                    written = 0;
+                    secondStart = System.currentTimeMillis();
+                }
             }
             log.info("Backup for user DB finished.");
+        } catch (InterruptedException e) {
+            log.info("Backup for user DB interrupted.");
+        } catch (Exception e) {
+            log.error("Error during backup for user DB.", e);
+        } finally {
+            backupInProgress.set(false);
         }
     }
 
-    private ArrayList<User> saveModified() {
-        var users = new ArrayList<User>();
-
+    private ArrayList<User> saveModified() throws Exception {
+        var modified = new ArrayList<User>();
         for (User user : userDao.getUsers().values()) {
-            if (user.isUpdated(lastStart)) {
-                try {
-                    fileManager.overrideUserFile(user);
-                    users.add(user);
-                } catch (Exception e) {
-                    log.error("Error saving : {}.", user);
-                }
+            if (user.isUpdated(lastStart) || user.profile.journal.hasPendingUpdates()) {
+                modified.add(user);
             }
         }
 
-        return users;
+        var saved = new ConcurrentLinkedQueue<User>();
+        if (modified.size() > 0) {
+            //users are taken one by one, so big profiles don't block the rest of the users
+            var next = new AtomicInteger();
+            List<Future<?>> savers = new ArrayList<>(threads);
+            for (int i = 0; i < Math.min(threads, modified.size()); i++) {
+                savers.add(saverPool.submit(() -> {
+                    int index;
+                    while ((index = next.getAndIncrement()) < modified.size()) {
+                        User user = modified.get(index);
+                        if (save(user)) {
+                            saved.add(user);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> saver : savers) {
+                saver.get();
+            }
+        }
+
+        return new ArrayList<>(saved);
+    }
+
+    private boolean save(User user) {
+        try {
+            if (user.isUpdated(lastStart)) {
+                fileManager.overrideUserFile(user);
+            } else {
+                //only pin values and properties were changed
+                fileManager.saveUserJournal(user);
+            }
+            return true;
+        } catch (Exception e) {
+            log.error("Error saving : {}.", user);
+        }
+        return false;
     }
 
     @Override
     public void close() {
         run();
+        backupExecutor.shutdownNow();
+        saverPool.shutdown();
+        try {
+            saverPool.awaitTermination(1, TimeUnit.MINUTES);
+            if (snapshotPeriod > 0) {
+                //background snapshot may be in progress, it writes to the same file
+                backupExecutor.awaitTermination(1, TimeUnit.MINUTES);
+                writeSnapshot();
+            }
+        } catch (InterruptedException e) {
+            log.warn("Interrupted while stopping profile savers.");
+        }
     }
 }
@@ -0,0 +1,44 @@
+package cc.blynk.server.workers;
+
+import cc.blynk.server.core.reporting.raw.RawDataProcessor;
+import cc.blynk.server.db.ReportingDBManager;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Moves raw records from the ring buffer of the raw data processor to the reporting DB writer.
+ * Runs often, so ring buffer is released long before it is full.
+ *
+ * The Blynk Project.
+ * Created by Dmitriy Dumanskiy.
+ * Created on 18.10.26.
+ */
+public class RawDataDrainWorker implements Runnable {
+
+    private static final Logger log = LogManager.getLogger(RawDataDrainWorker.class);
+
+    private final RawDataProcessor rawDataProcessor;
+    private final ReportingDBManager reportingDBManager;
+    private long lastDropped;
+
+    public RawDataDrainWorker(RawDataProcessor rawDataProcessor, ReportingDBManager reportingDBManager) {
+        this.rawDataProcessor = rawDataProcessor;
+        this.reportingDBManager = reportingDBManager;
+    }
+
+    @Override
+    public void run() {
+        try {
+            reportingDBManager.insertReportingRaw(rawDataProcessor);
+
+            long dropped = rawDataProcessor.getDroppedRecords();
+            if (dropped != lastDropped) {
+                log.warn("Raw data buffer is full. Dropped {} records.", dropped - lastDropped);
+                lastDropped = dropped;
+            }
+        } catch (Throwable t) {
+            log.error("Error draining raw data.", t);
+        }
+    }
+
+}
@@ -18,6 +18,7 @@ import java.nio.file.Paths;
 import java.util.concurrent.TimeUnit;
 
 import static cc.blynk.utils.ReportingUtil.REPORTING_RECORD_SIZE;
+import static java.nio.file.StandardOpenOption.CREATE;
 import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
 
 /**
@@ -104,10 +105,7 @@ public class ReportingTruncateWorker implements Runnable {
                                 long fileSize = Files.size(userReportingFile);
                                 if (fileSize > maxRecordsCount * REPORTING_RECORD_SIZE) {
                                     ByteBuffer userReportingData = FileUtils.read(userReportingFile, maxRecordsCount);
-                                    try (OutputStream os =
-                                                 Files.newOutputStream(userReportingFile, TRUNCATE_EXISTING)) {
-                                        os.write(userReportingData.array());
-                                    }
+                                    replace(userReportingFile, userReportingData);
                                     truncatedFilesCounter++;
                                 }
                             }
@@ -124,6 +122,18 @@ public class ReportingTruncateWorker implements Runnable {
         return truncatedFilesCounter;
     }
 
+    /**
+     * History files are memory mapped by readers, so we never truncate them in place.
+     * Instead new file is written and moved over the old one.
+     */
+    private void replace(Path userReportingFile, ByteBuffer userReportingData) throws IOException {
+        Path tmpFile = userReportingFile.resolveSibling(userReportingFile.getFileName() + ".tmp");
+        try (OutputStream os = Files.newOutputStream(tmpFile, CREATE, TRUNCATE_EXISTING)) {
+            os.write(userReportingData.array());
+        }
+        reportingDao.replace(userReportingFile, tmpFile);
+    }
+
     private static final PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:*_minute.bin");
     private static final DirectoryStream.Filter<Path> filter = entry -> matcher.matches(entry.getFileName());
 
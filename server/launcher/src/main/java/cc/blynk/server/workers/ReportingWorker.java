@@ -3,21 +3,24 @@ package cc.blynk.server.workers;
 import cc.blynk.server.core.dao.ReportingDiskDao;
 import cc.blynk.server.core.model.widgets.outputs.graph.GraphGranularityType;
 import cc.blynk.server.core.reporting.average.AggregationKey;
+import cc.blynk.server.core.reporting.average.AggregationTable;
 import cc.blynk.server.core.reporting.average.AggregationValue;
 import cc.blynk.server.db.ReportingDBManager;
 import cc.blynk.utils.FileUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.nio.file.Files;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 import static cc.blynk.server.core.dao.ReportingDiskDao.generateFilename;
 
@@ -47,19 +50,28 @@ public class ReportingWorker implements Runnable {
     @Override
     public void run() {
         try {
+            long start = System.currentTimeMillis();
+            Map<Path, FileBatch> batches = new HashMap<>();
+
             Map<AggregationKey, AggregationValue> removedKeysMinute =
-                    process(reportingDao.averageAggregator.getMinute(), GraphGranularityType.MINUTE);
+                    process(reportingDao.averageAggregator.getMinute(), GraphGranularityType.MINUTE, batches);
             Map<AggregationKey, AggregationValue> removedKeysHour =
-                    process(reportingDao.averageAggregator.getHourly(), GraphGranularityType.HOURLY);
+                    process(reportingDao.averageAggregator.getHourly(), GraphGranularityType.HOURLY, batches);
             Map<AggregationKey, AggregationValue> removedKeysDay =
-                    process(reportingDao.averageAggregator.getDaily(), GraphGranularityType.DAILY);
+                    process(reportingDao.averageAggregator.getDaily(), GraphGranularityType.DAILY, batches);
+
+            int flushedEntries = flush(batches);
+            //cached graphs of the appended files are outdated now
+            reportingDao.graphDataCache.invalidate(batches.keySet());
+            long flushTime = System.currentTimeMillis() - start;
+            reportingDao.channelPool.markFlushed(flushedEntries, flushTime);
+            log.debug("Flushed {} reporting entries to {} files. Time : {} ms.",
+                    flushedEntries, batches.size(), flushTime);
 
             reportingDBManager.insertReporting(removedKeysMinute, GraphGranularityType.MINUTE);
             reportingDBManager.insertReporting(removedKeysHour, GraphGranularityType.HOURLY);
             reportingDBManager.insertReporting(removedKeysDay, GraphGranularityType.DAILY);
 
-            reportingDBManager.insertReportingRaw(reportingDao.rawDataProcessor.rawStorage);
-
             reportingDBManager.cleanOldReportingRecords(Instant.now());
         } catch (Exception e) {
             log.error("Error during reporting job.", e);
@@ -67,54 +79,100 @@ public class ReportingWorker implements Runnable {
     }
 
     /**
-     * Iterates over all reporting entries that were created during last minute.
-     * And stores all entries one by one to disk.
+     * Takes all outdated reporting entries out of the aggregation table
+     * and groups them by the file they should be appended to.
      *
-     * @param map - reporting entires that were created during last minute.
+     * @param table - reporting entires that were created during last minute.
      * @param type - type of reporting. Could be minute, hourly, daily.
-     * @return - returns list of reporting entries that were successfully flushed to disk.
+     * @param batches - entries to flush grouped by reporting file.
+     * @return - returns map that is filled with entries that were successfully flushed to disk.
      */
-    private Map<AggregationKey, AggregationValue>  process(Map<AggregationKey, AggregationValue> map,
-                                                           GraphGranularityType type) {
-        if (map.size() == 0) {
+    private Map<AggregationKey, AggregationValue> process(AggregationTable table,
+                                                          GraphGranularityType type,
+                                                          Map<Path, FileBatch> batches) {
+        long nowTruncatedToPeriod = System.currentTimeMillis() / type.period;
+        Map<AggregationKey, AggregationValue> outdated = table.removeOutdated(nowTruncatedToPeriod);
+        if (outdated.size() == 0) {
             return Collections.emptyMap();
         }
 
-        Set<AggregationKey> aggregationKeySet = map.keySet();
-        AggregationKey[] keys = aggregationKeySet.toArray(new AggregationKey[0]);
+        AggregationKey[] keys = outdated.keySet().toArray(new AggregationKey[0]);
         Arrays.sort(keys, AggregationKey.AGGREGATION_KEY_COMPARATOR);
 
         var removedKeys = new HashMap<AggregationKey, AggregationValue>();
 
-        long nowTruncatedToPeriod = System.currentTimeMillis() / type.period;
         for (AggregationKey keyToRemove : keys) {
-            //if prev hour
-            if (keyToRemove.isOutdated(nowTruncatedToPeriod)) {
-                AggregationValue value = map.get(keyToRemove);
-
-                try {
-                    Path userReportFolder = Paths.get(reportingPath,
-                            FileUtils.getUserStorageDir(keyToRemove.getEmail(), keyToRemove.getAppName()));
-                    if (Files.notExists(userReportFolder)) {
-                        Files.createDirectories(userReportFolder);
-                    }
-
-                    String fileName = generateFilename(keyToRemove.getDashId(),
-                            keyToRemove.getDeviceId(), keyToRemove.getPinType(), keyToRemove.getPin(), type);
-                    Path filePath = Paths.get(userReportFolder.toString(), fileName);
-
-                    FileUtils.write(filePath, value.calcAverage(), keyToRemove.getTs(type));
-
-                    removedKeys.put(keyToRemove, value);
-                } catch (Exception ioe) {
-                    log.error("Error writing reporting file. Reason : {}", ioe.getMessage());
-                } finally {
-                    map.remove(keyToRemove);
+            try {
+                String fileName = generateFilename(keyToRemove.getDashId(),
+                        keyToRemove.getDeviceId(), keyToRemove.getPinType(), keyToRemove.getPin(), type);
+                Path filePath = Paths.get(reportingPath,
+                        FileUtils.getUserStorageDir(keyToRemove.getEmail(), keyToRemove.getAppName()),
+                        fileName);
+
+                FileBatch batch = batches.get(filePath);
+                if (batch == null) {
+                    batch = new FileBatch(removedKeys);
+                    batches.put(filePath, batch);
                 }
+                batch.add(keyToRemove, outdated.get(keyToRemove), keyToRemove.getTs(type));
+            } catch (Exception e) {
+                log.error("Error preparing reporting entry. Reason : {}", e.getMessage());
             }
         }
 
         return removedKeys;
     }
 
+    /**
+     * Appends all batched entries to disk. Every file gets exactly one gathering write.
+     * Entries of the file that failed to be written are not passed further to the DB.
+     *
+     * @return - number of entries flushed to disk.
+     */
+    private int flush(Map<Path, FileBatch> batches) {
+        int flushedEntries = 0;
+        for (Map.Entry<Path, FileBatch> entry : batches.entrySet()) {
+            FileBatch batch = entry.getValue();
+            try {
+                reportingDao.channelPool.write(entry.getKey(), batch.entries.toArray(new ByteBuffer[0]));
+                batch.markFlushed();
+                flushedEntries += batch.entries.size();
+            } catch (Exception ioe) {
+                log.error("Error writing reporting file. Reason : {}", ioe.getMessage());
+            }
+        }
+        return flushedEntries;
+    }
+
+    /**
+     * Reporting entries of the single reporting file collected during one worker run.
+     */
+    private static final class FileBatch {
+
+        private final Map<AggregationKey, AggregationValue> removedKeys;
+        private final List<AggregationKey> keys = new ArrayList<>(1);
+        private final List<AggregationValue> values = new ArrayList<>(1);
+        private final List<ByteBuffer> entries = new ArrayList<>(1);
+
+        FileBatch(Map<AggregationKey, AggregationValue> removedKeys) {
+            this.removedKeys = removedKeys;
+        }
+
+        void add(AggregationKey key, AggregationValue value, long ts) {
+            ByteBuffer entry = ByteBuffer.allocate(FileUtils.SIZE_OF_REPORT_ENTRY)
+                    .putDouble(value.calcAverage())
+                    .putLong(ts);
+            ((Buffer) entry).flip();
+            keys.add(key);
+            values.add(value);
+            entries.add(entry);
+        }
+
+        void markFlushed() {
+            for (int i = 0; i < keys.size(); i++) {
+                removedKeys.put(keys.get(i), values.get(i));
+            }
+        }
+    }
+
 }
@@ -2,6 +2,7 @@ package cc.blynk.server.workers;
 
 import cc.blynk.server.Holder;
 import cc.blynk.server.core.BlockingIOProcessor;
+import cc.blynk.server.core.dao.ReportingDiskDao;
 import cc.blynk.server.core.dao.SessionDao;
 import cc.blynk.server.core.dao.UserDao;
 import cc.blynk.server.core.model.widgets.ui.reporting.ReportScheduler;
@@ -31,6 +32,7 @@ public class StatsWorker implements Runnable {
     private final String region;
     private final BlockingIOProcessor blockingIOProcessor;
     private final ReportScheduler reportScheduler;
+    private final ReportingDiskDao reportingDiskDao;
 
     public StatsWorker(Holder holder) {
         this.stats = holder.stats;
@@ -40,12 +42,16 @@ public class StatsWorker implements Runnable {
         this.region = holder.props.region;
         this.blockingIOProcessor = holder.blockingIOProcessor;
         this.reportScheduler = holder.reportScheduler;
+        this.reportingDiskDao = holder.reportingDiskDao;
     }
 
     @Override
     public void run() {
         try {
-            var stat = new Stat(sessionDao, userDao, blockingIOProcessor, stats, reportScheduler, true);
+            userDao.activityStats.trackNewSessions(sessionDao.sessionStats, userDao.users);
+            userDao.activityStats.refresh(System.currentTimeMillis());
+            var stat = new Stat(sessionDao, userDao, blockingIOProcessor, stats,
+                    reportScheduler, reportingDiskDao, reportingDBManager, true);
             log.info(stat);
             reportingDBManager.insertStat(this.region, stat);
         } catch (Exception e) {
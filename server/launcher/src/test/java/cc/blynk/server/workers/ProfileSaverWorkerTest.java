@@ -4,13 +4,17 @@ import cc.blynk.server.core.BlockingIOProcessor;
 import cc.blynk.server.core.dao.FileManager;
 import cc.blynk.server.core.dao.UserDao;
 import cc.blynk.server.core.dao.UserKey;
+import cc.blynk.server.core.model.DashBoard;
 import cc.blynk.server.core.model.auth.User;
+import cc.blynk.server.core.model.enums.PinType;
 import cc.blynk.server.core.stats.GlobalStats;
+import cc.blynk.server.core.stats.metrics.LagGauge;
 import cc.blynk.server.db.DBManager;
 import cc.blynk.utils.AppNameUtil;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.MockitoJUnitRunner;
 
 import java.io.IOException;
@@ -19,7 +23,10 @@ import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
@@ -33,8 +40,9 @@ import static org.mockito.Mockito.when;
 @RunWith(MockitoJUnitRunner.Silent.class)
 public class ProfileSaverWorkerTest {
 
-    @Mock
-    private UserDao userDao;
+    //real dao, as worker updates activity stats of the saved users
+    @Spy
+    private UserDao userDao = new UserDao(new ConcurrentHashMap<>(), "local", "127.0.0.1");
 
     @Mock
     private FileManager fileManager;
@@ -92,4 +100,72 @@ public class ProfileSaverWorkerTest {
         verifyNoMoreInteractions(fileManager);
     }
 
+    @Test
+    public void testOnlyJournalIsSavedForPinUpdates() throws Exception {
+        User user1 = new User("1", "", AppNameUtil.BLYNK, "local", "127.0.0.1", false, false);
+        User user2 = new User("2", "", AppNameUtil.BLYNK, "local", "127.0.0.1", false, false);
+        DashBoard dash = new DashBoard();
+        user1.profile.dashBoards = new DashBoard[] {dash};
+
+        Map<UserKey, User> userMap = new HashMap<>();
+        userMap.put(new UserKey(user1), user1);
+        userMap.put(new UserKey(user2), user2);
+
+        Thread.sleep(1);
+
+        ProfileSaverWorker profileSaverWorker = new ProfileSaverWorker(userDao, fileManager, new DBManager(blockingIOProcessor, true));
+        user1.profile.update(dash, 0, (short) 1, PinType.VIRTUAL, "1", System.currentTimeMillis());
+
+        when(userDao.getUsers()).thenReturn(userMap);
+        profileSaverWorker.run();
+
+        verify(fileManager).saveUserJournal(user1);
+        verify(fileManager, never()).saveUserJournal(user2);
+        verify(fileManager, never()).overrideUserFile(any());
+    }
+
+    @Test
+    public void testModifiedProfilesAreSavedOnceByAllSavers() throws Exception {
+        ProfileSaverWorker profileSaverWorker =
+                new ProfileSaverWorker(userDao, fileManager, new DBManager(blockingIOProcessor, true), 4);
+
+        ConcurrentMap<UserKey, User> userMap = new ConcurrentHashMap<>();
+        for (int i = 0; i < 100; i++) {
+            User user = new User(String.valueOf(i), "", AppNameUtil.BLYNK, "local", "127.0.0.1", false, false);
+            userMap.put(new UserKey(user), user);
+        }
+        Thread.sleep(1);
+
+        when(userDao.getUsers()).thenReturn(userMap);
+        profileSaverWorker.run();
+
+        verify(fileManager, times(100)).overrideUserFile(any());
+        for (User user : userMap.values()) {
+            verify(fileManager).overrideUserFile(user);
+        }
+
+        //nothing changed since the last save
+        profileSaverWorker.run();
+        verify(fileManager, times(100)).overrideUserFile(any());
+        assertTrue(profileSaverWorker.getMaxSaveLag(false) >= profileSaverWorker.getLastSaveLag());
+        profileSaverWorker.close();
+    }
+
+    @Test
+    public void testSaveLagReportedToStats() throws Exception {
+        LagGauge saveLag = new LagGauge();
+        ProfileSaverWorker profileSaverWorker = new ProfileSaverWorker(userDao, fileManager,
+                new DBManager(blockingIOProcessor, true), 1, 0, saveLag);
+        when(userDao.getUsers()).thenReturn(new ConcurrentHashMap<>());
+        Thread.sleep(5);
+
+        profileSaverWorker.run();
+
+        //lag is counted from the worker creation for the first cycle
+        assertTrue(saveLag.getLast() >= 5);
+        assertEquals(saveLag.getLast(), saveLag.getMax(true));
+        assertEquals(0, saveLag.getMax(false));
+        profileSaverWorker.close();
+    }
+
 }
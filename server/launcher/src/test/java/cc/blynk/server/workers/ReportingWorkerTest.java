@@ -6,6 +6,7 @@ import cc.blynk.server.core.model.auth.User;
 import cc.blynk.server.core.model.enums.PinType;
 import cc.blynk.server.core.model.widgets.outputs.graph.GraphGranularityType;
 import cc.blynk.server.core.reporting.average.AggregationKey;
+import cc.blynk.server.core.reporting.average.AggregationTable;
 import cc.blynk.server.core.reporting.average.AggregationValue;
 import cc.blynk.server.core.reporting.average.AverageAggregatorProcessor;
 import cc.blynk.server.db.ReportingDBManager;
@@ -28,7 +29,6 @@ import java.nio.file.Paths;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
-import java.util.concurrent.ConcurrentHashMap;
 
 import static cc.blynk.server.core.dao.ReportingDiskDao.generateFilename;
 import static org.junit.Assert.assertEquals;
@@ -49,7 +49,6 @@ public class ReportingWorkerTest {
 
     private final String reportingFolder = Paths.get(System.getProperty("java.io.tmpdir"), "data").toString();
 
-    @Mock
     public AverageAggregatorProcessor averageAggregator;
 
     public ReportingDiskDao reportingDaoMock;
@@ -70,6 +69,7 @@ public class ReportingWorkerTest {
         FileUtils.deleteDirectory(dataFolder2.toFile());
         createReportingFolder(reportingFolder, "test2");
 
+        averageAggregator = new AverageAggregatorProcessor("");
         reportingDaoMock = new ReportingDiskDao(reportingFolder, averageAggregator, true);
     }
 
@@ -92,7 +92,7 @@ public class ReportingWorkerTest {
         ReportingWorker reportingWorker = new ReportingWorker(reportingDaoMock,
                 reportingFolder, new ReportingDBManager(blockingIOProcessor, true));
 
-        ConcurrentHashMap<AggregationKey, AggregationValue> map = new ConcurrentHashMap<>();
+        AggregationTable map = averageAggregator.getMinute();
 
         long ts = getTS() / AverageAggregatorProcessor.HOUR;
 
@@ -103,7 +103,6 @@ public class ReportingWorkerTest {
 
         map.put(aggregationKey, aggregationValue);
 
-        when(averageAggregator.getMinute()).thenReturn(map);
 
         reportingWorker.run();
         assertTrue(map.isEmpty());
@@ -117,7 +116,7 @@ public class ReportingWorkerTest {
         ReportingWorker reportingWorker = new ReportingWorker(reportingDaoMock,
                 reportingFolder, new ReportingDBManager(blockingIOProcessor, true));
 
-        ConcurrentHashMap<AggregationKey, AggregationValue> map = new ConcurrentHashMap<>();
+        AggregationTable map = averageAggregator.getHourly();
 
         long ts = getTS() / AverageAggregatorProcessor.HOUR;
 
@@ -135,9 +134,6 @@ public class ReportingWorkerTest {
         map.put(aggregationKey2, aggregationValue2);
         map.put(aggregationKey3, aggregationValue3);
 
-        when(averageAggregator.getMinute()).thenReturn(new ConcurrentHashMap<>());
-        when(averageAggregator.getHourly()).thenReturn(map);
-        when(averageAggregator.getDaily()).thenReturn(new ConcurrentHashMap<>());
 
         reportingWorker.run();
 
@@ -173,7 +169,7 @@ public class ReportingWorkerTest {
         ReportingWorker reportingWorker = new ReportingWorker(reportingDaoMock,
                 reportingFolder, new ReportingDBManager(blockingIOProcessor, true));
 
-        ConcurrentHashMap<AggregationKey, AggregationValue> map = new ConcurrentHashMap<>();
+        AggregationTable map = averageAggregator.getHourly();
 
         long ts = getTS() / AverageAggregatorProcessor.HOUR;
 
@@ -191,9 +187,6 @@ public class ReportingWorkerTest {
         map.put(aggregationKey2, aggregationValue2);
         map.put(aggregationKey3, aggregationValue3);
 
-        when(averageAggregator.getMinute()).thenReturn(new ConcurrentHashMap<>());
-        when(averageAggregator.getHourly()).thenReturn(map);
-        when(averageAggregator.getDaily()).thenReturn(new ConcurrentHashMap<>());
 
         reportingWorker.run();
 
@@ -236,7 +229,7 @@ public class ReportingWorkerTest {
         ReportingWorker reportingWorker = new ReportingWorker(reportingDaoMock,
                 reportingFolder, new ReportingDBManager(blockingIOProcessor, true));
 
-        ConcurrentHashMap<AggregationKey, AggregationValue> map = new ConcurrentHashMap<>();
+        AggregationTable map = averageAggregator.getHourly();
 
         long ts = getTS() / AverageAggregatorProcessor.HOUR;
 
@@ -254,9 +247,6 @@ public class ReportingWorkerTest {
         map.put(aggregationKey2, aggregationValue2);
         map.put(aggregationKey3, aggregationValue3);
 
-        when(averageAggregator.getMinute()).thenReturn(new ConcurrentHashMap<>());
-        when(averageAggregator.getHourly()).thenReturn(map);
-        when(averageAggregator.getDaily()).thenReturn(new ConcurrentHashMap<>());
         when(properties.getProperty("data.folder")).thenReturn(System.getProperty("java.io.tmpdir"));
 
         reportingWorker.run();
@@ -272,6 +262,46 @@ public class ReportingWorkerTest {
         assertFalse(Files.exists(Paths.get(reportingFolder, "test", generateFilename(1, 0, PinType.ANALOG, (short) 1, GraphGranularityType.HOURLY))));
     }
 
+    @Test
+    public void testStoreAfterDeleteReopensFile() {
+        ReportingWorker reportingWorker = new ReportingWorker(reportingDaoMock,
+                reportingFolder, new ReportingDBManager(blockingIOProcessor, true));
+
+        AggregationTable map = averageAggregator.getHourly();
+
+        long ts = getTS() / AverageAggregatorProcessor.HOUR;
+
+        AggregationKey aggregationKey = new AggregationKey("test", AppNameUtil.BLYNK, 1, 0, PinType.ANALOG, (short) 1, ts - 1);
+        AggregationValue aggregationValue = new AggregationValue();
+        aggregationValue.update(100);
+        map.put(aggregationKey, aggregationValue);
+
+
+        reportingWorker.run();
+        assertEquals(1, reportingDaoMock.channelPool.getOpenChannels());
+        assertEquals(1, reportingDaoMock.channelPool.getLastFlushEntries());
+
+        User user = new User();
+        user.email = "test";
+        user.appName = AppNameUtil.BLYNK;
+
+        reportingDaoMock.delete(user, 1, 0, PinType.ANALOG, (short) 1);
+        assertEquals(0, reportingDaoMock.channelPool.getOpenChannels());
+
+        AggregationKey aggregationKey2 = new AggregationKey("test", AppNameUtil.BLYNK, 1, 0, PinType.ANALOG, (short) 1, ts);
+        AggregationValue aggregationValue2 = new AggregationValue();
+        aggregationValue2.update(200);
+        map.put(aggregationKey2, aggregationValue2);
+
+        reportingWorker.run();
+
+        ByteBuffer data = reportingDaoMock.getByteBufferFromDisk(user, 1, 0, PinType.ANALOG, (short) 1, 24, GraphGranularityType.HOURLY, 0);
+        assertNotNull(data);
+        assertEquals(16, data.capacity());
+        assertEquals(200.0, data.getDouble(), 0.001);
+        assertEquals(ts * AverageAggregatorProcessor.HOUR, data.getLong());
+    }
+
     private long getTS() {
         SimpleDateFormat formatter = new SimpleDateFormat("MMM dd, yyyy HH:mm:ss");
         String dateInString = "Aug 10, 2015 12:10:56";
@@ -141,7 +141,7 @@ public class MobileHandler extends BaseSimpleChannelInboundHandler<StringMessage
     private MobileGetProjectByClonedTokenLogic getProjectByCloneCodeLogic;
 
     public MobileHandler(Holder holder, MobileStateHolder state) {
-        super(StringMessage.class);
+        super(StringMessage.class, holder.stats);
         this.state = state;
         this.holder = holder;
 
@@ -56,6 +56,7 @@ public final class MobileUpdateTagLogic {
         }
 
         existingTag.update(newTag);
+        dash.invalidatePinIndexes();
         user.lastModifiedTs = System.currentTimeMillis();
 
         ctx.writeAndFlush(ok(message.id), ctx.voidPromise());
@@ -93,6 +93,7 @@ public final class MobileDeleteWidgetLogic {
             }
             int index = tileTemplate.getWidgetIndexByIdOrThrow(widgetId);
             tileTemplate.widgets = ArrayUtil.remove(tileTemplate.widgets, index, Widget.class);
+            dash.invalidatePinIndexes();
         } else {
             if (widgetToDelete instanceof Tabs) {
                 dash.widgets = deleteTabs(timerWorker, user, state.userKey, dash.id,
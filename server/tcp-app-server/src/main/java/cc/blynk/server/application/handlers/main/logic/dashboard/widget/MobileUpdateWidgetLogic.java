@@ -136,6 +136,7 @@ public final class MobileUpdateWidgetLogic {
             }
             tileTemplate.widgets = ArrayUtil.copyAndReplace(
                     tileTemplate.widgets, newWidget, tileTemplate.getWidgetIndexByIdOrThrow(newWidget.id));
+            dash.invalidatePinIndexes();
         } else {
             if (newWidget instanceof Tabs) {
                 Tabs newTabs = (Tabs) newWidget;
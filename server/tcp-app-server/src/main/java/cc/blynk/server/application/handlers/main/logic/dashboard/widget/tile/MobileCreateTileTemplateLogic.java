@@ -71,6 +71,7 @@ public final class MobileCreateTileTemplateLogic {
 
         deviceTiles.templates = ArrayUtil.add(deviceTiles.templates, newTileTemplate, TileTemplate.class);
         deviceTiles.recreateTilesIfNecessary(newTileTemplate, null);
+        dash.invalidatePinIndexes();
 
         user.profile.cleanPinStorage(dash, deviceTiles, true);
 
@@ -61,6 +61,7 @@ public final class MobileUpdateTileTemplateLogic {
 
         log.debug("Updating tile template {}.", tileTemplateString);
         deviceTiles.replaceTileTemplate(newTileTemplate, existingTileTemplateIndex);
+        dash.invalidatePinIndexes();
 
         user.profile.cleanPinStorage(dash, deviceTiles, false);
 
@@ -27,7 +27,6 @@ import static cc.blynk.server.core.protocol.enums.Command.GET_ENHANCED_GRAPH_DAT
 import static cc.blynk.server.internal.CommonByteBufUtil.makeBinaryMessage;
 import static cc.blynk.server.internal.CommonByteBufUtil.noData;
 import static cc.blynk.server.internal.CommonByteBufUtil.serverError;
-import static cc.blynk.utils.ByteUtils.compress;
 import static cc.blynk.utils.StringUtils.split2Device;
 
 /**
@@ -61,9 +60,14 @@ public final class MobileGetEnhancedGraphDataLogic {
         long widgetId = Long.parseLong(messageParts[1]);
         GraphPeriod graphPeriod = GraphPeriod.valueOf(messageParts[2]);
         int page = 0;
-        if (messageParts.length == 4) {
+        if (messageParts.length > 3) {
             page = Integer.parseInt(messageParts[3]);
         }
+        //optional number of points app is able to draw, streams with more points are downsampled
+        int maxPoints = 0;
+        if (messageParts.length > 4) {
+            maxPoints = Integer.parseInt(messageParts[4]);
+        }
         int skipCount = graphPeriod.numberOfPoints * page;
 
         Profile profile = state.user.profile;
@@ -107,14 +111,14 @@ public final class MobileGetEnhancedGraphDataLogic {
             }
             if (target == null) {
                 requestedPins[i] = new GraphPinRequest(dashId, -1,
-                        graphDataStream.dataStream, graphPeriod, skipCount, graphDataStream.functionType);
+                        graphDataStream.dataStream, graphPeriod, skipCount, graphDataStream.functionType, maxPoints);
             } else {
                 if (target.isTag()) {
                     requestedPins[i] = new GraphPinRequest(dashId, target.getDeviceIds(),
-                            graphDataStream.dataStream, graphPeriod, skipCount, graphDataStream.functionType);
+                            graphDataStream.dataStream, graphPeriod, skipCount, graphDataStream.functionType, maxPoints);
                 } else {
                     requestedPins[i] = new GraphPinRequest(dashId, target.getDeviceId(),
-                            graphDataStream.dataStream, graphPeriod, skipCount, graphDataStream.functionType);
+                            graphDataStream.dataStream, graphPeriod, skipCount, graphDataStream.functionType, maxPoints);
                 }
             }
             i++;
@@ -127,8 +131,7 @@ public final class MobileGetEnhancedGraphDataLogic {
                                       GraphPinRequest[] requestedPins, int msgId) {
         holder.blockingIOProcessor.executeHistory(() -> {
             try {
-                byte[][] data = holder.reportingDiskDao.getReportingData(user, requestedPins);
-                byte[] compressed = compress(requestedPins[0].dashId, data);
+                byte[] compressed = holder.reportingDiskDao.getCompressedReportingData(user, requestedPins);
 
                 if (channel.isWritable()) {
                     channel.writeAndFlush(
@@ -39,7 +39,7 @@ public class MobileShareHandler extends BaseSimpleChannelInboundHandler<StringMe
     private final MobileShareHardwareLogic hardwareApp;
 
     public MobileShareHandler(Holder holder, MobileShareStateHolder state) {
-        super(StringMessage.class);
+        super(StringMessage.class, holder.stats);
         this.state = state;
         this.holder = holder;
 
@@ -26,6 +26,11 @@ public final class MobileShareStateHolder extends MobileStateHolder {
         return token.equals(sharedToken) || SharedTokenManager.ALL.equals(sharedToken);
     }
 
+    @Override
+    public int getDashId() {
+        return dashId;
+    }
+
     @Override
     public boolean isSameDash(int inDashId) {
         return this.dashId == inDashId;
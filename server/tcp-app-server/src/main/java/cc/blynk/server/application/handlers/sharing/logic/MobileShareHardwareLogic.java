@@ -15,7 +15,6 @@ import cc.blynk.server.core.processors.BaseProcessorHandler;
 import cc.blynk.server.core.processors.WebhookProcessor;
 import cc.blynk.server.core.protocol.model.messages.StringMessage;
 import cc.blynk.utils.NumberUtil;
-import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -24,7 +23,6 @@ import static cc.blynk.server.core.protocol.enums.Command.APP_SYNC;
 import static cc.blynk.server.core.protocol.enums.Command.HARDWARE;
 import static cc.blynk.server.internal.CommonByteBufUtil.deviceNotInNetwork;
 import static cc.blynk.server.internal.CommonByteBufUtil.illegalCommandBody;
-import static cc.blynk.server.internal.CommonByteBufUtil.makeUTF8StringMessage;
 import static cc.blynk.server.internal.CommonByteBufUtil.notAllowed;
 import static cc.blynk.utils.StringUtils.split2;
 import static cc.blynk.utils.StringUtils.split2Device;
@@ -138,14 +136,7 @@ public class MobileShareHardwareLogic extends BaseProcessorHandler {
 
                 String sharedToken = state.token;
                 if (sharedToken != null) {
-                    for (Channel appChannel : session.appChannels) {
-                        if (appChannel != ctx.channel() && appChannel.isWritable()
-                                && Session.needSync(appChannel, sharedToken)) {
-                            appChannel.writeAndFlush(
-                                    makeUTF8StringMessage(APP_SYNC, message.id, message.body),
-                                    appChannel.voidPromise());
-                        }
-                    }
+                    session.sendToSharedApps(ctx.channel(), sharedToken, APP_SYNC, message.id, message.body);
                 }
 
                 if (session.sendMessageToHardware(dashId, HARDWARE, message.id, split[1], deviceIds)
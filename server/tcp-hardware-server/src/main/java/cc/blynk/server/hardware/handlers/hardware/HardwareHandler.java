@@ -3,7 +3,9 @@ package cc.blynk.server.hardware.handlers.hardware;
 import cc.blynk.server.Holder;
 import cc.blynk.server.common.BaseSimpleChannelInboundHandler;
 import cc.blynk.server.common.handlers.logic.PingLogic;
+import cc.blynk.server.core.protocol.model.messages.MessageBase;
 import cc.blynk.server.core.protocol.model.messages.StringMessage;
+import cc.blynk.server.core.protocol.model.messages.hardware.PinWriteMessage;
 import cc.blynk.server.core.session.HardwareStateHolder;
 import cc.blynk.server.core.session.StateHolderBase;
 import cc.blynk.server.hardware.handlers.hardware.logic.BlynkInternalLogic;
@@ -39,7 +41,7 @@ import static cc.blynk.server.internal.CommonByteBufUtil.illegalCommand;
  * Created by Dmitriy Dumanskiy.
  * Created on 29.07.15.
  */
-public class HardwareHandler extends BaseSimpleChannelInboundHandler<StringMessage> {
+public class HardwareHandler extends BaseSimpleChannelInboundHandler<MessageBase> {
 
     private final HardwareStateHolder state;
     private final Holder holder;
@@ -53,7 +55,7 @@ public class HardwareHandler extends BaseSimpleChannelInboundHandler<StringMessa
     private SmsLogic sms;
 
     public HardwareHandler(Holder holder, HardwareStateHolder stateHolder) {
-        super(StringMessage.class);
+        super(MessageBase.class, holder.stats);
         this.state = stateHolder;
         this.holder = holder;
 
@@ -63,7 +65,16 @@ public class HardwareHandler extends BaseSimpleChannelInboundHandler<StringMessa
     }
 
     @Override
-    public void messageReceived(ChannelHandlerContext ctx, StringMessage msg) {
+    public void messageReceived(ChannelHandlerContext ctx, MessageBase msg) {
+        //most of hardware messages are pin writes, decoder parses them directly from the buffer
+        if (msg instanceof PinWriteMessage) {
+            hardware.messageReceived(state, (PinWriteMessage) msg);
+        } else if (msg instanceof StringMessage) {
+            stringMessageReceived(ctx, (StringMessage) msg);
+        }
+    }
+
+    private void stringMessageReceived(ChannelHandlerContext ctx, StringMessage msg) {
         switch (msg.command) {
             case HARDWARE:
                 hardware.messageReceived(ctx, state, msg);
@@ -24,7 +24,7 @@ public class MqttHardwareHandler extends BaseSimpleChannelInboundHandler<MqttMes
     private final GlobalStats stats;
 
     public MqttHardwareHandler(Holder holder, HardwareStateHolder stateHolder) {
-        super(MqttMessage.class);
+        super(MqttMessage.class, holder.stats);
         this.hardware = new MqttHardwareLogic(holder.sessionDao, holder.reportingDiskDao);
         this.state = stateHolder;
         this.stats = holder.stats;
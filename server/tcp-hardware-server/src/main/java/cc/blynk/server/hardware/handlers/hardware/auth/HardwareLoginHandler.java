@@ -98,16 +98,39 @@ public class HardwareLoginHandler extends SimpleChannelInboundHandler<LoginMessa
     @Override
     protected void channelRead0(ChannelHandlerContext ctx, LoginMessage message) {
         String token = message.body.trim();
-        TokenValue tokenValue = holder.tokenManager.getTokenValueByToken(token);
+        if (holder.tokenManager.isEvictedUserToken(token)) {
+            loadEvictedUser(ctx, token, message.id);
+            return;
+        }
+        login(ctx, token, holder.tokenManager.getTokenValueByToken(token), message.id);
+    }
+
+    //evicted user is read from disk on the blocking pool, so the event loop isn't blocked by the disk read
+    private void loadEvictedUser(ChannelHandlerContext ctx, String token, int msgId) {
+        try {
+            blockingIOProcessor.execute(() -> {
+                TokenValue tokenValue = holder.tokenManager.getTokenValueByToken(token);
+                ctx.channel().eventLoop().execute(() -> {
+                    if (ctx.channel().isActive()) {
+                        login(ctx, token, tokenValue, msgId);
+                    }
+                });
+            });
+        } catch (RejectedExecutionException ree) {
+            log.warn("Error loading evicted user on hardware login. Limit of tasks reached.");
+            ctx.writeAndFlush(serverError(msgId), ctx.voidPromise());
+        }
+    }
 
+    private void login(ChannelHandlerContext ctx, String token, TokenValue tokenValue, int msgId) {
         if (tokenValue == null) {
             //token should always be 32 chars and shouldn't contain invalid nil char
             if (token.length() != 32 || token.contains(StringUtils.BODY_SEPARATOR_STRING)) {
                 log.debug("HardwareLogic token is invalid. Token '{}', '{}'", token, ctx.channel().remoteAddress());
-                ctx.writeAndFlush(invalidToken(message.id), ctx.voidPromise());
+                ctx.writeAndFlush(invalidToken(msgId), ctx.voidPromise());
             } else {
                 //no user on current server, trying to find server that user belongs to.
-                checkTokenOnOtherServer(ctx, token, message.id);
+                checkTokenOnOtherServer(ctx, token, msgId);
             }
             return;
         }
@@ -122,7 +145,7 @@ public class HardwareLoginHandler extends SimpleChannelInboundHandler<LoginMessa
             user.lastModifiedTs = System.currentTimeMillis();
         }
 
-        createSessionAndReregister(ctx, user, dash, device, message.id);
+        createSessionAndReregister(ctx, user, dash, device, msgId);
     }
 
     private void createSessionAndReregister(ChannelHandlerContext ctx,
@@ -12,6 +12,7 @@ import cc.blynk.server.core.model.enums.PinType;
 import cc.blynk.server.core.processors.BaseProcessorHandler;
 import cc.blynk.server.core.processors.WebhookProcessor;
 import cc.blynk.server.core.protocol.model.messages.StringMessage;
+import cc.blynk.server.core.protocol.model.messages.hardware.PinWriteMessage;
 import cc.blynk.server.core.session.HardwareStateHolder;
 import cc.blynk.utils.NumberUtil;
 import io.netty.channel.ChannelHandlerContext;
@@ -54,6 +55,11 @@ public class HardwareLogic extends BaseProcessorHandler {
         messageReceived(ctx, message, state.userKey, state.user, state.dash, state.device);
     }
 
+    //pin write that was already parsed by the decoder
+    public void messageReceived(HardwareStateHolder state, PinWriteMessage message) {
+        processWrite(message, state.userKey, state.user, state.dash, state.device);
+    }
+
     public void messageReceived(ChannelHandlerContext ctx, StringMessage message,
                                 UserKey userKey, User user, DashBoard dash, Device device) {
         String body = message.body;
@@ -76,22 +82,30 @@ public class HardwareLogic extends BaseProcessorHandler {
 
             PinType pinType = PinType.getPinType(splitBody[0].charAt(0));
             short pin = NumberUtil.parsePin(splitBody[1]);
-            String value = splitBody[2];
-            long now = System.currentTimeMillis();
-            int deviceId = device.id;
-
-            reportingDao.process(user, dash, deviceId, pin, pinType, value, now);
-            user.profile.update(dash, deviceId, pin, pinType, value, now);
-            device.dataReceivedAt = now;
-
-            Session session = sessionDao.get(userKey);
-            processEventorAndWebhook(user, dash, deviceId, session, pin, pinType, value, now);
+            processWrite(new PinWriteMessage(message.id, pinType, pin, splitBody[2], body),
+                    userKey, user, dash, device);
+        }
+    }
 
-            if (dash.isActive) {
-                session.sendToApps(HARDWARE, message.id, dash.id, deviceId, body);
-            } else {
-                log.trace("No active dashboard.");
-            }
+    private void processWrite(PinWriteMessage message, UserKey userKey, User user, DashBoard dash, Device device) {
+        PinType pinType = message.pinType;
+        short pin = message.pin;
+        String value = message.value;
+        long now = System.currentTimeMillis();
+        int deviceId = device.id;
+
+        reportingDao.process(user, dash, deviceId, pin, pinType, value, now);
+        user.profile.update(dash, deviceId, pin, pinType, value, now);
+        device.dataReceivedAt = now;
+
+        Session session = sessionDao.get(userKey);
+        processEventorAndWebhook(user, dash, deviceId, session, pin, pinType, value, now);
+
+        if (dash.isActive) {
+            //for decoded pin writes body is created only here
+            session.sendToApps(HARDWARE, message.id, dash.id, deviceId, message.getBody());
+        } else {
+            log.trace("No active dashboard.");
         }
     }
 
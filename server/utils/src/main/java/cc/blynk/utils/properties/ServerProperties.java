@@ -101,6 +101,18 @@ public class ServerProperties extends BaseProperties {
         return getBoolProperty("enable.db");
     }
 
+    public boolean isUsersSnapshotEnabled() {
+        return getBoolProperty("profile.snapshot.enabled");
+    }
+
+    public boolean isProfileEvictionEnabled() {
+        return getBoolProperty("profile.eviction.enabled");
+    }
+
+    public long getProfileEvictionInactivityPeriod() {
+        return getLongProperty("profile.eviction.inactivity.days", 30) * 24 * 60 * 60 * 1000;
+    }
+
     private String getHttpsPortOrBlankIfDefaultAsString() {
         if (force80Port()) {
             //means default port 443 is used, so no need to attach it
@@ -128,4 +140,8 @@ public class ServerProperties extends BaseProperties {
     public boolean isRawDBEnabled() {
         return getBoolProperty("enable.raw.db.data.store");
     }
+
+    public boolean isHardwarePinWriteDecodingEnabled() {
+        return getBoolProperty("hardware.pin.write.decoding");
+    }
 }